@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out many independent trees of {@link FlexNode}s in parallel on a {@link ForkJoinPool},
+ * e.g. to render share cards or email snippets on a server with the same flexbox algorithm as
+ * FlexboxLayout.
+ *
+ * <p>Each tree is measured and laid out on a single thread, from the root node down to the
+ * leaves, thus the {@link MeasureFunction}s of different trees may run concurrently but the
+ * nodes of a tree never do. The trees must not share nodes.</p>
+ */
+public class BatchLayout {
+
+    /**
+     * The number of tasks created for each thread of the pool, so that a thread which finished
+     * its trees early can steal the remaining work from the others.
+     */
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final ForkJoinPool mPool;
+
+    /**
+     * Creates a batch layout which uses a new {@link ForkJoinPool} whose parallelism is the
+     * number of the available processors.
+     */
+    public BatchLayout() {
+        this(new ForkJoinPool());
+    }
+
+    /**
+     * @param pool the pool on which the trees are laid out
+     */
+    public BatchLayout(ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("pool must not be null");
+        }
+        mPool = pool;
+    }
+
+    /**
+     * Measures and lays out each of the root nodes as in
+     * {@link FlexNode#calculateLayout(int, int)}, and returns once all of them are laid out.
+     * If a {@link MeasureFunction} throws an exception, the exception is rethrown from this
+     * method and the trees which are still being laid out are left in an unspecified state.
+     *
+     * @param roots             the root nodes of the trees to be laid out
+     * @param widthMeasureSpec  horizontal space requirements for each root node
+     * @param heightMeasureSpec vertical space requirements for each root node
+     */
+    public void layout(List<FlexNode> roots, int widthMeasureSpec, int heightMeasureSpec) {
+        int size = roots.size();
+        if (size == 0) {
+            return;
+        }
+        int threshold = Math.max(1, size / (mPool.getParallelism() * TASKS_PER_THREAD));
+        mPool.invoke(new LayoutTask(roots, 0, size, threshold, widthMeasureSpec,
+                heightMeasureSpec));
+    }
+
+    /**
+     * @return the pool on which the trees are laid out
+     */
+    public ForkJoinPool getPool() {
+        return mPool;
+    }
+
+    /**
+     * Lays out the root nodes in a range of the list, by splitting the range in half until it
+     * has at most {@code mThreshold} nodes.
+     */
+    private static class LayoutTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<FlexNode> mRoots;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        private final int mThreshold;
+
+        private final int mWidthMeasureSpec;
+
+        private final int mHeightMeasureSpec;
+
+        LayoutTask(List<FlexNode> roots, int start, int end, int threshold, int widthMeasureSpec,
+                int heightMeasureSpec) {
+            mRoots = roots;
+            mStart = start;
+            mEnd = end;
+            mThreshold = threshold;
+            mWidthMeasureSpec = widthMeasureSpec;
+            mHeightMeasureSpec = heightMeasureSpec;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= mThreshold) {
+                for (int i = mStart; i < mEnd; i++) {
+                    mRoots.get(i).calculateLayout(mWidthMeasureSpec, mHeightMeasureSpec);
+                }
+                return;
+            }
+            int middle = (mStart + mEnd) >>> 1;
+            invokeAll(new LayoutTask(mRoots, mStart, middle, mThreshold, mWidthMeasureSpec,
+                            mHeightMeasureSpec),
+                    new LayoutTask(mRoots, middle, mEnd, mThreshold, mWidthMeasureSpec,
+                            mHeightMeasureSpec));
+        }
+    }
+}
@@ -0,0 +1,731 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexContainer;
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexboxEngine;
+
+import java.util.Arrays;
+
+/**
+ * A flat list of flex items laid out by a {@link FlexboxEngine}, for layouts too large to have an
+ * object per flex item. The attributes and the results of all flex items live in a handful of
+ * primitive arrays where the values of a flex item are adjacent, and the engine reads them
+ * through a single reusable {@link FlexItem}. The frames are read from the engine's own array.
+ * Each flex item is measured by resolving its intrinsic size against the MeasureSpec, e.g. the
+ * size of a photo known from its metadata.
+ *
+ * <p>The arrays of the attributes which are rarely set, e.g. the margins and the min/max sizes,
+ * aren't allocated until they're set for any flex item, so that about 26 bytes are kept for each
+ * flex item which only has the intrinsic size and the flex factors.</p>
+ *
+ * <p>The container attributes, e.g. the flex direction, are set through {@link #getEngine()}.
+ * </p>
+ */
+public class FlexItemArena {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final byte FLAG_GONE = 1;
+
+    private static final byte FLAG_WRAP_BEFORE = 1 << 1;
+
+    // Whether the layout width (height) is match_parent or a size in pixels, otherwise it's
+    // wrap_content.
+    private static final byte FLAG_MATCH_PARENT_WIDTH = 1 << 2;
+
+    private static final byte FLAG_EXACT_WIDTH = 1 << 3;
+
+    private static final byte FLAG_MATCH_PARENT_HEIGHT = 1 << 4;
+
+    private static final byte FLAG_EXACT_HEIGHT = 1 << 5;
+
+    // The number of the elements each flex item occupies in the arrays below.
+    private static final int SIZES_STRIDE = 4;
+
+    private static final int MIN_MAX_SIZES_STRIDE = 4;
+
+    private static final int MARGINS_STRIDE = 4;
+
+    private static final int FLEX_FACTORS_STRIDE = 2;
+
+    private static final int BASIS_FACTORS_STRIDE = 2;
+
+    // The offsets of the values of a flex item in mSizes. The width (height) is the intrinsic
+    // size, or the layout size in pixels if FLAG_EXACT_WIDTH (FLAG_EXACT_HEIGHT) is set, since
+    // the intrinsic size isn't used then.
+    private static final int WIDTH = 0;
+
+    private static final int HEIGHT = 1;
+
+    private static final int MEASURED_WIDTH = 2;
+
+    private static final int MEASURED_HEIGHT = 3;
+
+    // The offsets of the values of a flex item in mMinMaxSizes.
+    private static final int MIN_WIDTH = 0;
+
+    private static final int MIN_HEIGHT = 1;
+
+    private static final int MAX_WIDTH = 2;
+
+    private static final int MAX_HEIGHT = 3;
+
+    // The offsets of the values of a flex item in mFlexFactors.
+    private static final int FLEX_GROW = 0;
+
+    private static final int FLEX_SHRINK = 1;
+
+    // The offsets of the values of a flex item in mBasisFactors.
+    private static final int FLEX_BASIS_PERCENT = 0;
+
+    private static final int ASPECT_RATIO = 1;
+
+    private final FlexboxEngine mEngine;
+
+    private final ItemCursor mCursor = new ItemCursor();
+
+    private int mSize;
+
+    /** The number of the flex items which can be added without growing the arrays */
+    private int mCapacity;
+
+    /** Width, height, measured width and measured height of each flex item */
+    private int[] mSizes;
+
+    /** flexGrow and flexShrink of each flex item */
+    private float[] mFlexFactors;
+
+    private byte[] mAlignSelfs;
+
+    private byte[] mFlags;
+
+    /** Min width, min height, max width and max height of each flex item, or null if never set */
+    private int[] mMinMaxSizes;
+
+    /** Left, top, right and bottom margins of each flex item, or null if never set */
+    private short[] mMargins;
+
+    /** flexBasisPercent and aspectRatio of each flex item, or null if never set */
+    private float[] mBasisFactors;
+
+    /** The order of each flex item, or null if never set */
+    private int[] mOrders;
+
+    /** The number of the flex items laid out in the last {@link #calculateLayout} */
+    private int mLaidOutSize;
+
+    /**
+     * The reordered index of each flex item in the last {@link #calculateLayout}, through which
+     * the frames kept by the engine are looked up. Null if the order attributes didn't change the
+     * order of the flex items, in which case the reordered index is the index itself.
+     */
+    private int[] mReorderedIndices;
+
+    /**
+     * The reordered index next to the last flex item of each flex line computed in
+     * {@link #calculateLayout}, in which the flex line of a flex item is binary searched. Only the
+     * first {@link #mLineCount} elements are valid.
+     */
+    private int[] mLineEnds = new int[0];
+
+    private int mLineCount;
+
+    public FlexItemArena() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the number of the flex items which can be added without growing the arrays
+     */
+    public FlexItemArena(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        mCapacity = capacity;
+        mSizes = new int[capacity * SIZES_STRIDE];
+        mFlexFactors = new float[capacity * FLEX_FACTORS_STRIDE];
+        mAlignSelfs = new byte[capacity];
+        mFlags = new byte[capacity];
+        mEngine = new FlexboxEngine(new ArenaFlexContainer());
+    }
+
+    /**
+     * @return the engine which lays out the flex items, through which the attributes of the flex
+     * container are set
+     */
+    public FlexboxEngine getEngine() {
+        return mEngine;
+    }
+
+    /**
+     * Adds a flex item with the default attributes of a FlexboxLayout.LayoutParams whose width and
+     * height are wrap_content.
+     *
+     * @param intrinsicWidth  the width of the flex item when it isn't constrained
+     * @param intrinsicHeight the height of the flex item when it isn't constrained
+     * @return the index of the added flex item
+     */
+    public int addItem(int intrinsicWidth, int intrinsicHeight) {
+        int index = mSize;
+        ensureCapacity(index + 1);
+        int offset = index * SIZES_STRIDE;
+        mSizes[offset + WIDTH] = intrinsicWidth;
+        mSizes[offset + HEIGHT] = intrinsicHeight;
+        mSizes[offset + MEASURED_WIDTH] = 0;
+        mSizes[offset + MEASURED_HEIGHT] = 0;
+        offset = index * FLEX_FACTORS_STRIDE;
+        mFlexFactors[offset + FLEX_GROW] = FlexItem.FLEX_GROW_DEFAULT;
+        mFlexFactors[offset + FLEX_SHRINK] = FlexItem.FLEX_SHRINK_DEFAULT;
+        mAlignSelfs[index] = FlexItem.ALIGN_SELF_AUTO;
+        mFlags[index] = 0;
+        if (mMinMaxSizes != null) {
+            resetMinMaxSizes(index, index + 1);
+        }
+        if (mMargins != null) {
+            Arrays.fill(mMargins, index * MARGINS_STRIDE, (index + 1) * MARGINS_STRIDE,
+                    (short) 0);
+        }
+        if (mBasisFactors != null) {
+            resetBasisFactors(index, index + 1);
+        }
+        if (mOrders != null) {
+            mOrders[index] = FlexItem.ORDER_DEFAULT;
+        }
+        mSize++;
+        mEngine.invalidateOrder();
+        return index;
+    }
+
+    /**
+     * Removes all the flex items. The arrays are kept for the flex items added next.
+     */
+    public void clear() {
+        mSize = 0;
+        mLaidOutSize = 0;
+        mEngine.invalidateOrder();
+    }
+
+    /**
+     * @return the number of the flex items
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Measures and lays out all the flex items as FlexboxLayout does in its onMeasure and
+     * onLayout. The results are available through {@link #getLeft(int)} and the other getters.
+     *
+     * @param widthMeasureSpec  horizontal space requirements for the flex container
+     * @param heightMeasureSpec vertical space requirements for the flex container
+     */
+    public void calculateLayout(int widthMeasureSpec, int heightMeasureSpec) {
+        mEngine.measure(widthMeasureSpec, heightMeasureSpec);
+        mEngine.layout(0, 0, mEngine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                mEngine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK, false);
+        mLaidOutSize = mSize;
+
+        // The engine keeps the frames in the reordered index, thus map the index of each flex item
+        // to it unless no flex items are reordered
+        boolean reordered = false;
+        for (int i = 0; i < mSize && !reordered; i++) {
+            reordered = mEngine.getReorderedItemIndex(i) != i;
+        }
+        if (reordered) {
+            if (mReorderedIndices == null || mReorderedIndices.length < mSize) {
+                mReorderedIndices = new int[mCapacity];
+            }
+            for (int reorderedIndex = 0; reorderedIndex < mSize; reorderedIndex++) {
+                mReorderedIndices[mEngine.getReorderedItemIndex(reorderedIndex)] = reorderedIndex;
+            }
+        } else {
+            mReorderedIndices = null;
+        }
+
+        mLineCount = mEngine.getFlexLineCount();
+        if (mLineEnds.length < mLineCount) {
+            mLineEnds = new int[mLineCount];
+        }
+        int lineEnd = 0;
+        for (int lineIndex = 0; lineIndex < mLineCount; lineIndex++) {
+            lineEnd += mEngine.getFlexLineAt(lineIndex).getItemCount();
+            mLineEnds[lineIndex] = lineEnd;
+        }
+    }
+
+    /**
+     * @return the left position of the flex item relative to the flex container computed in the
+     * last {@link #calculateLayout(int, int)}
+     */
+    public int getLeft(int index) {
+        int reorderedIndex = getReorderedIndex(index);
+        return reorderedIndex < 0 ? 0 : mEngine.getFrameLeft(reorderedIndex);
+    }
+
+    /**
+     * @return the top position of the flex item relative to the flex container computed in the
+     * last {@link #calculateLayout(int, int)}
+     */
+    public int getTop(int index) {
+        int reorderedIndex = getReorderedIndex(index);
+        return reorderedIndex < 0 ? 0 : mEngine.getFrameTop(reorderedIndex);
+    }
+
+    /**
+     * @return the right position of the flex item relative to the flex container computed in the
+     * last {@link #calculateLayout(int, int)}
+     */
+    public int getRight(int index) {
+        int reorderedIndex = getReorderedIndex(index);
+        return reorderedIndex < 0 ? 0 : mEngine.getFrameRight(reorderedIndex);
+    }
+
+    /**
+     * @return the bottom position of the flex item relative to the flex container computed in the
+     * last {@link #calculateLayout(int, int)}
+     */
+    public int getBottom(int index) {
+        int reorderedIndex = getReorderedIndex(index);
+        return reorderedIndex < 0 ? 0 : mEngine.getFrameBottom(reorderedIndex);
+    }
+
+    /**
+     * @return the index of the flex line the flex item belongs to, in the same indices as
+     * {@link FlexboxEngine#getFlexLines()}, or -1 if the flex item is gone
+     */
+    public int getLineIndex(int index) {
+        int reorderedIndex = getReorderedIndex(index);
+        if (reorderedIndex < 0) {
+            return -1;
+        }
+        // The first flex line whose end is after the flex item
+        int low = 0;
+        int high = mLineCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (mLineEnds[middle] <= reorderedIndex) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < mLineCount ? low : -1;
+    }
+
+    /**
+     * @return the reordered index of the flex item in the last {@link #calculateLayout}, or -1 if
+     * the flex item is gone or added after it
+     */
+    private int getReorderedIndex(int index) {
+        checkIndex(index);
+        if (index >= mLaidOutSize || (mFlags[index] & FLAG_GONE) != 0) {
+            return -1;
+        }
+        return mReorderedIndices != null ? mReorderedIndices[index] : index;
+    }
+
+    /**
+     * Sets the size of the flex item when it isn't constrained. The intrinsic size along the axis
+     * whose layout size is a size in pixels isn't used, thus it isn't kept.
+     */
+    public void setIntrinsicSize(int index, int intrinsicWidth, int intrinsicHeight) {
+        checkIndex(index);
+        int offset = index * SIZES_STRIDE;
+        if ((mFlags[index] & FLAG_EXACT_WIDTH) == 0) {
+            mSizes[offset + WIDTH] = intrinsicWidth;
+        }
+        if ((mFlags[index] & FLAG_EXACT_HEIGHT) == 0) {
+            mSizes[offset + HEIGHT] = intrinsicHeight;
+        }
+    }
+
+    /**
+     * Sets the equivalents of layout_width and layout_height, which are a size in pixels,
+     * {@link FlexItem#MATCH_PARENT} or {@link FlexItem#WRAP_CONTENT}. A size in pixels is kept in
+     * place of the intrinsic size, thus the intrinsic size needs to be set again when the layout
+     * size is set back to {@link FlexItem#WRAP_CONTENT}.
+     */
+    public void setLayoutSize(int index, int width, int height) {
+        checkIndex(index);
+        int offset = index * SIZES_STRIDE;
+        byte flags = mFlags[index];
+        flags = applyLayoutSize(flags, width, FLAG_MATCH_PARENT_WIDTH, FLAG_EXACT_WIDTH);
+        flags = applyLayoutSize(flags, height, FLAG_MATCH_PARENT_HEIGHT, FLAG_EXACT_HEIGHT);
+        if ((flags & FLAG_EXACT_WIDTH) != 0) {
+            mSizes[offset + WIDTH] = width;
+        }
+        if ((flags & FLAG_EXACT_HEIGHT) != 0) {
+            mSizes[offset + HEIGHT] = height;
+        }
+        mFlags[index] = flags;
+    }
+
+    private static byte applyLayoutSize(byte flags, int size, byte matchParentFlag,
+            byte exactFlag) {
+        flags &= ~(matchParentFlag | exactFlag);
+        if (size == FlexItem.MATCH_PARENT) {
+            flags |= matchParentFlag;
+        } else if (size >= 0) {
+            flags |= exactFlag;
+        } else if (size != FlexItem.WRAP_CONTENT) {
+            throw new IllegalArgumentException("Invalid layout size: " + size);
+        }
+        return flags;
+    }
+
+    public void setMinSize(int index, int minWidth, int minHeight) {
+        checkIndex(index);
+        ensureMinMaxSizes();
+        mMinMaxSizes[index * MIN_MAX_SIZES_STRIDE + MIN_WIDTH] = minWidth;
+        mMinMaxSizes[index * MIN_MAX_SIZES_STRIDE + MIN_HEIGHT] = minHeight;
+    }
+
+    public void setMaxSize(int index, int maxWidth, int maxHeight) {
+        checkIndex(index);
+        ensureMinMaxSizes();
+        mMinMaxSizes[index * MIN_MAX_SIZES_STRIDE + MAX_WIDTH] = maxWidth;
+        mMinMaxSizes[index * MIN_MAX_SIZES_STRIDE + MAX_HEIGHT] = maxHeight;
+    }
+
+    /**
+     * Sets the margins of the flex item, each of which needs to fit in a short.
+     */
+    public void setMargins(int index, int left, int top, int right, int bottom) {
+        checkIndex(index);
+        if (mMargins == null) {
+            mMargins = new short[mCapacity * MARGINS_STRIDE];
+        }
+        int offset = index * MARGINS_STRIDE;
+        mMargins[offset] = toMargin(left);
+        mMargins[offset + 1] = toMargin(top);
+        mMargins[offset + 2] = toMargin(right);
+        mMargins[offset + 3] = toMargin(bottom);
+    }
+
+    private static short toMargin(int margin) {
+        if (margin < Short.MIN_VALUE || margin > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Margin out of range: " + margin);
+        }
+        return (short) margin;
+    }
+
+    public void setFlexGrow(int index, float flexGrow) {
+        checkIndex(index);
+        mFlexFactors[index * FLEX_FACTORS_STRIDE + FLEX_GROW] = flexGrow;
+    }
+
+    public void setFlexShrink(int index, float flexShrink) {
+        checkIndex(index);
+        mFlexFactors[index * FLEX_FACTORS_STRIDE + FLEX_SHRINK] = flexShrink;
+    }
+
+    public void setFlexBasisPercent(int index, float flexBasisPercent) {
+        checkIndex(index);
+        ensureBasisFactors();
+        mBasisFactors[index * BASIS_FACTORS_STRIDE + FLEX_BASIS_PERCENT] = flexBasisPercent;
+    }
+
+    public void setAspectRatio(int index, float aspectRatio) {
+        checkIndex(index);
+        ensureBasisFactors();
+        mBasisFactors[index * BASIS_FACTORS_STRIDE + ASPECT_RATIO] = aspectRatio;
+    }
+
+    public void setOrder(int index, int order) {
+        checkIndex(index);
+        if (mOrders == null) {
+            mOrders = new int[mCapacity];
+            Arrays.fill(mOrders, 0, mSize, FlexItem.ORDER_DEFAULT);
+        }
+        mOrders[index] = order;
+    }
+
+    public void setAlignSelf(int index, int alignSelf) {
+        checkIndex(index);
+        if (alignSelf < FlexItem.ALIGN_SELF_AUTO || alignSelf > FlexItem.ALIGN_SELF_STRETCH) {
+            throw new IllegalArgumentException("Invalid alignSelf: " + alignSelf);
+        }
+        mAlignSelfs[index] = (byte) alignSelf;
+    }
+
+    public void setWrapBefore(int index, boolean wrapBefore) {
+        setFlag(index, FLAG_WRAP_BEFORE, wrapBefore);
+    }
+
+    /**
+     * Sets whether the flex item is excluded from the layout like a View whose visibility is
+     * {@code View.GONE}.
+     */
+    public void setGone(int index, boolean gone) {
+        setFlag(index, FLAG_GONE, gone);
+    }
+
+    private void setFlag(int index, byte flag, boolean value) {
+        checkIndex(index);
+        if (value) {
+            mFlags[index] |= flag;
+        } else {
+            mFlags[index] &= ~flag;
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + mSize);
+        }
+    }
+
+    private void ensureMinMaxSizes() {
+        if (mMinMaxSizes == null) {
+            mMinMaxSizes = new int[mCapacity * MIN_MAX_SIZES_STRIDE];
+            resetMinMaxSizes(0, mSize);
+        }
+    }
+
+    private void resetMinMaxSizes(int from, int to) {
+        for (int offset = from * MIN_MAX_SIZES_STRIDE, end = to * MIN_MAX_SIZES_STRIDE;
+                offset < end; offset += MIN_MAX_SIZES_STRIDE) {
+            mMinMaxSizes[offset + MIN_WIDTH] = 0;
+            mMinMaxSizes[offset + MIN_HEIGHT] = 0;
+            mMinMaxSizes[offset + MAX_WIDTH] = FlexItem.MAX_SIZE;
+            mMinMaxSizes[offset + MAX_HEIGHT] = FlexItem.MAX_SIZE;
+        }
+    }
+
+    private void ensureBasisFactors() {
+        if (mBasisFactors == null) {
+            mBasisFactors = new float[mCapacity * BASIS_FACTORS_STRIDE];
+            resetBasisFactors(0, mSize);
+        }
+    }
+
+    private void resetBasisFactors(int from, int to) {
+        for (int offset = from * BASIS_FACTORS_STRIDE, end = to * BASIS_FACTORS_STRIDE;
+                offset < end; offset += BASIS_FACTORS_STRIDE) {
+            mBasisFactors[offset + FLEX_BASIS_PERCENT] = FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+            mBasisFactors[offset + ASPECT_RATIO] = FlexItem.ASPECT_RATIO_DEFAULT;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mCapacity) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, mCapacity * 2);
+        mSizes = Arrays.copyOf(mSizes, newCapacity * SIZES_STRIDE);
+        mFlexFactors = Arrays.copyOf(mFlexFactors, newCapacity * FLEX_FACTORS_STRIDE);
+        mAlignSelfs = Arrays.copyOf(mAlignSelfs, newCapacity);
+        mFlags = Arrays.copyOf(mFlags, newCapacity);
+        if (mMinMaxSizes != null) {
+            mMinMaxSizes = Arrays.copyOf(mMinMaxSizes, newCapacity * MIN_MAX_SIZES_STRIDE);
+        }
+        if (mMargins != null) {
+            mMargins = Arrays.copyOf(mMargins, newCapacity * MARGINS_STRIDE);
+        }
+        if (mBasisFactors != null) {
+            mBasisFactors = Arrays.copyOf(mBasisFactors, newCapacity * BASIS_FACTORS_STRIDE);
+        }
+        if (mOrders != null) {
+            mOrders = Arrays.copyOf(mOrders, newCapacity);
+        }
+        if (mReorderedIndices != null) {
+            mReorderedIndices = Arrays.copyOf(mReorderedIndices, newCapacity);
+        }
+        mCapacity = newCapacity;
+    }
+
+    private static int resolveSize(int intrinsicSize, int measureSpec) {
+        int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+        switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+            case FlexboxEngine.MeasureSpec.EXACTLY:
+                return size;
+            case FlexboxEngine.MeasureSpec.AT_MOST:
+                return Math.min(intrinsicSize, size);
+            default:
+                return intrinsicSize;
+        }
+    }
+
+    /**
+     * The {@link FlexContainer} through which the {@link FlexboxEngine} accesses the arrays.
+     */
+    private class ArenaFlexContainer implements FlexContainer {
+
+        @Override
+        public int getFlexItemCount() {
+            return mSize;
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            mCursor.mIndex = index;
+            return mCursor;
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            return (mFlags[index] & FLAG_GONE) != 0;
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            int offset = index * SIZES_STRIDE;
+            // The MeasureSpec is EXACTLY unless the layout size is wrap_content, in which case the
+            // intrinsic size is kept in the width (height)
+            mSizes[offset + MEASURED_WIDTH] = resolveSize(mSizes[offset + WIDTH],
+                    widthMeasureSpec);
+            mSizes[offset + MEASURED_HEIGHT] = resolveSize(mSizes[offset + HEIGHT],
+                    heightMeasureSpec);
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return mSizes[index * SIZES_STRIDE + MEASURED_WIDTH];
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mSizes[index * SIZES_STRIDE + MEASURED_HEIGHT];
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            return 0;
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            return -1;
+        }
+    }
+
+    /**
+     * The {@link FlexItem} returned for every flex item, which reads the attributes of the flex
+     * item at {@link #mIndex} from the arrays. The {@link FlexboxEngine} doesn't keep a
+     * {@link FlexItem} across the calls of {@link FlexContainer#getFlexItemAt(int)}, thus one
+     * instance is enough.
+     */
+    private class ItemCursor implements FlexItem {
+
+        int mIndex;
+
+        @Override
+        public int getWidth() {
+            byte flags = mFlags[mIndex];
+            if ((flags & FLAG_EXACT_WIDTH) != 0) {
+                return mSizes[mIndex * SIZES_STRIDE + WIDTH];
+            }
+            return (flags & FLAG_MATCH_PARENT_WIDTH) != 0 ? FlexItem.MATCH_PARENT
+                    : FlexItem.WRAP_CONTENT;
+        }
+
+        @Override
+        public int getHeight() {
+            byte flags = mFlags[mIndex];
+            if ((flags & FLAG_EXACT_HEIGHT) != 0) {
+                return mSizes[mIndex * SIZES_STRIDE + HEIGHT];
+            }
+            return (flags & FLAG_MATCH_PARENT_HEIGHT) != 0 ? FlexItem.MATCH_PARENT
+                    : FlexItem.WRAP_CONTENT;
+        }
+
+        @Override
+        public int getOrder() {
+            return mOrders != null ? mOrders[mIndex] : FlexItem.ORDER_DEFAULT;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            return mFlexFactors[mIndex * FLEX_FACTORS_STRIDE + FLEX_GROW];
+        }
+
+        @Override
+        public float getFlexShrink() {
+            return mFlexFactors[mIndex * FLEX_FACTORS_STRIDE + FLEX_SHRINK];
+        }
+
+        @Override
+        public int getAlignSelf() {
+            return mAlignSelfs[mIndex];
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            return mBasisFactors != null
+                    ? mBasisFactors[mIndex * BASIS_FACTORS_STRIDE + FLEX_BASIS_PERCENT]
+                    : FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
+        }
+
+        @Override
+        public float getAspectRatio() {
+            return mBasisFactors != null
+                    ? mBasisFactors[mIndex * BASIS_FACTORS_STRIDE + ASPECT_RATIO]
+                    : FlexItem.ASPECT_RATIO_DEFAULT;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return mMinMaxSizes != null ? mMinMaxSizes[mIndex * MIN_MAX_SIZES_STRIDE + MIN_WIDTH]
+                    : 0;
+        }
+
+        @Override
+        public int getMinHeight() {
+            return mMinMaxSizes != null ? mMinMaxSizes[mIndex * MIN_MAX_SIZES_STRIDE + MIN_HEIGHT]
+                    : 0;
+        }
+
+        @Override
+        public int getMaxWidth() {
+            return mMinMaxSizes != null ? mMinMaxSizes[mIndex * MIN_MAX_SIZES_STRIDE + MAX_WIDTH]
+                    : FlexItem.MAX_SIZE;
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return mMinMaxSizes != null ? mMinMaxSizes[mIndex * MIN_MAX_SIZES_STRIDE + MAX_HEIGHT]
+                    : FlexItem.MAX_SIZE;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            return (mFlags[mIndex] & FLAG_WRAP_BEFORE) != 0;
+        }
+
+        @Override
+        public int getMarginLeft() {
+            return mMargins != null ? mMargins[mIndex * MARGINS_STRIDE] : 0;
+        }
+
+        @Override
+        public int getMarginTop() {
+            return mMargins != null ? mMargins[mIndex * MARGINS_STRIDE + 1] : 0;
+        }
+
+        @Override
+        public int getMarginRight() {
+            return mMargins != null ? mMargins[mIndex * MARGINS_STRIDE + 2] : 0;
+        }
+
+        @Override
+        public int getMarginBottom() {
+            return mMargins != null ? mMargins[mIndex * MARGINS_STRIDE + 3] : 0;
+        }
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexContainer;
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexboxEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A node of a layout tree laid out on a plain JVM by the same {@link FlexboxEngine} as
+ * FlexboxLayout. A node is either a leaf measured by a {@link MeasureFunction}, which plays the
+ * role of a child view, or a flex container of the child nodes, which plays the role of a
+ * FlexboxLayout. The flex item attributes of a node correspond to the ones of
+ * FlexboxLayout.LayoutParams and are used when the node is a child of another node.
+ *
+ * <p>A tree of nodes isn't thread safe. Use a {@link BatchLayout} to lay out many independent
+ * trees in parallel.</p>
+ */
+public class FlexNode implements FlexItem {
+
+    private final List<FlexNode> mChildren = new ArrayList<>();
+
+    private MeasureFunction mMeasureFunction;
+
+    /** Created when the node is used as a flex container for the first time. */
+    private FlexboxEngine mEngine;
+
+    private boolean mLayoutRtl;
+
+    private boolean mGone;
+
+    private int mWidth = WRAP_CONTENT;
+
+    private int mHeight = WRAP_CONTENT;
+
+    private int mOrder = ORDER_DEFAULT;
+
+    private float mFlexGrow = FLEX_GROW_DEFAULT;
+
+    private float mFlexShrink = FLEX_SHRINK_DEFAULT;
+
+    private int mAlignSelf = ALIGN_SELF_AUTO;
+
+    private float mFlexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
+
+    private float mAspectRatio = ASPECT_RATIO_DEFAULT;
+
+    private int mMinWidth;
+
+    private int mMinHeight;
+
+    private int mMaxWidth = MAX_SIZE;
+
+    private int mMaxHeight = MAX_SIZE;
+
+    private boolean mWrapBefore;
+
+    private int mMarginLeft;
+
+    private int mMarginTop;
+
+    private int mMarginRight;
+
+    private int mMarginBottom;
+
+    private int mMeasuredWidthAndState;
+
+    private int mMeasuredHeightAndState;
+
+    private int mBaseline = -1;
+
+    private int mLeft;
+
+    private int mTop;
+
+    private int mRight;
+
+    private int mBottom;
+
+    /**
+     * Creates a flex container node, whose children are added by {@link #addChild(FlexNode)}.
+     */
+    public FlexNode() {
+    }
+
+    /**
+     * Creates a leaf node measured by the specified function.
+     *
+     * @param measureFunction the function which measures this node
+     */
+    public FlexNode(MeasureFunction measureFunction) {
+        mMeasureFunction = measureFunction;
+    }
+
+    /**
+     * Measures this node and its descendants with the specified space requirements, in the same
+     * way as {@code View#measure} does.
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     */
+    public void measure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mMeasureFunction != null) {
+            mBaseline = -1;
+            mMeasureFunction.measure(this, widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+        FlexboxEngine engine = getEngine();
+        engine.measure(widthMeasureSpec, heightMeasureSpec);
+        mMeasuredWidthAndState = engine.getMeasuredWidthAndState();
+        mMeasuredHeightAndState = engine.getMeasuredHeightAndState();
+    }
+
+    /**
+     * Assigns the position to this node and its descendants, in the same way as
+     * {@code View#layout} does. The positions of the child nodes are relative to this node.
+     */
+    public void layout(int left, int top, int right, int bottom) {
+        mLeft = left;
+        mTop = top;
+        mRight = right;
+        mBottom = bottom;
+        if (mMeasureFunction != null) {
+            return;
+        }
+        FlexboxEngine engine = getEngine();
+        engine.layout(left, top, right, bottom, mLayoutRtl);
+        for (int i = 0, size = mChildren.size(); i < size; i++) {
+            int childIndex = engine.getReorderedItemIndex(i);
+            if (childIndex < 0) {
+                continue;
+            }
+            FlexNode child = mChildren.get(childIndex);
+            if (child.mGone) {
+                continue;
+            }
+            child.layout(engine.getFrameLeft(i), engine.getFrameTop(i), engine.getFrameRight(i),
+                    engine.getFrameBottom(i));
+        }
+    }
+
+    /**
+     * Measures this node with the specified space requirements and places it at (0, 0) with the
+     * measured size.
+     *
+     * @param widthMeasureSpec  horizontal space requirements for the root node
+     * @param heightMeasureSpec vertical space requirements for the root node
+     */
+    public void calculateLayout(int widthMeasureSpec, int heightMeasureSpec) {
+        measure(widthMeasureSpec, heightMeasureSpec);
+        layout(0, 0, getMeasuredWidth(), getMeasuredHeight());
+    }
+
+    /**
+     * Sets the measured size of this node. Needs to be called by the {@link MeasureFunction}.
+     *
+     * @param measuredWidth  the measured width, which may include the measured state bits
+     * @param measuredHeight the measured height, which may include the measured state bits
+     */
+    public void setMeasuredDimension(int measuredWidth, int measuredHeight) {
+        mMeasuredWidthAndState = measuredWidth;
+        mMeasuredHeightAndState = measuredHeight;
+    }
+
+    public int getMeasuredWidth() {
+        return mMeasuredWidthAndState & FlexboxEngine.MEASURED_SIZE_MASK;
+    }
+
+    public int getMeasuredHeight() {
+        return mMeasuredHeightAndState & FlexboxEngine.MEASURED_SIZE_MASK;
+    }
+
+    /**
+     * Sets the baseline of a leaf node measured in the current measurement, used for the
+     * baseline alignment. Can be called by the {@link MeasureFunction}.
+     *
+     * @param baseline the offset of the baseline from the top of this node, or -1 if this node
+     *                 doesn't have a baseline
+     */
+    public void setBaseline(int baseline) {
+        mBaseline = baseline;
+    }
+
+    public int getBaseline() {
+        return mBaseline;
+    }
+
+    /** @return the left position of this node relative to its parent */
+    public int getLeft() {
+        return mLeft;
+    }
+
+    /** @return the top position of this node relative to its parent */
+    public int getTop() {
+        return mTop;
+    }
+
+    /** @return the right position of this node relative to its parent */
+    public int getRight() {
+        return mRight;
+    }
+
+    /** @return the bottom position of this node relative to its parent */
+    public int getBottom() {
+        return mBottom;
+    }
+
+    public void addChild(FlexNode child) {
+        addChild(mChildren.size(), child);
+    }
+
+    public void addChild(int index, FlexNode child) {
+        if (mMeasureFunction != null) {
+            throw new IllegalStateException("A leaf node measured by a MeasureFunction can't "
+                    + "have children");
+        }
+        mChildren.add(index, child);
+        getEngine().invalidateOrder();
+    }
+
+    public void removeChildAt(int index) {
+        mChildren.remove(index);
+        getEngine().invalidateOrder();
+    }
+
+    public int getChildCount() {
+        return mChildren.size();
+    }
+
+    public FlexNode getChildAt(int index) {
+        return mChildren.get(index);
+    }
+
+    public int getFlexDirection() {
+        return getEngine().getFlexDirection();
+    }
+
+    public void setFlexDirection(int flexDirection) {
+        getEngine().setFlexDirection(flexDirection);
+    }
+
+    public int getFlexWrap() {
+        return getEngine().getFlexWrap();
+    }
+
+    public void setFlexWrap(int flexWrap) {
+        getEngine().setFlexWrap(flexWrap);
+    }
+
+    public int getJustifyContent() {
+        return getEngine().getJustifyContent();
+    }
+
+    public void setJustifyContent(int justifyContent) {
+        getEngine().setJustifyContent(justifyContent);
+    }
+
+    public int getAlignItems() {
+        return getEngine().getAlignItems();
+    }
+
+    public void setAlignItems(int alignItems) {
+        getEngine().setAlignItems(alignItems);
+    }
+
+    public int getAlignContent() {
+        return getEngine().getAlignContent();
+    }
+
+    public void setAlignContent(int alignContent) {
+        getEngine().setAlignContent(alignContent);
+    }
+
+    public void setPadding(int left, int top, int right, int bottom) {
+        getEngine().setPadding(left, top, right, bottom);
+    }
+
+    public boolean isFixedPointDistribution() {
+        return getEngine().isFixedPointDistribution();
+    }
+
+    /**
+     * Sets whether the free space is distributed with integer arithmetic, so that the frames are
+     * the same as the ones of a FlexboxLayout with the same attribute on any device.
+     *
+     * @see FlexboxEngine#setFixedPointDistribution(boolean)
+     */
+    public void setFixedPointDistribution(boolean fixedPointDistribution) {
+        getEngine().setFixedPointDistribution(fixedPointDistribution);
+    }
+
+    public int getJustifiedRowHeight() {
+        return getEngine().getJustifiedRowHeight();
+    }
+
+    /**
+     * Sets the justified rows mode, in which every row fills the width of this node and its
+     * height is the one which makes the aspect ratios of the child nodes fit.
+     *
+     * @see FlexboxEngine#setJustifiedRowHeight(int)
+     */
+    public void setJustifiedRowHeight(int justifiedRowHeight) {
+        getEngine().setJustifiedRowHeight(justifiedRowHeight);
+    }
+
+    /**
+     * Sets whether the child nodes are laid out from right to left, like a FlexboxLayout whose
+     * layout direction is RTL.
+     */
+    public void setLayoutRtl(boolean layoutRtl) {
+        mLayoutRtl = layoutRtl;
+    }
+
+    public boolean isLayoutRtl() {
+        return mLayoutRtl;
+    }
+
+    /**
+     * Sets whether this node is excluded from the layout like a View whose visibility is
+     * {@code View.GONE}.
+     */
+    public void setGone(boolean gone) {
+        mGone = gone;
+    }
+
+    public boolean isGone() {
+        return mGone;
+    }
+
+    @Override
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public void setWidth(int width) {
+        mWidth = width;
+    }
+
+    @Override
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public void setHeight(int height) {
+        mHeight = height;
+    }
+
+    @Override
+    public int getOrder() {
+        return mOrder;
+    }
+
+    public void setOrder(int order) {
+        mOrder = order;
+    }
+
+    @Override
+    public float getFlexGrow() {
+        return mFlexGrow;
+    }
+
+    public void setFlexGrow(float flexGrow) {
+        mFlexGrow = flexGrow;
+    }
+
+    @Override
+    public float getFlexShrink() {
+        return mFlexShrink;
+    }
+
+    public void setFlexShrink(float flexShrink) {
+        mFlexShrink = flexShrink;
+    }
+
+    @Override
+    public int getAlignSelf() {
+        return mAlignSelf;
+    }
+
+    public void setAlignSelf(int alignSelf) {
+        mAlignSelf = alignSelf;
+    }
+
+    @Override
+    public float getFlexBasisPercent() {
+        return mFlexBasisPercent;
+    }
+
+    public void setFlexBasisPercent(float flexBasisPercent) {
+        mFlexBasisPercent = flexBasisPercent;
+    }
+
+    @Override
+    public float getAspectRatio() {
+        return mAspectRatio;
+    }
+
+    public void setAspectRatio(float aspectRatio) {
+        mAspectRatio = aspectRatio;
+    }
+
+    @Override
+    public int getMinWidth() {
+        return mMinWidth;
+    }
+
+    public void setMinWidth(int minWidth) {
+        mMinWidth = minWidth;
+    }
+
+    @Override
+    public int getMinHeight() {
+        return mMinHeight;
+    }
+
+    public void setMinHeight(int minHeight) {
+        mMinHeight = minHeight;
+    }
+
+    @Override
+    public int getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    public void setMaxWidth(int maxWidth) {
+        mMaxWidth = maxWidth;
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return mMaxHeight;
+    }
+
+    public void setMaxHeight(int maxHeight) {
+        mMaxHeight = maxHeight;
+    }
+
+    @Override
+    public boolean isWrapBefore() {
+        return mWrapBefore;
+    }
+
+    public void setWrapBefore(boolean wrapBefore) {
+        mWrapBefore = wrapBefore;
+    }
+
+    @Override
+    public int getMarginLeft() {
+        return mMarginLeft;
+    }
+
+    @Override
+    public int getMarginTop() {
+        return mMarginTop;
+    }
+
+    @Override
+    public int getMarginRight() {
+        return mMarginRight;
+    }
+
+    @Override
+    public int getMarginBottom() {
+        return mMarginBottom;
+    }
+
+    public void setMargins(int left, int top, int right, int bottom) {
+        mMarginLeft = left;
+        mMarginTop = top;
+        mMarginRight = right;
+        mMarginBottom = bottom;
+    }
+
+    private FlexboxEngine getEngine() {
+        if (mEngine == null) {
+            mEngine = new FlexboxEngine(new ChildrenFlexContainer());
+        }
+        return mEngine;
+    }
+
+    /**
+     * The {@link FlexContainer} through which the {@link FlexboxEngine} accesses and measures the
+     * child nodes of this node.
+     */
+    private class ChildrenFlexContainer implements FlexContainer {
+
+        @Override
+        public int getFlexItemCount() {
+            return mChildren.size();
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            return mChildren.get(index);
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            return mChildren.get(index).mGone;
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            mChildren.get(index).measure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return mChildren.get(index).getMeasuredWidth();
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mChildren.get(index).getMeasuredHeight();
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            // Same as View#getMeasuredState
+            FlexNode child = mChildren.get(index);
+            int shift = FlexboxEngine.MEASURED_HEIGHT_STATE_SHIFT;
+            return (child.mMeasuredWidthAndState & FlexboxEngine.MEASURED_STATE_MASK)
+                    | ((child.mMeasuredHeightAndState >> shift)
+                    & (FlexboxEngine.MEASURED_STATE_MASK >> shift));
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            return mChildren.get(index).mBaseline;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexboxEngine;
+
+/**
+ * Measures a leaf {@link FlexNode}, e.g. a text or an image, in the same way as
+ * {@code View#onMeasure} does for a view.
+ *
+ * <p>A {@link BatchLayout} calls measure functions from multiple threads at the same time for
+ * nodes of different trees, thus implementations need to be thread safe. The nodes of a single
+ * tree are always measured on one thread.</p>
+ */
+public interface MeasureFunction {
+
+    /**
+     * Measures the node. Implementations must call
+     * {@link FlexNode#setMeasuredDimension(int, int)} with the measured width and height.
+     *
+     * @param node              the node to be measured
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent, in the
+     *                          format of {@link FlexboxEngine.MeasureSpec}
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent, in the
+     *                          format of {@link FlexboxEngine.MeasureSpec}
+     */
+    void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec);
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexContainer;
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexLine;
+import com.google.android.flexbox.FlexboxEngine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Lays out a sequence of {@link FlexNode}s of any length into flex lines, pulling the nodes
+ * lazily from an {@link Iterator} and handing each flex line to a {@link LineCallback} as soon as
+ * it's complete, i.e. once the node which starts the next flex line has been measured. The flex
+ * algorithm runs once for each flex line, and only the nodes of the flex line being collected
+ * are held, thus a very long feed can be laid out without materializing all of its nodes.
+ *
+ * <p>This is equivalent to a flex container whose flexWrap is wrap, alignContent is flex_start
+ * and cross size is unspecified, since the cross size of an unbounded sequence is unknown. The
+ * nodes are laid out in the order of the iterator, thus their order attributes must be the
+ * default.</p>
+ */
+public class StreamingFlexLayout {
+
+    /** Not a valid MeasureSpec, since its mode bits don't match any of the modes. */
+    private static final int NOT_MEASURED = -1;
+
+    /**
+     * A callback invoked for each flex line once its nodes are laid out.
+     */
+    public interface LineCallback {
+
+        /**
+         * Called for each flex line, in the order of the flex lines. The positions of the nodes
+         * are final and relative to the start of the whole sequence, e.g. the top of the first
+         * flex line when the flex direction is row.
+         *
+         * @param lineIndex  the index of the flex line
+         * @param flexLine   the flex line, which is reused after this method returns
+         * @param nodes      the nodes in the flex line including the gone ones, which is reused
+         *                   after this method returns
+         * @param crossStart the position of the flex line along the cross axis
+         */
+        void onFlexLine(int lineIndex, FlexLine flexLine, List<FlexNode> nodes, int crossStart);
+    }
+
+    /** The nodes of the flex line being collected, followed by the node which wraps it. */
+    private final List<FlexNode> mNodes = new ArrayList<>();
+
+    /**
+     * The MeasureSpecs each held node was last measured with, width and height in turn, or
+     * {@link #NOT_MEASURED} if not measured yet. A node measured again with the same MeasureSpecs
+     * keeps its measured size as a View does, thus the measurement which finds the wrap isn't
+     * repeated when the flex line is laid out.
+     */
+    private int[] mMeasureSpecs = new int[32];
+
+    /** The number of the held nodes the engine sees, i.e. the nodes of the flex line. */
+    private int mLineItemCount;
+
+    /** The index of the next flex line. */
+    private int mLineIndex;
+
+    /** The position of the next flex line along the cross axis. */
+    private int mCrossStart;
+
+    private final FlexboxEngine mEngine;
+
+    public StreamingFlexLayout() {
+        mEngine = new FlexboxEngine(new NodesFlexContainer());
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+    }
+
+    public int getFlexDirection() {
+        return mEngine.getFlexDirection();
+    }
+
+    public void setFlexDirection(int flexDirection) {
+        mEngine.setFlexDirection(flexDirection);
+    }
+
+    public int getJustifyContent() {
+        return mEngine.getJustifyContent();
+    }
+
+    public void setJustifyContent(int justifyContent) {
+        mEngine.setJustifyContent(justifyContent);
+    }
+
+    public int getAlignItems() {
+        return mEngine.getAlignItems();
+    }
+
+    public void setAlignItems(int alignItems) {
+        mEngine.setAlignItems(alignItems);
+    }
+
+    /**
+     * Lays out all the nodes returned by the iterator.
+     *
+     * @param nodes    the nodes to be laid out, pulled as the flex lines are laid out
+     * @param mainSize the size of the flex container along the main axis, e.g. the width when
+     *                 the flex direction is row
+     * @param callback the callback which receives each flex line
+     * @throws IllegalArgumentException if the order attribute of a node isn't the default
+     */
+    public void layout(Iterator<FlexNode> nodes, int mainSize, LineCallback callback) {
+        boolean horizontal = isMainAxisHorizontal();
+        int mainSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(mainSize,
+                FlexboxEngine.MeasureSpec.EXACTLY);
+        int crossSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                FlexboxEngine.MeasureSpec.UNSPECIFIED);
+        int widthSpec = horizontal ? mainSpec : crossSpec;
+        int heightSpec = horizontal ? crossSpec : mainSpec;
+        mLineIndex = 0;
+        mCrossStart = 0;
+        mNodes.clear();
+        mLineItemCount = 0;
+        try {
+            // The main size taken by the nodes held for the current flex line, which is emitted
+            // as soon as a node doesn't fit in it, in the same way as the engine wraps
+            int lineMainSize = 0;
+            boolean lineHasVisibleNode = false;
+            while (nodes.hasNext()) {
+                FlexNode node = nodes.next();
+                if (node.getOrder() != FlexItem.ORDER_DEFAULT) {
+                    throw new IllegalArgumentException(
+                            "The order attribute isn't supported: " + node.getOrder());
+                }
+                int index = mNodes.size();
+                mNodes.add(node);
+                if (mMeasureSpecs.length < (index + 1) * 2) {
+                    mMeasureSpecs = Arrays.copyOf(mMeasureSpecs, mMeasureSpecs.length * 2);
+                }
+                mMeasureSpecs[index * 2] = NOT_MEASURED;
+                mLineItemCount++;
+                if (node.isGone()) {
+                    continue;
+                }
+                int childMainSize = mEngine.measureHypotheticalMainSize(index, widthSpec,
+                        heightSpec);
+                if (lineHasVisibleNode
+                        && (node.isWrapBefore() || lineMainSize + childMainSize > mainSize)) {
+                    emitFlexLine(index, widthSpec, heightSpec, horizontal, callback);
+                    lineMainSize = 0;
+                }
+                lineMainSize += childMainSize;
+                lineHasVisibleNode = true;
+            }
+            if (lineHasVisibleNode) {
+                // Trailing gone nodes aren't part of any flex line, as in the engine
+                emitFlexLine(mNodes.size(), widthSpec, heightSpec, horizontal, callback);
+            }
+        } finally {
+            mNodes.clear();
+            mLineItemCount = 0;
+        }
+    }
+
+    /**
+     * Runs the flex algorithm for the first held nodes, which make up exactly one flex line, and
+     * hands the flex line to the callback. The nodes after them are kept for the next flex line.
+     *
+     * @param itemCount the number of the nodes in the flex line including the gone ones
+     */
+    private void emitFlexLine(int itemCount, int widthSpec, int heightSpec, boolean horizontal,
+            LineCallback callback) {
+        mLineItemCount = itemCount;
+        mEngine.invalidateOrder();
+        mEngine.measure(widthSpec, heightSpec);
+        mEngine.layout(0, 0,
+                mEngine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                mEngine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                false);
+        for (int i = 0; i < itemCount; i++) {
+            layoutNode(i, mCrossStart, horizontal);
+        }
+        FlexLine flexLine = mEngine.getFlexLineAt(0);
+        List<FlexNode> lineNodes = mNodes.subList(0, itemCount);
+        callback.onFlexLine(mLineIndex++, flexLine, lineNodes, mCrossStart);
+        mCrossStart += flexLine.getCrossSize();
+        lineNodes.clear();
+        System.arraycopy(mMeasureSpecs, itemCount * 2, mMeasureSpecs, 0, mNodes.size() * 2);
+        mLineItemCount = mNodes.size();
+    }
+
+    /**
+     * Places the node at the frame computed by the engine, moved along the cross axis by the
+     * specified offset.
+     */
+    private void layoutNode(int index, int crossOffset, boolean horizontal) {
+        // The reordered index is the same as the index since the order attributes are the default
+        FlexNode node = mNodes.get(index);
+        if (node.isGone()) {
+            return;
+        }
+        int left = mEngine.getFrameLeft(index);
+        int top = mEngine.getFrameTop(index);
+        int right = mEngine.getFrameRight(index);
+        int bottom = mEngine.getFrameBottom(index);
+        if (horizontal) {
+            node.layout(left, top + crossOffset, right, bottom + crossOffset);
+        } else {
+            node.layout(left + crossOffset, top, right + crossOffset, bottom);
+        }
+    }
+
+    private boolean isMainAxisHorizontal() {
+        int flexDirection = mEngine.getFlexDirection();
+        return flexDirection == FlexboxEngine.FLEX_DIRECTION_ROW
+                || flexDirection == FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+    }
+
+    /**
+     * The {@link FlexContainer} through which the {@link FlexboxEngine} accesses the held nodes.
+     */
+    private class NodesFlexContainer implements FlexContainer {
+
+        @Override
+        public int getFlexItemCount() {
+            return mLineItemCount;
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            return mNodes.get(index);
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            return mNodes.get(index).isGone();
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            int offset = index * 2;
+            if (mMeasureSpecs[offset] == widthMeasureSpec
+                    && mMeasureSpecs[offset + 1] == heightMeasureSpec) {
+                return;
+            }
+            mNodes.get(index).measure(widthMeasureSpec, heightMeasureSpec);
+            mMeasureSpecs[offset] = widthMeasureSpec;
+            mMeasureSpecs[offset + 1] = heightMeasureSpec;
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return mNodes.get(index).getMeasuredWidth();
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mNodes.get(index).getMeasuredHeight();
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            return 0;
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            return mNodes.get(index).getBaseline();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link BatchLayout} and {@link FlexNode}.
+ */
+public class BatchLayoutTest {
+
+    private static final int EXACTLY_500 = FlexboxEngine.MeasureSpec.makeMeasureSpec(500,
+            FlexboxEngine.MeasureSpec.EXACTLY);
+
+    private static final int UNSPECIFIED = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+            FlexboxEngine.MeasureSpec.UNSPECIFIED);
+
+    @Test
+    public void testNestedContainer() {
+        FlexNode root = new FlexNode();
+        root.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        root.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        root.setPadding(10, 10, 10, 10);
+        FlexNode first = new FlexNode(new FixedSize(200, 50));
+        root.addChild(first);
+        FlexNode column = new FlexNode();
+        column.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+        column.setFlexGrow(1f);
+        FlexNode second = new FlexNode(new FixedSize(100, 30));
+        second.setMargins(5, 5, 5, 5);
+        column.addChild(second);
+        FlexNode third = new FlexNode(new FixedSize(100, 40));
+        column.addChild(third);
+        root.addChild(column);
+
+        root.calculateLayout(EXACTLY_500, UNSPECIFIED);
+
+        assertThat(root.getMeasuredWidth(), is(500));
+        assertThat(root.getMeasuredHeight(), is(100));
+        assertFrame(first, 10, 10, 210, 60);
+        // The column takes the remaining space because of its flexGrow
+        assertFrame(column, 210, 10, 490, 90);
+        // The children of the column are stretched to its width (alignItems is stretch)
+        assertFrame(second, 5, 5, 275, 35);
+        assertFrame(third, 0, 40, 280, 80);
+    }
+
+    @Test
+    public void testOrderAndGone() {
+        FlexNode root = new FlexNode();
+        FlexNode first = new FlexNode(new FixedSize(100, 50));
+        first.setOrder(2);
+        root.addChild(first);
+        FlexNode gone = new FlexNode(new FixedSize(100, 50));
+        gone.setGone(true);
+        root.addChild(gone);
+        FlexNode second = new FlexNode(new FixedSize(100, 50));
+        root.addChild(second);
+
+        root.calculateLayout(EXACTLY_500, UNSPECIFIED);
+
+        assertFrame(second, 0, 0, 100, 50);
+        assertFrame(first, 100, 0, 200, 50);
+        assertFrame(gone, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void testSameResultsAsSequentialLayout() {
+        List<FlexNode> parallel = new ArrayList<>();
+        List<FlexNode> sequential = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            parallel.add(createRandomTree(new Random(i), 0));
+            sequential.add(createRandomTree(new Random(i), 0));
+        }
+        BatchLayout batchLayout = new BatchLayout(new ForkJoinPool(4));
+
+        batchLayout.layout(parallel, EXACTLY_500, UNSPECIFIED);
+        for (FlexNode root : sequential) {
+            root.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        }
+
+        for (int i = 0; i < parallel.size(); i++) {
+            assertSameLayout(parallel.get(i), sequential.get(i));
+        }
+    }
+
+    @Test
+    public void testMeasureFunctionExceptionIsRethrown() {
+        List<FlexNode> roots = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            FlexNode root = new FlexNode();
+            root.addChild(new FlexNode(new FixedSize(10, 10)));
+            roots.add(root);
+        }
+        roots.get(42).addChild(new FlexNode(new MeasureFunction() {
+            @Override
+            public void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec) {
+                throw new IllegalStateException("measure failed");
+            }
+        }));
+
+        try {
+            new BatchLayout(new ForkJoinPool(4)).layout(roots, EXACTLY_500, UNSPECIFIED);
+            fail("The exception thrown by the MeasureFunction should be rethrown");
+        } catch (IllegalStateException expected) {
+            // ForkJoinPool may wrap the exception thrown on another thread into a new one of
+            // the same type
+            Throwable cause = expected;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertThat(cause.getMessage(), is("measure failed"));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testLeafCantHaveChildren() {
+        new FlexNode(new FixedSize(10, 10)).addChild(new FlexNode());
+    }
+
+    private static FlexNode createRandomTree(Random random, int depth) {
+        FlexNode node = new FlexNode();
+        node.setFlexDirection(random.nextInt(4));
+        node.setFlexWrap(random.nextInt(3));
+        node.setJustifyContent(random.nextInt(5));
+        node.setAlignItems(random.nextInt(5));
+        node.setAlignContent(random.nextInt(6));
+        int childCount = random.nextInt(8);
+        for (int i = 0; i < childCount; i++) {
+            FlexNode child = depth < 2 && random.nextInt(4) == 0
+                    ? createRandomTree(random, depth + 1)
+                    : new FlexNode(new FixedSize(10 + random.nextInt(150),
+                            10 + random.nextInt(100)));
+            child.setFlexGrow(random.nextInt(3));
+            child.setFlexShrink(random.nextInt(2));
+            child.setOrder(random.nextInt(3));
+            if (random.nextInt(4) == 0) {
+                child.setMaxWidth(50 + random.nextInt(100));
+            }
+            child.setMargins(random.nextInt(5), random.nextInt(5), random.nextInt(5),
+                    random.nextInt(5));
+            node.addChild(child);
+        }
+        return node;
+    }
+
+    private static void assertSameLayout(FlexNode actual, FlexNode expected) {
+        assertFrame(actual, expected.getLeft(), expected.getTop(), expected.getRight(),
+                expected.getBottom());
+        assertThat(actual.getChildCount(), is(expected.getChildCount()));
+        for (int i = 0; i < actual.getChildCount(); i++) {
+            assertSameLayout(actual.getChildAt(i), expected.getChildAt(i));
+        }
+    }
+
+    private static void assertFrame(FlexNode node, int left, int top, int right, int bottom) {
+        assertThat(node.getLeft(), is(left));
+        assertThat(node.getTop(), is(top));
+        assertThat(node.getRight(), is(right));
+        assertThat(node.getBottom(), is(bottom));
+    }
+
+    /**
+     * Measures a leaf node with a fixed intrinsic size resolved against the MeasureSpecs.
+     */
+    private static class FixedSize implements MeasureFunction {
+
+        private final int mWidth;
+
+        private final int mHeight;
+
+        FixedSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec) {
+            node.setMeasuredDimension(resolveSize(mWidth, widthMeasureSpec),
+                    resolveSize(mHeight, heightMeasureSpec));
+        }
+
+        private static int resolveSize(int intrinsicSize, int measureSpec) {
+            int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+            switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+                case FlexboxEngine.MeasureSpec.EXACTLY:
+                    return size;
+                case FlexboxEngine.MeasureSpec.AT_MOST:
+                    return Math.min(intrinsicSize, size);
+                default:
+                    return intrinsicSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link FlexItemArena}.
+ */
+public class FlexItemArenaTest {
+
+    private static final int EXACTLY_500 = FlexboxEngine.MeasureSpec.makeMeasureSpec(500,
+            FlexboxEngine.MeasureSpec.EXACTLY);
+
+    private static final int UNSPECIFIED = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+            FlexboxEngine.MeasureSpec.UNSPECIFIED);
+
+    @Test
+    public void testLineIndices() {
+        FlexItemArena arena = new FlexItemArena();
+        arena.getEngine().setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        for (int i = 0; i < 10; i++) {
+            arena.addItem(200, 50);
+        }
+        arena.setGone(3, true);
+
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+
+        assertThat(arena.getEngine().getFlexLineCount(), is(5));
+        assertThat(arena.getLineIndex(0), is(0));
+        assertThat(arena.getLineIndex(2), is(1));
+        assertThat(arena.getLineIndex(3), is(-1));
+        assertThat(arena.getLineIndex(4), is(1));
+        assertThat(arena.getLineIndex(9), is(4));
+        assertThat(arena.getLeft(4), is(200));
+        assertThat(arena.getTop(4), is(50));
+        assertThat(arena.getRight(4), is(400));
+        assertThat(arena.getBottom(4), is(100));
+    }
+
+    @Test
+    public void testSameResultsAsFlexNodes() {
+        for (int seed = 0; seed < 500; seed++) {
+            FlexItemArena arena = new FlexItemArena(1);
+            FlexNode root = new FlexNode();
+            Random random = new Random(seed);
+            int flexDirection = random.nextInt(4);
+            int flexWrap = random.nextInt(3);
+            int justifyContent = random.nextInt(5);
+            int alignItems = random.nextInt(4);
+            int alignContent = random.nextInt(6);
+            arena.getEngine().setFlexDirection(flexDirection);
+            arena.getEngine().setFlexWrap(flexWrap);
+            arena.getEngine().setJustifyContent(justifyContent);
+            arena.getEngine().setAlignItems(alignItems);
+            arena.getEngine().setAlignContent(alignContent);
+            root.setFlexDirection(flexDirection);
+            root.setFlexWrap(flexWrap);
+            root.setJustifyContent(justifyContent);
+            root.setAlignItems(alignItems);
+            root.setAlignContent(alignContent);
+
+            int itemCount = random.nextInt(30);
+            for (int i = 0; i < itemCount; i++) {
+                int width = 10 + random.nextInt(150);
+                int height = 10 + random.nextInt(100);
+                int index = arena.addItem(width, height);
+                FlexNode node = new FlexNode(new IntrinsicSize(width, height));
+                float flexGrow = random.nextInt(3);
+                float flexShrink = random.nextInt(3);
+                int order = random.nextInt(3);
+                int alignSelf = random.nextInt(5) - 1;
+                int maxWidth = random.nextInt(4) == 0 ? 40 + random.nextInt(100)
+                        : FlexNode.MAX_SIZE;
+                int minHeight = random.nextInt(4) == 0 ? random.nextInt(80) : 0;
+                int margin = random.nextInt(6);
+                boolean wrapBefore = random.nextInt(8) == 0;
+                boolean gone = random.nextInt(8) == 0;
+                arena.setFlexGrow(index, flexGrow);
+                arena.setFlexShrink(index, flexShrink);
+                arena.setOrder(index, order);
+                arena.setAlignSelf(index, alignSelf);
+                arena.setMaxSize(index, maxWidth, FlexNode.MAX_SIZE);
+                arena.setMinSize(index, 0, minHeight);
+                arena.setMargins(index, margin, margin + 1, margin + 2, margin + 3);
+                arena.setWrapBefore(index, wrapBefore);
+                arena.setGone(index, gone);
+                node.setFlexGrow(flexGrow);
+                node.setFlexShrink(flexShrink);
+                node.setOrder(order);
+                node.setAlignSelf(alignSelf);
+                node.setMaxWidth(maxWidth);
+                node.setMinHeight(minHeight);
+                node.setMargins(margin, margin + 1, margin + 2, margin + 3);
+                node.setWrapBefore(wrapBefore);
+                node.setGone(gone);
+                root.addChild(node);
+            }
+
+            arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+            root.calculateLayout(EXACTLY_500, UNSPECIFIED);
+
+            for (int i = 0; i < itemCount; i++) {
+                FlexNode node = root.getChildAt(i);
+                assertThat(arena.getLeft(i), is(node.getLeft()));
+                assertThat(arena.getTop(i), is(node.getTop()));
+                assertThat(arena.getRight(i), is(node.getRight()));
+                assertThat(arena.getBottom(i), is(node.getBottom()));
+            }
+        }
+    }
+
+    @Test
+    public void testLayoutSize() {
+        FlexItemArena arena = new FlexItemArena();
+        arena.getEngine().setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        int index = arena.addItem(100, 50);
+
+        arena.setLayoutSize(index, FlexItem.MATCH_PARENT, 30);
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        assertThat(arena.getRight(index), is(500));
+        assertThat(arena.getBottom(index), is(30));
+
+        // The intrinsic width is kept while the width is match_parent, but the intrinsic height
+        // is replaced with the height in pixels
+        arena.setLayoutSize(index, FlexItem.WRAP_CONTENT, FlexItem.WRAP_CONTENT);
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        assertThat(arena.getRight(index), is(100));
+        assertThat(arena.getBottom(index), is(30));
+
+        arena.setIntrinsicSize(index, 100, 50);
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        assertThat(arena.getBottom(index), is(50));
+    }
+
+    @Test
+    public void testOrderSetAfterLayout() {
+        FlexItemArena arena = new FlexItemArena();
+        arena.getEngine().setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        for (int i = 0; i < 4; i++) {
+            arena.addItem(200, 50);
+        }
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        assertThat(arena.getLeft(1), is(200));
+        assertThat(arena.getLineIndex(3), is(1));
+
+        arena.setOrder(3, 0);
+        int added = arena.addItem(200, 50);
+        assertThat(arena.getLineIndex(added), is(-1));
+        arena.calculateLayout(EXACTLY_500, UNSPECIFIED);
+        assertThat(arena.getLeft(3), is(0));
+        assertThat(arena.getLeft(0), is(200));
+        assertThat(arena.getLineIndex(3), is(0));
+        assertThat(arena.getLineIndex(2), is(1));
+        assertThat(arena.getLineIndex(added), is(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMarginOutOfRange() {
+        FlexItemArena arena = new FlexItemArena();
+        arena.addItem(10, 10);
+
+        arena.setMargins(0, 0, 0, Short.MAX_VALUE + 1, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        FlexItemArena arena = new FlexItemArena();
+        arena.addItem(10, 10);
+
+        arena.setFlexGrow(1, 1f);
+    }
+
+    private static class IntrinsicSize implements MeasureFunction {
+
+        private final int mWidth;
+
+        private final int mHeight;
+
+        IntrinsicSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec) {
+            node.setMeasuredDimension(resolveSize(mWidth, widthMeasureSpec),
+                    resolveSize(mHeight, heightMeasureSpec));
+        }
+
+        private static int resolveSize(int intrinsicSize, int measureSpec) {
+            int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+            switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+                case FlexboxEngine.MeasureSpec.EXACTLY:
+                    return size;
+                case FlexboxEngine.MeasureSpec.AT_MOST:
+                    return Math.min(intrinsicSize, size);
+                default:
+                    return intrinsicSize;
+            }
+        }
+    }
+}
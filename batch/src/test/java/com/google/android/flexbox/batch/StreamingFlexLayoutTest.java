@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.batch;
+
+import com.google.android.flexbox.FlexLine;
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link StreamingFlexLayout}.
+ */
+public class StreamingFlexLayoutTest {
+
+    private static final int MAIN_SIZE = 500;
+
+    @Test
+    public void testSameResultsAsFlexNode() {
+        for (int seed = 0; seed < 300; seed++) {
+            Random random = new Random(seed);
+            int flexDirection = random.nextInt(4);
+            int justifyContent = random.nextInt(5);
+            int alignItems = random.nextInt(4);
+            int nodeCount = random.nextInt(200);
+            List<FlexNode> streamed = createNodes(new Random(seed), nodeCount);
+            List<FlexNode> expected = createNodes(new Random(seed), nodeCount);
+
+            StreamingFlexLayout layout = new StreamingFlexLayout();
+            layout.setFlexDirection(flexDirection);
+            layout.setJustifyContent(justifyContent);
+            layout.setAlignItems(alignItems);
+            final List<Integer> lineIndices = new ArrayList<>();
+            layout.layout(streamed.iterator(), MAIN_SIZE, new StreamingFlexLayout.LineCallback() {
+                @Override
+                public void onFlexLine(int lineIndex, FlexLine flexLine, List<FlexNode> nodes,
+                        int crossStart) {
+                    lineIndices.add(lineIndex);
+                }
+            });
+
+            FlexNode root = new FlexNode();
+            root.setFlexDirection(flexDirection);
+            root.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+            root.setJustifyContent(justifyContent);
+            root.setAlignItems(alignItems);
+            root.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+            for (FlexNode node : expected) {
+                root.addChild(node);
+            }
+            int mainSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(MAIN_SIZE,
+                    FlexboxEngine.MeasureSpec.EXACTLY);
+            int crossSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                    FlexboxEngine.MeasureSpec.UNSPECIFIED);
+            if (flexDirection <= FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE) {
+                root.calculateLayout(mainSpec, crossSpec);
+            } else {
+                root.calculateLayout(crossSpec, mainSpec);
+            }
+
+            for (int i = 0; i < lineIndices.size(); i++) {
+                assertThat(lineIndices.get(i), is(i));
+            }
+            for (int i = 0; i < nodeCount; i++) {
+                FlexNode actual = streamed.get(i);
+                FlexNode node = expected.get(i);
+                assertThat(actual.getLeft(), is(node.getLeft()));
+                assertThat(actual.getTop(), is(node.getTop()));
+                assertThat(actual.getRight(), is(node.getRight()));
+                assertThat(actual.getBottom(), is(node.getBottom()));
+            }
+        }
+    }
+
+    @Test
+    public void testFlexLinesEmittedOnWrap() {
+        // Four nodes fit in a flex line
+        final CountingIterator nodes = new CountingIterator(100000);
+        final int[] emitted = new int[1];
+        new StreamingFlexLayout().layout(nodes, MAIN_SIZE, new StreamingFlexLayout.LineCallback() {
+            @Override
+            public void onFlexLine(int lineIndex, FlexLine flexLine, List<FlexNode> lineNodes,
+                    int crossStart) {
+                assertThat(lineNodes.size(), is(4));
+                assertThat(crossStart, is(lineIndex * 50));
+                emitted[0] += lineNodes.size();
+                // Only the node which starts the next flex line is pulled ahead, except for the
+                // last flex line
+                int held = nodes.mCount - emitted[0];
+                assertThat(held, is(nodes.hasNext() ? 1 : 0));
+            }
+        });
+
+        assertThat(emitted[0], is(100000));
+    }
+
+    @Test
+    public void testNodesMeasuredOnce() {
+        // Neither expanded, shrunk nor stretched, thus measured only to find the wraps
+        final CountingIterator nodes = new CountingIterator(1000);
+        StreamingFlexLayout layout = new StreamingFlexLayout();
+        layout.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        layout.layout(nodes, MAIN_SIZE, new StreamingFlexLayout.LineCallback() {
+            @Override
+            public void onFlexLine(int lineIndex, FlexLine flexLine, List<FlexNode> lineNodes,
+                    int crossStart) {
+            }
+        });
+
+        assertThat(nodes.mCount, is(1000));
+        assertThat(nodes.mMeasureCount, is(1000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOrderNotSupported() {
+        List<FlexNode> nodes = createNodes(new Random(0), 10);
+        nodes.get(5).setOrder(2);
+
+        new StreamingFlexLayout().layout(nodes.iterator(), MAIN_SIZE,
+                new StreamingFlexLayout.LineCallback() {
+                    @Override
+                    public void onFlexLine(int lineIndex, FlexLine flexLine,
+                            List<FlexNode> lineNodes, int crossStart) {
+                    }
+                });
+    }
+
+    private static List<FlexNode> createNodes(Random random, int count) {
+        List<FlexNode> nodes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FlexNode node = new FlexNode(new FixedSize(10 + random.nextInt(200),
+                    10 + random.nextInt(100)));
+            node.setFlexGrow(random.nextInt(3));
+            node.setFlexShrink(random.nextInt(2));
+            node.setAlignSelf(random.nextInt(5) - 1);
+            if (random.nextInt(4) == 0) {
+                node.setMaxWidth(50 + random.nextInt(100));
+            }
+            node.setMargins(random.nextInt(5), random.nextInt(5), random.nextInt(5),
+                    random.nextInt(5));
+            node.setWrapBefore(random.nextInt(10) == 0);
+            node.setGone(random.nextInt(10) == 0);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * Creates the nodes on demand and counts them.
+     */
+    private static class CountingIterator implements Iterator<FlexNode> {
+
+        private final int mSize;
+
+        int mCount;
+
+        /** The number of the measurements of the created nodes */
+        int mMeasureCount;
+
+        CountingIterator(int size) {
+            mSize = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return mCount < mSize;
+        }
+
+        @Override
+        public FlexNode next() {
+            mCount++;
+            final MeasureFunction size = new FixedSize(120, 50);
+            return new FlexNode(new MeasureFunction() {
+                @Override
+                public void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec) {
+                    mMeasureCount++;
+                    size.measure(node, widthMeasureSpec, heightMeasureSpec);
+                }
+            });
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class FixedSize implements MeasureFunction {
+
+        private final int mWidth;
+
+        private final int mHeight;
+
+        FixedSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void measure(FlexNode node, int widthMeasureSpec, int heightMeasureSpec) {
+            node.setMeasuredDimension(resolveSize(mWidth, widthMeasureSpec),
+                    resolveSize(mHeight, heightMeasureSpec));
+        }
+
+        private static int resolveSize(int intrinsicSize, int measureSpec) {
+            int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+            switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+                case FlexboxEngine.MeasureSpec.EXACTLY:
+                    return size;
+                case FlexboxEngine.MeasureSpec.AT_MOST:
+                    return Math.min(intrinsicSize, size);
+                default:
+                    return intrinsicSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each alignContent mode. The cross size of the flex container is fixed to one and a
+ * half times the sum of the cross sizes of the flex lines so that there is free space to be
+ * distributed among the flex lines. The alignItems attribute is left to the default stretch, thus
+ * the flex items are measured again in the alignContent stretch mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AlignContentBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    /** The cost of a single measurement of a flex item, see {@link SyntheticFlexContainer} */
+    @Param({"20"})
+    public long measureCost;
+
+    /** {@link FlexboxEngine#FLEX_DIRECTION_ROW} or {@link FlexboxEngine#FLEX_DIRECTION_COLUMN} */
+    @Param({"0", "2"})
+    public int flexDirection;
+
+    /** One of the ALIGN_CONTENT_ constants in {@link FlexboxEngine} */
+    @Param({"0", "1", "2", "3", "4", "5"})
+    public int alignContent;
+
+    private FlexboxEngine mEngine;
+
+    private int mWidthMeasureSpec;
+
+    private int mHeightMeasureSpec;
+
+    @Setup
+    public void setUp() {
+        mEngine = new FlexboxEngine(
+                new SyntheticFlexContainer(itemCount, measureCost, SyntheticFlexContainer.SEED));
+        mEngine.setFlexDirection(flexDirection);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mWidthMeasureSpec = SyntheticFlexContainer.getWidthMeasureSpec(flexDirection);
+        mHeightMeasureSpec = SyntheticFlexContainer.getHeightMeasureSpec(flexDirection);
+        mEngine.measure(mWidthMeasureSpec, mHeightMeasureSpec);
+        if (SyntheticFlexContainer.isMainAxisHorizontal(flexDirection)) {
+            int height = mEngine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK;
+            mHeightMeasureSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(height * 3 / 2,
+                    FlexboxEngine.MeasureSpec.EXACTLY);
+        } else {
+            int width = mEngine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK;
+            mWidthMeasureSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(width * 3 / 2,
+                    FlexboxEngine.MeasureSpec.EXACTLY);
+        }
+        mEngine.setAlignContent(alignContent);
+    }
+
+    @Benchmark
+    public int measureAndLayout() {
+        SyntheticFlexContainer.measureAndLayout(mEngine, mWidthMeasureSpec, mHeightMeasureSpec);
+        return mEngine.getFrameBottom(itemCount - 1);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks measuring and laying out the flex items with the dividers, then computing the
+ * bounds of the dividers as FlexboxLayout does before drawing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DividerBenchmark {
+
+    private static final int DIVIDER_SIZE = 2;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    /** The cost of a single measurement of a flex item, see {@link SyntheticFlexContainer} */
+    @Param({"20"})
+    public long measureCost;
+
+    /** {@link FlexboxEngine#FLEX_DIRECTION_ROW} or {@link FlexboxEngine#FLEX_DIRECTION_COLUMN} */
+    @Param({"0", "2"})
+    public int flexDirection;
+
+    /**
+     * The showDivider flags used for both directions. 0 shows no dividers, 2 shows only the
+     * middle dividers and 7 shows the beginning, middle and end dividers.
+     */
+    @Param({"0", "2", "7"})
+    public int showDivider;
+
+    private FlexboxEngine mEngine;
+
+    private int mWidthMeasureSpec;
+
+    private int mHeightMeasureSpec;
+
+    @Setup
+    public void setUp() {
+        mEngine = new FlexboxEngine(
+                new SyntheticFlexContainer(itemCount, measureCost, SyntheticFlexContainer.SEED));
+        mEngine.setFlexDirection(flexDirection);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        mEngine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+        mEngine.setShowDividerHorizontal(showDivider);
+        mEngine.setShowDividerVertical(showDivider);
+        mEngine.setDividerHorizontalHeight(DIVIDER_SIZE);
+        mEngine.setDividerVerticalWidth(DIVIDER_SIZE);
+        mWidthMeasureSpec = SyntheticFlexContainer.getWidthMeasureSpec(flexDirection);
+        mHeightMeasureSpec = SyntheticFlexContainer.getHeightMeasureSpec(flexDirection);
+    }
+
+    @Benchmark
+    public int measureLayoutAndComputeDividers() {
+        SyntheticFlexContainer.measureAndLayout(mEngine, mWidthMeasureSpec, mHeightMeasureSpec);
+        mEngine.computeDividerFrames();
+        return mEngine.getDividerCount();
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks distributing the free space of each flex line to the flex items with the flexGrow
+ * or the flexShrink attributes. Every fourth flex item hits its maximum (when expanding) or
+ * minimum (when shrinking) main size, so that the flex line is processed again after the
+ * violating flex items are frozen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlexDistributionBenchmark {
+
+    /** The number of the flex items in a flex line when shrinking */
+    private static final int SHRINK_LINE_SIZE = 8;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    /** The cost of a single measurement of a flex item, see {@link SyntheticFlexContainer} */
+    @Param({"20"})
+    public long measureCost;
+
+    /** {@link FlexboxEngine#FLEX_DIRECTION_ROW} or {@link FlexboxEngine#FLEX_DIRECTION_COLUMN} */
+    @Param({"0", "2"})
+    public int flexDirection;
+
+    @Param({"expand", "shrink"})
+    public String mode;
+
+    private FlexboxEngine mEngine;
+
+    private int mWidthMeasureSpec;
+
+    private int mHeightMeasureSpec;
+
+    @Setup
+    public void setUp() {
+        SyntheticFlexContainer container =
+                new SyntheticFlexContainer(itemCount, measureCost, SyntheticFlexContainer.SEED);
+        boolean horizontal = SyntheticFlexContainer.isMainAxisHorizontal(flexDirection);
+        boolean expand = "expand".equals(mode);
+        int mainSize = horizontal ? SyntheticFlexContainer.CONTAINER_WIDTH
+                : SyntheticFlexContainer.CONTAINER_HEIGHT;
+        for (int i = 0; i < itemCount; i++) {
+            SyntheticFlexItem item = container.getItem(i);
+            int intrinsicMainSize = horizontal ? item.intrinsicWidth : item.intrinsicHeight;
+            boolean violating = i % 4 == 0;
+            if (expand) {
+                item.flexGrow = 1f;
+                if (violating) {
+                    setMaxMainSize(item, horizontal, intrinsicMainSize + 4);
+                }
+            } else {
+                // Makes the flex items in each flex line overflow the main size of the container
+                int size = mainSize / SHRINK_LINE_SIZE + intrinsicMainSize;
+                if (horizontal) {
+                    item.width = size;
+                } else {
+                    item.height = size;
+                }
+                item.wrapBefore = i % SHRINK_LINE_SIZE == 0;
+                if (violating) {
+                    setMinMainSize(item, horizontal, size);
+                }
+            }
+        }
+        mEngine = new FlexboxEngine(container);
+        mEngine.setFlexDirection(flexDirection);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        mEngine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+        mWidthMeasureSpec = SyntheticFlexContainer.getWidthMeasureSpec(flexDirection);
+        mHeightMeasureSpec = SyntheticFlexContainer.getHeightMeasureSpec(flexDirection);
+    }
+
+    private static void setMaxMainSize(SyntheticFlexItem item, boolean horizontal, int size) {
+        if (horizontal) {
+            item.maxWidth = size;
+        } else {
+            item.maxHeight = size;
+        }
+    }
+
+    private static void setMinMainSize(SyntheticFlexItem item, boolean horizontal, int size) {
+        if (horizontal) {
+            item.minWidth = size;
+        } else {
+            item.minHeight = size;
+        }
+    }
+
+    @Benchmark
+    public int measure() {
+        mEngine.measure(mWidthMeasureSpec, mHeightMeasureSpec);
+        return mEngine.getFlexLineCount();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import java.util.Random;
+
+/**
+ * Benchmarks the flex items having the order attribute. {@link #reorderAndMeasure()} sorts the
+ * flex items on every measurement as happens when a child is added, while
+ * {@link #measure()} only checks that the order is unchanged from the last measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBenchmark {
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int itemCount;
+
+    /** The cost of a single measurement of a flex item, see {@link SyntheticFlexContainer} */
+    @Param({"20"})
+    public long measureCost;
+
+    /** {@link FlexboxEngine#FLEX_DIRECTION_ROW} or {@link FlexboxEngine#FLEX_DIRECTION_COLUMN} */
+    @Param({"0", "2"})
+    public int flexDirection;
+
+    private FlexboxEngine mEngine;
+
+    private int mWidthMeasureSpec;
+
+    private int mHeightMeasureSpec;
+
+    @Setup
+    public void setUp() {
+        SyntheticFlexContainer container =
+                new SyntheticFlexContainer(itemCount, measureCost, SyntheticFlexContainer.SEED);
+        Random random = new Random(SyntheticFlexContainer.SEED);
+        for (int i = 0; i < itemCount; i++) {
+            container.getItem(i).order = random.nextInt(7) - 3;
+        }
+        mEngine = new FlexboxEngine(container);
+        mEngine.setFlexDirection(flexDirection);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        mEngine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+        mWidthMeasureSpec = SyntheticFlexContainer.getWidthMeasureSpec(flexDirection);
+        mHeightMeasureSpec = SyntheticFlexContainer.getHeightMeasureSpec(flexDirection);
+    }
+
+    @Benchmark
+    public int reorderAndMeasure() {
+        mEngine.reorderFlexItems();
+        mEngine.measure(mWidthMeasureSpec, mHeightMeasureSpec);
+        return mEngine.getFlexLineCount();
+    }
+
+    @Benchmark
+    public int measure() {
+        mEngine.measure(mWidthMeasureSpec, mHeightMeasureSpec);
+        return mEngine.getFlexLineCount();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexContainer;
+import com.google.android.flexbox.FlexItem;
+import com.google.android.flexbox.FlexboxEngine;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+/**
+ * A {@link FlexContainer} whose flex items are measured by a synthetic function with a fixed
+ * cost, so that the benchmarks measure the flexbox algorithm rather than the measurement of
+ * the items.
+ */
+class SyntheticFlexContainer implements FlexContainer {
+
+    /** The seed used by all the benchmarks so that they lay out the same items */
+    static final long SEED = 20161114L;
+
+    /** The width of the flex container, similar to the width of a phone in portrait */
+    static final int CONTAINER_WIDTH = 1080;
+
+    /** The height of the flex container, similar to the height of a phone in portrait */
+    static final int CONTAINER_HEIGHT = 1920;
+
+    private final SyntheticFlexItem[] mItems;
+
+    private final int[] mMeasuredWidths;
+
+    private final int[] mMeasuredHeights;
+
+    private final long mMeasureCost;
+
+    /**
+     * Creates a container with the specified number of flex items whose intrinsic sizes and
+     * margins are randomly chosen. The same seed always produces the same items.
+     *
+     * @param itemCount   the number of the flex items
+     * @param measureCost the amount of work done for each measurement in the units of
+     *                    {@link Blackhole#consumeCPU(long)}
+     * @param seed        the seed for the random sizes
+     */
+    SyntheticFlexContainer(int itemCount, long measureCost, long seed) {
+        mItems = new SyntheticFlexItem[itemCount];
+        mMeasuredWidths = new int[itemCount];
+        mMeasuredHeights = new int[itemCount];
+        mMeasureCost = measureCost;
+        Random random = new Random(seed);
+        for (int i = 0; i < itemCount; i++) {
+            SyntheticFlexItem item = new SyntheticFlexItem(20 + random.nextInt(100),
+                    20 + random.nextInt(40));
+            item.marginLeft = random.nextInt(5);
+            item.marginTop = random.nextInt(5);
+            item.marginRight = random.nextInt(5);
+            item.marginBottom = random.nextInt(5);
+            mItems[i] = item;
+        }
+    }
+
+    /**
+     * @return the width MeasureSpec which fixes the main size of the flex container if the main
+     * axis is horizontal, otherwise leaves the width unconstrained
+     */
+    static int getWidthMeasureSpec(int flexDirection) {
+        return isMainAxisHorizontal(flexDirection)
+                ? FlexboxEngine.MeasureSpec.makeMeasureSpec(CONTAINER_WIDTH,
+                FlexboxEngine.MeasureSpec.EXACTLY)
+                : FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                        FlexboxEngine.MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * @return the height MeasureSpec which fixes the main size of the flex container if the main
+     * axis is vertical, otherwise leaves the height unconstrained
+     */
+    static int getHeightMeasureSpec(int flexDirection) {
+        return isMainAxisHorizontal(flexDirection)
+                ? FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                FlexboxEngine.MeasureSpec.UNSPECIFIED)
+                : FlexboxEngine.MeasureSpec.makeMeasureSpec(CONTAINER_HEIGHT,
+                        FlexboxEngine.MeasureSpec.EXACTLY);
+    }
+
+    static boolean isMainAxisHorizontal(int flexDirection) {
+        return flexDirection == FlexboxEngine.FLEX_DIRECTION_ROW
+                || flexDirection == FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+    }
+
+    /**
+     * Measures and lays out the flex items in the same way as FlexboxLayout does in its
+     * onMeasure and onLayout.
+     */
+    static void measureAndLayout(FlexboxEngine engine, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        engine.measure(widthMeasureSpec, heightMeasureSpec);
+        engine.layout(0, 0,
+                engine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                engine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK, false);
+    }
+
+    SyntheticFlexItem getItem(int index) {
+        return mItems[index];
+    }
+
+    @Override
+    public int getFlexItemCount() {
+        return mItems.length;
+    }
+
+    @Override
+    public FlexItem getFlexItemAt(int index) {
+        return mItems[index];
+    }
+
+    @Override
+    public boolean isFlexItemGone(int index) {
+        return false;
+    }
+
+    @Override
+    public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+        if (mMeasureCost > 0) {
+            Blackhole.consumeCPU(mMeasureCost);
+        }
+        SyntheticFlexItem item = mItems[index];
+        mMeasuredWidths[index] = resolveSize(item.intrinsicWidth, widthMeasureSpec);
+        mMeasuredHeights[index] = resolveSize(item.intrinsicHeight, heightMeasureSpec);
+    }
+
+    @Override
+    public int getMeasuredWidthOfFlexItem(int index) {
+        return mMeasuredWidths[index];
+    }
+
+    @Override
+    public int getMeasuredHeightOfFlexItem(int index) {
+        return mMeasuredHeights[index];
+    }
+
+    @Override
+    public int getMeasuredStateOfFlexItem(int index) {
+        return 0;
+    }
+
+    @Override
+    public int getBaselineOfFlexItem(int index) {
+        return mMeasuredHeights[index] * 3 / 4;
+    }
+
+    private static int resolveSize(int intrinsicSize, int measureSpec) {
+        int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+        switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+            case FlexboxEngine.MeasureSpec.EXACTLY:
+                return size;
+            case FlexboxEngine.MeasureSpec.AT_MOST:
+                return Math.min(intrinsicSize, size);
+            default:
+                return intrinsicSize;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexItem;
+
+/**
+ * A mutable {@link FlexItem} with an intrinsic size, which is the size the
+ * {@link SyntheticFlexContainer} reports for the item when it's measured without an exact size.
+ */
+class SyntheticFlexItem implements FlexItem {
+
+    int intrinsicWidth;
+
+    int intrinsicHeight;
+
+    int width = WRAP_CONTENT;
+
+    int height = WRAP_CONTENT;
+
+    int order = ORDER_DEFAULT;
+
+    float flexGrow = FLEX_GROW_DEFAULT;
+
+    float flexShrink = FLEX_SHRINK_DEFAULT;
+
+    int alignSelf = ALIGN_SELF_AUTO;
+
+    float flexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
+
+    float aspectRatio = ASPECT_RATIO_DEFAULT;
+
+    int minWidth;
+
+    int minHeight;
+
+    int maxWidth = MAX_SIZE;
+
+    int maxHeight = MAX_SIZE;
+
+    boolean wrapBefore;
+
+    int marginLeft;
+
+    int marginTop;
+
+    int marginRight;
+
+    int marginBottom;
+
+    SyntheticFlexItem(int intrinsicWidth, int intrinsicHeight) {
+        this.intrinsicWidth = intrinsicWidth;
+        this.intrinsicHeight = intrinsicHeight;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public float getFlexGrow() {
+        return flexGrow;
+    }
+
+    @Override
+    public float getFlexShrink() {
+        return flexShrink;
+    }
+
+    @Override
+    public int getAlignSelf() {
+        return alignSelf;
+    }
+
+    @Override
+    public float getFlexBasisPercent() {
+        return flexBasisPercent;
+    }
+
+    @Override
+    public float getAspectRatio() {
+        return aspectRatio;
+    }
+
+    @Override
+    public int getMinWidth() {
+        return minWidth;
+    }
+
+    @Override
+    public int getMinHeight() {
+        return minHeight;
+    }
+
+    @Override
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    @Override
+    public boolean isWrapBefore() {
+        return wrapBefore;
+    }
+
+    @Override
+    public int getMarginLeft() {
+        return marginLeft;
+    }
+
+    @Override
+    public int getMarginTop() {
+        return marginTop;
+    }
+
+    @Override
+    public int getMarginRight() {
+        return marginRight;
+    }
+
+    @Override
+    public int getMarginBottom() {
+        return marginBottom;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox.benchmark;
+
+import com.google.android.flexbox.FlexboxEngine;
+import com.google.android.flexbox.LayoutTrace;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Replays a trace recorded by {@link com.google.android.flexbox.LayoutRecorder} on a plain JVM.
+ * Each recorded measure pass is first replayed once to check whether the current flexbox
+ * algorithm still produces the recorded results, then all the passes are replayed repeatedly to
+ * time the algorithm.
+ *
+ * Usage: {@code ./gradlew :benchmark:replayTrace -Ptrace=<file> [-Piterations=<n>]}, where the
+ * file may be gzipped (*.gz).
+ */
+public class LayoutReplay {
+
+    private static final int DEFAULT_ITERATIONS = 1000;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LayoutReplay <trace file> [iterations]");
+            System.exit(1);
+        }
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_ITERATIONS;
+        LayoutTrace trace = readTrace(args[0]);
+        List<LayoutTrace.Pass> passes = trace.getPasses();
+
+        int mismatchCount = 0;
+        int unrecordedMeasureCount = 0;
+        int measureCount = 0;
+        for (int i = 0, size = passes.size(); i < size; i++) {
+            LayoutTrace.Pass pass = passes.get(i);
+            LayoutTrace.ReplayFlexContainer container = pass.newFlexContainer();
+            FlexboxEngine engine = pass.newEngine(container);
+            engine.measure(pass.getWidthMeasureSpec(), pass.getHeightMeasureSpec());
+            measureCount += pass.getMeasureCount();
+            unrecordedMeasureCount += container.getUnrecordedMeasureCount();
+            if (!pass.matchesRecording(engine)) {
+                mismatchCount++;
+                System.out.println(String.format(Locale.US,
+                        "Pass %d (%d flex items): recorded %dx%d in %d lines, replayed %dx%d in"
+                                + " %d lines", i, pass.getFlexItemCount(),
+                        pass.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                        pass.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                        pass.getFlexLineCount(),
+                        engine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                        engine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                        engine.getFlexLineCount()));
+            }
+        }
+        System.out.println(String.format(Locale.US,
+                "%d passes, %d recorded measurements, %d mismatching passes, %d measurements"
+                        + " not in the trace", passes.size(), measureCount, mismatchCount,
+                unrecordedMeasureCount));
+
+        FlexboxEngine[] engines = new FlexboxEngine[passes.size()];
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = passes.get(i).newEngine(passes.get(i).newFlexContainer());
+        }
+        // Warm up with the same number of iterations before timing
+        replay(passes, engines, iterations);
+        long start = System.nanoTime();
+        replay(passes, engines, iterations);
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format(Locale.US, "%.1f us per replay of all the passes,"
+                        + " %.1f us per pass", elapsed / 1e3 / iterations,
+                passes.isEmpty() ? 0d : elapsed / 1e3 / iterations / passes.size()));
+    }
+
+    private static void replay(List<LayoutTrace.Pass> passes, FlexboxEngine[] engines,
+            int iterations) {
+        for (int n = 0; n < iterations; n++) {
+            for (int i = 0; i < engines.length; i++) {
+                LayoutTrace.Pass pass = passes.get(i);
+                engines[i].measure(pass.getWidthMeasureSpec(), pass.getHeightMeasureSpec());
+            }
+        }
+    }
+
+    private static LayoutTrace readTrace(String path) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(path));
+        try {
+            if (path.endsWith(".gz")) {
+                in = new GZIPInputStream(in);
+            }
+            return LayoutTrace.read(in);
+        } finally {
+            in.close();
+        }
+    }
+}
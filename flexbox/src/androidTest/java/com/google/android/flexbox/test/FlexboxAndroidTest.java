@@ -17,7 +17,10 @@
 package com.google.android.flexbox.test;
 
 
+import com.google.android.flexbox.FlexLine;
 import com.google.android.flexbox.FlexboxLayout;
+import com.google.android.flexbox.FlexboxTagLayout;
+import com.google.android.flexbox.LayoutCache;
 
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeMatcher;
@@ -26,6 +29,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import android.content.Context;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.support.annotation.LayoutRes;
 import android.support.test.InstrumentationRegistry;
@@ -35,10 +39,16 @@ import android.support.test.filters.MediumTest;
 import android.support.test.rule.ActivityTestRule;
 import android.support.test.runner.AndroidJUnit4;
 import android.support.v4.content.res.ResourcesCompat;
+import android.support.v4.view.ViewCompat;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 import static android.support.test.espresso.Espresso.onView;
 import static android.support.test.espresso.assertion.PositionAssertions.isAbove;
 import static android.support.test.espresso.assertion.PositionAssertions.isBelow;
@@ -55,6 +65,8 @@ import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertTrue;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -289,6 +301,25 @@ public class FlexboxAndroidTest {
         assertThat(flexboxLayout.getFlexLines().size(), is(2));
     }
 
+    @Test
+    @FlakyTest
+    public void testReorderedChildFrame() throws Throwable {
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_wrap_test);
+
+        Rect frame = new Rect();
+        for (int i = 0; i < flexboxLayout.getChildCount(); i++) {
+            View child = flexboxLayout.getReorderedChildAt(i);
+            assertTrue(flexboxLayout.getReorderedChildFrame(i, frame));
+            assertThat(frame.left, is(child.getLeft()));
+            assertThat(frame.top, is(child.getTop()));
+            assertThat(frame.right, is(child.getRight()));
+            assertThat(frame.bottom, is(child.getBottom()));
+        }
+        assertThat(flexboxLayout.getReorderedChildFrame(flexboxLayout.getChildCount(), frame),
+                is(false));
+        assertThat(flexboxLayout.getReorderedChildFrame(-1, frame), is(false));
+    }
+
     @Test
     @FlakyTest
     public void testFlexWrap_nowrap() throws Throwable {
@@ -1389,6 +1420,38 @@ public class FlexboxAndroidTest {
         assertThat(flexboxLayout.getFlexLines().size(), is(2));
     }
 
+    @Test
+    @FlakyTest
+    public void testFlexLineAccessors_alignContent_spaceAround() throws Throwable {
+        // Dummy flex lines are internally inserted for the space around the flex lines, the
+        // accessors should skip them in the same manner as getFlexLines
+        final FlexboxLayout flexboxLayout = createFlexboxLayout(
+                R.layout.activity_align_content_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_SPACE_AROUND);
+                    }
+                });
+
+        final List<FlexLine> flexLines = flexboxLayout.getFlexLines();
+        assertThat(flexboxLayout.getFlexLineCount(), is(2));
+        assertThat(flexboxLayout.getFlexLineAt(0), is(sameInstance(flexLines.get(0))));
+        assertThat(flexboxLayout.getFlexLineAt(1), is(sameInstance(flexLines.get(1))));
+        assertThat(flexboxLayout.getFlexLineAt(2), is(nullValue()));
+        assertThat(flexboxLayout.getFlexLineAt(-1), is(nullValue()));
+
+        final int[] visitedCount = new int[1];
+        flexboxLayout.forEachFlexLine(new FlexboxLayout.FlexLineVisitor() {
+            @Override
+            public void visitFlexLine(FlexLine flexLine, int index) {
+                assertThat(flexLine, is(sameInstance(flexLines.get(index))));
+                visitedCount[0]++;
+            }
+        });
+        assertThat(visitedCount[0], is(2));
+    }
+
     @Test
     @FlakyTest
     public void testAlignContent_stretch_parentWrapContent() throws Throwable {
@@ -1647,6 +1710,30 @@ public class FlexboxAndroidTest {
         assertThat(textView3.getHeight(), isEqualAllowingError(flexLineSize));
     }
 
+    @Test
+    @FlakyTest
+    public void testAlignItems_stretch_goneChild() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_stretch_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+                        textView2.setVisibility(View.GONE);
+                    }
+                });
+
+        // The text1 and text3 fit in a single flex line, which is stretched to the height of the
+        // FlexboxLayout. The gone text2 isn't stretched, thus it has never been measured.
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        onView(withId(R.id.text3)).check(isRightOf(withId(R.id.text1)));
+        assertThat(textView1.getHeight(), is(flexboxLayout.getHeight()));
+        assertThat(textView3.getHeight(), is(flexboxLayout.getHeight()));
+        assertThat(textView2.getMeasuredHeight(), is(0));
+    }
+
     @Test
     @FlakyTest
     public void testAlignSelf_stretch() throws Throwable {
@@ -2144,6 +2231,36 @@ public class FlexboxAndroidTest {
         assertThat(bottomPluBaseline2, is(bottomPluBaseline3));
     }
 
+    @Test
+    @FlakyTest
+    public void testAlignItems_baseline_beforeLayout() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final int[] measuredHeight = new int[1];
+        createFlexboxLayout(R.layout.activity_align_items_baseline_test, new Configuration() {
+            @Override
+            public void apply(FlexboxLayout flexboxLayout) {
+                TextView textView4 = createTextView(activity, String.valueOf(4), 0);
+                ((FlexboxLayout.LayoutParams) textView4.getLayoutParams()).bottomMargin =
+                        TestUtil.dpToPixel(activity, 200);
+                textView4.setVisibility(View.GONE);
+                flexboxLayout.addView(textView4);
+                // None of the children has been laid out yet, their heights are still zero
+                int unspecified = View.MeasureSpec.makeMeasureSpec(0,
+                        View.MeasureSpec.UNSPECIFIED);
+                flexboxLayout.measure(unspecified, unspecified);
+                measuredHeight[0] = flexboxLayout.getMeasuredHeight();
+            }
+        });
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+
+        // The flex line encloses the children aligned by their baselines, the bottom margin of
+        // the gone text4 isn't taken into account
+        assertThat(measuredHeight[0], is(Math.max(textView1.getBottom(),
+                Math.max(textView2.getBottom(), textView3.getBottom()))));
+    }
+
     @Test
     @FlakyTest
     public void testFlexDirection_row_reverse() throws Throwable {
@@ -2619,6 +2736,31 @@ public class FlexboxAndroidTest {
         onView(withId(R.id.text3)).check(isBottomAlignedWith(withId(R.id.flexbox_layout)));
     }
 
+    @Test
+    @FlakyTest
+    public void testWrapBefore_firstViewGone() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_wrap_before_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+                        textView1.setVisibility(View.GONE);
+                    }
+                });
+
+        // The first flex line only has the gone text1 when the text2 is wrapped, the text2 and
+        // text3 should still be the first item for each flex line.
+        onView(withId(R.id.text2)).check(isTopAlignedWith(withId(R.id.flexbox_layout)));
+        onView(withId(R.id.text2)).check(isLeftAlignedWith(withId(R.id.flexbox_layout)));
+        onView(withId(R.id.text3)).check(isLeftAlignedWith(withId(R.id.flexbox_layout)));
+        onView(withId(R.id.text3)).check(isBelow(withId(R.id.text2)));
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        assertThat(flexboxLayout.getFlexLines().size(), is(2));
+        assertThat(flexboxLayout.getHeight(), is(textView2.getHeight() + textView3.getHeight()));
+    }
+
     @Test
     @FlakyTest
     public void testWrap_parentPadding_horizontal() throws Throwable {
@@ -2767,6 +2909,27 @@ public class FlexboxAndroidTest {
         assertThat(flexboxLayout.getChildCount(), is(0));
     }
 
+    @Test
+    @FlakyTest
+    public void testEmptyChildren_wrapContent() throws Throwable {
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_empty_children,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        ViewGroup.LayoutParams parentLp = flexboxLayout.getLayoutParams();
+                        parentLp.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+                        parentLp.height = ViewGroup.LayoutParams.WRAP_CONTENT;
+                        flexboxLayout.setLayoutParams(parentLp);
+                        flexboxLayout.setPadding(8, 16, 24, 32);
+                    }
+                });
+
+        // Without any flex items only the padding occupies the space
+        assertThat(flexboxLayout.getChildCount(), is(0));
+        assertThat(flexboxLayout.getWidth(), is(8 + 24));
+        assertThat(flexboxLayout.getHeight(), is(16 + 32));
+    }
+
     @Test
     @FlakyTest
     public void testDivider_directionRow_verticalBeginning() throws Throwable {
@@ -3407,6 +3570,79 @@ public class FlexboxAndroidTest {
         assertThat(text3.getRight(), is(text1.getWidth() + text3.getWidth()));
     }
 
+    @Test
+    @FlakyTest
+    public void testGap_directionRow() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_gap_test);
+
+        assertThat(flexboxLayout.getFlexDirection(), is(FlexboxLayout.FLEX_DIRECTION_ROW));
+        assertThat(flexboxLayout.getColumnGap(),
+                isEqualAllowingError(TestUtil.dpToPixel(activity, 24)));
+        assertThat(flexboxLayout.getRowGap(),
+                isEqualAllowingError(TestUtil.dpToPixel(activity, 16)));
+        assertThat(flexboxLayout.getShowDividerVertical(), is(FlexboxLayout.SHOW_DIVIDER_NONE));
+
+        TextView text1 = (TextView) activity.findViewById(R.id.text1);
+        TextView text2 = (TextView) activity.findViewById(R.id.text2);
+        TextView text3 = (TextView) activity.findViewById(R.id.text3);
+        // The column gap is put between the flex items in the same flex line (160 + 24 + 160 fits
+        // in 360) and the row gap is put between the flex lines
+        assertThat(text1.getLeft(), is(0));
+        assertThat(text2.getLeft(), is(text1.getRight() + flexboxLayout.getColumnGap()));
+        assertThat(text2.getTop(), is(text1.getTop()));
+        assertThat(text3.getLeft(), is(0));
+        assertThat(text3.getTop(), is(text1.getBottom() + flexboxLayout.getRowGap()));
+        assertThat(flexboxLayout.getFlexLines().size(), is(2));
+    }
+
+    @Test
+    @FlakyTest
+    public void testGap_directionColumn() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_gap_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setFlexDirection(FlexboxLayout.FLEX_DIRECTION_COLUMN);
+                    }
+                });
+
+        assertThat(flexboxLayout.getFlexDirection(), is(FlexboxLayout.FLEX_DIRECTION_COLUMN));
+
+        TextView text1 = (TextView) activity.findViewById(R.id.text1);
+        TextView text2 = (TextView) activity.findViewById(R.id.text2);
+        TextView text3 = (TextView) activity.findViewById(R.id.text3);
+        // The row gap is put between the flex items in the same flex line (120 + 16 + 120 fits
+        // in 300) and the column gap is put between the flex lines
+        assertThat(text1.getTop(), is(0));
+        assertThat(text2.getTop(), is(text1.getBottom() + flexboxLayout.getRowGap()));
+        assertThat(text2.getLeft(), is(text1.getLeft()));
+        assertThat(text3.getTop(), is(0));
+        assertThat(text3.getLeft(), is(text1.getRight() + flexboxLayout.getColumnGap()));
+        assertThat(flexboxLayout.getFlexLines().size(), is(2));
+    }
+
+    @Test
+    @FlakyTest
+    public void testGap_wrapRequiredByGap() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_gap_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setColumnGap(TestUtil.dpToPixel(activity, 48));
+                    }
+                });
+
+        TextView text1 = (TextView) activity.findViewById(R.id.text1);
+        TextView text2 = (TextView) activity.findViewById(R.id.text2);
+        // 160 + 48 + 160 doesn't fit in 360, the second text view has to be wrapped
+        assertThat(text2.getLeft(), is(0));
+        assertThat(text2.getTop(), is(text1.getBottom() + flexboxLayout.getRowGap()));
+        assertThat(flexboxLayout.getFlexLines().size(), is(3));
+    }
+
     @Test
     @FlakyTest
     public void testZeroWidth_wrapContentHeight_positiveFlexGrow() throws Throwable {
@@ -3471,6 +3707,32 @@ public class FlexboxAndroidTest {
                 isEqualAllowingError(TestUtil.dpToPixel(activity, 50)));
     }
 
+    @Test
+    @FlakyTest
+    public void testFlexDirection_column_alignItems_center_margin_oneSide_rtl()
+            throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(
+                R.layout.activity_direction_column_align_items_center_margin_oneside,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        ViewCompat.setLayoutDirection(flexboxLayout,
+                                ViewCompat.LAYOUT_DIRECTION_RTL);
+                        // The start and end margins of the child follow the layout direction of
+                        // the flex container, not the one of the child
+                        ViewCompat.setLayoutDirection(activity.findViewById(R.id.text1),
+                                ViewCompat.LAYOUT_DIRECTION_LTR);
+                    }
+                });
+        assertThat(flexboxLayout.getFlexDirection(), is(FlexboxLayout.FLEX_DIRECTION_COLUMN));
+
+        TextView text1 = (TextView) activity.findViewById(R.id.text1);
+        assertThat(text1.getLeft(), isEqualAllowingError(TestUtil.dpToPixel(activity, 30)));
+        assertThat(flexboxLayout.getRight() - text1.getRight(),
+                isEqualAllowingError(TestUtil.dpToPixel(activity, 50)));
+    }
+
     @Test
     @FlakyTest
     public void testChildBottomMarginIncluded_flexContainerWrapContent_directionRow_flexGrow()
@@ -3559,6 +3821,408 @@ public class FlexboxAndroidTest {
                 isEqualAllowingError(TestUtil.dpToPixel(mActivityRule.getActivity(), 36)));
     }
 
+    @Test
+    @FlakyTest
+    public void testOnLayoutStatsListener() throws Throwable {
+        final int[] passCounts = new int[3];
+        final int[] childCount = new int[1];
+        final int[] flexLineCount = new int[1];
+        final int[] remeasureCount = new int[1];
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setOnLayoutStatsListener(
+                                new FlexboxLayout.OnLayoutStatsListener() {
+                                    @Override
+                                    public void onLayoutStats(FlexboxLayout flexboxLayout,
+                                            FlexboxLayout.LayoutStats stats) {
+                                        assertTrue(stats.getDurationNanos() >= 0);
+                                        passCounts[stats.getPass()]++;
+                                        childCount[0] = stats.getChildCount();
+                                        flexLineCount[0] = stats.getFlexLineCount();
+                                        remeasureCount[0] = stats.getRemeasureCount();
+                                    }
+                                });
+                    }
+                });
+
+        assertTrue(passCounts[FlexboxLayout.LayoutStats.PASS_MEASURE] > 0);
+        assertTrue(passCounts[FlexboxLayout.LayoutStats.PASS_LAYOUT] > 0);
+        assertTrue(passCounts[FlexboxLayout.LayoutStats.PASS_DRAW] > 0);
+        assertThat(childCount[0], is(3));
+        assertThat(flexLineCount[0], is(flexboxLayout.getFlexLineCount()));
+        // Every child in the flex line is measured again when the third child is expanded, then
+        // every child is stretched (alignItems is stretch)
+        assertThat(remeasureCount[0], is(6));
+    }
+
+    @Test
+    @FlakyTest
+    public void testLayoutCache_restoredLayout() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final LayoutCache layoutCache = new LayoutCache();
+        createFlexboxLayout(R.layout.activity_flex_grow_test, new Configuration() {
+            @Override
+            public void apply(FlexboxLayout flexboxLayout) {
+                flexboxLayout.setLayoutCache(layoutCache, 1);
+            }
+        });
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        int left = textView3.getLeft();
+        int width = textView3.getWidth();
+        assertTrue(layoutCache.size() > 0);
+
+        // Inflate the same layout again with the cache read back as on the next launch
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        layoutCache.writeTo(out);
+        final LayoutCache restoredCache =
+                LayoutCache.read(new ByteArrayInputStream(out.toByteArray()));
+        final List<Integer> remeasureCounts = new ArrayList<>();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setLayoutCache(restoredCache, 1);
+                        flexboxLayout.setOnLayoutStatsListener(
+                                new FlexboxLayout.OnLayoutStatsListener() {
+                                    @Override
+                                    public void onLayoutStats(FlexboxLayout flexboxLayout,
+                                            FlexboxLayout.LayoutStats stats) {
+                                        if (stats.getPass()
+                                                == FlexboxLayout.LayoutStats.PASS_MEASURE) {
+                                            remeasureCounts.add(stats.getRemeasureCount());
+                                        }
+                                    }
+                                });
+                    }
+                });
+
+        // The first measure is restored, thus no child is measured again for flexGrow
+        assertThat(remeasureCounts.get(0), is(0));
+        assertThat(flexboxLayout.getLayoutCache(), is(sameInstance(restoredCache)));
+        onView(withId(R.id.text3)).check(isRightAlignedWith(withId(R.id.flexbox_layout)));
+        textView3 = (TextView) activity.findViewById(R.id.text3);
+        assertThat(textView3.getLeft(), is(left));
+        assertThat(textView3.getWidth(), is(width));
+    }
+
+    @Test
+    @FlakyTest
+    public void testLayoutCache_precomputedLayout() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final LayoutCache layoutCache = new LayoutCache();
+        final List<Integer> remeasureCounts = new ArrayList<>();
+        final FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setLayoutCache(layoutCache, 1);
+                        flexboxLayout.setOnLayoutStatsListener(
+                                new FlexboxLayout.OnLayoutStatsListener() {
+                                    @Override
+                                    public void onLayoutStats(FlexboxLayout flexboxLayout,
+                                            FlexboxLayout.LayoutStats stats) {
+                                        if (stats.getPass()
+                                                == FlexboxLayout.LayoutStats.PASS_MEASURE) {
+                                            remeasureCounts.add(stats.getRemeasureCount());
+                                        }
+                                    }
+                                });
+                    }
+                });
+        final int width = flexboxLayout.getWidth() / 2;
+        final int height = flexboxLayout.getHeight();
+
+        // Precompute the layout for the half width, then resize the layout to it
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                flexboxLayout.precomputeLayout(
+                        View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+                remeasureCounts.clear();
+                ViewGroup.LayoutParams lp = flexboxLayout.getLayoutParams();
+                lp.width = width;
+                flexboxLayout.setLayoutParams(lp);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+
+        // The measure for the half width is restored, thus no child is measured again
+        assertThat(remeasureCounts.get(0), is(0));
+        assertThat(flexboxLayout.getWidth(), is(width));
+        onView(withId(R.id.text3)).check(isRightAlignedWith(withId(R.id.flexbox_layout)));
+        onView(withId(R.id.text3)).check(isRightOf(withId(R.id.text2)));
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        assertThat(textView3.getWidth(),
+                is(width - textView1.getWidth() - textView2.getWidth()));
+    }
+
+    @Test
+    @FlakyTest
+    public void testLayoutCache_staleEntry() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final LayoutCache layoutCache = new LayoutCache();
+        createFlexboxLayout(R.layout.activity_flex_grow_test, new Configuration() {
+            @Override
+            public void apply(FlexboxLayout flexboxLayout) {
+                flexboxLayout.getChildAt(0).getLayoutParams().width =
+                        ViewGroup.LayoutParams.WRAP_CONTENT;
+                flexboxLayout.setLayoutCache(layoutCache, 1);
+            }
+        });
+
+        // Inflate the same layout again with a longer text but the same content version, which
+        // restores the stale layout first
+        final List<Boolean> restoredMeasures = new ArrayList<>();
+        final FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        TextView textView1 = (TextView) flexboxLayout.getChildAt(0);
+                        textView1.getLayoutParams().width = ViewGroup.LayoutParams.WRAP_CONTENT;
+                        textView1.setText("1 with a longer text");
+                        flexboxLayout.setLayoutCache(layoutCache, 1);
+                        flexboxLayout.setOnLayoutStatsListener(
+                                new FlexboxLayout.OnLayoutStatsListener() {
+                                    @Override
+                                    public void onLayoutStats(FlexboxLayout flexboxLayout,
+                                            FlexboxLayout.LayoutStats stats) {
+                                        if (stats.getPass()
+                                                == FlexboxLayout.LayoutStats.PASS_MEASURE) {
+                                            restoredMeasures.add(stats.getRemeasureCount() == 0);
+                                        }
+                                    }
+                                });
+                    }
+                });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        int measureCount = restoredMeasures.size();
+
+        // The stale entry is replaced after one extra pass and the layout settles
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                flexboxLayout.invalidate();
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        assertThat(restoredMeasures.size(), is(measureCount));
+        assertThat(restoredMeasures.get(measureCount - 1), is(false));
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        assertThat(textView2.getLeft(), is(textView1.getRight()));
+        onView(withId(R.id.text3)).check(isRightAlignedWith(withId(R.id.flexbox_layout)));
+    }
+
+    @Test
+    @FlakyTest
+    public void testFixedPointDistribution_flexGrow() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setFixedPointDistribution(true);
+                        for (int i = 0; i < flexboxLayout.getChildCount(); i++) {
+                            FlexboxLayout.LayoutParams lp = (FlexboxLayout.LayoutParams)
+                                    flexboxLayout.getChildAt(i).getLayoutParams();
+                            lp.flexGrow = 1;
+                        }
+                    }
+                });
+
+        assertTrue(flexboxLayout.isFixedPointDistribution());
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        // The free space is split without any pixel lost or added by the rounding
+        assertThat(textView1.getLeft(), is(0));
+        assertThat(textView2.getLeft(), is(textView1.getRight()));
+        assertThat(textView3.getLeft(), is(textView2.getRight()));
+        assertThat(textView3.getRight(), is(flexboxLayout.getWidth()));
+        assertTrue(Math.abs(textView1.getWidth() - textView2.getWidth()) <= 1);
+        assertTrue(Math.abs(textView1.getWidth() - textView3.getWidth()) <= 1);
+    }
+
+    @Test
+    @FlakyTest
+    public void testIntrinsicMainSize() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test);
+        final int[] intrinsicSizes = new int[2];
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                int heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(0,
+                        View.MeasureSpec.UNSPECIFIED);
+                intrinsicSizes[0] = flexboxLayout.getMinIntrinsicMainSize(heightMeasureSpec);
+                intrinsicSizes[1] = flexboxLayout.getMaxIntrinsicMainSize(heightMeasureSpec);
+            }
+        });
+
+        // Each child is 60dp wide and the children can wrap
+        assertThat(intrinsicSizes[0], is(TestUtil.dpToPixel(activity, 60)));
+        assertThat(intrinsicSizes[1], is(TestUtil.dpToPixel(activity, 60) * 3));
+        // The query doesn't change the current layout
+        onView(withId(R.id.text3)).check(isRightAlignedWith(withId(R.id.flexbox_layout)));
+    }
+
+    @Test
+    @FlakyTest
+    public void testAspectRatio_flexGrow() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_STRETCH);
+                        for (int i = 0; i < flexboxLayout.getChildCount(); i++) {
+                            FlexboxLayout.LayoutParams lp = (FlexboxLayout.LayoutParams)
+                                    flexboxLayout.getChildAt(i).getLayoutParams();
+                            lp.flexGrow = 1;
+                            lp.aspectRatio = 2;
+                        }
+                    }
+                });
+
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        assertThat(textView3.getRight(), is(flexboxLayout.getWidth()));
+        // The heights follow from the expanded widths instead of the stretch alignment
+        assertThat(textView1.getHeight(), is(Math.round(textView1.getWidth() / 2f)));
+        assertThat(textView2.getHeight(), is(Math.round(textView2.getWidth() / 2f)));
+        assertThat(textView3.getHeight(), is(Math.round(textView3.getWidth() / 2f)));
+    }
+
+    @Test
+    @FlakyTest
+    public void testJustifiedRowHeight() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setJustifiedRowHeight(TestUtil.dpToPixel(activity, 100));
+                        for (int i = 0; i < flexboxLayout.getChildCount(); i++) {
+                            FlexboxLayout.LayoutParams lp = (FlexboxLayout.LayoutParams)
+                                    flexboxLayout.getChildAt(i).getLayoutParams();
+                            lp.aspectRatio = 10;
+                        }
+                    }
+                });
+
+        assertThat(flexboxLayout.getJustifiedRowHeight(), is(TestUtil.dpToPixel(activity, 100)));
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        // Each child is wider than the flex container at the target height, thus makes its own
+        // row filling the width
+        assertThat(flexboxLayout.getFlexLines().size(), is(3));
+        assertThat(textView1.getWidth(), is(flexboxLayout.getWidth()));
+        assertThat(textView2.getTop(), is(textView1.getBottom()));
+        assertThat(textView3.getTop(), is(textView2.getBottom()));
+        assertThat(textView1.getHeight(), is(Math.round(textView1.getWidth() / 10f)));
+    }
+
+    @Test
+    @FlakyTest
+    public void testDebugOverlay_sameLayout() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxLayout flexboxLayout = createFlexboxLayout(R.layout.activity_flex_grow_test,
+                new Configuration() {
+                    @Override
+                    public void apply(FlexboxLayout flexboxLayout) {
+                        flexboxLayout.setDebugOverlayEnabled(true);
+                    }
+                });
+
+        assertTrue(flexboxLayout.isDebugOverlayEnabled());
+        onView(withId(R.id.text3)).check(isRightAlignedWith(withId(R.id.flexbox_layout)));
+        onView(withId(R.id.text3)).check(isRightOf(withId(R.id.text2)));
+        TextView textView1 = (TextView) activity.findViewById(R.id.text1);
+        TextView textView2 = (TextView) activity.findViewById(R.id.text2);
+        TextView textView3 = (TextView) activity.findViewById(R.id.text3);
+        assertThat(textView3.getWidth(),
+                is(flexboxLayout.getWidth() - textView1.getWidth() - textView2.getWidth()));
+    }
+
+    @Test
+    @FlakyTest
+    public void testTagLayout_wrap() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        FlexboxTagLayout tagLayout = createFlexboxTagLayout(new TagConfiguration() {
+            @Override
+            public void apply(FlexboxTagLayout tagLayout) {
+                for (int i = 0; i < 3; i++) {
+                    tagLayout.addTag(createTag(activity, String.valueOf(i), 80, 32));
+                }
+            }
+        });
+        assertThat(tagLayout.getTagCount(), is(3));
+        assertThat(tagLayout.getColumnGap(), isEqualAllowingError(TestUtil.dpToPixel(activity, 8)));
+
+        Rect frame1 = new Rect();
+        Rect frame2 = new Rect();
+        Rect frame3 = new Rect();
+        assertTrue(tagLayout.getTagFrame(0, frame1));
+        assertTrue(tagLayout.getTagFrame(1, frame2));
+        assertTrue(tagLayout.getTagFrame(2, frame3));
+        // 80 + 8 + 80 fits in 200, but the third tag needs to be wrapped
+        assertThat(frame2.left, is(frame1.right + tagLayout.getColumnGap()));
+        assertThat(frame2.top, is(frame1.top));
+        assertThat(frame3.left, is(0));
+        assertThat(frame3.top, is(frame1.bottom + tagLayout.getRowGap()));
+        assertThat(tagLayout.getFlexLines().size(), is(2));
+        assertThat(tagLayout.getTagIndexAt(frame2.centerX(), frame2.centerY()), is(1));
+        assertThat(tagLayout.getTagIndexAt(frame3.centerX(), frame3.centerY()), is(2));
+        // On the second flex line, but to the right of the third tag
+        assertThat(tagLayout.getTagIndexAt(frame3.right + 1, frame3.centerY()), is(-1));
+        assertThat(tagLayout.getHeight(), is(frame3.bottom));
+    }
+
+    @Test
+    @FlakyTest
+    public void testTagLayout_order_hitTest() throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        final int[] clickedIndex = new int[]{-1};
+        FlexboxTagLayout tagLayout = createFlexboxTagLayout(new TagConfiguration() {
+            @Override
+            public void apply(FlexboxTagLayout tagLayout) {
+                for (int i = 0; i < 3; i++) {
+                    tagLayout.addTag(createTag(activity, String.valueOf(i), 40, 32));
+                }
+                tagLayout.getTagAt(2).order = -1;
+                tagLayout.notifyTagsChanged();
+                tagLayout.setOnTagClickListener(new FlexboxTagLayout.OnTagClickListener() {
+                    @Override
+                    public void onTagClick(FlexboxTagLayout layout, int index) {
+                        clickedIndex[0] = index;
+                    }
+                });
+            }
+        });
+
+        Rect frame1 = new Rect();
+        Rect frame3 = new Rect();
+        assertTrue(tagLayout.getTagFrame(0, frame1));
+        assertTrue(tagLayout.getTagFrame(2, frame3));
+        // The third tag is placed first since its order is smaller than the others
+        assertThat(frame3.left, is(0));
+        assertThat(frame1.left, is(frame3.right + tagLayout.getColumnGap()));
+        assertThat(tagLayout.getTagIndexAt(frame3.centerX(), frame3.centerY()), is(2));
+        assertThat(tagLayout.getTagIndexAt(frame1.centerX(), frame1.centerY()), is(0));
+        // Within the gap between the tags
+        assertThat(tagLayout.getTagIndexAt(frame3.right, frame3.centerY()), is(-1));
+
+        assertTrue(tagLayout.performTagClick(2));
+        assertThat(clickedIndex[0], is(2));
+    }
+
     private FlexboxLayout createFlexboxLayout(@LayoutRes final int activityLayoutResId)
             throws Throwable {
         return createFlexboxLayout(activityLayoutResId, Configuration.EMPTY);
@@ -3580,6 +4244,30 @@ public class FlexboxAndroidTest {
         return (FlexboxLayout) activity.findViewById(R.id.flexbox_layout);
     }
 
+    private FlexboxTagLayout createFlexboxTagLayout(final TagConfiguration configuration)
+            throws Throwable {
+        final FlexboxTestActivity activity = mActivityRule.getActivity();
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                activity.setContentView(R.layout.activity_tag_layout_test);
+                FlexboxTagLayout tagLayout = (FlexboxTagLayout) activity
+                        .findViewById(R.id.flexbox_tag_layout);
+                configuration.apply(tagLayout);
+            }
+        });
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        return (FlexboxTagLayout) activity.findViewById(R.id.flexbox_tag_layout);
+    }
+
+    private static FlexboxTagLayout.Tag createTag(Context context, String text, int widthDp,
+            int heightDp) {
+        FlexboxTagLayout.Tag tag = new FlexboxTagLayout.Tag(text);
+        tag.width = TestUtil.dpToPixel(context, widthDp);
+        tag.height = TestUtil.dpToPixel(context, heightDp);
+        return tag;
+    }
+
     private static TextView createTextView(Context context, String text, int order) {
         TextView textView = new TextView(context);
         textView.setText(text);
@@ -3638,4 +4326,9 @@ public class FlexboxAndroidTest {
 
         void apply(FlexboxLayout flexboxLayout);
     }
+
+    private interface TagConfiguration {
+
+        void apply(FlexboxTagLayout tagLayout);
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+/**
+ * An interface through which the {@link FlexboxEngine} accesses the flex items to be laid out and
+ * measures them. The indices passed to the methods are the indices of the flex items as they are
+ * added to the container, i.e. the order attribute is not taken into account.
+ *
+ * The measured sizes are kept by the implementation, the {@link FlexboxEngine} retrieves them
+ * after calling {@link #measureFlexItem(int, int, int)}. The MeasureSpecs passed to the
+ * implementation are encoded in the same manner as {@code android.view.View.MeasureSpec}, see
+ * {@link FlexboxEngine.MeasureSpec}.
+ */
+public interface FlexContainer {
+
+    /**
+     * @return the number of the flex items including the ones whose visibilities are gone
+     */
+    int getFlexItemCount();
+
+    /**
+     * Returns the attributes of the flex item at the specified index. The {@link FlexboxEngine}
+     * uses the returned instance only until it calls this method again, thus an implementation
+     * may return the same instance pointed at a different flex item for each call.
+     *
+     * @param index the index of the flex item
+     * @return the attributes of the flex item at the specified index
+     */
+    FlexItem getFlexItemAt(int index);
+
+    /**
+     * @param index the index of the flex item
+     * @return {@code true} if the flex item at the specified index doesn't take any space for
+     * layout purposes, like a View whose visibility is gone
+     */
+    boolean isFlexItemGone(int index);
+
+    /**
+     * Measures the flex item at the specified index.
+     *
+     * @param index             the index of the flex item
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the flex container
+     * @param heightMeasureSpec vertical space requirements as imposed by the flex container
+     */
+    void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec);
+
+    /**
+     * @param index the index of the flex item
+     * @return the width of the flex item obtained in the last measurement
+     */
+    int getMeasuredWidthOfFlexItem(int index);
+
+    /**
+     * @param index the index of the flex item
+     * @return the height of the flex item obtained in the last measurement
+     */
+    int getMeasuredHeightOfFlexItem(int index);
+
+    /**
+     * @param index the index of the flex item
+     * @return the measured state bits of the flex item in the same format as
+     * {@code android.view.View#getMeasuredState()}, or 0 if not applicable
+     */
+    int getMeasuredStateOfFlexItem(int index);
+
+    /**
+     * @param index the index of the flex item
+     * @return the offset of the flex item's text baseline from its top boundary, or -1 if the
+     * flex item doesn't support baseline alignment
+     */
+    int getBaselineOfFlexItem(int index);
+}
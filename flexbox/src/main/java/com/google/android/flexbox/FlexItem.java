@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+/**
+ * An interface that has the common behavior for the flex items laid out by the
+ * {@link FlexboxEngine}. The {@link FlexboxLayout.LayoutParams} implements this interface for the
+ * children views of the {@link FlexboxLayout}, but a flex item doesn't need to be a View, which
+ * makes it possible to run the same flex algorithm for lightweight items or on a plain JVM.
+ *
+ * The values returned from this interface correspond to the attributes that can be specified for
+ * the children of the {@link FlexboxLayout} such as {@code layout_order} or
+ * {@code layout_flexGrow}.
+ */
+public interface FlexItem {
+
+    /** The value for the width or height to be as big as the parent (flex container). */
+    int MATCH_PARENT = -1;
+
+    /** The value for the width or height to be just big enough to enclose its content. */
+    int WRAP_CONTENT = -2;
+
+    /** The default value for the order attribute */
+    int ORDER_DEFAULT = 1;
+
+    /** The default value for the flex grow attribute */
+    float FLEX_GROW_DEFAULT = 0f;
+
+    /** The default value for the flex shrink attribute */
+    float FLEX_SHRINK_DEFAULT = 1f;
+
+    /** The default value for the flex basis percent attribute, which means not set */
+    float FLEX_BASIS_PERCENT_DEFAULT = -1f;
+
+    /** The default value for the aspect ratio attribute, which means not set */
+    float ASPECT_RATIO_DEFAULT = -1f;
+
+    int ALIGN_SELF_AUTO = -1;
+
+    int ALIGN_SELF_FLEX_START = FlexboxEngine.ALIGN_ITEMS_FLEX_START;
+
+    int ALIGN_SELF_FLEX_END = FlexboxEngine.ALIGN_ITEMS_FLEX_END;
+
+    int ALIGN_SELF_CENTER = FlexboxEngine.ALIGN_ITEMS_CENTER;
+
+    int ALIGN_SELF_BASELINE = FlexboxEngine.ALIGN_ITEMS_BASELINE;
+
+    int ALIGN_SELF_STRETCH = FlexboxEngine.ALIGN_ITEMS_STRETCH;
+
+    /** The largest size a flex item can take, which fits in the size bits of a MeasureSpec */
+    int MAX_SIZE = Integer.MAX_VALUE & FlexboxEngine.MEASURED_SIZE_MASK;
+
+    /**
+     * @return the width in pixels, or either of {@link #MATCH_PARENT} or {@link #WRAP_CONTENT}
+     */
+    int getWidth();
+
+    /**
+     * @return the height in pixels, or either of {@link #MATCH_PARENT} or {@link #WRAP_CONTENT}
+     */
+    int getHeight();
+
+    /**
+     * @return the order of the flex item, which changes the ordering the flex items are laid out
+     */
+    int getOrder();
+
+    /**
+     * @return how much the flex item will grow if positive free space is distributed relative to
+     * the rest of other flex items included in the same flex line
+     */
+    float getFlexGrow();
+
+    /**
+     * @return how much the flex item will shrink if negative free space is distributed relative
+     * to the rest of other flex items included in the same flex line
+     */
+    float getFlexShrink();
+
+    /**
+     * @return the alignment along the cross axis, which overrides the alignItems attribute of the
+     * flex container unless it's {@link #ALIGN_SELF_AUTO}
+     */
+    int getAlignSelf();
+
+    /**
+     * @return the initial main size of the flex item in a fraction format relative to the flex
+     * container, or {@link #FLEX_BASIS_PERCENT_DEFAULT} if not set
+     */
+    float getFlexBasisPercent();
+
+    /**
+     * @return the ratio of the width to the height of the flex item, from which the cross size
+     * is derived once the main size is determined, or {@link #ASPECT_RATIO_DEFAULT} if not set
+     */
+    float getAspectRatio();
+
+    /**
+     * @return the minimum width in pixels the flex item can shrink to
+     */
+    int getMinWidth();
+
+    /**
+     * @return the minimum height in pixels the flex item can shrink to
+     */
+    int getMinHeight();
+
+    /**
+     * @return the maximum width in pixels the flex item can expand to
+     */
+    int getMaxWidth();
+
+    /**
+     * @return the maximum height in pixels the flex item can expand to
+     */
+    int getMaxHeight();
+
+    /**
+     * @return {@code true} if the flex item is forced to be the first item of a new flex line
+     */
+    boolean isWrapBefore();
+
+    /**
+     * @return the left margin in pixels
+     */
+    int getMarginLeft();
+
+    /**
+     * @return the top margin in pixels
+     */
+    int getMarginTop();
+
+    /**
+     * @return the right margin in pixels
+     */
+    int getMarginRight();
+
+    /**
+     * @return the bottom margin in pixels
+     */
+    int getMarginBottom();
+}
@@ -16,19 +16,44 @@
 
 package com.google.android.flexbox;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * Holds properties related to a single flex line. This class is not expected to be changed outside
- * of the {@link FlexboxLayout}, thus only exposing the getter methods that may be useful for
- * other classes using the {@link FlexboxLayout}.
+ * of the {@link FlexboxEngine}, thus only exposing the getter methods that may be useful for
+ * other classes using the {@link FlexboxLayout} or the {@link FlexboxTagLayout}.
+ *
+ * The instances held by the flex container are reused by the following measure passes, thus the
+ * instances returned by the getFlexLines methods are copies of them, which keep their values after
+ * the next measure pass. The flex lines returned by the getFlexLineAt methods aren't copied, their
+ * values should be copied rather than keeping the instance.
  */
 public class FlexLine {
 
     FlexLine() {
     }
 
+    /**
+     * Creates a copy of the flex line, which isn't changed by the following measure passes.
+     */
+    FlexLine(FlexLine source) {
+        mLeft = source.mLeft;
+        mTop = source.mTop;
+        mRight = source.mRight;
+        mBottom = source.mBottom;
+        mMainSize = source.mMainSize;
+        mDividerLengthInMainSize = source.mDividerLengthInMainSize;
+        mCrossSize = source.mCrossSize;
+        mItemCount = source.mItemCount;
+        mGoneItemCount = source.mGoneItemCount;
+        mTotalFlexGrow = source.mTotalFlexGrow;
+        mTotalFlexShrink = source.mTotalFlexShrink;
+        mMaxBaseline = source.mMaxBaseline;
+        mIndicesAlignSelfStretch = Arrays.copyOf(source.mIndicesAlignSelfStretch,
+                source.mIndicesAlignSelfStretchCount);
+        mIndicesAlignSelfStretchCount = source.mIndicesAlignSelfStretchCount;
+    }
+
     /** @see {@link #getLeft()} */
     int mLeft = Integer.MAX_VALUE;
 
@@ -45,8 +70,8 @@ public class FlexLine {
     int mMainSize;
 
     /**
-     * The sum of the lengths of dividers along the main axis. This value should be lower or
-     * than than the value of {@link #mMainSize}.
+     * The sum of the lengths of dividers and gaps along the main axis. This value should be lower
+     * or than than the value of {@link #mMainSize}.
      */
     int mDividerLengthInMainSize;
 
@@ -67,7 +92,8 @@ public class FlexLine {
 
     /**
      * The largest value of the individual child's baseline (obtained by View#getBaseline()
-     * if the {@link FlexboxLayout#mAlignItems} value is not {@link FlexboxLayout#ALIGN_ITEMS_BASELINE}
+     * if the {@link FlexboxEngine#getAlignItems()} value is not
+     * {@link FlexboxEngine#ALIGN_ITEMS_BASELINE}
      * or the flex direction is vertical, this value is not used.
      * If the alignment direction is from the bottom to top,
      * (e.g. flexWrap == FLEX_WRAP_WRAP_REVERSE and flexDirection == FLEX_DIRECTION_ROW)
@@ -80,8 +106,40 @@ public class FlexLine {
      * Store the indices of the children views whose alignSelf property is stretch.
      * The stored indices are the absolute indices including all children in the Flexbox,
      * not the relative indices in this flex line.
+     * Only the first {@link #mIndicesAlignSelfStretchCount} elements are valid.
+     */
+    int[] mIndicesAlignSelfStretch = new int[0];
+
+    /** The number of the valid indices in {@link #mIndicesAlignSelfStretch} */
+    int mIndicesAlignSelfStretchCount;
+
+    void addIndexAlignSelfStretch(int index) {
+        if (mIndicesAlignSelfStretchCount == mIndicesAlignSelfStretch.length) {
+            mIndicesAlignSelfStretch = Arrays.copyOf(mIndicesAlignSelfStretch,
+                    Math.max(4, mIndicesAlignSelfStretchCount * 2));
+        }
+        mIndicesAlignSelfStretch[mIndicesAlignSelfStretchCount++] = index;
+    }
+
+    /**
+     * Restores the initial state so that the flex line can be reused in the following measure
+     * pass without being allocated again.
      */
-    List<Integer> mIndicesAlignSelfStretch = new ArrayList<>();
+    void reset() {
+        mLeft = Integer.MAX_VALUE;
+        mTop = Integer.MAX_VALUE;
+        mRight = Integer.MIN_VALUE;
+        mBottom = Integer.MIN_VALUE;
+        mMainSize = 0;
+        mDividerLengthInMainSize = 0;
+        mCrossSize = 0;
+        mItemCount = 0;
+        mGoneItemCount = 0;
+        mTotalFlexGrow = 0;
+        mTotalFlexShrink = 0;
+        mMaxBaseline = 0;
+        mIndicesAlignSelfStretchCount = 0;
+    }
 
     /**
      * @return the distance in pixels from the top edge of this view's parent
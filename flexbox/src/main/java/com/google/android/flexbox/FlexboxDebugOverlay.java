@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Draws the debug overlay of the {@link FlexboxLayout} enabled through
+ * {@link FlexboxLayout#setDebugOverlayEnabled(boolean)}. The bounds of each flex line are drawn
+ * with its main size and cross size, and each child is tinted from green to red depending on how
+ * many times it was measured in the last measure pass and how long the measurements took, so that
+ * the children hitting the re-measurements of the flexbox algorithm stand out.
+ */
+class FlexboxDebugOverlay {
+
+    /** The number of the measurements of a child in a single pass tinted in the hottest color. */
+    private static final int HOT_MEASURE_COUNT = 4;
+
+    /** The total measurement time of a child in a single pass tinted in the hottest color. */
+    private static final long HOT_MEASURE_NANOS = 2000000L;
+
+    private static final int TINT_ALPHA = 0x66;
+
+    private static final int FLEX_LINE_COLOR = 0xff2962ff;
+
+    private static final float TEXT_SIZE_DP = 10f;
+
+    private final Paint mTintPaint = new Paint();
+
+    private final Paint mFlexLinePaint = new Paint();
+
+    private final Paint mChildTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final Paint mFlexLineTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private final float mPadding;
+
+    /** The number of the measurements of each child in the last pass, indexed by child index */
+    private int[] mMeasureCounts = new int[0];
+
+    /** The time spent on measuring each child in the last pass, indexed by child index */
+    private long[] mMeasureNanos = new long[0];
+
+    FlexboxDebugOverlay(float density) {
+        mPadding = 2 * density;
+        mTintPaint.setStyle(Paint.Style.FILL);
+        mFlexLinePaint.setStyle(Paint.Style.STROKE);
+        mFlexLinePaint.setStrokeWidth(density);
+        mFlexLinePaint.setColor(FLEX_LINE_COLOR);
+        mChildTextPaint.setTextSize(TEXT_SIZE_DP * density);
+        mChildTextPaint.setColor(Color.BLACK);
+        mFlexLineTextPaint.setTextSize(TEXT_SIZE_DP * density);
+        mFlexLineTextPaint.setColor(FLEX_LINE_COLOR);
+        mFlexLineTextPaint.setTextAlign(Paint.Align.RIGHT);
+    }
+
+    /**
+     * Called at the beginning of each measure pass of the flex container to forget the
+     * measurements of the previous pass.
+     *
+     * @param childCount the number of the children of the flex container
+     */
+    void onMeasurePass(int childCount) {
+        if (mMeasureCounts.length < childCount) {
+            mMeasureCounts = new int[childCount];
+            mMeasureNanos = new long[childCount];
+        } else {
+            Arrays.fill(mMeasureCounts, 0);
+            Arrays.fill(mMeasureNanos, 0);
+        }
+    }
+
+    /**
+     * Called each time a child is measured by the flexbox algorithm.
+     *
+     * @param index         the index of the child
+     * @param durationNanos the time spent on the measurement
+     */
+    void onChildMeasured(int index, long durationNanos) {
+        if (index < mMeasureCounts.length) {
+            mMeasureCounts[index]++;
+            mMeasureNanos[index] += durationNanos;
+        }
+    }
+
+    /**
+     * Draws the overlay over the children of the flex container.
+     *
+     * @param canvas        the canvas on which the flex container is drawn
+     * @param flexboxLayout the flex container
+     * @param flexLines     the flex lines of the flex container computed in the last measure pass
+     */
+    void draw(Canvas canvas, FlexboxLayout flexboxLayout, List<FlexLine> flexLines) {
+        for (int i = 0, childCount = flexboxLayout.getChildCount(); i < childCount; i++) {
+            View child = flexboxLayout.getChildAt(i);
+            if (child == null || child.getVisibility() == View.GONE
+                    || i >= mMeasureCounts.length) {
+                continue;
+            }
+            int count = mMeasureCounts[i];
+            long nanos = mMeasureNanos[i];
+            mTintPaint.setColor(getHeatColor(count, nanos));
+            canvas.drawRect(child.getLeft(), child.getTop(), child.getRight(), child.getBottom(),
+                    mTintPaint);
+            canvas.drawText(String.format(Locale.US, "%dx %.2fms", count, nanos / 1e6),
+                    child.getLeft() + mPadding,
+                    child.getTop() + mPadding + mChildTextPaint.getTextSize(), mChildTextPaint);
+        }
+
+        for (int i = 0, size = flexLines.size(); i < size; i++) {
+            FlexLine flexLine = flexLines.get(i);
+            if (flexLine.getItemCountNotGone() == 0) {
+                continue;
+            }
+            canvas.drawRect(flexLine.getLeft(), flexLine.getTop(), flexLine.getRight(),
+                    flexLine.getBottom(), mFlexLinePaint);
+            canvas.drawText("main " + flexLine.getMainSize() + " / cross "
+                            + flexLine.getCrossSize(), flexLine.getRight() - mPadding,
+                    flexLine.getBottom() - mPadding, mFlexLineTextPaint);
+        }
+    }
+
+    /**
+     * @return the translucent color from green (measured once, quickly) to red (measured
+     * {@link #HOT_MEASURE_COUNT} times or more, or for {@link #HOT_MEASURE_NANOS} or longer)
+     */
+    private static int getHeatColor(int measureCount, long measureNanos) {
+        float countHeat = (float) (measureCount - 1) / (HOT_MEASURE_COUNT - 1);
+        float timeHeat = (float) measureNanos / HOT_MEASURE_NANOS;
+        float heat = Math.max(0f, Math.min(1f, Math.max(countHeat, timeHeat)));
+        int red = heat < 0.5f ? (int) (255 * heat * 2) : 255;
+        int green = heat < 0.5f ? 255 : (int) (255 * (1f - heat) * 2);
+        return Color.argb(TINT_ALPHA, red, green, 0);
+    }
+}
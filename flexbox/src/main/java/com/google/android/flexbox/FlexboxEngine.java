@@ -0,0 +1,4040 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The flex algorithm behind the {@link FlexboxLayout}: collecting flex items into flex lines,
+ * expanding and shrinking them, and aligning them along the main and cross axes.
+ *
+ * This class doesn't depend on the Android framework. The flex items are accessed and measured
+ * through the {@link FlexContainer} passed to the constructor, thus the same algorithm can be
+ * used for flex items which are not Views (e.g. lightweight items drawn directly on a Canvas) or
+ * run on a plain JVM.
+ *
+ * The typical usage is calling {@link #measure(int, int)} followed by
+ * {@link #layout(int, int, int, int, boolean)}, and then retrieving the computed frames of the
+ * flex items through {@link #getFrameLeft(int)}, {@link #getFrameTop(int)},
+ * {@link #getFrameRight(int)} and {@link #getFrameBottom(int)}.
+ */
+public class FlexboxEngine {
+
+    public static final int FLEX_DIRECTION_ROW = 0;
+
+    public static final int FLEX_DIRECTION_ROW_REVERSE = 1;
+
+    public static final int FLEX_DIRECTION_COLUMN = 2;
+
+    public static final int FLEX_DIRECTION_COLUMN_REVERSE = 3;
+
+    public static final int FLEX_WRAP_NOWRAP = 0;
+
+    public static final int FLEX_WRAP_WRAP = 1;
+
+    public static final int FLEX_WRAP_WRAP_REVERSE = 2;
+
+    public static final int JUSTIFY_CONTENT_FLEX_START = 0;
+
+    public static final int JUSTIFY_CONTENT_FLEX_END = 1;
+
+    public static final int JUSTIFY_CONTENT_CENTER = 2;
+
+    public static final int JUSTIFY_CONTENT_SPACE_BETWEEN = 3;
+
+    public static final int JUSTIFY_CONTENT_SPACE_AROUND = 4;
+
+    public static final int ALIGN_ITEMS_FLEX_START = 0;
+
+    public static final int ALIGN_ITEMS_FLEX_END = 1;
+
+    public static final int ALIGN_ITEMS_CENTER = 2;
+
+    public static final int ALIGN_ITEMS_BASELINE = 3;
+
+    public static final int ALIGN_ITEMS_STRETCH = 4;
+
+    public static final int ALIGN_CONTENT_FLEX_START = 0;
+
+    public static final int ALIGN_CONTENT_FLEX_END = 1;
+
+    public static final int ALIGN_CONTENT_CENTER = 2;
+
+    public static final int ALIGN_CONTENT_SPACE_BETWEEN = 3;
+
+    public static final int ALIGN_CONTENT_SPACE_AROUND = 4;
+
+    public static final int ALIGN_CONTENT_STRETCH = 5;
+
+    public static final int SHOW_DIVIDER_NONE = 0;
+
+    public static final int SHOW_DIVIDER_BEGINNING = 1;
+
+    public static final int SHOW_DIVIDER_MIDDLE = 1 << 1;
+
+    public static final int SHOW_DIVIDER_END = 1 << 2;
+
+    /** The type of the divider frames stored for the vertical dividers. */
+    public static final int DIVIDER_VERTICAL = 0;
+
+    /** The type of the divider frames stored for the horizontal dividers. */
+    public static final int DIVIDER_HORIZONTAL = 1;
+
+    /** The number of the elements each divider occupies in the divider frames. */
+    public static final int DIVIDER_FRAME_SIZE = 5;
+
+    /** The bits of a measured size and state which hold the actual size. */
+    public static final int MEASURED_SIZE_MASK = 0x00ffffff;
+
+    /** The bits of a measured size and state which hold the state. */
+    public static final int MEASURED_STATE_MASK = 0xff000000;
+
+    /** The shift to get the height state bits into the same position as the width state bits. */
+    public static final int MEASURED_HEIGHT_STATE_SHIFT = 16;
+
+    /** The measured state bit indicating that the measured size is smaller than wanted. */
+    public static final int MEASURED_STATE_TOO_SMALL = 0x01000000;
+
+    /** The section of the measurement collecting the flex items into the flex lines. */
+    public static final int TRACE_SECTION_COLLECT_FLEX_LINES = 0;
+
+    /** The section of the measurement expanding or shrinking the flex items. */
+    public static final int TRACE_SECTION_DETERMINE_MAIN_SIZE = 1;
+
+    /** The section of the measurement aligning the baselines of the flex items. */
+    public static final int TRACE_SECTION_BASELINE = 2;
+
+    /** The section of the measurement determining the cross sizes of the flex lines. */
+    public static final int TRACE_SECTION_DETERMINE_CROSS_SIZE = 3;
+
+    /** The section of the measurement stretching the flex items along the cross axis. */
+    public static final int TRACE_SECTION_STRETCH = 4;
+
+    /** The section of the layout when the main axis is horizontal. */
+    public static final int TRACE_SECTION_LAYOUT_HORIZONTAL = 5;
+
+    /** The section of the layout when the main axis is vertical. */
+    public static final int TRACE_SECTION_LAYOUT_VERTICAL = 6;
+
+    /** The section computing the bounds of the dividers. */
+    public static final int TRACE_SECTION_COMPUTE_DIVIDERS = 7;
+
+    /** The section drawing the dividers, emitted by the view drawing them. */
+    public static final int TRACE_SECTION_DRAW_DIVIDERS = 8;
+
+    /**
+     * The number of the fraction bits of the fixed-point flexGrow and flexShrink attributes used
+     * when the fixed-point distribution is enabled.
+     */
+    private static final int FLEX_WEIGHT_FRACTION_BITS = 16;
+
+    private static final String[] TRACE_SECTION_NAMES = {
+            "collectFlexLines",
+            "determineMainSize",
+            "baseline",
+            "determineCrossSize",
+            "stretch",
+            "layoutHorizontal",
+            "layoutVertical",
+            "computeDividers",
+            "drawDividers",
+    };
+
+    private final FlexContainer mContainer;
+
+    private int mFlexDirection;
+
+    private int mFlexWrap;
+
+    private int mJustifyContent;
+
+    private int mAlignItems;
+
+    private int mAlignContent;
+
+    private int mShowDividerHorizontal;
+
+    private int mShowDividerVertical;
+
+    private int mDividerHorizontalHeight;
+
+    private int mDividerVerticalWidth;
+
+    private int mColumnGap;
+
+    private int mRowGap;
+
+    private int mPaddingLeft;
+
+    private int mPaddingTop;
+
+    private int mPaddingRight;
+
+    private int mPaddingBottom;
+
+    /**
+     * {@code true} if the free space is distributed with integer arithmetic.
+     *
+     * @see #setFixedPointDistribution(boolean)
+     */
+    private boolean mFixedPointDistribution;
+
+    /**
+     * The height the rows are aimed at in the justified rows mode, or 0 if the mode is off.
+     *
+     * @see #setJustifiedRowHeight(int)
+     */
+    private int mJustifiedRowHeight;
+
+    /**
+     * Holds reordered indices, which {@link FlexItem#getOrder()} parameters are taken into
+     * account
+     */
+    private int[] mReorderedIndices = new int[0];
+
+    /**
+     * Caches the {@link FlexItem#getOrder()} values of the flex items used to create the
+     * {@link #mReorderedIndices}. Each element holds the order of the flex item at the same
+     * index ({@link #mReorderedIndices} isn't taken into account).
+     */
+    private int[] mOrderCache;
+
+    /**
+     * {@code true} if the flex items have been added or removed since the
+     * {@link #mReorderedIndices} were created. The reordered indices are recreated lazily when
+     * they are needed next so that adding flex items one by one doesn't sort all of them on each
+     * addition.
+     */
+    private boolean mOrderInvalidated;
+
+    private List<FlexLine> mFlexLines = new ArrayList<>();
+
+    /**
+     * The indices of the first and the last flex lines which have visible flex items, or -1 if
+     * all flex lines are dummy. Updated by {@link #updateNonDummyFlexLineRange()} before the flex
+     * lines are iterated, so that the divider checks for each flex line are constant time.
+     */
+    private int mFirstNonDummyFlexLine = -1;
+
+    private int mLastNonDummyFlexLine = -1;
+
+    /**
+     * The positions in {@link #mFlexLines} of the flex lines which aren't dummy, through which
+     * {@link #getFlexLineAt(int)} looks them up in constant time. Only the first
+     * {@link #mNonDummyFlexLineCount} elements are valid, which are recomputed when the count is
+     * -1.
+     */
+    private int[] mNonDummyFlexLines = new int[0];
+
+    private int mNonDummyFlexLineCount = -1;
+
+    /**
+     * The list into which the flex lines are copied when dummy flex lines are inserted for the
+     * alignContent attribute, swapped with {@link #mFlexLines} afterwards so that neither list
+     * is allocated in each measure pass.
+     */
+    private List<FlexLine> mSpareFlexLines = new ArrayList<>();
+
+    /**
+     * All the flex lines created by this engine, which are reused in the following measure passes
+     * instead of being allocated in each pass.
+     */
+    private final List<FlexLine> mFlexLinePool = new ArrayList<>();
+
+    /** The number of the flex lines in {@link #mFlexLinePool} used in the current measure pass. */
+    private int mFlexLinePoolUsed;
+
+    /**
+     * Holds the 'frozen' state of children during measure. If a view is frozen it will no longer
+     * expand or shrink regardless of flexGrow/flexShrink. Items are indexed by the child's
+     * reordered index.
+     */
+    private boolean[] mChildrenFrozen;
+
+    /**
+     * Holds the main sizes of the flex items resolved while expanding or shrinking a flex line,
+     * indexed by the child's reordered index.
+     */
+    private int[] mFlexedMainSizes;
+
+    /**
+     * Holds the flexGrow or flexShrink attributes of the flex items in the flex line being
+     * expanded or shrunk as fixed-point values with {@link #FLEX_WEIGHT_FRACTION_BITS} fraction
+     * bits, indexed by the child's reordered index. Used only for the fixed-point distribution.
+     */
+    private long[] mFlexWeights;
+
+    /**
+     * The min-heap of the reordered indices of the flex items which may be frozen while a flex
+     * line is expanded or shrunk, keyed by {@link #mFreezeThresholds}.
+     */
+    private int[] mFreezeHeap;
+
+    /**
+     * Holds the share of the free space per flexGrow (or flexShrink) at which each flex item hits
+     * the limit of its main size, indexed by the child's reordered index.
+     */
+    private float[] mFreezeThresholds;
+
+    /**
+     * Holds the frames of the flex items computed in the last layout pass. Each flex item
+     * occupies four consecutive elements (left, top, right and bottom in this order) starting
+     * from the index of the reordered index of the flex item multiplied by four.
+     */
+    int[] mChildFrames;
+
+    /**
+     * Holds the bounds of the dividers computed in the last layout pass. Each divider
+     * occupies {@link #DIVIDER_FRAME_SIZE} consecutive elements, which are the type of the divider
+     * ({@link #DIVIDER_VERTICAL} or {@link #DIVIDER_HORIZONTAL}) followed by its left, top, right
+     * and bottom.
+     */
+    int[] mDividerFrames;
+
+    /** The number of the dividers stored in the {@link #mDividerFrames}. */
+    int mDividerCount;
+
+    /** The width of the flex container and its measured state computed in the last measure. */
+    private int mMeasuredWidthAndState;
+
+    /** The height of the flex container and its measured state computed in the last measure. */
+    private int mMeasuredHeightAndState;
+
+    /** The width of the flex container passed in the last layout. */
+    private int mWidth;
+
+    /** The height of the flex container passed in the last layout. */
+    private int mHeight;
+
+    /** {@code true} if the layout direction passed in the last layout is right to left. */
+    private boolean mLayoutRtl;
+
+    /** Tallies the measurements of the flex items if set, {@code null} by default. */
+    private MeasureCounter mMeasureCounter;
+
+    /** Records the inputs of the measure passes if set, {@code null} by default. */
+    private LayoutRecorder mLayoutRecorder;
+
+    /** Receives the sections of the algorithm if set, {@code null} by default. */
+    private Tracer mTracer;
+
+    /** The prefix of the names of the trace sections, identifying the flex container. */
+    private String mTraceLabel;
+
+    /**
+     * The names of the trace sections indexed by the TRACE_SECTION_ constants, created lazily
+     * and cached as long as the number of the flex items doesn't change.
+     */
+    private final String[] mTraceSectionNames = new String[TRACE_SECTION_NAMES.length];
+
+    /** The number of the flex items included in the names of the trace sections. */
+    private int mTraceSectionItemCount = -1;
+
+    /**
+     * The number of the measurements of the flex items other than the initial ones in the last
+     * measure.
+     */
+    private int mRemeasureCount;
+
+    /** {@code true} if any flex line was expanded again in the last measure. */
+    private boolean mReexpanded;
+
+    /** {@code true} if any flex line was shrunk again in the last measure. */
+    private boolean mReshrunk;
+
+    /**
+     * Creates a new engine.
+     *
+     * @param container the container through which the flex items are accessed and measured
+     */
+    public FlexboxEngine(FlexContainer container) {
+        mContainer = container;
+        mFlexDirection = FLEX_DIRECTION_ROW;
+        mFlexWrap = FLEX_WRAP_NOWRAP;
+        mJustifyContent = JUSTIFY_CONTENT_FLEX_START;
+        mAlignItems = ALIGN_ITEMS_STRETCH;
+        mAlignContent = ALIGN_CONTENT_STRETCH;
+    }
+
+    /**
+     * Determines the flex lines and the sizes of the flex items and the flex container.
+     * The sizes of the flex container are available through
+     * {@link #getMeasuredWidthAndState()} and {@link #getMeasuredHeightAndState()} after this
+     * method returns.
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     */
+    public void measure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mOrderInvalidated || isOrderChangedFromLastMeasurement()) {
+            reorderFlexItems();
+        }
+        int childCount = mContainer.getFlexItemCount();
+        if (mChildrenFrozen == null || mChildrenFrozen.length < childCount) {
+            mChildrenFrozen = new boolean[childCount];
+            mFlexedMainSizes = new int[childCount];
+            mFlexWeights = new long[childCount];
+            mFreezeHeap = new int[childCount];
+            mFreezeThresholds = new float[childCount];
+        }
+        if (mMeasureCounter != null) {
+            mMeasureCounter.onMeasurePass(childCount);
+        }
+        if (mLayoutRecorder != null) {
+            mLayoutRecorder.onMeasurePass(this, mContainer, widthMeasureSpec, heightMeasureSpec);
+        }
+        mRemeasureCount = 0;
+        mReexpanded = false;
+        mReshrunk = false;
+        mNonDummyFlexLineCount = -1;
+
+        switch (mFlexDirection) {
+            case FLEX_DIRECTION_ROW: // Intentional fall through
+            case FLEX_DIRECTION_ROW_REVERSE:
+                if (mJustifiedRowHeight > 0
+                        && MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+                    measureJustifiedRows(widthMeasureSpec, heightMeasureSpec);
+                } else {
+                    measureHorizontal(widthMeasureSpec, heightMeasureSpec);
+                }
+                break;
+            case FLEX_DIRECTION_COLUMN: // Intentional fall through
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                measureVertical(widthMeasureSpec, heightMeasureSpec);
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Invalid value for the flex direction is set: " + mFlexDirection);
+        }
+
+        Arrays.fill(mChildrenFrozen, false);
+        mNonDummyFlexLineCount = -1;
+        if (mLayoutRecorder != null) {
+            mLayoutRecorder.onMeasurePassEnd(mMeasuredWidthAndState, mMeasuredHeightAndState,
+                    getFlexLineCount());
+        }
+    }
+
+    /**
+     * @return the width of the flex container computed in the last {@link #measure(int, int)}
+     * with the measured state bits in the same format as
+     * {@code android.view.View#getMeasuredWidthAndState()}
+     */
+    public int getMeasuredWidthAndState() {
+        return mMeasuredWidthAndState;
+    }
+
+    /**
+     * @return the height of the flex container computed in the last {@link #measure(int, int)}
+     * with the measured state bits in the same format as
+     * {@code android.view.View#getMeasuredHeightAndState()}
+     */
+    public int getMeasuredHeightAndState() {
+        return mMeasuredHeightAndState;
+    }
+
+    /**
+     * Computes the smallest main size of the flex container, e.g. the width when the flex
+     * direction is row, at which none of the flex items needs to be shrunk, i.e. the size of the
+     * largest flex item when the flex items can wrap, or the size of all the flex items in a
+     * single flex line when they can't. Padding, gaps and dividers are taken into account.
+     *
+     * <p>Unlike {@link #measure(int, int)}, neither the flex lines nor the frames are computed
+     * and the results of the last measure are kept. A flex item whose size along the main axis
+     * is fixed isn't measured, the others are measured with an unspecified main size.</p>
+     *
+     * @param crossMeasureSpec the space requirements along the cross axis as imposed by the
+     *                         parent, used to measure the flex items
+     * @return the min-content main size in pixels
+     */
+    public int getMinIntrinsicMainSize(int crossMeasureSpec) {
+        return computeIntrinsicMainSize(crossMeasureSpec, mFlexWrap != FLEX_WRAP_NOWRAP);
+    }
+
+    /**
+     * Computes the main size of the flex container, e.g. the width when the flex direction is
+     * row, at which all the flex items fit without wrapping or being shrunk, which is the main
+     * size the flex container is measured to when its main size is unspecified.
+     *
+     * <p>Like {@link #getMinIntrinsicMainSize(int)}, neither the flex lines nor the frames are
+     * computed and the results of the last measure are kept.</p>
+     *
+     * @param crossMeasureSpec the space requirements along the cross axis as imposed by the
+     *                         parent, used to measure the flex items
+     * @return the max-content main size in pixels
+     */
+    public int getMaxIntrinsicMainSize(int crossMeasureSpec) {
+        return computeIntrinsicMainSize(crossMeasureSpec, false);
+    }
+
+    /**
+     * Sums up the main sizes of the flex items as the flex lines would do if the flex container
+     * were measured with an unspecified main size, without creating the flex lines.
+     *
+     * @param itemPerLine {@code true} to put each flex item in its own flex line
+     * @return the largest main size of the flex lines
+     */
+    private int computeIntrinsicMainSize(int crossMeasureSpec, boolean itemPerLine) {
+        if (mOrderInvalidated || isOrderChangedFromLastMeasurement()) {
+            reorderFlexItems();
+        }
+        boolean horizontal = isMainAxisDirectionHorizontal(mFlexDirection);
+        int showDivider = horizontal ? mShowDividerVertical : mShowDividerHorizontal;
+        int dividerLength = horizontal ? mDividerVerticalWidth : mDividerHorizontalHeight;
+        int padding = horizontal ? mPaddingLeft + mPaddingRight : mPaddingTop + mPaddingBottom;
+        // The length added to a flex line by its first flex item, and by each of the others
+        int firstItemLength = padding;
+        if ((showDivider & SHOW_DIVIDER_BEGINNING) != 0) {
+            firstItemLength += dividerLength;
+        }
+        if ((showDivider & SHOW_DIVIDER_END) != 0) {
+            firstItemLength += dividerLength;
+        }
+        int followingItemLength = horizontal ? mColumnGap : mRowGap;
+        if ((showDivider & SHOW_DIVIDER_MIDDLE) != 0) {
+            followingItemLength += dividerLength;
+        }
+
+        int largestMainSize = padding;
+        int mainSize = 0;
+        boolean lineEmpty = true;
+        for (int i = 0, childCount = mContainer.getFlexItemCount(); i < childCount; i++) {
+            int itemIndex = getReorderedItemIndex(i);
+            if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                continue;
+            }
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            int itemMainSize = getIntrinsicMainSizeOfFlexItem(itemIndex, flexItem, horizontal,
+                    crossMeasureSpec) + getMainAxisMargins(flexItem, horizontal);
+            if (lineEmpty || itemPerLine
+                    || (mFlexWrap != FLEX_WRAP_NOWRAP && flexItem.isWrapBefore())) {
+                largestMainSize = Math.max(largestMainSize, mainSize);
+                mainSize = firstItemLength + itemMainSize;
+                lineEmpty = false;
+            } else {
+                mainSize += followingItemLength + itemMainSize;
+            }
+        }
+        return Math.max(largestMainSize, mainSize);
+    }
+
+    /**
+     * Returns the main size of the flex item when the main size of the flex container is
+     * unspecified. The flex item is measured only if its main size isn't fixed, nor follows from
+     * its fixed cross size with its aspect ratio.
+     */
+    private int getIntrinsicMainSizeOfFlexItem(int itemIndex, FlexItem flexItem,
+            boolean horizontal, int crossMeasureSpec) {
+        int mainSize = horizontal ? flexItem.getWidth() : flexItem.getHeight();
+        int crossSize = horizontal ? flexItem.getHeight() : flexItem.getWidth();
+        if (mainSize < 0 && crossSize >= 0 && hasAspectRatio(flexItem)) {
+            // The main size follows from the fixed cross size
+            mainSize = horizontal ? Math.round(crossSize * flexItem.getAspectRatio())
+                    : Math.round(crossSize / flexItem.getAspectRatio());
+        } else if (mainSize < 0) {
+            // wrap_content or match_parent, which is resolved to wrap_content when the main size
+            // of the flex container is unspecified
+            int unspecifiedMeasureSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            if (mMeasureCounter != null) {
+                mMeasureCounter.onMeasureFlexItem(MeasureCounter.PHASE_INTRINSIC, itemIndex);
+            }
+            if (horizontal) {
+                mContainer.measureFlexItem(itemIndex,
+                        getChildWidthMeasureSpec(unspecifiedMeasureSpec, flexItem),
+                        getChildHeightMeasureSpec(crossMeasureSpec, flexItem));
+                mainSize = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+            } else {
+                mContainer.measureFlexItem(itemIndex,
+                        getChildWidthMeasureSpec(crossMeasureSpec, flexItem),
+                        getChildHeightMeasureSpec(unspecifiedMeasureSpec, flexItem));
+                mainSize = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+            }
+        }
+        int minSize = horizontal ? flexItem.getMinWidth() : flexItem.getMinHeight();
+        int maxSize = horizontal ? flexItem.getMaxWidth() : flexItem.getMaxHeight();
+        return Math.max(minSize, Math.min(mainSize, maxSize));
+    }
+
+    /**
+     * Returns the index of the flex item, which is reordered by taking
+     * {@link FlexItem#getOrder()} parameters into account.
+     *
+     * @param index the reordered index
+     * @return the index of the flex item in the {@link FlexContainer}, or -1 if the index is
+     * negative or out of bounds of the number of the flex items
+     */
+    public int getReorderedItemIndex(int index) {
+        if (mOrderInvalidated) {
+            reorderFlexItems();
+        }
+        if (index < 0 || index >= mReorderedIndices.length) {
+            return -1;
+        }
+        return mReorderedIndices[index];
+    }
+
+    /**
+     * Recreates the reordered indices of the flex items. This is done in the
+     * {@link #measure(int, int)} if any order attributes are changed, but the container can call
+     * this method when flex items are added so that the {@link #getReorderedItemIndex(int)}
+     * reflects them before the next measurement. Prefer {@link #invalidateOrder()} when many
+     * flex items are added in a row.
+     */
+    public void reorderFlexItems() {
+        mOrderInvalidated = false;
+        int childCount = mContainer.getFlexItemCount();
+        List<Order> orders = new ArrayList<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            Order order = new Order();
+            order.order = mContainer.getFlexItemAt(i).getOrder();
+            order.index = i;
+            orders.add(order);
+        }
+        Collections.sort(orders);
+        if (mOrderCache == null || mOrderCache.length != childCount) {
+            mOrderCache = new int[childCount];
+        }
+        int[] reorderedIndices = new int[childCount];
+        for (int i = 0; i < childCount; i++) {
+            Order order = orders.get(i);
+            reorderedIndices[i] = order.index;
+            mOrderCache[order.index] = order.order;
+        }
+        mReorderedIndices = reorderedIndices;
+    }
+
+    /**
+     * Marks the reordered indices of the flex items as stale. Unlike {@link #reorderFlexItems()},
+     * the flex items are sorted only once when {@link #getReorderedItemIndex(int)} or
+     * {@link #measure(int, int)} is called next, thus adding n flex items one by one costs a
+     * single sort instead of n sorts.
+     */
+    public void invalidateOrder() {
+        mOrderInvalidated = true;
+    }
+
+    /**
+     * Returns if any of the flex items' {@link FlexItem#getOrder()} attributes are changed
+     * from the last measurement.
+     *
+     * @return {@code true} if changed from the last measurement, {@code false} otherwise.
+     */
+    private boolean isOrderChangedFromLastMeasurement() {
+        int childCount = mContainer.getFlexItemCount();
+        if (mOrderCache == null || mOrderCache.length != childCount
+                || mReorderedIndices.length != childCount) {
+            return true;
+        }
+        for (int i = 0; i < childCount; i++) {
+            if (mContainer.getFlexItemAt(i).getOrder() != mOrderCache[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sub method for {@link #measure(int, int)}, when the main axis direction is horizontal
+     * (either left to right or right to left).
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @see #measure(int, int)
+     * @see #setFlexDirection(int)
+     * @see #setFlexWrap(int)
+     * @see #setAlignItems(int)
+     * @see #setAlignContent(int)
+     */
+    private void measureHorizontal(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        int childState = 0;
+
+        mFlexLines.clear();
+        mFlexLinePoolUsed = 0;
+        beginTraceSection(TRACE_SECTION_COLLECT_FLEX_LINES);
+
+        // Determine how many flex lines are needed in this layout by measuring each child.
+        // (Expand or shrink the view depending on the flexGrow and flexShrink attributes in a later
+        // loop)
+        {
+            int childCount = mContainer.getFlexItemCount();
+            int largestHeightInRow = Integer.MIN_VALUE;
+            FlexLine flexLine = obtainFlexLine();
+
+            // The index of the view in a same flex line.
+            int indexInFlexLine = 0;
+            flexLine.mMainSize = mPaddingLeft + mPaddingRight;
+            for (int i = 0; i < childCount; i++) {
+                int itemIndex = getReorderedItemIndex(i);
+                if (itemIndex < 0) {
+                    addFlexLineIfLastFlexItem(i, childCount, flexLine);
+                    continue;
+                } else if (mContainer.isFlexItemGone(itemIndex)) {
+                    flexLine.mItemCount++;
+                    flexLine.mGoneItemCount++;
+                    // Counted for the divider checks, which look back over the gone items too
+                    indexInFlexLine++;
+                    addFlexLineIfLastFlexItem(i, childCount, flexLine);
+                    continue;
+                }
+
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                if (flexItem.getAlignSelf() == FlexItem.ALIGN_SELF_STRETCH) {
+                    flexLine.addIndexAlignSelfStretch(i);
+                }
+
+                measureFlexItemForFlexLines(itemIndex, flexItem, widthMeasureSpec,
+                        heightMeasureSpec);
+
+                childState |= mContainer.getMeasuredStateOfFlexItem(itemIndex);
+                int measuredWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+                int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+                largestHeightInRow = Math.max(largestHeightInRow,
+                        measuredHeight + flexItem.getMarginTop() + flexItem.getMarginBottom());
+
+                // The gap is put only if any visible flex item precedes in the same flex line
+                int gapBefore = flexLine.getItemCountNotGone() > 0 ? mColumnGap : 0;
+                if (isWrapRequired(widthMode, widthSize, flexLine.mMainSize,
+                        measuredWidth + flexItem.getMarginLeft() + flexItem.getMarginRight()
+                                + gapBefore, flexItem, i, indexInFlexLine)) {
+                    if (flexLine.getItemCountNotGone() > 0) {
+                        addFlexLine(flexLine);
+                        flexLine = obtainFlexLine();
+                        flexLine.mItemCount = 1;
+                        flexLine.mMainSize = mPaddingLeft + mPaddingRight;
+                    } else {
+                        // The flex line only has the gone items, which are kept in the flex line
+                        // started by this item so that the item counts add up to the child count
+                        flexLine.mItemCount++;
+                    }
+                    largestHeightInRow = measuredHeight + flexItem.getMarginTop()
+                            + flexItem.getMarginBottom();
+                    indexInFlexLine = 0;
+                    gapBefore = 0;
+                } else {
+                    flexLine.mItemCount++;
+                    indexInFlexLine++;
+                }
+                flexLine.mMainSize += measuredWidth + flexItem.getMarginLeft()
+                        + flexItem.getMarginRight() + gapBefore;
+                flexLine.mDividerLengthInMainSize += gapBefore;
+                flexLine.mTotalFlexGrow += flexItem.getFlexGrow();
+                flexLine.mTotalFlexShrink += flexItem.getFlexShrink();
+                // Temporarily set the cross axis length as the largest child in the row
+                // Expand along the cross axis depending on the mAlignContent property if needed
+                // later
+                flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestHeightInRow);
+
+                // Check if the beginning or middle divider is required for the flex item
+                if (hasDividerBeforeChildAtAlongMainAxis(i, indexInFlexLine)) {
+                    flexLine.mMainSize += mDividerVerticalWidth;
+                    flexLine.mDividerLengthInMainSize += mDividerVerticalWidth;
+                }
+
+                int baseline = mContainer.getBaselineOfFlexItem(itemIndex);
+                if (mFlexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                    flexLine.mMaxBaseline = Math
+                            .max(flexLine.mMaxBaseline, baseline + flexItem.getMarginTop());
+                } else {
+                    // if the flex wrap property is FLEX_WRAP_WRAP_REVERSE, calculate the
+                    // baseline as the distance from the cross end and the baseline
+                    // since the cross size calculation is based on the distance from the cross end
+                    flexLine.mMaxBaseline = Math
+                            .max(flexLine.mMaxBaseline,
+                                    measuredHeight - baseline + flexItem.getMarginBottom());
+                }
+                addFlexLineIfLastFlexItem(i, childCount, flexLine);
+            }
+        }
+
+        endTraceSection();
+
+        beginTraceSection(TRACE_SECTION_DETERMINE_MAIN_SIZE);
+        determineMainSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec);
+        endTraceSection();
+
+        // TODO: Consider the case any individual child's alignSelf is set to ALIGN_SELF_BASELINE
+        if (mAlignItems == ALIGN_ITEMS_BASELINE) {
+            beginTraceSection(TRACE_SECTION_BASELINE);
+            int viewIndex = 0;
+            for (int lineIndex = 0, size = mFlexLines.size(); lineIndex < size; lineIndex++) {
+                FlexLine flexLine = mFlexLines.get(lineIndex);
+                // The largest height value that also take the baseline shift into account
+                int largestHeightInLine = Integer.MIN_VALUE;
+                for (int i = viewIndex; i < viewIndex + flexLine.mItemCount; i++) {
+                    int itemIndex = getReorderedItemIndex(i);
+                    if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                        continue;
+                    }
+                    FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                    int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+                    int baseline = mContainer.getBaselineOfFlexItem(itemIndex);
+                    if (mFlexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                        int marginTop = flexLine.mMaxBaseline - baseline;
+                        marginTop = Math.max(marginTop, flexItem.getMarginTop());
+                        largestHeightInLine = Math.max(largestHeightInLine,
+                                measuredHeight + marginTop + flexItem.getMarginBottom());
+                    } else {
+                        int marginBottom = flexLine.mMaxBaseline - measuredHeight + baseline;
+                        marginBottom = Math.max(marginBottom, flexItem.getMarginBottom());
+                        largestHeightInLine = Math.max(largestHeightInLine,
+                                measuredHeight + flexItem.getMarginTop() + marginBottom);
+                    }
+                }
+                flexLine.mCrossSize = largestHeightInLine;
+                viewIndex += flexLine.mItemCount;
+            }
+            endTraceSection();
+        }
+
+        beginTraceSection(TRACE_SECTION_DETERMINE_CROSS_SIZE);
+        determineCrossSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                mPaddingTop + mPaddingBottom);
+        endTraceSection();
+        // Now cross size for each flex line is determined.
+        // Expand the views if alignItems (or alignSelf in each child view) is set to stretch
+        beginTraceSection(TRACE_SECTION_STRETCH);
+        stretchViews(mFlexDirection, mAlignItems);
+        endTraceSection();
+        setMeasuredDimensionForFlex(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                childState);
+    }
+
+    /**
+     * Sub method for {@link #measure(int, int)} when the main axis direction is vertical
+     * (either from top to bottom or bottom to top).
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @see #measure(int, int)
+     * @see #setFlexDirection(int)
+     * @see #setFlexWrap(int)
+     * @see #setAlignItems(int)
+     * @see #setAlignContent(int)
+     */
+    private void measureVertical(int widthMeasureSpec, int heightMeasureSpec) {
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+        int childState = 0;
+
+        mFlexLines.clear();
+        mFlexLinePoolUsed = 0;
+        beginTraceSection(TRACE_SECTION_COLLECT_FLEX_LINES);
+
+        // Determine how many flex lines are needed in this layout by measuring each child.
+        // (Expand or shrink the view depending on the flexGrow and flexShrink attributes in a later
+        // loop)
+        int childCount = mContainer.getFlexItemCount();
+        int largestWidthInColumn = Integer.MIN_VALUE;
+        FlexLine flexLine = obtainFlexLine();
+        flexLine.mMainSize = mPaddingTop + mPaddingBottom;
+        // The index of the view in a same flex line.
+        int indexInFlexLine = 0;
+        for (int i = 0; i < childCount; i++) {
+            int itemIndex = getReorderedItemIndex(i);
+            if (itemIndex < 0) {
+                addFlexLineIfLastFlexItem(i, childCount, flexLine);
+                continue;
+            } else if (mContainer.isFlexItemGone(itemIndex)) {
+                flexLine.mItemCount++;
+                flexLine.mGoneItemCount++;
+                // Counted for the divider checks, which look back over the gone items too
+                indexInFlexLine++;
+                addFlexLineIfLastFlexItem(i, childCount, flexLine);
+                continue;
+            }
+
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            if (flexItem.getAlignSelf() == FlexItem.ALIGN_SELF_STRETCH) {
+                flexLine.addIndexAlignSelfStretch(i);
+            }
+
+            measureFlexItemForFlexLines(itemIndex, flexItem, widthMeasureSpec, heightMeasureSpec);
+
+            childState |= mContainer.getMeasuredStateOfFlexItem(itemIndex);
+            int measuredWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+            int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+            largestWidthInColumn = Math.max(largestWidthInColumn,
+                    measuredWidth + flexItem.getMarginLeft() + flexItem.getMarginRight());
+
+            // The gap is put only if any visible flex item precedes in the same flex line
+            int gapBefore = flexLine.getItemCountNotGone() > 0 ? mRowGap : 0;
+            if (isWrapRequired(heightMode, heightSize, flexLine.mMainSize,
+                    measuredHeight + flexItem.getMarginTop() + flexItem.getMarginBottom()
+                            + gapBefore, flexItem, i, indexInFlexLine)) {
+                if (flexLine.getItemCountNotGone() > 0) {
+                    addFlexLine(flexLine);
+                    flexLine = obtainFlexLine();
+                    flexLine.mItemCount = 1;
+                    flexLine.mMainSize = mPaddingTop + mPaddingBottom;
+                } else {
+                    // The flex line only has the gone items, which are kept in the flex line
+                    // started by this item so that the item counts add up to the child count
+                    flexLine.mItemCount++;
+                }
+                largestWidthInColumn = measuredWidth + flexItem.getMarginLeft()
+                        + flexItem.getMarginRight();
+                indexInFlexLine = 0;
+                gapBefore = 0;
+            } else {
+                flexLine.mItemCount++;
+                indexInFlexLine++;
+            }
+            flexLine.mMainSize += measuredHeight + flexItem.getMarginTop()
+                    + flexItem.getMarginBottom() + gapBefore;
+            flexLine.mDividerLengthInMainSize += gapBefore;
+            flexLine.mTotalFlexGrow += flexItem.getFlexGrow();
+            flexLine.mTotalFlexShrink += flexItem.getFlexShrink();
+            // Temporarily set the cross axis length as the largest child width in the column
+            // Expand along the cross axis depending on the mAlignContent property if needed
+            // later
+            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestWidthInColumn);
+
+            if (hasDividerBeforeChildAtAlongMainAxis(i, indexInFlexLine)) {
+                flexLine.mMainSize += mDividerHorizontalHeight;
+                flexLine.mDividerLengthInMainSize += mDividerHorizontalHeight;
+            }
+            addFlexLineIfLastFlexItem(i, childCount, flexLine);
+        }
+
+        endTraceSection();
+
+        beginTraceSection(TRACE_SECTION_DETERMINE_MAIN_SIZE);
+        determineMainSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec);
+        endTraceSection();
+        beginTraceSection(TRACE_SECTION_DETERMINE_CROSS_SIZE);
+        determineCrossSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                mPaddingLeft + mPaddingRight);
+        endTraceSection();
+        // Now cross size for each flex line is determined.
+        // Expand the views if alignItems (or alignSelf in each child view) is set to stretch
+        beginTraceSection(TRACE_SECTION_STRETCH);
+        stretchViews(mFlexDirection, mAlignItems);
+        endTraceSection();
+        setMeasuredDimensionForFlex(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                childState);
+    }
+
+    /**
+     * Sub method for {@link #measure(int, int)} when the justified rows mode is on, which breaks
+     * the flex items into rows and sizes them from their aspect ratios with arithmetic only.
+     *
+     * <p>The flex items are added to a row while the row at the {@link #mJustifiedRowHeight} is
+     * narrower than the flex container. The flex item which makes it as wide as the flex container
+     * either stays in the row, which is then scaled down to fill the width, or starts the next
+     * row, in which case the row is scaled up to fill the width, whichever makes the row height
+     * closer to the {@link #mJustifiedRowHeight}. The last row and the rows followed by a flex
+     * item whose {@link FlexItem#isWrapBefore()} is set keep the {@link #mJustifiedRowHeight}.
+     * Each flex item is then measured only once with the exact width and height of its row.</p>
+     *
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent, which
+     *                          isn't unspecified
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @see #setJustifiedRowHeight(int)
+     */
+    private void measureJustifiedRows(int widthMeasureSpec, int heightMeasureSpec) {
+        int childState = 0;
+        int endDividerWidth = (mShowDividerVertical & SHOW_DIVIDER_END) > 0
+                ? mDividerVerticalWidth : 0;
+        // The width the flex items of a row and the spaces around them need to fill
+        int rowWidth = MeasureSpec.getSize(widthMeasureSpec) - mPaddingLeft - mPaddingRight
+                - endDividerWidth;
+
+        mFlexLines.clear();
+        mFlexLinePoolUsed = 0;
+        beginTraceSection(TRACE_SECTION_COLLECT_FLEX_LINES);
+        int childCount = mContainer.getFlexItemCount();
+        int rowStart = 0;
+        int visibleCountInRow = 0;
+        // The sum of the aspect ratios and the sum of the margins, gaps and dividers in the row
+        double totalAspectRatio = 0;
+        int spaceInRow = 0;
+        for (int i = 0; i < childCount; i++) {
+            int itemIndex = getReorderedItemIndex(i);
+            if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                continue;
+            }
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            if (flexItem.isWrapBefore() && visibleCountInRow > 0) {
+                childState |= addJustifiedRow(rowStart, i, mJustifiedRowHeight);
+                rowStart = i;
+                visibleCountInRow = 0;
+                totalAspectRatio = 0;
+                spaceInRow = 0;
+            }
+            double aspectRatio = getJustifiedAspectRatio(flexItem);
+            int space = getSpaceBeforeInJustifiedRow(i, i - rowStart, visibleCountInRow)
+                    + flexItem.getMarginLeft() + flexItem.getMarginRight();
+            double heightWith = (rowWidth - spaceInRow - space)
+                    / (totalAspectRatio + aspectRatio);
+            boolean rowFilled = heightWith <= mJustifiedRowHeight;
+            if (rowFilled && visibleCountInRow > 0) {
+                double heightWithout = (rowWidth - spaceInRow) / totalAspectRatio;
+                if (heightWithout - mJustifiedRowHeight < mJustifiedRowHeight - heightWith) {
+                    // Scaling the row up without this flex item is closer to the target height
+                    childState |= addJustifiedRow(rowStart, i, heightWithout);
+                    rowStart = i;
+                    visibleCountInRow = 0;
+                    totalAspectRatio = 0;
+                    spaceInRow = 0;
+                    space = getSpaceBeforeInJustifiedRow(i, 0, 0) + flexItem.getMarginLeft()
+                            + flexItem.getMarginRight();
+                    heightWith = (rowWidth - space) / aspectRatio;
+                    rowFilled = heightWith <= mJustifiedRowHeight;
+                }
+            }
+            visibleCountInRow++;
+            totalAspectRatio += aspectRatio;
+            spaceInRow += space;
+            if (rowFilled) {
+                childState |= addJustifiedRow(rowStart, i + 1, heightWith);
+                rowStart = i + 1;
+                visibleCountInRow = 0;
+                totalAspectRatio = 0;
+                spaceInRow = 0;
+            }
+        }
+        if (visibleCountInRow > 0) {
+            childState |= addJustifiedRow(rowStart, childCount, mJustifiedRowHeight);
+        }
+        endTraceSection();
+
+        beginTraceSection(TRACE_SECTION_DETERMINE_CROSS_SIZE);
+        determineCrossSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                mPaddingTop + mPaddingBottom);
+        endTraceSection();
+        setMeasuredDimensionForFlex(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
+                childState);
+    }
+
+    /**
+     * Adds the flex line of a justified row and measures its flex items with their final sizes.
+     * The widths of the flex items are rounded by the cumulative sums of their aspect ratios, so
+     * that they add up to the width of the row exactly.
+     *
+     * @param startIndex the reordered index of the first flex item in the row
+     * @param endIndex   the reordered index next to the last flex item in the row
+     * @param rowHeight  the height of the flex items in the row
+     * @return the measured states of the flex items combined
+     */
+    private int addJustifiedRow(int startIndex, int endIndex, double rowHeight) {
+        int childState = 0;
+        // The row can't fit at all if its margins, gaps and dividers are wider than the container
+        rowHeight = Math.max(rowHeight, 0);
+        int height = (int) Math.round(rowHeight);
+        FlexLine flexLine = obtainFlexLine();
+        flexLine.mItemCount = endIndex - startIndex;
+        flexLine.mMainSize = mPaddingLeft + mPaddingRight;
+        double accumulatedAspectRatio = 0;
+        int accumulatedWidth = 0;
+        int visibleCount = 0;
+        for (int i = startIndex; i < endIndex; i++) {
+            int itemIndex = getReorderedItemIndex(i);
+            if (itemIndex < 0) {
+                continue;
+            } else if (mContainer.isFlexItemGone(itemIndex)) {
+                flexLine.mGoneItemCount++;
+                continue;
+            }
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            accumulatedAspectRatio += getJustifiedAspectRatio(flexItem);
+            int width = (int) Math.round(accumulatedAspectRatio * rowHeight) - accumulatedWidth;
+            accumulatedWidth += width;
+            measureFlexItem(MeasureCounter.PHASE_INITIAL, itemIndex,
+                    MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY));
+            childState |= mContainer.getMeasuredStateOfFlexItem(itemIndex);
+
+            int spaceBefore = getSpaceBeforeInJustifiedRow(i, i - startIndex, visibleCount);
+            flexLine.mMainSize += spaceBefore + width + flexItem.getMarginLeft()
+                    + flexItem.getMarginRight();
+            flexLine.mDividerLengthInMainSize += spaceBefore;
+            flexLine.mCrossSize = Math.max(flexLine.mCrossSize,
+                    height + flexItem.getMarginTop() + flexItem.getMarginBottom());
+            int baseline = mContainer.getBaselineOfFlexItem(itemIndex);
+            if (mFlexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                flexLine.mMaxBaseline = Math.max(flexLine.mMaxBaseline,
+                        baseline + flexItem.getMarginTop());
+            } else {
+                flexLine.mMaxBaseline = Math.max(flexLine.mMaxBaseline,
+                        height - baseline + flexItem.getMarginBottom());
+            }
+            visibleCount++;
+        }
+        addFlexLine(flexLine);
+        return childState;
+    }
+
+    /**
+     * @return the aspect ratio with which the flex item is sized in the justified rows mode, which
+     * is the ratio of its fixed width and height if {@link FlexItem#getAspectRatio()} isn't set,
+     * or 1 if either of them isn't fixed either
+     */
+    private static double getJustifiedAspectRatio(FlexItem flexItem) {
+        if (hasAspectRatio(flexItem)) {
+            return flexItem.getAspectRatio();
+        } else if (flexItem.getWidth() > 0 && flexItem.getHeight() > 0) {
+            return (double) flexItem.getWidth() / flexItem.getHeight();
+        }
+        return 1;
+    }
+
+    /**
+     * @return the length of the column gap and the vertical divider put before the flex item in
+     * a justified row
+     */
+    private int getSpaceBeforeInJustifiedRow(int index, int indexInRow, int visibleCountBefore) {
+        int space = visibleCountBefore > 0 ? mColumnGap : 0;
+        if (hasDividerBeforeChildAtAlongMainAxis(index, indexInRow)) {
+            space += mDividerVerticalWidth;
+        }
+        return space;
+    }
+
+    /**
+     * Measures the flex item in the same way as {@link #measure(int, int)} does before collecting
+     * it into a flex line, and returns its size along the main axis including the margins. A
+     * caller which pulls the flex items one by one, e.g. from an unbounded sequence, can find
+     * where a flex line wraps with it and then run {@link #measure(int, int)} for that flex line
+     * alone. Padding, gaps and dividers aren't included and the results of the last measure are
+     * kept.
+     *
+     * @param itemIndex         the index of the flex item, which mustn't be gone
+     * @param widthMeasureSpec  horizontal space requirements of the flex container
+     * @param heightMeasureSpec vertical space requirements of the flex container
+     * @return the hypothetical main size of the flex item plus its margins along the main axis
+     */
+    public int measureHypotheticalMainSize(int itemIndex, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+        measureFlexItemForFlexLines(itemIndex, flexItem, widthMeasureSpec, heightMeasureSpec);
+        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+            return mContainer.getMeasuredWidthOfFlexItem(itemIndex) + flexItem.getMarginLeft()
+                    + flexItem.getMarginRight();
+        }
+        return mContainer.getMeasuredHeightOfFlexItem(itemIndex) + flexItem.getMarginTop()
+                + flexItem.getMarginBottom();
+    }
+
+    /**
+     * Measures the flex item for collecting it into a flex line, i.e. with the flex basis
+     * percent and the aspect ratio applied, then within its size constraints.
+     *
+     * @param itemIndex         the index of the flex item
+     * @param flexItem          the attributes of the flex item
+     * @param widthMeasureSpec  horizontal space requirements of the flex container
+     * @param heightMeasureSpec vertical space requirements of the flex container
+     */
+    private void measureFlexItemForFlexLines(int itemIndex, FlexItem flexItem,
+            int widthMeasureSpec, int heightMeasureSpec) {
+        boolean horizontal = isMainAxisDirectionHorizontal(mFlexDirection);
+        int mainMeasureSpec = horizontal ? widthMeasureSpec : heightMeasureSpec;
+        int childWidth = flexItem.getWidth();
+        int childHeight = flexItem.getHeight();
+        if (flexItem.getFlexBasisPercent() != FlexItem.FLEX_BASIS_PERCENT_DEFAULT
+                && MeasureSpec.getMode(mainMeasureSpec) == MeasureSpec.EXACTLY) {
+            // Use the dimension from the layout_width (layout_height) attribute if the main mode
+            // is not MeasureSpec.EXACTLY even if any fraction value is set to
+            // layout_flexBasisPercent.
+            // There are likely quite few use cases where assigning any fraction values with the
+            // main mode is not MeasureSpec.EXACTLY (e.g. FlexboxLayout's layout_width is set to
+            // wrap_content)
+            int basis = Math.round(MeasureSpec.getSize(mainMeasureSpec)
+                    * flexItem.getFlexBasisPercent());
+            if (horizontal) {
+                childWidth = basis;
+            } else {
+                childHeight = basis;
+            }
+        }
+        int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+                mPaddingLeft + mPaddingRight + flexItem.getMarginLeft()
+                        + flexItem.getMarginRight(), childWidth);
+        int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                mPaddingTop + mPaddingBottom + flexItem.getMarginTop()
+                        + flexItem.getMarginBottom(), childHeight);
+        if (hasAspectRatio(flexItem)) {
+            // The main size is already known if exact, from which the cross size is computed so
+            // that the size constraints below don't need another measurement
+            if (horizontal
+                    && MeasureSpec.getMode(childWidthMeasureSpec) == MeasureSpec.EXACTLY) {
+                int width = Math.max(flexItem.getMinWidth(), Math.min(
+                        MeasureSpec.getSize(childWidthMeasureSpec), flexItem.getMaxWidth()));
+                childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY);
+                childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(
+                        getCrossSizeFromAspectRatio(flexItem, width, true), MeasureSpec.EXACTLY);
+            } else if (!horizontal
+                    && MeasureSpec.getMode(childHeightMeasureSpec) == MeasureSpec.EXACTLY) {
+                int height = Math.max(flexItem.getMinHeight(), Math.min(
+                        MeasureSpec.getSize(childHeightMeasureSpec), flexItem.getMaxHeight()));
+                childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(
+                        getCrossSizeFromAspectRatio(flexItem, height, false), MeasureSpec.EXACTLY);
+                childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+            }
+        }
+        measureFlexItem(MeasureCounter.PHASE_INITIAL, itemIndex, childWidthMeasureSpec,
+                childHeightMeasureSpec);
+
+        // Check the size constraint after the first measurement for the child
+        // To prevent the child's width/height violate the size constraints imposed by the
+        // {@link FlexItem#getMinWidth()}, {@link FlexItem#getMinHeight()},
+        // {@link FlexItem#getMaxWidth()} and {@link FlexItem#getMaxHeight()} attributes.
+        // E.g. When the child's layout_width is wrap_content the measured width may be
+        // less than the min width after the first measurement.
+        checkSizeConstraints(itemIndex, flexItem);
+    }
+
+    /**
+     * Measures the flex item through the {@link FlexContainer} and tallies the measurement if
+     * the {@link MeasureCounter} is set.
+     *
+     * @param phase     the phase of the algorithm in which the flex item is measured
+     * @param itemIndex the index of the flex item
+     */
+    private void measureFlexItem(int phase, int itemIndex, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        if (mMeasureCounter != null) {
+            mMeasureCounter.onMeasureFlexItem(phase, itemIndex);
+        }
+        if (phase != MeasureCounter.PHASE_INITIAL) {
+            mRemeasureCount++;
+        }
+        mContainer.measureFlexItem(itemIndex, widthMeasureSpec, heightMeasureSpec);
+        if (mLayoutRecorder != null) {
+            mLayoutRecorder.onMeasureFlexItem(mContainer, itemIndex, widthMeasureSpec,
+                    heightMeasureSpec);
+        }
+    }
+
+    /**
+     * Checks if the flex item's width/height don't violate the minimum/maximum size constraints
+     * imposed by the {@link FlexItem#getMinWidth()}, {@link FlexItem#getMinHeight()},
+     * {@link FlexItem#getMaxWidth()} and {@link FlexItem#getMaxHeight()} attributes, and that the
+     * cross size matches the main size if the {@link FlexItem#getAspectRatio()} is set.
+     *
+     * @param itemIndex the index of the flex item to be checked
+     * @param flexItem  the attributes of the flex item
+     */
+    private void checkSizeConstraints(int itemIndex, FlexItem flexItem) {
+        boolean needsMeasure = false;
+        int childWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+        int childHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+
+        if (childWidth < flexItem.getMinWidth()) {
+            needsMeasure = true;
+            childWidth = flexItem.getMinWidth();
+        } else if (childWidth > flexItem.getMaxWidth()) {
+            needsMeasure = true;
+            childWidth = flexItem.getMaxWidth();
+        }
+
+        if (childHeight < flexItem.getMinHeight()) {
+            needsMeasure = true;
+            childHeight = flexItem.getMinHeight();
+        } else if (childHeight > flexItem.getMaxHeight()) {
+            needsMeasure = true;
+            childHeight = flexItem.getMaxHeight();
+        }
+
+        if (hasAspectRatio(flexItem)) {
+            if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+                int height = getCrossSizeFromAspectRatio(flexItem, childWidth, true);
+                needsMeasure |= height != childHeight;
+                childHeight = height;
+            } else {
+                int width = getCrossSizeFromAspectRatio(flexItem, childHeight, false);
+                needsMeasure |= width != childWidth;
+                childWidth = width;
+            }
+        }
+        if (needsMeasure) {
+            measureFlexItem(MeasureCounter.PHASE_SIZE_CONSTRAINT, itemIndex,
+                    MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
+        }
+    }
+
+    private void addFlexLineIfLastFlexItem(int childIndex, int childCount, FlexLine flexLine) {
+        if (childIndex == childCount - 1 && flexLine.getItemCountNotGone() != 0) {
+            // Add the flex line if this item is the last item
+            addFlexLine(flexLine);
+        }
+    }
+
+    private void addFlexLine(FlexLine flexLine) {
+        // The size of the end divider isn't added until the flexLine is added to the flex container
+        // take the divider width (or height) into account when adding the flex line.
+        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+            if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
+                flexLine.mMainSize += mDividerVerticalWidth;
+                flexLine.mDividerLengthInMainSize += mDividerVerticalWidth;
+            }
+        } else {
+            if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
+                flexLine.mMainSize += mDividerHorizontalHeight;
+                flexLine.mDividerLengthInMainSize += mDividerHorizontalHeight;
+            }
+        }
+        mFlexLines.add(flexLine);
+    }
+
+    /**
+     * @return a flex line in its initial state, reused from the ones created in the previous
+     * measure passes if available
+     */
+    private FlexLine obtainFlexLine() {
+        FlexLine flexLine;
+        if (mFlexLinePoolUsed < mFlexLinePool.size()) {
+            flexLine = mFlexLinePool.get(mFlexLinePoolUsed);
+            flexLine.reset();
+        } else {
+            flexLine = new FlexLine();
+            mFlexLinePool.add(flexLine);
+        }
+        mFlexLinePoolUsed++;
+        return flexLine;
+    }
+
+    /**
+     * @return the empty list to which the flex lines are copied, to be passed to
+     * {@link #swapFlexLines(List)}
+     */
+    private List<FlexLine> obtainSpareFlexLines() {
+        mSpareFlexLines.clear();
+        return mSpareFlexLines;
+    }
+
+    private void swapFlexLines(List<FlexLine> newFlexLines) {
+        mSpareFlexLines = mFlexLines;
+        mFlexLines = newFlexLines;
+    }
+
+    /**
+     * Determine the main size by expanding (shrinking if negative remaining free space is given)
+     * an individual child in each flex line if any children's flexGrow (or flexShrink if remaining
+     * space is negative) properties are set to non-zero.
+     *
+     * @param flexDirection     the value of the flex direction
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @see #setFlexDirection(int)
+     * @see #getFlexDirection()
+     */
+    private void determineMainSize(int flexDirection, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        int mainSize;
+        int paddingAlongMainAxis;
+        switch (flexDirection) {
+            case FLEX_DIRECTION_ROW: // Intentional fall through
+            case FLEX_DIRECTION_ROW_REVERSE:
+                int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+                int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+                if (widthMode == MeasureSpec.EXACTLY) {
+                    mainSize = widthSize;
+                } else {
+                    mainSize = getLargestMainSize();
+                }
+                paddingAlongMainAxis = mPaddingLeft + mPaddingRight;
+                break;
+            case FLEX_DIRECTION_COLUMN: // Intentional fall through
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+                int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+                if (heightMode == MeasureSpec.EXACTLY) {
+                    mainSize = heightSize;
+                } else {
+                    mainSize = getLargestMainSize();
+                }
+                paddingAlongMainAxis = mPaddingTop + mPaddingBottom;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
+        }
+
+        int childIndex = 0;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+            if (flexLine.mMainSize < mainSize) {
+                childIndex = expandFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
+                        flexDirection, mainSize, paddingAlongMainAxis, childIndex);
+            } else {
+                childIndex = shrinkFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
+                        flexDirection, mainSize, paddingAlongMainAxis, childIndex);
+            }
+        }
+    }
+
+    /**
+     * Expand the flex items along the main axis based on the individual flexGrow attribute.
+     *
+     * <p>When a flex item hits its maximum main size, it's frozen and the positive free space it
+     * can't take is re-distributed to the other flex items of the line. See
+     * {@link #resolveFlexedMainSizes} for how the frozen flex items are found. Each flex item is
+     * measured only once with its final size.</p>
+     *
+     * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
+     * @param flexLine             the flex line to which flex items belong
+     * @param flexDirection        the flexDirection value for this flex container
+     * @param maxMainSize          the maximum main size. Expanded main size will be this size
+     * @param paddingAlongMainAxis the padding value along the main axis
+     * @param startIndex           the start index of the children views to be expanded. This index
+     *                             needs to
+     *                             be an absolute index in the flex container,
+     *                             not the relative index in the flex line.
+     * @return the next index, the next flex line's first flex item starts from the returned index
+     * @see #getFlexDirection()
+     * @see #setFlexDirection(int)
+     * @see FlexItem#getFlexGrow()
+     */
+    private int expandFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
+            int flexDirection, int maxMainSize, int paddingAlongMainAxis, int startIndex) {
+        if (flexLine.mTotalFlexGrow <= 0 || maxMainSize < flexLine.mMainSize) {
+            return startIndex + flexLine.mItemCount;
+        }
+        long totalWeight = 0;
+        if (mFixedPointDistribution) {
+            totalWeight = initFlexWeights(flexLine, startIndex, true);
+            if (totalWeight <= 0) {
+                return startIndex + flexLine.mItemCount;
+            }
+        }
+        boolean horizontal = isMainAxisDirectionHorizontal(flexDirection);
+        resolveFlexedMainSizes(flexLine, horizontal, startIndex,
+                maxMainSize - flexLine.mMainSize, totalWeight, true);
+        return measureFlexedItems(widthMeasureSpec, heightMeasureSpec, flexLine, horizontal,
+                paddingAlongMainAxis, startIndex, MeasureCounter.PHASE_EXPAND);
+    }
+
+    /**
+     * Shrink the flex items along the main axis based on the individual flexShrink attribute.
+     *
+     * <p>Like {@link #expandFlexItems}, the negative free space a flex item can't take because of
+     * its minimum main size is re-distributed to the other flex items and each flex item is
+     * measured only once with its final size.</p>
+     *
+     * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
+     * @param flexLine             the flex line to which flex items belong
+     * @param flexDirection        the flexDirection value for this flex container
+     * @param maxMainSize          the maximum main size. Shrank main size will be this size
+     * @param paddingAlongMainAxis the padding value along the main axis
+     * @param startIndex           the start index of the children views to be shrank. This index
+     *                             needs to
+     *                             be an absolute index in the flex container,
+     *                             not the relative index in the flex line.
+     * @return the next index, the next flex line's first flex item starts from the returned index
+     * @see #getFlexDirection()
+     * @see #setFlexDirection(int)
+     * @see FlexItem#getFlexShrink()
+     */
+    private int shrinkFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
+            int flexDirection, int maxMainSize, int paddingAlongMainAxis, int startIndex) {
+        if (flexLine.mTotalFlexShrink <= 0 || maxMainSize > flexLine.mMainSize) {
+            return startIndex + flexLine.mItemCount;
+        }
+        long totalWeight = 0;
+        if (mFixedPointDistribution) {
+            totalWeight = initFlexWeights(flexLine, startIndex, false);
+            if (totalWeight <= 0) {
+                return startIndex + flexLine.mItemCount;
+            }
+        }
+        boolean horizontal = isMainAxisDirectionHorizontal(flexDirection);
+        resolveFlexedMainSizes(flexLine, horizontal, startIndex,
+                flexLine.mMainSize - maxMainSize, totalWeight, false);
+        return measureFlexedItems(widthMeasureSpec, heightMeasureSpec, flexLine, horizontal,
+                paddingAlongMainAxis, startIndex, MeasureCounter.PHASE_SHRINK);
+    }
+
+    /**
+     * Resolves the main sizes of the flex items in the flex line expanded or shrunk by the free
+     * space into {@link #mFlexedMainSizes}.
+     *
+     * <p>A flex item whose share of the free space takes it beyond its maximum main size (or below
+     * its minimum main size when shrinking) is frozen at that size, and the free space it can't
+     * take goes to the other flex items. That only raises the share per flexGrow (or flexShrink)
+     * of the remaining flex items, so the flex items are frozen in the order of the share per
+     * flexGrow at which they hit their limits, popped from the heap built by
+     * {@link #initFreezeCandidates}. The free space is then distributed once over the remaining
+     * flex items, thus a line whose items are frozen one by one costs O(n log n) instead of a
+     * pass over the whole line per frozen item.</p>
+     *
+     * @param freeSpace   the free space to be distributed, positive for both of expanding and
+     *                    shrinking
+     * @param totalWeight the sum of the {@link #mFlexWeights} of the flex items in the flex line
+     *                    if the fixed-point distribution is enabled
+     * @param grow        {@code true} to expand the flex items, {@code false} to shrink them
+     */
+    private void resolveFlexedMainSizes(FlexLine flexLine, boolean horizontal, int startIndex,
+            long freeSpace, long totalWeight, boolean grow) {
+        int heapSize = initFreezeCandidates(flexLine, horizontal, startIndex, grow);
+        while (heapSize > 0) {
+            float totalFactor = mFixedPointDistribution ? totalWeight
+                    : grow ? flexLine.mTotalFlexGrow : flexLine.mTotalFlexShrink;
+            int childIndex = mFreezeHeap[0];
+            if (totalFactor <= 0 || mFreezeThresholds[childIndex] >= freeSpace / totalFactor) {
+                break;
+            }
+            heapSize = popFreezeCandidate(heapSize);
+            int itemIndex = getReorderedItemIndex(childIndex);
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            int limit = getMainSizeLimit(flexItem, horizontal, grow);
+            int mainSize = getMeasuredMainSize(itemIndex, horizontal);
+            freeSpace -= grow ? limit - mainSize : mainSize - limit;
+            totalWeight -= freezeFlexItem(flexLine, flexItem, childIndex, limit, grow);
+        }
+
+        boolean needsRedistribution;
+        do {
+            needsRedistribution = false;
+            float totalFactor = grow ? flexLine.mTotalFlexGrow : flexLine.mTotalFlexShrink;
+            float unitSpace = totalFactor > 0 ? freeSpace / totalFactor : 0;
+            long accumulatedWeight = 0;
+            int distributedSpace = 0;
+            float accumulatedRoundError = 0;
+            int childIndex = startIndex;
+            for (int i = 0; i < flexLine.mItemCount; i++) {
+                int itemIndex = getReorderedItemIndex(childIndex);
+                if (itemIndex < 0) {
+                    continue;
+                } else if (mContainer.isFlexItemGone(itemIndex)) {
+                    childIndex++;
+                    continue;
+                }
+                if (mChildrenFrozen[childIndex]) {
+                    childIndex++;
+                    continue;
+                }
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                int mainSize = getMeasuredMainSize(itemIndex, horizontal);
+                float rawCalculatedSize = 0;
+                int share;
+                if (mFixedPointDistribution) {
+                    // Each flex item takes the difference between the rounded shares of the flex
+                    // items up to this one and up to the previous one, so that the parts add up
+                    // to the free space exactly
+                    accumulatedWeight += mFlexWeights[childIndex];
+                    int accumulatedShare = totalWeight > 0
+                            ? divideRounded(freeSpace * accumulatedWeight, totalWeight) : 0;
+                    share = accumulatedShare - distributedSpace;
+                    distributedSpace = accumulatedShare;
+                } else {
+                    rawCalculatedSize = unitSpace
+                            * (grow ? flexItem.getFlexGrow() : flexItem.getFlexShrink());
+                    if (i == flexLine.mItemCount - 1) {
+                        rawCalculatedSize += accumulatedRoundError;
+                        accumulatedRoundError = 0;
+                    }
+                    share = Math.round(rawCalculatedSize);
+                }
+                int newSize = grow ? mainSize + share : mainSize - share;
+                int limit = getMainSizeLimit(flexItem, horizontal, grow);
+                if (grow ? newSize > limit : newSize < limit) {
+                    // The flex item went beyond its limit only by the rounding of its share,
+                    // thus the free space needs to be distributed again without it
+                    needsRedistribution = true;
+                    freeSpace -= grow ? limit - mainSize : mainSize - limit;
+                    totalWeight -= freezeFlexItem(flexLine, flexItem, childIndex, limit, grow);
+                } else {
+                    if (!mFixedPointDistribution) {
+                        accumulatedRoundError += (rawCalculatedSize - share);
+                        if (accumulatedRoundError > 1.0) {
+                            share += 1;
+                            accumulatedRoundError -= 1.0;
+                        } else if (accumulatedRoundError < -1.0) {
+                            share -= 1;
+                            accumulatedRoundError += 1.0;
+                        }
+                        newSize = grow ? mainSize + share : mainSize - share;
+                    }
+                    mFlexedMainSizes[childIndex] = newSize;
+                }
+                childIndex++;
+            }
+        } while (needsRedistribution);
+    }
+
+    /**
+     * Freezes the flex item at the limit of its main size.
+     *
+     * @return the fixed-point weight of the flex item, which no longer takes the free space
+     */
+    private long freezeFlexItem(FlexLine flexLine, FlexItem flexItem, int childIndex, int limit,
+            boolean grow) {
+        mChildrenFrozen[childIndex] = true;
+        mFlexedMainSizes[childIndex] = limit;
+        if (grow) {
+            flexLine.mTotalFlexGrow -= flexItem.getFlexGrow();
+            mReexpanded = true;
+        } else {
+            flexLine.mTotalFlexShrink -= flexItem.getFlexShrink();
+            mReshrunk = true;
+        }
+        return mFixedPointDistribution ? mFlexWeights[childIndex] : 0;
+    }
+
+    private int getMeasuredMainSize(int itemIndex, boolean horizontal) {
+        return horizontal ? mContainer.getMeasuredWidthOfFlexItem(itemIndex)
+                : mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+    }
+
+    /**
+     * @return the maximum main size of the flex item if expanding, the minimum main size
+     * otherwise
+     */
+    private static int getMainSizeLimit(FlexItem flexItem, boolean horizontal, boolean grow) {
+        if (grow) {
+            return horizontal ? flexItem.getMaxWidth() : flexItem.getMaxHeight();
+        }
+        return horizontal ? flexItem.getMinWidth() : flexItem.getMinHeight();
+    }
+
+    /**
+     * Builds the min-heap of the flex items in the flex line which may hit the limit of their
+     * main sizes into {@link #mFreezeHeap}, keyed by the share of the free space per flexGrow (or
+     * flexShrink) at which they hit the limit.
+     *
+     * @return the number of the flex items in the heap
+     */
+    private int initFreezeCandidates(FlexLine flexLine, boolean horizontal, int startIndex,
+            boolean grow) {
+        int heapSize = 0;
+        int childIndex = startIndex;
+        for (int i = 0; i < flexLine.mItemCount; i++) {
+            int itemIndex = getReorderedItemIndex(childIndex);
+            if (itemIndex < 0) {
+                continue;
+            }
+            if (!mContainer.isFlexItemGone(itemIndex)) {
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                float factor = mFixedPointDistribution ? mFlexWeights[childIndex]
+                        : grow ? flexItem.getFlexGrow() : flexItem.getFlexShrink();
+                int limit = getMainSizeLimit(flexItem, horizontal, grow);
+                // The flex items which don't take the free space or can't hit the limit are
+                // left to the distribution, which freezes them if they're already beyond it
+                if (factor > 0 && (!grow || limit < FlexItem.MAX_SIZE)) {
+                    int mainSize = getMeasuredMainSize(itemIndex, horizontal);
+                    mFreezeThresholds[childIndex] =
+                            (grow ? limit - mainSize : mainSize - limit) / factor;
+                    mFreezeHeap[heapSize++] = childIndex;
+                }
+            }
+            childIndex++;
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDownFreezeCandidate(i, heapSize);
+        }
+        return heapSize;
+    }
+
+    /**
+     * Removes the root of the {@link #mFreezeHeap}.
+     *
+     * @return the new size of the heap
+     */
+    private int popFreezeCandidate(int heapSize) {
+        heapSize--;
+        mFreezeHeap[0] = mFreezeHeap[heapSize];
+        siftDownFreezeCandidate(0, heapSize);
+        return heapSize;
+    }
+
+    private void siftDownFreezeCandidate(int index, int heapSize) {
+        int[] heap = mFreezeHeap;
+        float[] thresholds = mFreezeThresholds;
+        int childIndex = heap[index];
+        float threshold = thresholds[childIndex];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && thresholds[heap[child + 1]] < thresholds[heap[child]]) {
+                child++;
+            }
+            if (thresholds[heap[child]] >= threshold) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = childIndex;
+    }
+
+    /**
+     * Converts the flexGrow or flexShrink attributes of the visible flex items in the flex line to
+     * the fixed-point values in {@link #mFlexWeights}, once per flex line so that the rounds of
+     * the distribution use integer arithmetic only.
+     *
+     * @param grow {@code true} to convert the flexGrow attributes, {@code false} to convert the
+     *             flexShrink attributes
+     * @return the sum of the converted values
+     */
+    private long initFlexWeights(FlexLine flexLine, int startIndex, boolean grow) {
+        long totalWeight = 0;
+        int childIndex = startIndex;
+        for (int i = 0; i < flexLine.mItemCount; i++) {
+            int itemIndex = getReorderedItemIndex(childIndex);
+            if (itemIndex < 0) {
+                continue;
+            }
+            if (!mContainer.isFlexItemGone(itemIndex)) {
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                float factor = grow ? flexItem.getFlexGrow() : flexItem.getFlexShrink();
+                long weight = Math.max(0, Math.round(
+                        (double) factor * (1 << FLEX_WEIGHT_FRACTION_BITS)));
+                mFlexWeights[childIndex] = weight;
+                totalWeight += weight;
+            }
+            childIndex++;
+        }
+        return totalWeight;
+    }
+
+    /**
+     * Divides the dividend by the positive divisor, rounding half up like
+     * {@link Math#round(float)} does, without going through floating point.
+     */
+    private static int divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder > 0 && remainder * 2 >= divisor) {
+            quotient++;
+        } else if (remainder < 0 && remainder * 2 < -divisor) {
+            quotient--;
+        }
+        return (int) quotient;
+    }
+
+    /**
+     * Measures the flex items in the flex line with the main sizes resolved in
+     * {@link #mFlexedMainSizes} and updates the main size and the cross size of the flex line.
+     *
+     * @return the next index, the next flex line's first flex item starts from the returned index
+     */
+    private int measureFlexedItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
+            boolean horizontal, int paddingAlongMainAxis, int startIndex, int phase) {
+        flexLine.mMainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
+
+        // Setting the cross size of the flex line as the temporal value since the cross size of
+        // each flex item may be changed from the initial calculation
+        // (in the measureHorizontal/measureVertical method) even this method is part of the main
+        // size determination.
+        // E.g. If a TextView's layout_width is set to 0dp, layout_height is set to wrap_content,
+        // and layout_flexGrow is set to 1, the TextView is trying to expand to the vertical
+        // direction to enclose its content (in the measureHorizontal method), but
+        // the width will be expanded in this method. In that case, the height needs to be measured
+        // again with the expanded width.
+        flexLine.mCrossSize = Integer.MIN_VALUE;
+        int largestCrossSize = 0;
+        int childIndex = startIndex;
+        for (int i = 0; i < flexLine.mItemCount; i++) {
+            int itemIndex = getReorderedItemIndex(childIndex);
+            if (itemIndex < 0) {
+                continue;
+            } else if (mContainer.isFlexItemGone(itemIndex)) {
+                childIndex++;
+                continue;
+            }
+            FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+            int newSpec = MeasureSpec.makeMeasureSpec(mFlexedMainSizes[childIndex],
+                    MeasureSpec.EXACTLY);
+            if (horizontal) {
+                int childHeightMeasureSpec = hasAspectRatio(flexItem)
+                        ? MeasureSpec.makeMeasureSpec(getCrossSizeFromAspectRatio(flexItem,
+                        mFlexedMainSizes[childIndex], true), MeasureSpec.EXACTLY)
+                        : getChildHeightMeasureSpec(heightMeasureSpec, flexItem);
+                measureFlexItem(phase, itemIndex, newSpec, childHeightMeasureSpec);
+                largestCrossSize = Math.max(largestCrossSize,
+                        mContainer.getMeasuredHeightOfFlexItem(itemIndex)
+                                + flexItem.getMarginTop() + flexItem.getMarginBottom());
+                flexLine.mMainSize += mContainer.getMeasuredWidthOfFlexItem(itemIndex)
+                        + flexItem.getMarginLeft() + flexItem.getMarginRight();
+            } else {
+                int childWidthMeasureSpec = hasAspectRatio(flexItem)
+                        ? MeasureSpec.makeMeasureSpec(getCrossSizeFromAspectRatio(flexItem,
+                        mFlexedMainSizes[childIndex], false), MeasureSpec.EXACTLY)
+                        : getChildWidthMeasureSpec(widthMeasureSpec, flexItem);
+                measureFlexItem(phase, itemIndex, childWidthMeasureSpec, newSpec);
+                largestCrossSize = Math.max(largestCrossSize,
+                        mContainer.getMeasuredWidthOfFlexItem(itemIndex)
+                                + flexItem.getMarginLeft() + flexItem.getMarginRight());
+                flexLine.mMainSize += mContainer.getMeasuredHeightOfFlexItem(itemIndex)
+                        + flexItem.getMarginTop() + flexItem.getMarginBottom();
+            }
+            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestCrossSize);
+            childIndex++;
+        }
+        return childIndex;
+    }
+
+    /**
+     * @return {@code true} if the cross size of the flex item is computed from its main size
+     */
+    private static boolean hasAspectRatio(FlexItem flexItem) {
+        return flexItem.getAspectRatio() > 0;
+    }
+
+    /**
+     * Computes the cross size of the flex item from its main size with its aspect ratio, clamped
+     * by the minimum and maximum cross sizes of the flex item.
+     *
+     * @param flexItem   the flex item whose {@link FlexItem#getAspectRatio()} is set
+     * @param mainSize   the main size of the flex item
+     * @param horizontal {@code true} if the main axis is horizontal
+     * @return the height if the main axis is horizontal, the width otherwise
+     */
+    private static int getCrossSizeFromAspectRatio(FlexItem flexItem, int mainSize,
+            boolean horizontal) {
+        if (horizontal) {
+            int height = Math.round(mainSize / flexItem.getAspectRatio());
+            return Math.max(flexItem.getMinHeight(), Math.min(height, flexItem.getMaxHeight()));
+        } else {
+            int width = Math.round(mainSize * flexItem.getAspectRatio());
+            return Math.max(flexItem.getMinWidth(), Math.min(width, flexItem.getMaxWidth()));
+        }
+    }
+
+    private static int getMainAxisMargins(FlexItem flexItem, boolean horizontal) {
+        return horizontal ? flexItem.getMarginLeft() + flexItem.getMarginRight()
+                : flexItem.getMarginTop() + flexItem.getMarginBottom();
+    }
+
+    private int getChildWidthMeasureSpec(int widthMeasureSpec, FlexItem flexItem) {
+        int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
+                mPaddingLeft + mPaddingRight + flexItem.getMarginLeft()
+                        + flexItem.getMarginRight(), flexItem.getWidth());
+        int childWidth = MeasureSpec.getSize(childWidthMeasureSpec);
+        if (childWidth > flexItem.getMaxWidth()) {
+            childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(flexItem.getMaxWidth(),
+                    MeasureSpec.getMode(childWidthMeasureSpec));
+        } else if (childWidth < flexItem.getMinWidth()) {
+            childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(flexItem.getMinWidth(),
+                    MeasureSpec.getMode(childWidthMeasureSpec));
+        }
+        return childWidthMeasureSpec;
+    }
+
+    private int getChildHeightMeasureSpec(int heightMeasureSpec, FlexItem flexItem) {
+        int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
+                mPaddingTop + mPaddingBottom + flexItem.getMarginTop()
+                        + flexItem.getMarginBottom(), flexItem.getHeight());
+        int childHeight = MeasureSpec.getSize(childHeightMeasureSpec);
+        if (childHeight > flexItem.getMaxHeight()) {
+            childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(flexItem.getMaxHeight(),
+                    MeasureSpec.getMode(childHeightMeasureSpec));
+        } else if (childHeight < flexItem.getMinHeight()) {
+            childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(flexItem.getMinHeight(),
+                    MeasureSpec.getMode(childHeightMeasureSpec));
+        }
+        return childHeightMeasureSpec;
+    }
+
+    /**
+     * Determines the cross size (Calculate the length along the cross axis).
+     * Expand the cross size only if the height mode is MeasureSpec.EXACTLY, otherwise
+     * use the sum of cross sizes of all flex lines.
+     *
+     * @param flexDirection         the flex direction attribute
+     * @param widthMeasureSpec      horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec     vertical space requirements as imposed by the parent
+     * @param paddingAlongCrossAxis the padding value for the flex container along the cross axis
+     * @see #getFlexDirection()
+     * @see #setFlexDirection(int)
+     * @see #getAlignContent()
+     * @see #setAlignContent(int)
+     */
+    private void determineCrossSize(int flexDirection, int widthMeasureSpec,
+            int heightMeasureSpec, int paddingAlongCrossAxis) {
+        // The MeasureSpec mode along the cross axis
+        int mode;
+        // The MeasureSpec size along the cross axis
+        int size;
+        switch (flexDirection) {
+            case FLEX_DIRECTION_ROW: // Intentional fall through
+            case FLEX_DIRECTION_ROW_REVERSE:
+                mode = MeasureSpec.getMode(heightMeasureSpec);
+                size = MeasureSpec.getSize(heightMeasureSpec);
+                break;
+            case FLEX_DIRECTION_COLUMN: // Intentional fall through
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                mode = MeasureSpec.getMode(widthMeasureSpec);
+                size = MeasureSpec.getSize(widthMeasureSpec);
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
+        }
+        if (mode == MeasureSpec.EXACTLY) {
+            int totalCrossSize = getSumOfCrossSize() + paddingAlongCrossAxis;
+            if (mFlexLines.size() == 1) {
+                mFlexLines.get(0).mCrossSize = size - paddingAlongCrossAxis;
+                // alignContent property is valid only if the Flexbox has at least two lines
+            } else if (mFlexLines.size() >= 2 && totalCrossSize < size) {
+                switch (mAlignContent) {
+                    case ALIGN_CONTENT_STRETCH: {
+                        if (mFixedPointDistribution) {
+                            int freeSpace = size - totalCrossSize;
+                            int distributedSpace = 0;
+                            for (int i = 0, flexLinesSize = mFlexLines.size();
+                                    i < flexLinesSize; i++) {
+                                int share = divideRounded((long) freeSpace * (i + 1),
+                                        flexLinesSize);
+                                mFlexLines.get(i).mCrossSize += share - distributedSpace;
+                                distributedSpace = share;
+                            }
+                            break;
+                        }
+                        float freeSpaceUnit = (size - totalCrossSize) / (float) mFlexLines.size();
+                        float accumulatedError = 0;
+                        for (int i = 0, flexLinesSize = mFlexLines.size(); i < flexLinesSize; i++) {
+                            FlexLine flexLine = mFlexLines.get(i);
+                            float newCrossSizeAsFloat = flexLine.mCrossSize + freeSpaceUnit;
+                            if (i == mFlexLines.size() - 1) {
+                                newCrossSizeAsFloat += accumulatedError;
+                                accumulatedError = 0;
+                            }
+                            int newCrossSize = Math.round(newCrossSizeAsFloat);
+                            accumulatedError += (newCrossSizeAsFloat - newCrossSize);
+                            if (accumulatedError > 1) {
+                                newCrossSize += 1;
+                                accumulatedError -= 1;
+                            } else if (accumulatedError < -1) {
+                                newCrossSize -= 1;
+                                accumulatedError += 1;
+                            }
+                            flexLine.mCrossSize = newCrossSize;
+                        }
+                        break;
+                    }
+                    case ALIGN_CONTENT_SPACE_AROUND: {
+                        // The value of free space along the cross axis which needs to be put on top
+                        // and below the bottom of each flex line.
+                        int spaceTopAndBottom = size - totalCrossSize;
+                        // The number of spaces along the cross axis
+                        int numberOfSpaces = mFlexLines.size() * 2;
+                        spaceTopAndBottom = spaceTopAndBottom / numberOfSpaces;
+                        List<FlexLine> newFlexLines = obtainSpareFlexLines();
+                        FlexLine dummySpaceFlexLine = obtainFlexLine();
+                        dummySpaceFlexLine.mCrossSize = spaceTopAndBottom;
+                        for (int i = 0, flexLineSize = mFlexLines.size(); i < flexLineSize; i++) {
+                            newFlexLines.add(dummySpaceFlexLine);
+                            newFlexLines.add(mFlexLines.get(i));
+                            newFlexLines.add(dummySpaceFlexLine);
+                        }
+                        swapFlexLines(newFlexLines);
+                        break;
+                    }
+                    case ALIGN_CONTENT_SPACE_BETWEEN: {
+                        // The value of free space along the cross axis between each flex line.
+                        float spaceBetweenFlexLine = size - totalCrossSize;
+                        int numberOfSpaces = mFlexLines.size() - 1;
+                        spaceBetweenFlexLine = spaceBetweenFlexLine / (float) numberOfSpaces;
+                        float accumulatedError = 0;
+                        List<FlexLine> newFlexLines = obtainSpareFlexLines();
+                        for (int i = 0, flexLineSize = mFlexLines.size(); i < flexLineSize; i++) {
+                            FlexLine flexLine = mFlexLines.get(i);
+                            newFlexLines.add(flexLine);
+
+                            if (i != mFlexLines.size() - 1) {
+                                FlexLine dummySpaceFlexLine = obtainFlexLine();
+                                if (mFixedPointDistribution) {
+                                    int freeSpace = size - totalCrossSize;
+                                    dummySpaceFlexLine.mCrossSize =
+                                            divideRounded((long) freeSpace * (i + 1),
+                                                    numberOfSpaces)
+                                            - divideRounded((long) freeSpace * i,
+                                                    numberOfSpaces);
+                                    newFlexLines.add(dummySpaceFlexLine);
+                                    continue;
+                                }
+                                if (i == mFlexLines.size() - 2) {
+                                    // The last dummy space block in the flex container.
+                                    // Adjust the cross size by the accumulated error.
+                                    dummySpaceFlexLine.mCrossSize = Math
+                                            .round(spaceBetweenFlexLine + accumulatedError);
+                                    accumulatedError = 0;
+                                } else {
+                                    dummySpaceFlexLine.mCrossSize = Math
+                                            .round(spaceBetweenFlexLine);
+                                }
+                                accumulatedError += (spaceBetweenFlexLine
+                                        - dummySpaceFlexLine.mCrossSize);
+                                if (accumulatedError > 1) {
+                                    dummySpaceFlexLine.mCrossSize += 1;
+                                    accumulatedError -= 1;
+                                } else if (accumulatedError < -1) {
+                                    dummySpaceFlexLine.mCrossSize -= 1;
+                                    accumulatedError += 1;
+                                }
+                                newFlexLines.add(dummySpaceFlexLine);
+                            }
+                        }
+                        swapFlexLines(newFlexLines);
+                        break;
+                    }
+                    case ALIGN_CONTENT_CENTER: {
+                        int spaceAboveAndBottom = size - totalCrossSize;
+                        spaceAboveAndBottom = spaceAboveAndBottom / 2;
+                        List<FlexLine> newFlexLines = obtainSpareFlexLines();
+                        FlexLine dummySpaceFlexLine = obtainFlexLine();
+                        dummySpaceFlexLine.mCrossSize = spaceAboveAndBottom;
+                        for (int i = 0, flexLineSize = mFlexLines.size(); i < flexLineSize; i++) {
+                            if (i == 0) {
+                                newFlexLines.add(dummySpaceFlexLine);
+                            }
+                            FlexLine flexLine = mFlexLines.get(i);
+                            newFlexLines.add(flexLine);
+                            if (i == mFlexLines.size() - 1) {
+                                newFlexLines.add(dummySpaceFlexLine);
+                            }
+                        }
+                        swapFlexLines(newFlexLines);
+                        break;
+                    }
+                    case ALIGN_CONTENT_FLEX_END: {
+                        int spaceTop = size - totalCrossSize;
+                        FlexLine dummySpaceFlexLine = obtainFlexLine();
+                        dummySpaceFlexLine.mCrossSize = spaceTop;
+                        mFlexLines.add(0, dummySpaceFlexLine);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand the flex items if the {@link #mAlignItems} attribute is set to
+     * {@link #ALIGN_ITEMS_STRETCH} or {@link FlexItem#ALIGN_SELF_STRETCH} is set to an individual
+     * flex item.
+     *
+     * @param flexDirection the flex direction attribute
+     * @param alignItems    the align items attribute
+     * @see #getFlexDirection()
+     * @see #setFlexDirection(int)
+     * @see #getAlignItems()
+     * @see #setAlignItems(int)
+     * @see FlexItem#getAlignSelf()
+     */
+    private void stretchViews(int flexDirection, int alignItems) {
+        if (alignItems == ALIGN_ITEMS_STRETCH) {
+            int viewIndex = 0;
+            for (int lineIndex = 0, size = mFlexLines.size(); lineIndex < size; lineIndex++) {
+                FlexLine flexLine = mFlexLines.get(lineIndex);
+                for (int i = 0; i < flexLine.mItemCount; i++, viewIndex++) {
+                    int itemIndex = getReorderedItemIndex(viewIndex);
+                    if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                        continue;
+                    }
+                    FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                    if (flexItem.getAlignSelf() != FlexItem.ALIGN_SELF_AUTO &&
+                            flexItem.getAlignSelf() != FlexItem.ALIGN_SELF_STRETCH) {
+                        continue;
+                    }
+                    switch (flexDirection) {
+                        case FLEX_DIRECTION_ROW: // Intentional fall through
+                        case FLEX_DIRECTION_ROW_REVERSE:
+                            stretchViewVertically(itemIndex, flexItem, flexLine.mCrossSize);
+                            break;
+                        case FLEX_DIRECTION_COLUMN:
+                        case FLEX_DIRECTION_COLUMN_REVERSE:
+                            stretchViewHorizontally(itemIndex, flexItem, flexLine.mCrossSize);
+                            break;
+                        default:
+                            throw new IllegalArgumentException(
+                                    "Invalid flex direction: " + flexDirection);
+                    }
+                }
+            }
+        } else {
+            for (int lineIndex = 0, size = mFlexLines.size(); lineIndex < size; lineIndex++) {
+                FlexLine flexLine = mFlexLines.get(lineIndex);
+                for (int i = 0; i < flexLine.mIndicesAlignSelfStretchCount; i++) {
+                    int itemIndex = getReorderedItemIndex(flexLine.mIndicesAlignSelfStretch[i]);
+                    FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                    switch (flexDirection) {
+                        case FLEX_DIRECTION_ROW: // Intentional fall through
+                        case FLEX_DIRECTION_ROW_REVERSE:
+                            stretchViewVertically(itemIndex, flexItem, flexLine.mCrossSize);
+                            break;
+                        case FLEX_DIRECTION_COLUMN:
+                        case FLEX_DIRECTION_COLUMN_REVERSE:
+                            stretchViewHorizontally(itemIndex, flexItem, flexLine.mCrossSize);
+                            break;
+                        default:
+                            throw new IllegalArgumentException(
+                                    "Invalid flex direction: " + flexDirection);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand the flex item vertically to the size of the crossSize (considering the margins)
+     *
+     * @param itemIndex the index of the flex item to be stretched
+     * @param flexItem  the attributes of the flex item
+     * @param crossSize the cross size
+     */
+    private void stretchViewVertically(int itemIndex, FlexItem flexItem, int crossSize) {
+        if (hasAspectRatio(flexItem)) {
+            // The height computed from the width takes precedence over the stretch
+            return;
+        }
+        int newHeight = crossSize - flexItem.getMarginTop() - flexItem.getMarginBottom();
+        newHeight = Math.max(newHeight, 0);
+        measureFlexItem(MeasureCounter.PHASE_STRETCH, itemIndex, MeasureSpec
+                        .makeMeasureSpec(mContainer.getMeasuredWidthOfFlexItem(itemIndex),
+                                MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(newHeight, MeasureSpec.EXACTLY));
+    }
+
+    /**
+     * Expand the flex item horizontally to the size of the crossSize (considering the margins)
+     *
+     * @param itemIndex the index of the flex item to be stretched
+     * @param flexItem  the attributes of the flex item
+     * @param crossSize the cross size
+     */
+    private void stretchViewHorizontally(int itemIndex, FlexItem flexItem, int crossSize) {
+        if (hasAspectRatio(flexItem)) {
+            // The width computed from the height takes precedence over the stretch
+            return;
+        }
+        int newWidth = crossSize - flexItem.getMarginLeft() - flexItem.getMarginRight();
+        newWidth = Math.max(newWidth, 0);
+        measureFlexItem(MeasureCounter.PHASE_STRETCH, itemIndex, MeasureSpec
+                        .makeMeasureSpec(newWidth, MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(mContainer.getMeasuredHeightOfFlexItem(itemIndex),
+                        MeasureSpec.EXACTLY));
+    }
+
+    /**
+     * Compute the width and height of the flex container depending on the calculated size of
+     * main axis and cross axis.
+     *
+     * @param flexDirection     the value of the flex direction
+     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
+     * @param heightMeasureSpec vertical space requirements as imposed by the parent
+     * @param childState        the measured states of the flex items combined
+     * @see #getFlexDirection()
+     * @see #setFlexDirection(int)
+     */
+    private void setMeasuredDimensionForFlex(int flexDirection, int widthMeasureSpec,
+            int heightMeasureSpec, int childState) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
+        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
+        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
+        int calculatedMaxHeight;
+        int calculatedMaxWidth;
+        switch (flexDirection) {
+            case FLEX_DIRECTION_ROW: // Intentional fall through
+            case FLEX_DIRECTION_ROW_REVERSE:
+                calculatedMaxHeight = getSumOfCrossSize() + mPaddingTop + mPaddingBottom;
+                calculatedMaxWidth = getLargestMainSize();
+                break;
+            case FLEX_DIRECTION_COLUMN: // Intentional fall through
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                calculatedMaxHeight = getLargestMainSize();
+                calculatedMaxWidth = getSumOfCrossSize() + mPaddingLeft + mPaddingRight;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
+        }
+
+        int widthSizeAndState;
+        switch (widthMode) {
+            case MeasureSpec.EXACTLY:
+                if (widthSize < calculatedMaxWidth) {
+                    childState |= MEASURED_STATE_TOO_SMALL;
+                }
+                widthSizeAndState = resolveSizeAndState(widthSize, widthMeasureSpec, childState);
+                break;
+            case MeasureSpec.AT_MOST: {
+                if (widthSize < calculatedMaxWidth) {
+                    childState |= MEASURED_STATE_TOO_SMALL;
+                } else {
+                    widthSize = calculatedMaxWidth;
+                }
+                widthSizeAndState = resolveSizeAndState(widthSize, widthMeasureSpec, childState);
+                break;
+            }
+            case MeasureSpec.UNSPECIFIED: {
+                widthSizeAndState = resolveSizeAndState(calculatedMaxWidth, widthMeasureSpec,
+                        childState);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown width mode is set: " + widthMode);
+        }
+        int heightSizeAndState;
+        switch (heightMode) {
+            case MeasureSpec.EXACTLY:
+                if (heightSize < calculatedMaxHeight) {
+                    childState |= MEASURED_STATE_TOO_SMALL >> MEASURED_HEIGHT_STATE_SHIFT;
+                }
+                heightSizeAndState = resolveSizeAndState(heightSize, heightMeasureSpec,
+                        childState);
+                break;
+            case MeasureSpec.AT_MOST: {
+                if (heightSize < calculatedMaxHeight) {
+                    childState |= MEASURED_STATE_TOO_SMALL >> MEASURED_HEIGHT_STATE_SHIFT;
+                } else {
+                    heightSize = calculatedMaxHeight;
+                }
+                heightSizeAndState = resolveSizeAndState(heightSize, heightMeasureSpec,
+                        childState);
+                break;
+            }
+            case MeasureSpec.UNSPECIFIED: {
+                heightSizeAndState = resolveSizeAndState(calculatedMaxHeight,
+                        heightMeasureSpec, childState);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown height mode is set: " + heightMode);
+        }
+        mMeasuredWidthAndState = widthSizeAndState;
+        mMeasuredHeightAndState = heightSizeAndState;
+    }
+
+    /**
+     * Determine if a wrap is required (add a new flex line).
+     *
+     * @param mode          the width or height mode along the main axis direction
+     * @param maxSize       the max size along the main axis direction
+     * @param currentLength the accumulated current length
+     * @param childLength   the length of a child view which is to be collected to the flex line
+     * @param flexItem      the attributes of the flex item being determined whether a new flex
+     *                      line is needed
+     * @return {@code true} if a wrap is required, {@code false} otherwise
+     * @see #getFlexWrap()
+     * @see #setFlexWrap(int)
+     */
+    private boolean isWrapRequired(int mode, int maxSize, int currentLength, int childLength,
+            FlexItem flexItem, int childAbsoluteIndex, int childRelativeIndexInFlexLine) {
+        if (mFlexWrap == FLEX_WRAP_NOWRAP) {
+            return false;
+        }
+        if (flexItem.isWrapBefore()) {
+            return true;
+        }
+        if (mode == MeasureSpec.UNSPECIFIED) {
+            return false;
+        }
+        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+            if (hasDividerBeforeChildAtAlongMainAxis(childAbsoluteIndex,
+                    childRelativeIndexInFlexLine)) {
+                childLength += mDividerVerticalWidth;
+            }
+            if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
+                childLength += mDividerVerticalWidth;
+            }
+        } else {
+            if (hasDividerBeforeChildAtAlongMainAxis(childAbsoluteIndex,
+                    childRelativeIndexInFlexLine)) {
+                childLength += mDividerHorizontalHeight;
+            }
+            if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
+                childLength += mDividerHorizontalHeight;
+            }
+        }
+        return maxSize < currentLength + childLength;
+    }
+
+    /**
+     * Retrieve the largest main size of all flex lines.
+     *
+     * @return the largest main size
+     */
+    private int getLargestMainSize() {
+        if (mFlexLines.isEmpty()) {
+            // No flex items, only the padding along the main axis occupies the space
+            return isMainAxisDirectionHorizontal(mFlexDirection) ? mPaddingLeft + mPaddingRight
+                    : mPaddingTop + mPaddingBottom;
+        }
+        int largestSize = Integer.MIN_VALUE;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            largestSize = Math.max(largestSize, mFlexLines.get(i).mMainSize);
+        }
+        return largestSize;
+    }
+
+    /**
+     * Retrieve the sum of the cross sizes of all flex lines including divider and gap lengths.
+     *
+     * @return the sum of the cross sizes
+     */
+    private int getSumOfCrossSize() {
+        updateNonDummyFlexLineRange();
+        int sum = 0;
+        int crossAxisGap = getCrossAxisGap();
+        boolean hasFlexLineBefore = false;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+
+            // The gap is put only between the flex lines which have visible flex items
+            if (flexLine.getItemCountNotGone() > 0) {
+                if (hasFlexLineBefore) {
+                    sum += crossAxisGap;
+                }
+                hasFlexLineBefore = true;
+            }
+
+            // Judge if the beginning or middle dividers are required
+            if (hasDividerBeforeFlexLine(i)) {
+                if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+                    sum += mDividerHorizontalHeight;
+                } else {
+                    sum += mDividerVerticalWidth;
+                }
+            }
+
+            // Judge if the end divider is required
+            if (hasEndDividerAfterFlexLine(i)) {
+                if (isMainAxisDirectionHorizontal(mFlexDirection)) {
+                    sum += mDividerHorizontalHeight;
+                } else {
+                    sum += mDividerVerticalWidth;
+                }
+            }
+            sum += flexLine.mCrossSize;
+        }
+        return sum;
+    }
+
+    private boolean isMainAxisDirectionHorizontal(int flexDirection) {
+        return flexDirection == FLEX_DIRECTION_ROW
+                || flexDirection == FLEX_DIRECTION_ROW_REVERSE;
+    }
+
+    /**
+     * @return the length of the gap put between flex lines, which depends on the flex direction
+     */
+    private int getCrossAxisGap() {
+        return isMainAxisDirectionHorizontal(mFlexDirection) ? mRowGap : mColumnGap;
+    }
+
+    /**
+     * Computes the frames of the flex items measured in the last {@link #measure(int, int)}.
+     * The frames are relative to the flex container and available through
+     * {@link #getFrameLeft(int)}, {@link #getFrameTop(int)}, {@link #getFrameRight(int)} and
+     * {@link #getFrameBottom(int)} after this method returns.
+     *
+     * @param left        the left position of the flex container
+     * @param top         the top position of the flex container
+     * @param right       the right position of the flex container
+     * @param bottom      the bottom position of the flex container
+     * @param isLayoutRtl {@code true} if the layout direction of the flex container is right to
+     *                    left, {@code false} otherwise
+     */
+    public void layout(int left, int top, int right, int bottom, boolean isLayoutRtl) {
+        int childCount = mContainer.getFlexItemCount();
+        if (mChildFrames == null || mChildFrames.length < childCount * 4) {
+            mChildFrames = new int[childCount * 4];
+        }
+        mWidth = right - left;
+        mHeight = bottom - top;
+        mLayoutRtl = isLayoutRtl;
+        beginTraceSection(isMainAxisDirectionHorizontal(mFlexDirection)
+                ? TRACE_SECTION_LAYOUT_HORIZONTAL : TRACE_SECTION_LAYOUT_VERTICAL);
+        boolean isRtl;
+        switch (mFlexDirection) {
+            case FLEX_DIRECTION_ROW:
+                isRtl = isLayoutRtl;
+                layoutHorizontal(isRtl, left, top, right, bottom);
+                break;
+            case FLEX_DIRECTION_ROW_REVERSE:
+                isRtl = !isLayoutRtl;
+                layoutHorizontal(isRtl, left, top, right, bottom);
+                break;
+            case FLEX_DIRECTION_COLUMN:
+                isRtl = isLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    isRtl = !isRtl;
+                }
+                layoutVertical(isRtl, false, left, top, right, bottom);
+                break;
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                isRtl = isLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    isRtl = !isRtl;
+                }
+                layoutVertical(isRtl, true, left, top, right, bottom);
+                break;
+            default:
+                throw new IllegalStateException("Invalid flex direction is set: " + mFlexDirection);
+        }
+        endTraceSection();
+    }
+
+    /**
+     * Store the frame of the flex item whose reordered index is passed as an argument in the
+     * {@link #mChildFrames}.
+     */
+    private void setChildFrame(int index, int left, int top, int right, int bottom) {
+        int offset = index * 4;
+        mChildFrames[offset] = left;
+        mChildFrames[offset + 1] = top;
+        mChildFrames[offset + 2] = right;
+        mChildFrames[offset + 3] = bottom;
+    }
+
+    /**
+     * Expand the bounds of the flex line so that it encloses the computed frame of the flex item
+     * (including its margins) whose reordered index is passed as an argument.
+     */
+    private void updateFlexLineBounds(FlexLine flexLine, int index, FlexItem flexItem) {
+        int offset = index * 4;
+        flexLine.mLeft = Math.min(flexLine.mLeft, mChildFrames[offset] - flexItem.getMarginLeft());
+        flexLine.mTop = Math.min(flexLine.mTop, mChildFrames[offset + 1] - flexItem.getMarginTop());
+        flexLine.mRight = Math.max(flexLine.mRight,
+                mChildFrames[offset + 2] + flexItem.getMarginRight());
+        flexLine.mBottom = Math.max(flexLine.mBottom,
+                mChildFrames[offset + 3] + flexItem.getMarginBottom());
+    }
+
+    /**
+     * Sub method for {@link #layout(int, int, int, int, boolean)} when the
+     * {@link #mFlexDirection} is either {@link #FLEX_DIRECTION_ROW} or
+     * {@link #FLEX_DIRECTION_ROW_REVERSE}.
+     *
+     * @param isRtl  {@code true} if the horizontal layout direction is right to left, {@code
+     *               false} otherwise.
+     * @param left   the left position of the flex container
+     * @param top    the top position of the flex container
+     * @param right  the right position of the flex container
+     * @param bottom the bottom position of the flex container
+     * @see #getFlexWrap()
+     * @see #setFlexWrap(int)
+     * @see #getJustifyContent()
+     * @see #setJustifyContent(int)
+     * @see #getAlignItems()
+     * @see #setAlignItems(int)
+     * @see FlexItem#getAlignSelf()
+     */
+    private void layoutHorizontal(boolean isRtl, int left, int top, int right, int bottom) {
+        updateNonDummyFlexLineRange();
+        int paddingLeft = mPaddingLeft;
+        int paddingRight = mPaddingRight;
+        // Use float to reduce the round error that may happen in when justifyContent ==
+        // SPACE_BETWEEN or SPACE_AROUND
+        float childLeft;
+        int currentViewIndex = 0;
+
+        int height = bottom - top;
+        int width = right - left;
+        // childBottom is used if the mFlexWrap is FLEX_WRAP_WRAP_REVERSE otherwise
+        // childTop is used to align the vertical position of the children views.
+        int childBottom = height - mPaddingBottom;
+        int childTop = mPaddingTop;
+
+        // Used only for RTL layout
+        // Use float to reduce the round error that may happen in when justifyContent ==
+        // SPACE_BETWEEN or SPACE_AROUND
+        float childRight;
+        boolean hasFlexLineBefore = false;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+            if (flexLine.getItemCountNotGone() > 0) {
+                if (hasFlexLineBefore) {
+                    childBottom -= mRowGap;
+                    childTop += mRowGap;
+                }
+                hasFlexLineBefore = true;
+            }
+            if (hasDividerBeforeFlexLine(i)) {
+                childBottom -= mDividerHorizontalHeight;
+                childTop += mDividerHorizontalHeight;
+            }
+            float spaceBetweenItem = 0f;
+            switch (mJustifyContent) {
+                case JUSTIFY_CONTENT_FLEX_START:
+                    childLeft = paddingLeft;
+                    childRight = width - paddingRight;
+                    break;
+                case JUSTIFY_CONTENT_FLEX_END:
+                    childLeft = width - flexLine.mMainSize + paddingRight;
+                    childRight = flexLine.mMainSize - paddingLeft;
+                    break;
+                case JUSTIFY_CONTENT_CENTER:
+                    childLeft = paddingLeft + (width - flexLine.mMainSize) / 2f;
+                    childRight = width - paddingRight - (width - flexLine.mMainSize) / 2f;
+                    break;
+                case JUSTIFY_CONTENT_SPACE_AROUND:
+                    int visibleCount = flexLine.getItemCountNotGone();
+                    if (visibleCount != 0) {
+                        spaceBetweenItem = (width - flexLine.mMainSize)
+                                / (float) visibleCount;
+                    }
+                    childLeft = paddingLeft + spaceBetweenItem / 2f;
+                    childRight = width - paddingRight - spaceBetweenItem / 2f;
+                    break;
+                case JUSTIFY_CONTENT_SPACE_BETWEEN:
+                    childLeft = paddingLeft;
+                    int visibleItem = flexLine.getItemCountNotGone();
+                    float denominator = visibleItem != 1 ? visibleItem - 1 : 1f;
+                    spaceBetweenItem = (width - flexLine.mMainSize) / denominator;
+                    childRight = width - paddingRight;
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Invalid justifyContent is set: " + mJustifyContent);
+            }
+            spaceBetweenItem = Math.max(spaceBetweenItem, 0);
+            int freeSpace = width - flexLine.mMainSize;
+            int visibleItemCount = flexLine.getItemCountNotGone();
+            boolean fixedPointSpacing = mFixedPointDistribution
+                    && (mJustifyContent == JUSTIFY_CONTENT_SPACE_AROUND
+                    || mJustifyContent == JUSTIFY_CONTENT_SPACE_BETWEEN);
+            int spaceBefore = 0;
+            if (fixedPointSpacing) {
+                spaceBetweenItem = 0;
+                spaceBefore = getJustifiedSpaceBefore(freeSpace, visibleItemCount, 0);
+                childLeft = paddingLeft + spaceBefore;
+                childRight = width - paddingRight - spaceBefore;
+            }
+            int visibleIndex = 0;
+
+            boolean hasItemBefore = false;
+            for (int j = 0; j < flexLine.mItemCount; j++) {
+                int itemIndex = getReorderedItemIndex(currentViewIndex);
+                if (itemIndex < 0) {
+                    continue;
+                } else if (mContainer.isFlexItemGone(itemIndex)) {
+                    setChildFrame(currentViewIndex, 0, 0, 0, 0);
+                    currentViewIndex++;
+                    continue;
+                }
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                int measuredWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+                int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+                childLeft += flexItem.getMarginLeft();
+                childRight -= flexItem.getMarginRight();
+                if (hasItemBefore) {
+                    childLeft += mColumnGap;
+                    childRight -= mColumnGap;
+                }
+                hasItemBefore = true;
+                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
+                    childLeft += mDividerVerticalWidth;
+                    childRight -= mDividerVerticalWidth;
+                }
+
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    if (isRtl) {
+                        computeChildFrameHorizontal(currentViewIndex, itemIndex, flexItem,
+                                flexLine, mFlexWrap, mAlignItems,
+                                Math.round(childRight) - measuredWidth,
+                                childBottom - measuredHeight, Math.round(childRight),
+                                childBottom);
+                    } else {
+                        computeChildFrameHorizontal(currentViewIndex, itemIndex, flexItem,
+                                flexLine, mFlexWrap, mAlignItems, Math.round(childLeft),
+                                childBottom - measuredHeight,
+                                Math.round(childLeft) + measuredWidth, childBottom);
+                    }
+                } else {
+                    if (isRtl) {
+                        computeChildFrameHorizontal(currentViewIndex, itemIndex, flexItem,
+                                flexLine, mFlexWrap, mAlignItems,
+                                Math.round(childRight) - measuredWidth, childTop,
+                                Math.round(childRight), childTop + measuredHeight);
+                    } else {
+                        computeChildFrameHorizontal(currentViewIndex, itemIndex, flexItem,
+                                flexLine, mFlexWrap, mAlignItems, Math.round(childLeft), childTop,
+                                Math.round(childLeft) + measuredWidth, childTop + measuredHeight);
+                    }
+                }
+                childLeft += measuredWidth + spaceBetweenItem + flexItem.getMarginRight();
+                childRight -= measuredWidth + spaceBetweenItem + flexItem.getMarginLeft();
+                if (fixedPointSpacing) {
+                    int nextSpaceBefore = getJustifiedSpaceBefore(freeSpace, visibleItemCount,
+                            visibleIndex + 1);
+                    childLeft += nextSpaceBefore - spaceBefore;
+                    childRight -= nextSpaceBefore - spaceBefore;
+                    spaceBefore = nextSpaceBefore;
+                }
+                visibleIndex++;
+                updateFlexLineBounds(flexLine, currentViewIndex, flexItem);
+                currentViewIndex++;
+            }
+            childTop += flexLine.mCrossSize;
+            childBottom -= flexLine.mCrossSize;
+        }
+    }
+
+    /**
+     * Returns the offset of a visible flex item along the main axis from the position it would
+     * have without the free space, when the flex line is justified by
+     * {@link #JUSTIFY_CONTENT_SPACE_AROUND} or {@link #JUSTIFY_CONTENT_SPACE_BETWEEN} with the
+     * fixed-point distribution. Each offset is rounded on its own, thus the rounding errors
+     * don't accumulate along the flex line.
+     *
+     * @param freeSpace    the free space of the flex line along the main axis
+     * @param visibleCount the number of the visible flex items in the flex line
+     * @param visibleIndex the index of the flex item among the visible flex items
+     */
+    private int getJustifiedSpaceBefore(int freeSpace, int visibleCount, int visibleIndex) {
+        if (mJustifyContent == JUSTIFY_CONTENT_SPACE_AROUND) {
+            if (visibleCount == 0) {
+                return 0;
+            }
+            if (freeSpace < 0) {
+                // Only the space before the first flex item is taken, as with the float spacing
+                return divideRounded(freeSpace, 2L * visibleCount);
+            }
+            return divideRounded((long) freeSpace * (2 * visibleIndex + 1), 2L * visibleCount);
+        }
+        if (freeSpace <= 0 || visibleCount <= 1) {
+            return 0;
+        }
+        return divideRounded((long) freeSpace * visibleIndex, visibleCount - 1);
+    }
+
+    /**
+     * Compute the frame of a single flex item when the layout direction is horizontal
+     * ({@link #mFlexDirection} is either {@link #FLEX_DIRECTION_ROW} or
+     * {@link #FLEX_DIRECTION_ROW_REVERSE}) and store it in the {@link #mChildFrames}.
+     *
+     * @param index      the reordered index of the flex item
+     * @param itemIndex  the index of the flex item in the {@link FlexContainer}
+     * @param flexItem   the attributes of the flex item
+     * @param flexLine   the {@link FlexLine} where the flex item belongs to
+     * @param flexWrap   the flex wrap attribute of this flex container
+     * @param alignItems the align items attribute of this flex container
+     * @param left       the left position of the flex item, which the flex item's margin is
+     *                   already taken into account
+     * @param top        the top position of the flex line where the flex item belongs to. The
+     *                   actual flex item's top position is shifted depending on the flexWrap and
+     *                   alignItems attributes
+     * @param right      the right position of the flex item, which the flex item's margin is
+     *                   already taken into account
+     * @param bottom     the bottom position of the flex line where the flex item belongs to. The
+     *                   actual flex item's bottom position is shifted depending on the flexWrap
+     *                   and alignItems attributes
+     * @see #getAlignItems()
+     * @see #setAlignItems(int)
+     * @see FlexItem#getAlignSelf()
+     */
+    private void computeChildFrameHorizontal(int index, int itemIndex, FlexItem flexItem,
+            FlexLine flexLine, int flexWrap, int alignItems, int left, int top, int right,
+            int bottom) {
+        if (flexItem.getAlignSelf() != FlexItem.ALIGN_SELF_AUTO) {
+            // Expecting the values for alignItems and alignSelf match except for ALIGN_SELF_AUTO.
+            // Assigning the alignSelf value as alignItems should work.
+            alignItems = flexItem.getAlignSelf();
+        }
+        int crossSize = flexLine.mCrossSize;
+        int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+        switch (alignItems) {
+            case ALIGN_ITEMS_FLEX_START: // Intentional fall through
+            case ALIGN_ITEMS_STRETCH:
+                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                    setChildFrame(index, left, top + flexItem.getMarginTop(), right,
+                            bottom + flexItem.getMarginTop());
+                } else {
+                    setChildFrame(index, left, top - flexItem.getMarginBottom(), right,
+                            bottom - flexItem.getMarginBottom());
+                }
+                break;
+            case ALIGN_ITEMS_BASELINE:
+                int baseline = mContainer.getBaselineOfFlexItem(itemIndex);
+                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                    int marginTop = flexLine.mMaxBaseline - baseline;
+                    marginTop = Math.max(marginTop, flexItem.getMarginTop());
+                    setChildFrame(index, left, top + marginTop, right, bottom + marginTop);
+                } else {
+                    int marginBottom = flexLine.mMaxBaseline - measuredHeight + baseline;
+                    marginBottom = Math.max(marginBottom, flexItem.getMarginBottom());
+                    setChildFrame(index, left, top - marginBottom, right, bottom - marginBottom);
+                }
+                break;
+            case ALIGN_ITEMS_FLEX_END:
+                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                    setChildFrame(index, left,
+                            top + crossSize - measuredHeight - flexItem.getMarginBottom(),
+                            right, top + crossSize - flexItem.getMarginBottom());
+                } else {
+                    // If the flexWrap == FLEX_WRAP_WRAP_REVERSE, the direction of the
+                    // flexEnd is flipped (from top to bottom).
+                    setChildFrame(index, left,
+                            top - crossSize + measuredHeight + flexItem.getMarginTop(),
+                            right, bottom - crossSize + measuredHeight + flexItem.getMarginTop());
+                }
+                break;
+            case ALIGN_ITEMS_CENTER:
+                int topFromCrossAxis = (crossSize - measuredHeight
+                        + flexItem.getMarginTop() - flexItem.getMarginBottom()) / 2;
+                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
+                    setChildFrame(index, left, top + topFromCrossAxis,
+                            right, top + topFromCrossAxis + measuredHeight);
+                } else {
+                    setChildFrame(index, left, top - topFromCrossAxis,
+                            right, top - topFromCrossAxis + measuredHeight);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Sub method for {@link #layout(int, int, int, int, boolean)} when the
+     * {@link #mFlexDirection} is either {@link #FLEX_DIRECTION_COLUMN} or
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}.
+     *
+     * @param isRtl           {@code true} if the horizontal layout direction is right to left,
+     *                        {@code false}
+     *                        otherwise
+     * @param fromBottomToTop {@code true} if the layout direction is bottom to top, {@code false}
+     *                        otherwise
+     * @param left            the left position of the flex container
+     * @param top             the top position of the flex container
+     * @param right           the right position of the flex container
+     * @param bottom          the bottom position of the flex container
+     * @see #getFlexWrap()
+     * @see #setFlexWrap(int)
+     * @see #getJustifyContent()
+     * @see #setJustifyContent(int)
+     * @see #getAlignItems()
+     * @see #setAlignItems(int)
+     * @see FlexItem#getAlignSelf()
+     */
+    private void layoutVertical(boolean isRtl, boolean fromBottomToTop, int left, int top,
+            int right, int bottom) {
+        updateNonDummyFlexLineRange();
+        int paddingTop = mPaddingTop;
+        int paddingBottom = mPaddingBottom;
+
+        int paddingRight = mPaddingRight;
+        int childLeft = mPaddingLeft;
+        int currentViewIndex = 0;
+
+        int width = right - left;
+        int height = bottom - top;
+        // childRight is used if the mFlexWrap is FLEX_WRAP_WRAP_REVERSE otherwise
+        // childLeft is used to align the horizontal position of the children views.
+        int childRight = width - paddingRight;
+
+        // Use float to reduce the round error that may happen in when justifyContent ==
+        // SPACE_BETWEEN or SPACE_AROUND
+        float childTop;
+
+        // Used only for if the direction is from bottom to top
+        float childBottom;
+
+        boolean hasFlexLineBefore = false;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+            if (flexLine.getItemCountNotGone() > 0) {
+                if (hasFlexLineBefore) {
+                    childLeft += mColumnGap;
+                    childRight -= mColumnGap;
+                }
+                hasFlexLineBefore = true;
+            }
+            if (hasDividerBeforeFlexLine(i)) {
+                childLeft += mDividerVerticalWidth;
+                childRight -= mDividerVerticalWidth;
+            }
+            float spaceBetweenItem = 0f;
+            switch (mJustifyContent) {
+                case JUSTIFY_CONTENT_FLEX_START:
+                    childTop = paddingTop;
+                    childBottom = height - paddingBottom;
+                    break;
+                case JUSTIFY_CONTENT_FLEX_END:
+                    childTop = height - flexLine.mMainSize + paddingBottom;
+                    childBottom = flexLine.mMainSize - paddingTop;
+                    break;
+                case JUSTIFY_CONTENT_CENTER:
+                    childTop = paddingTop + (height - flexLine.mMainSize) / 2f;
+                    childBottom = height - paddingBottom - (height - flexLine.mMainSize) / 2f;
+                    break;
+                case JUSTIFY_CONTENT_SPACE_AROUND:
+                    int visibleCount = flexLine.getItemCountNotGone();
+                    if (visibleCount != 0) {
+                        spaceBetweenItem = (height - flexLine.mMainSize)
+                                / (float) visibleCount;
+                    }
+                    childTop = paddingTop + spaceBetweenItem / 2f;
+                    childBottom = height - paddingBottom - spaceBetweenItem / 2f;
+                    break;
+                case JUSTIFY_CONTENT_SPACE_BETWEEN:
+                    childTop = paddingTop;
+                    int visibleItem = flexLine.getItemCountNotGone();
+                    float denominator = visibleItem != 1 ? visibleItem - 1 : 1f;
+                    spaceBetweenItem = (height - flexLine.mMainSize) / denominator;
+                    childBottom = height - paddingBottom;
+                    break;
+                default:
+                    throw new IllegalStateException(
+                            "Invalid justifyContent is set: " + mJustifyContent);
+            }
+            spaceBetweenItem = Math.max(spaceBetweenItem, 0);
+            int freeSpace = height - flexLine.mMainSize;
+            int visibleItemCount = flexLine.getItemCountNotGone();
+            boolean fixedPointSpacing = mFixedPointDistribution
+                    && (mJustifyContent == JUSTIFY_CONTENT_SPACE_AROUND
+                    || mJustifyContent == JUSTIFY_CONTENT_SPACE_BETWEEN);
+            int spaceBefore = 0;
+            if (fixedPointSpacing) {
+                spaceBetweenItem = 0;
+                spaceBefore = getJustifiedSpaceBefore(freeSpace, visibleItemCount, 0);
+                childTop = paddingTop + spaceBefore;
+                childBottom = height - paddingBottom - spaceBefore;
+            }
+            int visibleIndex = 0;
+
+            boolean hasItemBefore = false;
+            for (int j = 0; j < flexLine.mItemCount; j++) {
+                int itemIndex = getReorderedItemIndex(currentViewIndex);
+                if (itemIndex < 0) {
+                    continue;
+                } else if (mContainer.isFlexItemGone(itemIndex)) {
+                    setChildFrame(currentViewIndex, 0, 0, 0, 0);
+                    currentViewIndex++;
+                    continue;
+                }
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                int measuredWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+                int measuredHeight = mContainer.getMeasuredHeightOfFlexItem(itemIndex);
+                childTop += flexItem.getMarginTop();
+                childBottom -= flexItem.getMarginBottom();
+                if (hasItemBefore) {
+                    childTop += mRowGap;
+                    childBottom -= mRowGap;
+                }
+                hasItemBefore = true;
+                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
+                    childTop += mDividerHorizontalHeight;
+                    childBottom -= mDividerHorizontalHeight;
+                }
+                if (isRtl) {
+                    if (fromBottomToTop) {
+                        computeChildFrameVertical(currentViewIndex, itemIndex, flexItem, flexLine,
+                                true, mAlignItems, childRight - measuredWidth,
+                                Math.round(childBottom) - measuredHeight, childRight,
+                                Math.round(childBottom));
+                    } else {
+                        computeChildFrameVertical(currentViewIndex, itemIndex, flexItem, flexLine,
+                                true, mAlignItems, childRight - measuredWidth,
+                                Math.round(childTop), childRight,
+                                Math.round(childTop) + measuredHeight);
+                    }
+                } else {
+                    if (fromBottomToTop) {
+                        computeChildFrameVertical(currentViewIndex, itemIndex, flexItem, flexLine,
+                                false, mAlignItems, childLeft,
+                                Math.round(childBottom) - measuredHeight,
+                                childLeft + measuredWidth, Math.round(childBottom));
+                    } else {
+                        computeChildFrameVertical(currentViewIndex, itemIndex, flexItem, flexLine,
+                                false, mAlignItems, childLeft, Math.round(childTop),
+                                childLeft + measuredWidth,
+                                Math.round(childTop) + measuredHeight);
+                    }
+                }
+                childTop += measuredHeight + spaceBetweenItem + flexItem.getMarginBottom();
+                childBottom -= measuredHeight + spaceBetweenItem + flexItem.getMarginTop();
+                if (fixedPointSpacing) {
+                    int nextSpaceBefore = getJustifiedSpaceBefore(freeSpace, visibleItemCount,
+                            visibleIndex + 1);
+                    childTop += nextSpaceBefore - spaceBefore;
+                    childBottom -= nextSpaceBefore - spaceBefore;
+                    spaceBefore = nextSpaceBefore;
+                }
+                visibleIndex++;
+                updateFlexLineBounds(flexLine, currentViewIndex, flexItem);
+                currentViewIndex++;
+            }
+            childLeft += flexLine.mCrossSize;
+            childRight -= flexLine.mCrossSize;
+        }
+    }
+
+    /**
+     * Compute the frame of a single flex item when the layout direction is vertical
+     * ({@link #mFlexDirection} is either {@link #FLEX_DIRECTION_COLUMN} or
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}) and store it in the {@link #mChildFrames}.
+     *
+     * @param index      the reordered index of the flex item
+     * @param itemIndex  the index of the flex item in the {@link FlexContainer}
+     * @param flexItem   the attributes of the flex item
+     * @param flexLine   the {@link FlexLine} where the flex item belongs to
+     * @param isRtl      {@code true} if the layout direction is right to left, {@code false}
+     *                   otherwise
+     * @param alignItems the align items attribute of this flex container
+     * @param left       the left position of the flex line where the flex item belongs to. The
+     *                   actual flex item's left position is shifted depending on the isRtl and
+     *                   alignItems attributes
+     * @param top        the top position of the flex item, which the flex item's margin is
+     *                   already taken into account
+     * @param right      the right position of the flex line where the flex item belongs to. The
+     *                   actual flex item's right position is shifted depending on the isRtl and
+     *                   alignItems attributes
+     * @param bottom     the bottom position of the flex item, which the flex item's margin is
+     *                   already taken into account
+     * @see #getAlignItems()
+     * @see #setAlignItems(int)
+     * @see FlexItem#getAlignSelf()
+     */
+    private void computeChildFrameVertical(int index, int itemIndex, FlexItem flexItem,
+            FlexLine flexLine, boolean isRtl, int alignItems, int left, int top, int right,
+            int bottom) {
+        if (flexItem.getAlignSelf() != FlexItem.ALIGN_SELF_AUTO) {
+            // Expecting the values for alignItems and alignSelf match except for ALIGN_SELF_AUTO.
+            // Assigning the alignSelf value as alignItems should work.
+            alignItems = flexItem.getAlignSelf();
+        }
+        int crossSize = flexLine.mCrossSize;
+        int measuredWidth = mContainer.getMeasuredWidthOfFlexItem(itemIndex);
+        switch (alignItems) {
+            case ALIGN_ITEMS_FLEX_START: // Intentional fall through
+            case ALIGN_ITEMS_STRETCH: // Intentional fall through
+            case ALIGN_ITEMS_BASELINE:
+                if (!isRtl) {
+                    setChildFrame(index, left + flexItem.getMarginLeft(), top,
+                            right + flexItem.getMarginLeft(), bottom);
+                } else {
+                    setChildFrame(index, left - flexItem.getMarginRight(), top,
+                            right - flexItem.getMarginRight(), bottom);
+                }
+                break;
+            case ALIGN_ITEMS_FLEX_END:
+                if (!isRtl) {
+                    setChildFrame(index,
+                            left + crossSize - measuredWidth - flexItem.getMarginRight(), top,
+                            right + crossSize - measuredWidth - flexItem.getMarginRight(),
+                            bottom);
+                } else {
+                    // If the flexWrap == FLEX_WRAP_WRAP_REVERSE, the direction of the
+                    // flexEnd is flipped (from left to right).
+                    setChildFrame(index,
+                            left - crossSize + measuredWidth + flexItem.getMarginLeft(), top,
+                            right - crossSize + measuredWidth + flexItem.getMarginLeft(), bottom);
+                }
+                break;
+            case ALIGN_ITEMS_CENTER:
+                // The margin at the start and end sides depend on the layout direction of the
+                // flex container, not the isRtl which is flipped by the flexWrap attribute
+                int marginStart = mLayoutRtl ? flexItem.getMarginRight()
+                        : flexItem.getMarginLeft();
+                int marginEnd = mLayoutRtl ? flexItem.getMarginLeft()
+                        : flexItem.getMarginRight();
+                int leftFromCrossAxis = (crossSize - measuredWidth + marginStart - marginEnd) / 2;
+                if (!isRtl) {
+                    setChildFrame(index, left + leftFromCrossAxis, top, right + leftFromCrossAxis,
+                            bottom);
+                } else {
+                    setChildFrame(index, left - leftFromCrossAxis, top, right - leftFromCrossAxis,
+                            bottom);
+                }
+                break;
+        }
+    }
+
+    /**
+     * @param index the reordered index of the flex item
+     * @return the left position of the flex item relative to the flex container computed in the
+     * last {@link #layout(int, int, int, int, boolean)}
+     */
+    public int getFrameLeft(int index) {
+        return mChildFrames[index * 4];
+    }
+
+    /**
+     * @param index the reordered index of the flex item
+     * @return the top position of the flex item relative to the flex container computed in the
+     * last {@link #layout(int, int, int, int, boolean)}
+     */
+    public int getFrameTop(int index) {
+        return mChildFrames[index * 4 + 1];
+    }
+
+    /**
+     * @param index the reordered index of the flex item
+     * @return the right position of the flex item relative to the flex container computed in
+     * the last {@link #layout(int, int, int, int, boolean)}
+     */
+    public int getFrameRight(int index) {
+        return mChildFrames[index * 4 + 2];
+    }
+
+    /**
+     * @param index the reordered index of the flex item
+     * @return the bottom position of the flex item relative to the flex container computed in
+     * the last {@link #layout(int, int, int, int, boolean)}
+     */
+    public int getFrameBottom(int index) {
+        return mChildFrames[index * 4 + 3];
+    }
+
+    /**
+     * @param index the reordered index of the flex item
+     * @return {@code true} if the frame of the flex item at the index was computed in the last
+     * {@link #layout(int, int, int, int, boolean)}, {@code false} otherwise
+     */
+    public boolean hasFrame(int index) {
+        return mChildFrames != null && index >= 0 && index * 4 < mChildFrames.length
+                && index < mContainer.getFlexItemCount();
+    }
+
+    /**
+     * Compute the bounds of the dividers computed in the last
+     * {@link #layout(int, int, int, int, boolean)}. The computed bounds are available through
+     * {@link #getDividerCount()} and {@link #getDividerFrames()}.
+     */
+    public void computeDividerFrames() {
+        mDividerCount = 0;
+        if (mShowDividerHorizontal == SHOW_DIVIDER_NONE
+                && mShowDividerVertical == SHOW_DIVIDER_NONE) {
+            return;
+        }
+
+        beginTraceSection(TRACE_SECTION_COMPUTE_DIVIDERS);
+        boolean isRtl;
+        boolean fromBottomToTop = false;
+        switch (mFlexDirection) {
+            case FLEX_DIRECTION_ROW:
+                isRtl = mLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    fromBottomToTop = true;
+                }
+                computeDividerFramesHorizontal(isRtl, fromBottomToTop);
+                break;
+            case FLEX_DIRECTION_ROW_REVERSE:
+                isRtl = !mLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    fromBottomToTop = true;
+                }
+                computeDividerFramesHorizontal(isRtl, fromBottomToTop);
+                break;
+            case FLEX_DIRECTION_COLUMN:
+                isRtl = mLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    isRtl = !isRtl;
+                }
+                fromBottomToTop = false;
+                computeDividerFramesVertical(isRtl, fromBottomToTop);
+                break;
+            case FLEX_DIRECTION_COLUMN_REVERSE:
+                isRtl = mLayoutRtl;
+                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
+                    isRtl = !isRtl;
+                }
+                fromBottomToTop = true;
+                computeDividerFramesVertical(isRtl, fromBottomToTop);
+                break;
+        }
+        endTraceSection();
+    }
+
+    /**
+     * Sub method for {@link #computeDividerFrames()} when the main axis direction is horizontal
+     * ({@link #mFlexDirection} is either of {@link #FLEX_DIRECTION_ROW} or
+     * {@link #FLEX_DIRECTION_ROW_REVERSE}.
+     *
+     * @param isRtl           {@code true} when the horizontal layout direction is right to left,
+     *                        {@code false} otherwise
+     * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
+     *                        {@code false} otherwise
+     */
+    private void computeDividerFramesHorizontal(boolean isRtl, boolean fromBottomToTop) {
+        updateNonDummyFlexLineRange();
+        int[] frames = mChildFrames;
+        int currentViewIndex = 0;
+        int paddingLeft = mPaddingLeft;
+        int paddingRight = mPaddingRight;
+        int horizontalDividerLength = Math.max(0, mWidth - paddingRight - paddingLeft);
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+            for (int j = 0; j < flexLine.mItemCount; j++) {
+                int itemIndex = getReorderedItemIndex(currentViewIndex);
+                if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                    continue;
+                }
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                int offset = currentViewIndex * 4;
+
+                // Judge if the beginning or middle divider is needed
+                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
+                    int dividerLeft;
+                    if (isRtl) {
+                        dividerLeft = frames[offset + 2] + flexItem.getMarginRight();
+                    } else {
+                        dividerLeft = frames[offset] - flexItem.getMarginLeft()
+                                - mDividerVerticalWidth;
+                    }
+
+                    addVerticalDividerFrame(dividerLeft, flexLine.mTop, flexLine.mCrossSize);
+                }
+
+                // Judge if the end divider is needed
+                if (j == flexLine.mItemCount - 1) {
+                    if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
+                        int dividerLeft;
+                        if (isRtl) {
+                            dividerLeft = frames[offset] - flexItem.getMarginLeft()
+                                    - mDividerVerticalWidth;
+                        } else {
+                            dividerLeft = frames[offset + 2] + flexItem.getMarginRight();
+                        }
+
+                        addVerticalDividerFrame(dividerLeft, flexLine.mTop, flexLine.mCrossSize);
+                    }
+                }
+                currentViewIndex++;
+            }
+
+            // Judge if the beginning or middle dividers are needed before the flex line
+            if (hasDividerBeforeFlexLine(i)) {
+                int horizontalDividerTop;
+                if (fromBottomToTop) {
+                    horizontalDividerTop = flexLine.mBottom;
+                } else {
+                    horizontalDividerTop = flexLine.mTop - mDividerHorizontalHeight;
+                }
+                addHorizontalDividerFrame(paddingLeft, horizontalDividerTop,
+                        horizontalDividerLength);
+            }
+            // Judge if the end divider is needed before the flex line
+            if (hasEndDividerAfterFlexLine(i)) {
+                if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
+                    int horizontalDividerTop;
+                    if (fromBottomToTop) {
+                        horizontalDividerTop = flexLine.mTop - mDividerHorizontalHeight;
+                    } else {
+                        horizontalDividerTop = flexLine.mBottom;
+                    }
+                    addHorizontalDividerFrame(paddingLeft, horizontalDividerTop,
+                            horizontalDividerLength);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sub method for {@link #computeDividerFrames()} when the main axis direction is vertical
+     * ({@link #mFlexDirection} is either of {@link #FLEX_DIRECTION_COLUMN} or
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}.
+     *
+     * @param isRtl           {@code true} when the horizontal layout direction is right to left,
+     *                        {@code false} otherwise
+     * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
+     *                        {@code false} otherwise
+     */
+    private void computeDividerFramesVertical(boolean isRtl, boolean fromBottomToTop) {
+        updateNonDummyFlexLineRange();
+        int[] frames = mChildFrames;
+        int currentViewIndex = 0;
+        int paddingTop = mPaddingTop;
+        int paddingBottom = mPaddingBottom;
+        int verticalDividerLength = Math.max(0, mHeight - paddingBottom - paddingTop);
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+
+            // Draw horizontal dividers if needed
+            for (int j = 0; j < flexLine.mItemCount; j++) {
+                int itemIndex = getReorderedItemIndex(currentViewIndex);
+                if (itemIndex < 0 || mContainer.isFlexItemGone(itemIndex)) {
+                    continue;
+                }
+                FlexItem flexItem = mContainer.getFlexItemAt(itemIndex);
+                int offset = currentViewIndex * 4;
+
+                // Judge if the beginning or middle divider is needed
+                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
+                    int dividerTop;
+                    if (fromBottomToTop) {
+                        dividerTop = frames[offset + 3] + flexItem.getMarginBottom();
+                    } else {
+                        dividerTop = frames[offset + 1] - flexItem.getMarginTop()
+                                - mDividerHorizontalHeight;
+                    }
+
+                    addHorizontalDividerFrame(flexLine.mLeft, dividerTop, flexLine.mCrossSize);
+                }
+
+                // Judge if the end divider is needed
+                if (j == flexLine.mItemCount - 1) {
+                    if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
+                        int dividerTop;
+                        if (fromBottomToTop) {
+                            dividerTop = frames[offset + 1] - flexItem.getMarginTop()
+                                    - mDividerHorizontalHeight;
+                        } else {
+                            dividerTop = frames[offset + 3] + flexItem.getMarginBottom();
+                        }
+
+                        addHorizontalDividerFrame(flexLine.mLeft, dividerTop,
+                                flexLine.mCrossSize);
+                    }
+                }
+                currentViewIndex++;
+            }
+
+            // Judge if the beginning or middle dividers are needed before the flex line
+            if (hasDividerBeforeFlexLine(i)) {
+                int verticalDividerLeft;
+                if (isRtl) {
+                    verticalDividerLeft = flexLine.mRight;
+                } else {
+                    verticalDividerLeft = flexLine.mLeft - mDividerVerticalWidth;
+                }
+                addVerticalDividerFrame(verticalDividerLeft, paddingTop,
+                        verticalDividerLength);
+            }
+            if (hasEndDividerAfterFlexLine(i)) {
+                if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
+                    int verticalDividerLeft;
+                    if (isRtl) {
+                        verticalDividerLeft = flexLine.mLeft - mDividerVerticalWidth;
+                    } else {
+                        verticalDividerLeft = flexLine.mRight;
+                    }
+                    addVerticalDividerFrame(verticalDividerLeft, paddingTop,
+                            verticalDividerLength);
+                }
+            }
+        }
+    }
+
+    private void addVerticalDividerFrame(int left, int top, int length) {
+        addDividerFrame(DIVIDER_VERTICAL, left, top, left + mDividerVerticalWidth, top + length);
+    }
+
+    private void addHorizontalDividerFrame(int left, int top, int length) {
+        addDividerFrame(DIVIDER_HORIZONTAL, left, top, left + length,
+                top + mDividerHorizontalHeight);
+    }
+
+    private void addDividerFrame(int type, int left, int top, int right, int bottom) {
+        int offset = mDividerCount * DIVIDER_FRAME_SIZE;
+        if (mDividerFrames == null || mDividerFrames.length < offset + DIVIDER_FRAME_SIZE) {
+            int[] newFrames = new int[Math.max(offset * 2, DIVIDER_FRAME_SIZE * 8)];
+            if (mDividerFrames != null) {
+                System.arraycopy(mDividerFrames, 0, newFrames, 0, offset);
+            }
+            mDividerFrames = newFrames;
+        }
+        mDividerFrames[offset] = type;
+        mDividerFrames[offset + 1] = left;
+        mDividerFrames[offset + 2] = top;
+        mDividerFrames[offset + 3] = right;
+        mDividerFrames[offset + 4] = bottom;
+        mDividerCount++;
+    }
+
+    /**
+     * @return the number of the dividers computed in the last {@link #computeDividerFrames()}
+     */
+    public int getDividerCount() {
+        return mDividerCount;
+    }
+
+    /**
+     * Returns the bounds of the dividers computed in the last {@link #computeDividerFrames()}.
+     * Each divider occupies {@link #DIVIDER_FRAME_SIZE} consecutive elements, which are the type
+     * of the divider ({@link #DIVIDER_VERTICAL} or {@link #DIVIDER_HORIZONTAL}) followed by its
+     * left, top, right and bottom. The returned array is owned by this engine and may be longer
+     * than {@link #getDividerCount()} multiplied by {@link #DIVIDER_FRAME_SIZE}.
+     *
+     * @return the array holding the bounds of the dividers
+     */
+    public int[] getDividerFrames() {
+        return mDividerFrames;
+    }
+
+    /**
+     * Check if a divider is needed before the flex item whose indices are passed as arguments.
+     *
+     * @param childAbsoluteIndex           the absolute index of the flex item to be judged
+     * @param childRelativeIndexInFlexLine the relative index in the flex line where the flex item
+     *                                     belongs
+     * @return {@code true} if a divider is needed, {@code false} otherwise
+     */
+    private boolean hasDividerBeforeChildAtAlongMainAxis(int childAbsoluteIndex,
+            int childRelativeIndexInFlexLine) {
+        int showDivider = isMainAxisDirectionHorizontal(mFlexDirection) ? mShowDividerVertical
+                : mShowDividerHorizontal;
+        if ((showDivider & (SHOW_DIVIDER_BEGINNING | SHOW_DIVIDER_MIDDLE)) == 0) {
+            // No need to look up the preceding flex items
+            return false;
+        }
+        if (allViewsAreGoneBefore(childAbsoluteIndex, childRelativeIndexInFlexLine)) {
+            return (showDivider & SHOW_DIVIDER_BEGINNING) != 0;
+        } else {
+            return (showDivider & SHOW_DIVIDER_MIDDLE) != 0;
+        }
+    }
+
+    private boolean allViewsAreGoneBefore(int childAbsoluteIndex,
+            int childRelativeIndexInFlexLine) {
+        for (int i = 1; i <= childRelativeIndexInFlexLine; i++) {
+            int itemIndex = getReorderedItemIndex(childAbsoluteIndex - i);
+            if (itemIndex >= 0 && !mContainer.isFlexItemGone(itemIndex)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a divider is needed before the flex line whose index is passed as an argument.
+     *
+     * @param flexLineIndex the index of the flex line to be checked
+     * @return {@code true} if a divider is needed, {@code false} otherwise
+     */
+    private boolean hasDividerBeforeFlexLine(int flexLineIndex) {
+        if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
+            return false;
+        }
+        int showDivider = isMainAxisDirectionHorizontal(mFlexDirection) ? mShowDividerHorizontal
+                : mShowDividerVertical;
+        if ((showDivider & (SHOW_DIVIDER_BEGINNING | SHOW_DIVIDER_MIDDLE)) == 0) {
+            // No need to look up the preceding flex lines
+            return false;
+        }
+        if (allFlexLinesAreDummyBefore(flexLineIndex)) {
+            return (showDivider & SHOW_DIVIDER_BEGINNING) != 0;
+        } else {
+            return (showDivider & SHOW_DIVIDER_MIDDLE) != 0;
+        }
+    }
+
+    private boolean allFlexLinesAreDummyBefore(int flexLineIndex) {
+        return mFirstNonDummyFlexLine < 0 || mFirstNonDummyFlexLine >= flexLineIndex;
+    }
+
+    /**
+     * Updates {@link #mFirstNonDummyFlexLine} and {@link #mLastNonDummyFlexLine} from the current
+     * flex lines. Needs to be called before {@link #hasDividerBeforeFlexLine(int)} or
+     * {@link #hasEndDividerAfterFlexLine(int)} is used for the flex lines.
+     */
+    private void updateNonDummyFlexLineRange() {
+        mFirstNonDummyFlexLine = -1;
+        mLastNonDummyFlexLine = -1;
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
+                if (mFirstNonDummyFlexLine < 0) {
+                    mFirstNonDummyFlexLine = i;
+                }
+                mLastNonDummyFlexLine = i;
+            }
+        }
+    }
+
+    /**
+     * Check if a end divider is needed after the flex line whose index is passed as an argument.
+     *
+     * @param flexLineIndex the index of the flex line to be checked
+     * @return {@code true} if a divider is needed, {@code false} otherwise
+     */
+    private boolean hasEndDividerAfterFlexLine(int flexLineIndex) {
+        if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
+            return false;
+        }
+        int showDivider = isMainAxisDirectionHorizontal(mFlexDirection) ? mShowDividerHorizontal
+                : mShowDividerVertical;
+        if ((showDivider & SHOW_DIVIDER_END) == 0) {
+            // No need to look up the following flex lines
+            return false;
+        }
+        return mLastNonDummyFlexLine <= flexLineIndex;
+    }
+
+    /**
+     * @return the flex lines computed in the last measurement including dummy flex lines (flex
+     * lines that don't have any flex items in it but used for the alignment along the cross axis).
+     * The returned list is owned by this engine.
+     */
+    List<FlexLine> getFlexLinesInternal() {
+        return mFlexLines;
+    }
+
+    /**
+     * @return the flex lines composing this flex container. This method returns copies of the
+     * original flex lines excluding a dummy flex line (flex line that doesn't have any flex items
+     * in it but used for the alignment along the cross axis).
+     * Thus any changes of the returned list are not reflected to the original list, and the
+     * returned flex lines aren't changed by the following measure passes.
+     */
+    public List<FlexLine> getFlexLines() {
+        List<FlexLine> result = new ArrayList<>(mFlexLines.size());
+        for (FlexLine flexLine : mFlexLines) {
+            if (flexLine.getItemCountNotGone() == 0) {
+                continue;
+            }
+            result.add(new FlexLine(flexLine));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of flex lines composing this flex container. Dummy flex lines (flex
+     * lines that don't have any flex items in it but used for the alignment along the cross axis)
+     * are not counted. Unlike {@link #getFlexLines()}, this method doesn't allocate any objects.
+     *
+     * @return the number of flex lines excluding dummy flex lines
+     * @see #getFlexLineAt(int)
+     */
+    public int getFlexLineCount() {
+        if (mNonDummyFlexLineCount < 0) {
+            indexNonDummyFlexLines();
+        }
+        return mNonDummyFlexLineCount;
+    }
+
+    /**
+     * Returns the flex line at the specified position without copying the internal list of
+     * flex lines. The index is the same as the index of the list returned by
+     * {@link #getFlexLines()}.
+     * Note that the returned flex line is the one used by this engine, thus its values are
+     * updated in the next measurement and layout.
+     *
+     * @param index the index of the flex line, dummy flex lines are not taken into account
+     * @return the flex line at the specified position, or {@code null} if the index is negative
+     * or out of bounds of the number of flex lines
+     * @see #getFlexLineCount()
+     */
+    public FlexLine getFlexLineAt(int index) {
+        if (index < 0 || index >= getFlexLineCount()) {
+            return null;
+        }
+        return mFlexLines.get(mNonDummyFlexLines[index]);
+    }
+
+    private void indexNonDummyFlexLines() {
+        int size = mFlexLines.size();
+        if (mNonDummyFlexLines.length < size) {
+            mNonDummyFlexLines = new int[size];
+        }
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
+                mNonDummyFlexLines[count++] = i;
+            }
+        }
+        mNonDummyFlexLineCount = count;
+    }
+
+    public int getFlexDirection() {
+        return mFlexDirection;
+    }
+
+    public void setFlexDirection(int flexDirection) {
+        mFlexDirection = flexDirection;
+    }
+
+    public int getFlexWrap() {
+        return mFlexWrap;
+    }
+
+    public void setFlexWrap(int flexWrap) {
+        mFlexWrap = flexWrap;
+    }
+
+    public int getJustifyContent() {
+        return mJustifyContent;
+    }
+
+    public void setJustifyContent(int justifyContent) {
+        mJustifyContent = justifyContent;
+    }
+
+    public int getAlignItems() {
+        return mAlignItems;
+    }
+
+    public void setAlignItems(int alignItems) {
+        mAlignItems = alignItems;
+    }
+
+    public int getAlignContent() {
+        return mAlignContent;
+    }
+
+    public void setAlignContent(int alignContent) {
+        mAlignContent = alignContent;
+    }
+
+    public int getShowDividerHorizontal() {
+        return mShowDividerHorizontal;
+    }
+
+    /**
+     * Set how horizontal dividers should be shown between flex lines or flex items.
+     *
+     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
+     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
+     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
+     */
+    public void setShowDividerHorizontal(int dividerMode) {
+        mShowDividerHorizontal = dividerMode;
+    }
+
+    public int getShowDividerVertical() {
+        return mShowDividerVertical;
+    }
+
+    /**
+     * Set how vertical dividers should be shown between flex items or flex lines.
+     *
+     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
+     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
+     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
+     */
+    public void setShowDividerVertical(int dividerMode) {
+        mShowDividerVertical = dividerMode;
+    }
+
+    public int getDividerHorizontalHeight() {
+        return mDividerHorizontalHeight;
+    }
+
+    /**
+     * @param dividerHorizontalHeight the height in pixels of the horizontal dividers
+     */
+    public void setDividerHorizontalHeight(int dividerHorizontalHeight) {
+        mDividerHorizontalHeight = dividerHorizontalHeight;
+    }
+
+    public int getDividerVerticalWidth() {
+        return mDividerVerticalWidth;
+    }
+
+    /**
+     * @param dividerVerticalWidth the width in pixels of the vertical dividers
+     */
+    public void setDividerVerticalWidth(int dividerVerticalWidth) {
+        mDividerVerticalWidth = dividerVerticalWidth;
+    }
+
+    public int getColumnGap() {
+        return mColumnGap;
+    }
+
+    /**
+     * @param columnGap the length of the gap in pixels between horizontally adjacent flex items
+     *                  (or flex lines when the flex direction is vertical)
+     */
+    public void setColumnGap(int columnGap) {
+        mColumnGap = columnGap;
+    }
+
+    public int getRowGap() {
+        return mRowGap;
+    }
+
+    /**
+     * @param rowGap the length of the gap in pixels between vertically adjacent flex lines
+     *               (or flex items when the flex direction is vertical)
+     */
+    public void setRowGap(int rowGap) {
+        mRowGap = rowGap;
+    }
+
+    public boolean isFixedPointDistribution() {
+        return mFixedPointDistribution;
+    }
+
+    /**
+     * Sets whether the free space is distributed with integer arithmetic instead of float
+     * arithmetic, i.e. the space the flex items take when they are expanded or shrunk, the space
+     * the flex lines take when alignContent is stretch or space_between and the space between the
+     * flex items when justifyContent is space_around or space_between.
+     *
+     * <p>The flexGrow and flexShrink attributes are converted to fixed-point values with 16
+     * fraction bits and the free space is split among the flex items by the cumulative sums of
+     * those values, rounded once per flex item. Thus the results are the same for the same inputs
+     * on any JVM and don't depend on the order of the float operations, which makes them suitable
+     * for caching and for comparing with a layout computed elsewhere. The results can differ from
+     * the float distribution by a pixel. The sum of the flexGrow (or flexShrink) attributes in a
+     * flex line needs to be less than 2^23.</p>
+     *
+     * @param fixedPointDistribution {@code true} to use integer arithmetic, {@code false} to use
+     *                               float arithmetic, which is the default
+     */
+    public void setFixedPointDistribution(boolean fixedPointDistribution) {
+        mFixedPointDistribution = fixedPointDistribution;
+    }
+
+    public int getJustifiedRowHeight() {
+        return mJustifiedRowHeight;
+    }
+
+    /**
+     * Sets the justified rows mode, in which every row fills the width of the flex container and
+     * its height is the one which makes the aspect ratios of its flex items fit, like a photo
+     * gallery. The row breaks and the row heights are computed in a single pass of arithmetic
+     * over the {@link FlexItem#getAspectRatio()} of the flex items, aiming at the specified row
+     * height, and then each flex item is measured once with its final size. A flex item without
+     * the aspect ratio is sized by the ratio of its fixed width and height, or as a square if
+     * they aren't fixed.
+     *
+     * <p>The mode takes effect only if the flex direction is row or row_reverse and the width of
+     * the flex container isn't unspecified, otherwise the flex items are laid out as usual. The
+     * rows wrap regardless of the flex wrap attribute. The flexGrow, flexShrink, flexBasisPercent,
+     * minimum and maximum sizes of the flex items aren't taken into account.</p>
+     *
+     * @param justifiedRowHeight the height in pixels the rows are aimed at, or 0 to turn the mode
+     *                           off, which is the default
+     */
+    public void setJustifiedRowHeight(int justifiedRowHeight) {
+        mJustifiedRowHeight = justifiedRowHeight;
+    }
+
+    /**
+     * Sets the padding of the flex container, which is taken into account in the measurement and
+     * the layout.
+     */
+    public void setPadding(int left, int top, int right, int bottom) {
+        mPaddingLeft = left;
+        mPaddingTop = top;
+        mPaddingRight = right;
+        mPaddingBottom = bottom;
+    }
+
+    int getPaddingLeft() {
+        return mPaddingLeft;
+    }
+
+    int getPaddingTop() {
+        return mPaddingTop;
+    }
+
+    int getPaddingRight() {
+        return mPaddingRight;
+    }
+
+    int getPaddingBottom() {
+        return mPaddingBottom;
+    }
+
+    FlexContainer getContainer() {
+        return mContainer;
+    }
+
+    /**
+     * Writes the results of the last {@link #measure(int, int)} and
+     * {@link #layout(int, int, int, int, boolean)}, i.e. the measured size of the flex container,
+     * the flex lines including the dummy ones and the frames of the flex items, so that
+     * {@link #readLayout(DataInputStream)} can restore them without running the flex algorithm.
+     */
+    void writeLayout(DataOutputStream out) throws IOException {
+        int childCount = mContainer.getFlexItemCount();
+        out.writeInt(mMeasuredWidthAndState);
+        out.writeInt(mMeasuredHeightAndState);
+        out.writeInt(mFlexLines.size());
+        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
+            FlexLine flexLine = mFlexLines.get(i);
+            out.writeInt(flexLine.mLeft);
+            out.writeInt(flexLine.mTop);
+            out.writeInt(flexLine.mRight);
+            out.writeInt(flexLine.mBottom);
+            out.writeInt(flexLine.mMainSize);
+            out.writeInt(flexLine.mDividerLengthInMainSize);
+            out.writeInt(flexLine.mCrossSize);
+            out.writeInt(flexLine.mItemCount);
+            out.writeInt(flexLine.mGoneItemCount);
+            out.writeFloat(flexLine.mTotalFlexGrow);
+            out.writeFloat(flexLine.mTotalFlexShrink);
+            out.writeInt(flexLine.mMaxBaseline);
+        }
+        out.writeInt(childCount);
+        for (int i = 0, length = childCount * 4; i < length; i++) {
+            out.writeInt(mChildFrames[i]);
+        }
+    }
+
+    /**
+     * Restores the results written by {@link #writeLayout(DataOutputStream)} in place of
+     * {@link #measure(int, int)}. The flex items are not measured, thus the caller is
+     * responsible for measuring them to the sizes of the restored frames before calling
+     * {@link #layout(int, int, int, int, boolean)}.
+     *
+     * @return {@code true} if the results are restored, {@code false} if they were written for
+     * a different number of flex items, in which case nothing is changed
+     * @throws IOException if the results are corrupted, in which case nothing is changed either
+     */
+    boolean readLayout(DataInputStream in) throws IOException {
+        int measuredWidthAndState = in.readInt();
+        int measuredHeightAndState = in.readInt();
+        int flexLineCount = in.readInt();
+        // Bounded by the rest of the entry before allocating, since a corrupted count may be
+        // negative or too large to allocate
+        if (flexLineCount < 0 || flexLineCount > in.available() / (12 * 4)) {
+            throw new IOException("Invalid number of the flex lines: " + flexLineCount);
+        }
+        int[] flexLineValues = new int[flexLineCount * 12];
+        for (int i = 0; i < flexLineValues.length; i++) {
+            flexLineValues[i] = in.readInt();
+        }
+        int childCount = in.readInt();
+        if (childCount != mContainer.getFlexItemCount()) {
+            return false;
+        }
+        if (childCount > in.available() / (4 * 4)) {
+            throw new IOException("Truncated frames of the flex items: " + childCount);
+        }
+        if (mOrderInvalidated || isOrderChangedFromLastMeasurement()) {
+            reorderFlexItems();
+        }
+        if (mChildFrames == null || mChildFrames.length < childCount * 4) {
+            mChildFrames = new int[childCount * 4];
+        }
+        for (int i = 0, length = childCount * 4; i < length; i++) {
+            mChildFrames[i] = in.readInt();
+        }
+
+        mFlexLines.clear();
+        mFlexLinePoolUsed = 0;
+        for (int i = 0; i < flexLineCount; i++) {
+            FlexLine flexLine = obtainFlexLine();
+            int offset = i * 12;
+            flexLine.mLeft = flexLineValues[offset];
+            flexLine.mTop = flexLineValues[offset + 1];
+            flexLine.mRight = flexLineValues[offset + 2];
+            flexLine.mBottom = flexLineValues[offset + 3];
+            flexLine.mMainSize = flexLineValues[offset + 4];
+            flexLine.mDividerLengthInMainSize = flexLineValues[offset + 5];
+            flexLine.mCrossSize = flexLineValues[offset + 6];
+            flexLine.mItemCount = flexLineValues[offset + 7];
+            flexLine.mGoneItemCount = flexLineValues[offset + 8];
+            flexLine.mTotalFlexGrow = Float.intBitsToFloat(flexLineValues[offset + 9]);
+            flexLine.mTotalFlexShrink = Float.intBitsToFloat(flexLineValues[offset + 10]);
+            flexLine.mMaxBaseline = flexLineValues[offset + 11];
+            mFlexLines.add(flexLine);
+        }
+        mNonDummyFlexLineCount = -1;
+        mMeasuredWidthAndState = measuredWidthAndState;
+        mMeasuredHeightAndState = measuredHeightAndState;
+        mRemeasureCount = 0;
+        mReexpanded = false;
+        mReshrunk = false;
+        return true;
+    }
+
+    /**
+     * @return the number of the measurements of the flex items in the last
+     * {@link #measure(int, int)} other than the first measurement of each flex item, e.g. the
+     * measurements to expand, shrink or stretch the flex items
+     */
+    public int getRemeasureCount() {
+        return mRemeasureCount;
+    }
+
+    /**
+     * @return {@code true} if the positive free space of any flex line had to be distributed
+     * again in the last {@link #measure(int, int)} because some flex items reached their maximum
+     * main sizes
+     */
+    public boolean hasReexpanded() {
+        return mReexpanded;
+    }
+
+    /**
+     * @return {@code true} if the negative free space of any flex line had to be distributed
+     * again in the last {@link #measure(int, int)} because some flex items reached their minimum
+     * main sizes
+     */
+    public boolean hasReshrunk() {
+        return mReshrunk;
+    }
+
+    /**
+     * @return the {@link MeasureCounter} tallying the measurements of the flex items, or
+     * {@code null} if not set
+     */
+    public MeasureCounter getMeasureCounter() {
+        return mMeasureCounter;
+    }
+
+    /**
+     * Sets the {@link MeasureCounter} which tallies the measurements of the flex items made in
+     * the following measure passes. Pass {@code null} to stop counting.
+     *
+     * @param measureCounter the counter, or {@code null}
+     */
+    public void setMeasureCounter(MeasureCounter measureCounter) {
+        mMeasureCounter = measureCounter;
+    }
+
+    /**
+     * @return the {@link LayoutRecorder} set by {@link #setLayoutRecorder(LayoutRecorder)}, or
+     * {@code null} if not set
+     */
+    public LayoutRecorder getLayoutRecorder() {
+        return mLayoutRecorder;
+    }
+
+    /**
+     * Sets the {@link LayoutRecorder} which records the inputs of the following measure passes.
+     * Pass {@code null} to stop recording.
+     *
+     * @param layoutRecorder the recorder, or {@code null}
+     */
+    public void setLayoutRecorder(LayoutRecorder layoutRecorder) {
+        mLayoutRecorder = layoutRecorder;
+    }
+
+    /**
+     * Sets the {@link Tracer} which receives the beginning and the end of each phase of the
+     * following measure and layout passes. The name of each section consists of the label, the
+     * phase and the number of the flex items, e.g. "FlexboxLayout stretch (12)".
+     *
+     * @param tracer the tracer, or {@code null} to stop tracing
+     * @param label  the label identifying the flex container in the names of the sections
+     */
+    public void setTracer(Tracer tracer, String label) {
+        mTracer = tracer;
+        if (label == null ? mTraceLabel != null : !label.equals(mTraceLabel)) {
+            mTraceLabel = label;
+            mTraceSectionItemCount = -1;
+        }
+    }
+
+    /**
+     * Begins the trace section if the {@link Tracer} is set. Each call must be followed by
+     * {@link #endTraceSection()}.
+     *
+     * @param section one of the TRACE_SECTION_ constants
+     */
+    void beginTraceSection(int section) {
+        if (mTracer == null) {
+            return;
+        }
+        int itemCount = mContainer.getFlexItemCount();
+        if (itemCount != mTraceSectionItemCount) {
+            Arrays.fill(mTraceSectionNames, null);
+            mTraceSectionItemCount = itemCount;
+        }
+        String name = mTraceSectionNames[section];
+        if (name == null) {
+            name = mTraceLabel + " " + TRACE_SECTION_NAMES[section] + " (" + itemCount + ")";
+            mTraceSectionNames[section] = name;
+        }
+        mTracer.beginSection(name);
+    }
+
+    /**
+     * Ends the trace section begun by the last {@link #beginTraceSection(int)}.
+     */
+    void endTraceSection() {
+        if (mTracer != null) {
+            mTracer.endSection();
+        }
+    }
+
+    /**
+     * The same as {@code android.view.ViewGroup#getChildMeasureSpec(int, int, int)} for the
+     * applications targeting API level 23 or higher.
+     *
+     * @param spec           the requirements for the flex container
+     * @param padding        the padding of the flex container and the margins of the flex item
+     * @param childDimension how big the flex item wants to be in the current dimension
+     * @return a MeasureSpec for the flex item
+     */
+    public static int getChildMeasureSpec(int spec, int padding, int childDimension) {
+        int specMode = MeasureSpec.getMode(spec);
+        int specSize = MeasureSpec.getSize(spec);
+
+        int size = Math.max(0, specSize - padding);
+
+        int resultSize = 0;
+        int resultMode = 0;
+
+        switch (specMode) {
+            // Parent has imposed an exact size on us
+            case MeasureSpec.EXACTLY:
+                if (childDimension >= 0) {
+                    resultSize = childDimension;
+                    resultMode = MeasureSpec.EXACTLY;
+                } else if (childDimension == FlexItem.MATCH_PARENT) {
+                    // Child wants to be our size. So be it.
+                    resultSize = size;
+                    resultMode = MeasureSpec.EXACTLY;
+                } else if (childDimension == FlexItem.WRAP_CONTENT) {
+                    // Child wants to determine its own size. It can't be
+                    // bigger than us.
+                    resultSize = size;
+                    resultMode = MeasureSpec.AT_MOST;
+                }
+                break;
+
+            // Parent has imposed a maximum size on us
+            case MeasureSpec.AT_MOST:
+                if (childDimension >= 0) {
+                    // Child wants a specific size... so be it
+                    resultSize = childDimension;
+                    resultMode = MeasureSpec.EXACTLY;
+                } else if (childDimension == FlexItem.MATCH_PARENT) {
+                    // Child wants to be our size, but our size is not fixed.
+                    // Constrain child to not be bigger than us.
+                    resultSize = size;
+                    resultMode = MeasureSpec.AT_MOST;
+                } else if (childDimension == FlexItem.WRAP_CONTENT) {
+                    // Child wants to determine its own size. It can't be
+                    // bigger than us.
+                    resultSize = size;
+                    resultMode = MeasureSpec.AT_MOST;
+                }
+                break;
+
+            // Parent asked to see how big we want to be
+            case MeasureSpec.UNSPECIFIED:
+                if (childDimension >= 0) {
+                    // Child wants a specific size... let him have it
+                    resultSize = childDimension;
+                    resultMode = MeasureSpec.EXACTLY;
+                } else if (childDimension == FlexItem.MATCH_PARENT) {
+                    // Child wants to be our size... find out how big it should
+                    // be
+                    resultSize = size;
+                    resultMode = MeasureSpec.UNSPECIFIED;
+                } else if (childDimension == FlexItem.WRAP_CONTENT) {
+                    // Child wants to determine its own size.... find out how
+                    // big it should be
+                    resultSize = size;
+                    resultMode = MeasureSpec.UNSPECIFIED;
+                }
+                break;
+        }
+        return MeasureSpec.makeMeasureSpec(resultSize, resultMode);
+    }
+
+    /**
+     * The same as {@code android.view.View#resolveSizeAndState(int, int, int)}.
+     */
+    private static int resolveSizeAndState(int size, int measureSpec, int childMeasuredState) {
+        int specMode = MeasureSpec.getMode(measureSpec);
+        int specSize = MeasureSpec.getSize(measureSpec);
+        int result;
+        switch (specMode) {
+            case MeasureSpec.AT_MOST:
+                if (specSize < size) {
+                    result = specSize | MEASURED_STATE_TOO_SMALL;
+                } else {
+                    result = size;
+                }
+                break;
+            case MeasureSpec.EXACTLY:
+                result = specSize;
+                break;
+            case MeasureSpec.UNSPECIFIED:
+            default:
+                result = size;
+        }
+        return result | (childMeasuredState & MEASURED_STATE_MASK);
+    }
+
+    /**
+     * Receives the sections of the flexbox algorithm, e.g. to emit them as the sections of a
+     * system trace.
+     *
+     * @see #setTracer(Tracer, String)
+     */
+    public interface Tracer {
+
+        /**
+         * Called when a section begins.
+         *
+         * @param sectionName the name of the section
+         */
+        void beginSection(String sectionName);
+
+        /**
+         * Called when the section begun last ends.
+         */
+        void endSection();
+    }
+
+    /**
+     * The requirements passed from a parent to a child in the same encoding as
+     * {@code android.view.View.MeasureSpec}, so that a MeasureSpec passed to a View can be passed
+     * to the {@link FlexboxEngine} and vice versa.
+     */
+    public static final class MeasureSpec {
+
+        private static final int MODE_SHIFT = 30;
+
+        private static final int MODE_MASK = 0x3 << MODE_SHIFT;
+
+        /** The parent has not imposed any constraint on the child. */
+        public static final int UNSPECIFIED = 0;
+
+        /** The parent has determined an exact size for the child. */
+        public static final int EXACTLY = 1 << MODE_SHIFT;
+
+        /** The child can be as large as it wants up to the specified size. */
+        public static final int AT_MOST = 2 << MODE_SHIFT;
+
+        private MeasureSpec() {
+        }
+
+        public static int makeMeasureSpec(int size, int mode) {
+            return (size & ~MODE_MASK) | (mode & MODE_MASK);
+        }
+
+        public static int getMode(int measureSpec) {
+            return measureSpec & MODE_MASK;
+        }
+
+        public static int getSize(int measureSpec) {
+            return measureSpec & ~MODE_MASK;
+        }
+    }
+
+    /**
+     * A class that is used for calculating the item order which item's indices and order
+     * properties from Flexbox are taken into account.
+     */
+    private static class Order implements Comparable<Order> {
+
+        /** The index of the flex item */
+        int index;
+
+        /** order property in the Flexbox */
+        int order;
+
+        @Override
+        public int compareTo(Order another) {
+            if (order != another.order) {
+                return order - another.order;
+            }
+            return index - another.index;
+        }
+
+        @Override
+        public String toString() {
+            return "Order{" +
+                    "order=" + order +
+                    ", index=" + index +
+                    '}';
+        }
+    }
+}
@@ -19,13 +19,18 @@ package com.google.android.flexbox;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
-import android.support.v4.view.MarginLayoutParamsCompat;
+import android.support.annotation.Nullable;
+import android.support.v4.os.TraceCompat;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
-import android.util.SparseIntArray;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
@@ -33,9 +38,6 @@ import android.widget.RelativeLayout;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -57,6 +59,8 @@ import java.util.List;
  * <li>{@code dividerDrawable}</li>
  * <li>{@code dividerDrawableHorizontal}</li>
  * <li>{@code dividerDrawableVertical}</li>
+ * <li>{@code columnGap}</li>
+ * <li>{@code rowGap}</li>
  * </ul>
  * for the FlexboxLayout.
  *
@@ -66,6 +70,7 @@ import java.util.List;
  * <li>{@code layout_flexGrow}</li>
  * <li>{@code layout_flexShrink}</li>
  * <li>{@code layout_flexBasisPercent}</li>
+ * <li>{@code layout_aspectRatio}</li>
  * <li>{@code layout_alignSelf}</li>
  * <li>{@code layout_minWidth}</li>
  * <li>{@code layout_minHeight}</li>
@@ -83,42 +88,14 @@ public class FlexboxLayout extends ViewGroup {
 
     }
 
-    public static final int FLEX_DIRECTION_ROW = 0;
+    public static final int FLEX_DIRECTION_ROW = FlexboxEngine.FLEX_DIRECTION_ROW;
 
-    public static final int FLEX_DIRECTION_ROW_REVERSE = 1;
+    public static final int FLEX_DIRECTION_ROW_REVERSE = FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
 
-    public static final int FLEX_DIRECTION_COLUMN = 2;
+    public static final int FLEX_DIRECTION_COLUMN = FlexboxEngine.FLEX_DIRECTION_COLUMN;
 
-    public static final int FLEX_DIRECTION_COLUMN_REVERSE = 3;
-
-    /**
-     * The direction children items are placed inside the Flexbox layout, it determines the
-     * direction of the main axis (and the cross axis, perpendicular to the main axis).
-     * <ul>
-     * <li>
-     * {@link #FLEX_DIRECTION_ROW}: Main axis direction -> horizontal. Main start to
-     * main end -> Left to right (in LTR languages).
-     * Cross start to cross end -> Top to bottom
-     * </li>
-     * <li>
-     * {@link #FLEX_DIRECTION_ROW_REVERSE}: Main axis direction -> horizontal. Main start
-     * to main end -> Right to left (in LTR languages). Cross start to cross end ->
-     * Top to bottom.
-     * </li>
-     * <li>
-     * {@link #FLEX_DIRECTION_COLUMN}: Main axis direction -> vertical. Main start
-     * to main end -> Top to bottom. Cross start to cross end ->
-     * Left to right (In LTR languages).
-     * </li>
-     * <li>
-     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}: Main axis direction -> vertical. Main start
-     * to main end -> Bottom to top. Cross start to cross end -> Left to right
-     * (In LTR languages)
-     * </li>
-     * </ul>
-     * The default value is {@link #FLEX_DIRECTION_ROW}.
-     */
-    private int mFlexDirection;
+    public static final int FLEX_DIRECTION_COLUMN_REVERSE =
+            FlexboxEngine.FLEX_DIRECTION_COLUMN_REVERSE;
 
 
     @IntDef({FLEX_WRAP_NOWRAP, FLEX_WRAP_WRAP, FLEX_WRAP_WRAP_REVERSE})
@@ -127,24 +104,11 @@ public class FlexboxLayout extends ViewGroup {
 
     }
 
-    public static final int FLEX_WRAP_NOWRAP = 0;
+    public static final int FLEX_WRAP_NOWRAP = FlexboxEngine.FLEX_WRAP_NOWRAP;
 
-    public static final int FLEX_WRAP_WRAP = 1;
+    public static final int FLEX_WRAP_WRAP = FlexboxEngine.FLEX_WRAP_WRAP;
 
-    public static final int FLEX_WRAP_WRAP_REVERSE = 2;
-
-    /**
-     * This attribute controls whether the flex container is single-line or multi-line, and the
-     * direction of the cross axis.
-     * <ul>
-     * <li>{@link #FLEX_WRAP_NOWRAP}: The flex container is single-line.</li>
-     * <li>{@link #FLEX_WRAP_WRAP}: The flex container is multi-line.</li>
-     * <li>{@link #FLEX_WRAP_WRAP_REVERSE}: The flex container is multi-line. The direction of the
-     * cross axis is opposed to the direction as the {@link #FLEX_WRAP_WRAP}</li>
-     * </ul>
-     * The default value is {@link #FLEX_WRAP_NOWRAP}.
-     */
-    private int mFlexWrap;
+    public static final int FLEX_WRAP_WRAP_REVERSE = FlexboxEngine.FLEX_WRAP_WRAP_REVERSE;
 
 
     @IntDef({JUSTIFY_CONTENT_FLEX_START, JUSTIFY_CONTENT_FLEX_END, JUSTIFY_CONTENT_CENTER,
@@ -154,21 +118,17 @@ public class FlexboxLayout extends ViewGroup {
 
     }
 
-    public static final int JUSTIFY_CONTENT_FLEX_START = 0;
+    public static final int JUSTIFY_CONTENT_FLEX_START = FlexboxEngine.JUSTIFY_CONTENT_FLEX_START;
 
-    public static final int JUSTIFY_CONTENT_FLEX_END = 1;
+    public static final int JUSTIFY_CONTENT_FLEX_END = FlexboxEngine.JUSTIFY_CONTENT_FLEX_END;
 
-    public static final int JUSTIFY_CONTENT_CENTER = 2;
+    public static final int JUSTIFY_CONTENT_CENTER = FlexboxEngine.JUSTIFY_CONTENT_CENTER;
 
-    public static final int JUSTIFY_CONTENT_SPACE_BETWEEN = 3;
+    public static final int JUSTIFY_CONTENT_SPACE_BETWEEN =
+            FlexboxEngine.JUSTIFY_CONTENT_SPACE_BETWEEN;
 
-    public static final int JUSTIFY_CONTENT_SPACE_AROUND = 4;
-
-    /**
-     * This attribute controls the alignment along the main axis.
-     * The default value is {@link #JUSTIFY_CONTENT_FLEX_START}.
-     */
-    private int mJustifyContent;
+    public static final int JUSTIFY_CONTENT_SPACE_AROUND =
+            FlexboxEngine.JUSTIFY_CONTENT_SPACE_AROUND;
 
 
     @IntDef({ALIGN_ITEMS_FLEX_START, ALIGN_ITEMS_FLEX_END, ALIGN_ITEMS_CENTER,
@@ -178,21 +138,15 @@ public class FlexboxLayout extends ViewGroup {
 
     }
 
-    public static final int ALIGN_ITEMS_FLEX_START = 0;
-
-    public static final int ALIGN_ITEMS_FLEX_END = 1;
+    public static final int ALIGN_ITEMS_FLEX_START = FlexboxEngine.ALIGN_ITEMS_FLEX_START;
 
-    public static final int ALIGN_ITEMS_CENTER = 2;
+    public static final int ALIGN_ITEMS_FLEX_END = FlexboxEngine.ALIGN_ITEMS_FLEX_END;
 
-    public static final int ALIGN_ITEMS_BASELINE = 3;
+    public static final int ALIGN_ITEMS_CENTER = FlexboxEngine.ALIGN_ITEMS_CENTER;
 
-    public static final int ALIGN_ITEMS_STRETCH = 4;
+    public static final int ALIGN_ITEMS_BASELINE = FlexboxEngine.ALIGN_ITEMS_BASELINE;
 
-    /**
-     * This attribute controls the alignment along the cross axis.
-     * The default value is {@link #ALIGN_ITEMS_STRETCH}.
-     */
-    private int mAlignItems;
+    public static final int ALIGN_ITEMS_STRETCH = FlexboxEngine.ALIGN_ITEMS_STRETCH;
 
 
     @IntDef({ALIGN_CONTENT_FLEX_START, ALIGN_CONTENT_FLEX_END, ALIGN_CONTENT_CENTER,
@@ -202,23 +156,17 @@ public class FlexboxLayout extends ViewGroup {
 
     }
 
-    public static final int ALIGN_CONTENT_FLEX_START = 0;
+    public static final int ALIGN_CONTENT_FLEX_START = FlexboxEngine.ALIGN_CONTENT_FLEX_START;
 
-    public static final int ALIGN_CONTENT_FLEX_END = 1;
+    public static final int ALIGN_CONTENT_FLEX_END = FlexboxEngine.ALIGN_CONTENT_FLEX_END;
 
-    public static final int ALIGN_CONTENT_CENTER = 2;
+    public static final int ALIGN_CONTENT_CENTER = FlexboxEngine.ALIGN_CONTENT_CENTER;
 
-    public static final int ALIGN_CONTENT_SPACE_BETWEEN = 3;
+    public static final int ALIGN_CONTENT_SPACE_BETWEEN = FlexboxEngine.ALIGN_CONTENT_SPACE_BETWEEN;
 
-    public static final int ALIGN_CONTENT_SPACE_AROUND = 4;
+    public static final int ALIGN_CONTENT_SPACE_AROUND = FlexboxEngine.ALIGN_CONTENT_SPACE_AROUND;
 
-    public static final int ALIGN_CONTENT_STRETCH = 5;
-
-    /**
-     * This attribute controls the alignment of the flex lines in the flex container.
-     * The default value is {@link #ALIGN_CONTENT_STRETCH}.
-     */
-    private int mAlignContent;
+    public static final int ALIGN_CONTENT_STRETCH = FlexboxEngine.ALIGN_CONTENT_STRETCH;
 
     /**
      * The int definition to be used as the arguments for the {@link #setShowDivider(int)},
@@ -240,16 +188,50 @@ public class FlexboxLayout extends ViewGroup {
     }
 
     /** Constant to how no dividers */
-    public static final int SHOW_DIVIDER_NONE = 0;
+    public static final int SHOW_DIVIDER_NONE = FlexboxEngine.SHOW_DIVIDER_NONE;
 
     /** Constant to show a divider at the beginning of the flex lines (or flex items). */
-    public static final int SHOW_DIVIDER_BEGINNING = 1;
+    public static final int SHOW_DIVIDER_BEGINNING = FlexboxEngine.SHOW_DIVIDER_BEGINNING;
 
     /** Constant to show dividers between flex lines or flex items. */
-    public static final int SHOW_DIVIDER_MIDDLE = 1 << 1;
+    public static final int SHOW_DIVIDER_MIDDLE = FlexboxEngine.SHOW_DIVIDER_MIDDLE;
 
     /** Constant to show a divider at the end of the flex lines or flex items. */
-    public static final int SHOW_DIVIDER_END = 1 << 2;
+    public static final int SHOW_DIVIDER_END = FlexboxEngine.SHOW_DIVIDER_END;
+
+    /**
+     * Forwards the sections of the flex algorithm to the system trace, shared with the
+     * {@link FlexboxTagLayout}.
+     */
+    static final FlexboxEngine.Tracer TRACER = new FlexboxEngine.Tracer() {
+        @Override
+        public void beginSection(String sectionName) {
+            TraceCompat.beginSection(sectionName);
+        }
+
+        @Override
+        public void endSection() {
+            TraceCompat.endSection();
+        }
+    };
+
+    private static final String TRACE_LABEL = "FlexboxLayout";
+
+    private static boolean sTraceEnabled;
+
+    private static LayoutThrashDetector sLayoutThrashDetector;
+
+    /** The number of the FlexboxLayouts being measured, counted while a detector is set. */
+    private static int sMeasureDepth;
+
+    /**
+     * The frame of the layout thrash detector, advanced at the beginning of each frame following
+     * a frame in which any FlexboxLayout was measured or laid out while a detector is set.
+     */
+    private static int sDetectorFrame;
+
+    /** Whether {@link #sDetectorFrame} is scheduled to be advanced by the next frame. */
+    private static boolean sDetectorFrameScheduled;
 
     /** The drawable to be drawn for the horizontal dividers. */
     private Drawable mDividerDrawableHorizontal;
@@ -258,45 +240,77 @@ public class FlexboxLayout extends ViewGroup {
     private Drawable mDividerDrawableVertical;
 
     /**
-     * Indicates the divider mode for the {@link #mDividerDrawableHorizontal}. The value needs to
-     * be the combination of the value of {@link #SHOW_DIVIDER_NONE},
-     * {@link #SHOW_DIVIDER_BEGINNING}, {@link #SHOW_DIVIDER_MIDDLE} and {@link #SHOW_DIVIDER_END}
+     * The engine running the flex algorithm over the children views. The attributes of this
+     * flex container are held by the engine.
      */
-    private int mShowDividerHorizontal;
+    private final FlexboxEngine mEngine;
+
+    private OnLayoutStatsListener mOnLayoutStatsListener;
+
+    /** Reused for every pass so that reporting the statistics doesn't allocate. */
+    private LayoutStats mLayoutStats;
+
+    /** The time when onDraw started, valid only while {@link #mDrawStarted} is true. */
+    private long mDrawStartNanos;
+
+    private boolean mDrawStarted;
+
+    /** Non-null while the debug overlay is enabled. */
+    private FlexboxDebugOverlay mDebugOverlay;
+
+    /** The number of the measure passes in {@link #mDetectorFrame}. */
+    private int mMeasureCountInFrame;
+
+    /** The number of the layout passes in {@link #mDetectorFrame}. */
+    private int mLayoutCountInFrame;
+
+    /** The frame of the layout thrash detector in which this was last measured or laid out. */
+    private int mDetectorFrame;
 
     /**
-     * Indicates the divider mode for the {@link #mDividerDrawableVertical}. The value needs to
-     * be the combination of the value of {@link #SHOW_DIVIDER_NONE},
-     * {@link #SHOW_DIVIDER_BEGINNING}, {@link #SHOW_DIVIDER_MIDDLE} and {@link #SHOW_DIVIDER_END}
+     * Restores the layout passes until the first frame and the ones whose MeasureSpecs changed if
+     * set, {@code null} by default.
      */
-    private int mShowDividerVertical;
-
-    /** The height of the {@link #mDividerDrawableHorizontal}. */
-    private int mDividerHorizontalHeight;
+    private LayoutCache mLayoutCache;
 
-    /** The width of the {@link #mDividerDrawableVertical}. */
-    private int mDividerVerticalWidth;
+    /** The version of the content of the children, part of the keys of the layout cache. */
+    private int mLayoutCacheContentVersion;
 
     /**
-     * Holds reordered indices, which {@link LayoutParams#order} parameters are taken into account
+     * {@code true} once the first frame after the layout cache was set has been drawn, after
+     * which the layout cache is read only when the MeasureSpecs change, and written only by
+     * {@link #precomputeLayout(int, int)}.
      */
-    private int[] mReorderedIndices;
+    private boolean mLayoutCacheValidated;
+
+    /** The key of the layout cache computed from the inputs of the last measure. */
+    private long mLayoutCacheKey;
 
     /**
-     * Caches the {@link LayoutParams#order} attributes for children views.
-     * Key: the index of the view ({@link #mReorderedIndices} isn't taken into account)
-     * Value: the value for the order attribute
+     * {@code true} if the last measure was restored from the layout cache rather than computed,
+     * thus needs to be validated.
      */
-    private SparseIntArray mOrderCache;
+    private boolean mRestoredFromLayoutCache;
+
+    /** {@code true} once this layout has been measured. */
+    private boolean mMeasured;
 
-    private List<FlexLine> mFlexLines = new ArrayList<>();
+    /** The horizontal MeasureSpec of the last measure, valid if {@link #mMeasured} is true. */
+    private int mLastWidthMeasureSpec;
+
+    /** The vertical MeasureSpec of the last measure, valid if {@link #mMeasured} is true. */
+    private int mLastHeightMeasureSpec;
 
     /**
-     * Holds the 'frozen' state of children during measure. If a view is frozen it will no longer
-     * expand or shrink regardless of flexGrow/flexShrink. Items are indexed by the child's
-     * reordered index.
+     * Runs after the frame of a layout restored from the layout cache, validating it by running
+     * the flex algorithm the restored measure skipped.
      */
-    private boolean[] mChildrenFrozen;
+    private final Runnable mValidateLayoutCache = new Runnable() {
+        @Override
+        public void run() {
+            validateLayoutCache();
+        }
+    };
 
     public FlexboxLayout(Context context) {
         this(context, null);
@@ -308,15 +322,19 @@ public class FlexboxLayout extends ViewGroup {
 
     public FlexboxLayout(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
+        mEngine = new FlexboxEngine(new ChildrenFlexContainer());
 
         TypedArray a = context.obtainStyledAttributes(
                 attrs, R.styleable.FlexboxLayout, defStyleAttr, 0);
-        mFlexDirection = a.getInt(R.styleable.FlexboxLayout_flexDirection, FLEX_DIRECTION_ROW);
-        mFlexWrap = a.getInt(R.styleable.FlexboxLayout_flexWrap, FLEX_WRAP_NOWRAP);
-        mJustifyContent = a
-                .getInt(R.styleable.FlexboxLayout_justifyContent, JUSTIFY_CONTENT_FLEX_START);
-        mAlignItems = a.getInt(R.styleable.FlexboxLayout_alignItems, ALIGN_ITEMS_STRETCH);
-        mAlignContent = a.getInt(R.styleable.FlexboxLayout_alignContent, ALIGN_CONTENT_STRETCH);
+        mEngine.setFlexDirection(
+                a.getInt(R.styleable.FlexboxLayout_flexDirection, FLEX_DIRECTION_ROW));
+        mEngine.setFlexWrap(a.getInt(R.styleable.FlexboxLayout_flexWrap, FLEX_WRAP_NOWRAP));
+        mEngine.setJustifyContent(a
+                .getInt(R.styleable.FlexboxLayout_justifyContent, JUSTIFY_CONTENT_FLEX_START));
+        mEngine.setAlignItems(
+                a.getInt(R.styleable.FlexboxLayout_alignItems, ALIGN_ITEMS_STRETCH));
+        mEngine.setAlignContent(
+                a.getInt(R.styleable.FlexboxLayout_alignContent, ALIGN_CONTENT_STRETCH));
         Drawable drawable = a.getDrawable(R.styleable.FlexboxLayout_dividerDrawable);
         if (drawable != null) {
             setDividerDrawableHorizontal(drawable);
@@ -334,49 +352,131 @@ public class FlexboxLayout extends ViewGroup {
         }
         int dividerMode = a.getInt(R.styleable.FlexboxLayout_showDivider, SHOW_DIVIDER_NONE);
         if (dividerMode != SHOW_DIVIDER_NONE) {
-            mShowDividerVertical = dividerMode;
-            mShowDividerHorizontal = dividerMode;
+            mEngine.setShowDividerVertical(dividerMode);
+            mEngine.setShowDividerHorizontal(dividerMode);
         }
         int dividerModeVertical = a
                 .getInt(R.styleable.FlexboxLayout_showDividerVertical, SHOW_DIVIDER_NONE);
         if (dividerModeVertical != SHOW_DIVIDER_NONE) {
-            mShowDividerVertical = dividerModeVertical;
+            mEngine.setShowDividerVertical(dividerModeVertical);
         }
         int dividerModeHorizontal = a
                 .getInt(R.styleable.FlexboxLayout_showDividerHorizontal, SHOW_DIVIDER_NONE);
         if (dividerModeHorizontal != SHOW_DIVIDER_NONE) {
-            mShowDividerHorizontal = dividerModeHorizontal;
-        }
+            mEngine.setShowDividerHorizontal(dividerModeHorizontal);
+        }
+        mEngine.setColumnGap(a.getDimensionPixelSize(R.styleable.FlexboxLayout_columnGap, 0));
+        mEngine.setRowGap(a.getDimensionPixelSize(R.styleable.FlexboxLayout_rowGap, 0));
+        mEngine.setFixedPointDistribution(
+                a.getBoolean(R.styleable.FlexboxLayout_fixedPointDistribution, false));
+        mEngine.setJustifiedRowHeight(
+                a.getDimensionPixelSize(R.styleable.FlexboxLayout_justifiedRowHeight, 0));
         a.recycle();
     }
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        if (isOrderChangedFromLastMeasurement()) {
-            mReorderedIndices = createReorderedIndices();
+        long start = mOnLayoutStatsListener != null ? System.nanoTime() : 0;
+        LayoutThrashDetector detector = getActiveLayoutThrashDetector();
+        if (detector != null) {
+            beginDetectorFrame();
+            sMeasureDepth++;
+            try {
+                detector.onMeasure(this, ++mMeasureCountInFrame, sMeasureDepth);
+                measureFlexContainer(widthMeasureSpec, heightMeasureSpec);
+            } finally {
+                // An exception thrown by a child mustn't leave the depth of the other
+                // FlexboxLayouts off
+                sMeasureDepth--;
+            }
+        } else {
+            measureFlexContainer(widthMeasureSpec, heightMeasureSpec);
         }
-        if (mChildrenFrozen == null || mChildrenFrozen.length < getChildCount()) {
-            mChildrenFrozen = new boolean[getChildCount()];
+        if (mOnLayoutStatsListener != null) {
+            dispatchLayoutStats(LayoutStats.PASS_MEASURE, System.nanoTime() - start);
         }
+    }
+
+    /**
+     * Measure this flex container and its children, apart from the layout thrash detection and
+     * the layout statistics.
+     */
+    private void measureFlexContainer(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
 
         // TODO: Only calculate the children views which are affected from the last measure.
 
-        switch (mFlexDirection) {
-            case FLEX_DIRECTION_ROW: // Intentional fall through
-            case FLEX_DIRECTION_ROW_REVERSE:
-                measureHorizontal(widthMeasureSpec, heightMeasureSpec);
-                break;
-            case FLEX_DIRECTION_COLUMN: // Intentional fall through
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                measureVertical(widthMeasureSpec, heightMeasureSpec);
-                break;
-            default:
-                throw new IllegalStateException(
-                        "Invalid value for the flex direction is set: " + mFlexDirection);
+        if (mDebugOverlay != null) {
+            mDebugOverlay.onMeasurePass(getChildCount());
+        }
+        mEngine.setTracer(sTraceEnabled ? TRACER : null, TRACE_LABEL);
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        boolean measureSpecsChanged = !mMeasured || widthMeasureSpec != mLastWidthMeasureSpec
+                || heightMeasureSpec != mLastHeightMeasureSpec;
+        mRestoredFromLayoutCache = false;
+        if (mLayoutCache != null && (!mLayoutCacheValidated || measureSpecsChanged)) {
+            // A change of the MeasureSpecs, e.g. by a rotation, may match a precomputed layout
+            mLayoutCacheKey = LayoutCache.computeKey(mEngine, mLayoutCacheContentVersion,
+                    isLayoutRtl(), widthMeasureSpec, heightMeasureSpec);
+            mRestoredFromLayoutCache = mLayoutCache.restore(mLayoutCacheKey, mEngine);
+        }
+        if (mRestoredFromLayoutCache) {
+            measureChildrenToRestoredFrames(getChildCount());
+        } else {
+            mEngine.measure(widthMeasureSpec, heightMeasureSpec);
         }
+        mMeasured = true;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        setMeasuredDimension(mEngine.getMeasuredWidthAndState(),
+                mEngine.getMeasuredHeightAndState());
+    }
+
+    /**
+     * Returns the smallest main size, e.g. the width when the flex direction is row, at which
+     * none of the children needs to be shrunk: the size of the largest child when the children
+     * can wrap, or the size of all the children in a single flex line when they can't.
+     * A parent, e.g. a dialog, can use it to choose its own size without a full measure of this
+     * FlexboxLayout.
+     *
+     * <p>No flex line is created and the children aren't expanded or stretched. A child whose
+     * size along the main axis is fixed isn't measured. The other children are measured with an
+     * unspecified main size, which is served from the measure cache of the child if it was
+     * measured in the same way before.</p>
+     *
+     * @param crossMeasureSpec the space requirements along the cross axis, e.g. the
+     *                         heightMeasureSpec when the flex direction is row
+     * @return the min-content main size in pixels, including the padding
+     * @see #getMaxIntrinsicMainSize(int)
+     */
+    public int getMinIntrinsicMainSize(int crossMeasureSpec) {
+        prepareIntrinsicSizeQuery();
+        return mEngine.getMinIntrinsicMainSize(crossMeasureSpec);
+    }
 
-        Arrays.fill(mChildrenFrozen, false);
+    /**
+     * Returns the main size, e.g. the width when the flex direction is row, at which all the
+     * children fit without wrapping or being shrunk, i.e. the width this FlexboxLayout takes
+     * when it's measured with an unspecified width, e.g. in a horizontal ScrollView. See
+     * {@link #getMinIntrinsicMainSize(int)} for how the children are measured.
+     *
+     * @param crossMeasureSpec the space requirements along the cross axis, e.g. the
+     *                         heightMeasureSpec when the flex direction is row
+     * @return the max-content main size in pixels, including the padding
+     */
+    public int getMaxIntrinsicMainSize(int crossMeasureSpec) {
+        prepareIntrinsicSizeQuery();
+        return mEngine.getMaxIntrinsicMainSize(crossMeasureSpec);
+    }
+
+    private void prepareIntrinsicSizeQuery() {
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        // The children measured for the query no longer have the sizes this FlexboxLayout
+        // measured them to, thus the next measure must not be skipped even with the same
+        // MeasureSpecs
+        forceLayout();
     }
 
     /**
@@ -389,2299 +489,943 @@ public class FlexboxLayout extends ViewGroup {
      * returns {@code null}.
      */
     public View getReorderedChildAt(int index) {
-        if (index < 0 || index >= mReorderedIndices.length) {
+        int childIndex = mEngine.getReorderedItemIndex(index);
+        if (childIndex < 0) {
             return null;
         }
-        return getChildAt(mReorderedIndices[index]);
+        return getChildAt(childIndex);
     }
 
     @Override
     public void addView(View child, int index, ViewGroup.LayoutParams params) {
-        // Create an array for the reordered indices before the View is added in the parent
-        // ViewGroup since otherwise reordered indices won't be in effect before the
-        // FlexboxLayout's onMeasure is called.
-        // Because requestLayout is requested in the super.addView method.
-        mReorderedIndices = createReorderedIndices(child, index, params);
         super.addView(child, index, params);
+        // Invalidate the reordered indices right after the View is added since otherwise
+        // reordered indices won't be in effect before the FlexboxLayout's onMeasure is called.
+        // They are recreated lazily, thus adding views one by one doesn't sort them each time.
+        mEngine.invalidateOrder();
     }
 
-    /**
-     * Create an array, which indicates the reordered indices that {@link LayoutParams#order}
-     * attributes are taken into account. This method takes a View before that is added as the
-     * parent ViewGroup's children.
-     *
-     * @param viewBeforeAdded          the View instance before added to the array of children
-     *                                 Views of the parent ViewGroup
-     * @param indexForViewBeforeAdded  the index for the View before added to the array of the
-     *                                 parent ViewGroup
-     * @param paramsForViewBeforeAdded the layout parameters for the View before added to the array
-     *                                 of the parent ViewGroup
-     * @return an array which have the reordered indices
-     */
-    private int[] createReorderedIndices(View viewBeforeAdded, int indexForViewBeforeAdded,
-            ViewGroup.LayoutParams paramsForViewBeforeAdded) {
-        int childCount = getChildCount();
-        List<Order> orders = createOrders(childCount);
-        Order orderForViewToBeAdded = new Order();
-        if (viewBeforeAdded != null
-                && paramsForViewBeforeAdded instanceof FlexboxLayout.LayoutParams) {
-            orderForViewToBeAdded.order = ((LayoutParams) paramsForViewBeforeAdded).order;
-        } else {
-            orderForViewToBeAdded.order = LayoutParams.ORDER_DEFAULT;
-        }
-
-        if (indexForViewBeforeAdded == -1 || indexForViewBeforeAdded == childCount) {
-            orderForViewToBeAdded.index = childCount;
-        } else if (indexForViewBeforeAdded < getChildCount()) {
-            orderForViewToBeAdded.index = indexForViewBeforeAdded;
-            for (int i = indexForViewBeforeAdded; i < childCount; i++) {
-                orders.get(i).index++;
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        long start = mOnLayoutStatsListener != null ? System.nanoTime() : 0;
+        LayoutThrashDetector detector = getActiveLayoutThrashDetector();
+        if (detector != null) {
+            beginDetectorFrame();
+            detector.onLayout(this, ++mLayoutCountInFrame);
+        }
+        mEngine.setTracer(sTraceEnabled ? TRACER : null, TRACE_LABEL);
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        mEngine.layout(left, top, right, bottom, isLayoutRtl());
+        applyChildFrames(getChildCount());
+        if (mLayoutCache != null && (!mLayoutCacheValidated || mRestoredFromLayoutCache)) {
+            if (!mRestoredFromLayoutCache) {
+                mLayoutCache.put(mLayoutCacheKey, mEngine);
             }
-        } else {
-            // This path is not expected since OutOfBoundException will be thrown in the ViewGroup
-            // But setting the index for fail-safe
-            orderForViewToBeAdded.index = childCount;
-        }
-        orders.add(orderForViewToBeAdded);
-
-        return sortOrdersIntoReorderedIndices(childCount + 1, orders);
-    }
-
-    /**
-     * Create an array, which indicates the reordered indices that {@link LayoutParams#order}
-     * attributes are taken into account.
-     *
-     * @return @return an array which have the reordered indices
-     */
-    private int[] createReorderedIndices() {
-        int childCount = getChildCount();
-        List<Order> orders = createOrders(childCount);
-        return sortOrdersIntoReorderedIndices(childCount, orders);
-    }
-
-    private int[] sortOrdersIntoReorderedIndices(int childCount, List<Order> orders) {
-        Collections.sort(orders);
-        if (mOrderCache == null) {
-            mOrderCache = new SparseIntArray(childCount);
+            // The runnable runs after the current frame is drawn
+            removeCallbacks(mValidateLayoutCache);
+            post(mValidateLayoutCache);
         }
-        mOrderCache.clear();
-        int[] reorderedIndices = new int[childCount];
-        int i = 0;
-        for (Order order : orders) {
-            reorderedIndices[i] = order.index;
-            mOrderCache.append(i, order.order);
-            i++;
+        if (mDividerDrawableVertical != null || mDividerDrawableHorizontal != null) {
+            // Compute the bounds of the dividers here so that an invalidation without any layout
+            // change doesn't need to iterate over the children and the flex lines again.
+            mEngine.computeDividerFrames();
         }
-        return reorderedIndices;
-    }
-
-    @NonNull
-    private List<Order> createOrders(int childCount) {
-        List<Order> orders = new ArrayList<>(childCount);
-        for (int i = 0; i < childCount; i++) {
-            View child = getChildAt(i);
-            LayoutParams params = (LayoutParams) child.getLayoutParams();
-            Order order = new Order();
-            order.order = params.order;
-            order.index = i;
-            orders.add(order);
+        if (mOnLayoutStatsListener != null) {
+            dispatchLayoutStats(LayoutStats.PASS_LAYOUT, System.nanoTime() - start);
         }
-        return orders;
     }
 
     /**
-     * Returns if any of the children's {@link LayoutParams#order} attributes are changed
-     * from the last measurement.
+     * Place the children views at the frames computed in the
+     * {@link FlexboxEngine#layout(int, int, int, int, boolean)}.
      *
-     * @return {@code true} if changed from the last measurement, {@code false} otherwise.
+     * @param childCount the number of the children views
      */
-    private boolean isOrderChangedFromLastMeasurement() {
-        int childCount = getChildCount();
-        if (mOrderCache == null) {
-            mOrderCache = new SparseIntArray(childCount);
-        }
-        if (mOrderCache.size() != childCount) {
-            return true;
-        }
+    private void applyChildFrames(int childCount) {
+        int[] frames = mEngine.mChildFrames;
         for (int i = 0; i < childCount; i++) {
-            View view = getChildAt(i);
-            if (view == null) {
+            View child = getReorderedChildAt(i);
+            if (child == null || child.getVisibility() == View.GONE) {
                 continue;
             }
-            LayoutParams lp = (LayoutParams) view.getLayoutParams();
-            if (lp.order != mOrderCache.get(i)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Sub method for {@link #onMeasure(int, int)}, when the main axis direction is horizontal
-     * (either left to right or right to left).
-     *
-     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec vertical space requirements as imposed by the parent
-     * @see #onMeasure(int, int)
-     * @see #setFlexDirection(int)
-     * @see #setFlexWrap(int)
-     * @see #setAlignItems(int)
-     * @see #setAlignContent(int)
-     */
-    private void measureHorizontal(int widthMeasureSpec, int heightMeasureSpec) {
-        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        int childState = 0;
-
-        mFlexLines.clear();
-
-        // Determine how many flex lines are needed in this layout by measuring each child.
-        // (Expand or shrink the view depending on the flexGrow and flexShrink attributes in a later
-        // loop)
-        {
-            int childCount = getChildCount();
-            int paddingStart = ViewCompat.getPaddingStart(this);
-            int paddingEnd = ViewCompat.getPaddingEnd(this);
-            int largestHeightInRow = Integer.MIN_VALUE;
-            FlexLine flexLine = new FlexLine();
-
-            // The index of the view in a same flex line.
-            int indexInFlexLine = 0;
-            flexLine.mMainSize = paddingStart + paddingEnd;
-            for (int i = 0; i < childCount; i++) {
-                View child = getReorderedChildAt(i);
-                if (child == null) {
-                    addFlexLineIfLastFlexItem(i, childCount, flexLine);
-                    continue;
-                } else if (child.getVisibility() == View.GONE) {
-                    flexLine.mItemCount++;
-                    flexLine.mGoneItemCount++;
-                    addFlexLineIfLastFlexItem(i, childCount, flexLine);
-                    continue;
-                }
-
-                FlexboxLayout.LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                if (lp.alignSelf == LayoutParams.ALIGN_SELF_STRETCH) {
-                    flexLine.mIndicesAlignSelfStretch.add(i);
-                }
-
-                int childWidth = lp.width;
-                if (lp.flexBasisPercent != LayoutParams.FLEX_BASIS_PERCENT_DEFAULT
-                        && widthMode == MeasureSpec.EXACTLY) {
-                    childWidth = Math.round(widthSize * lp.flexBasisPercent);
-                    // Use the dimension from the layout_width attribute if the widthMode is not
-                    // MeasureSpec.EXACTLY even if any fraction value is set to
-                    // layout_flexBasisPercent.
-                    // There are likely quite few use cases where assigning any fraction values
-                    // with widthMode is not MeasureSpec.EXACTLY (e.g. FlexboxLayout's layout_width
-                    // is set to wrap_content)
-                }
-                int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
-                        getPaddingLeft() + getPaddingRight() + lp.leftMargin
-                                + lp.rightMargin, childWidth);
-                int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
-                        getPaddingTop() + getPaddingBottom() + lp.topMargin
-                                + lp.bottomMargin, lp.height);
-                child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-
-                // Check the size constraint after the first measurement for the child
-                // To prevent the child's width/height violate the size constraints imposed by the
-                // {@link LayoutParams#minWidth}, {@link LayoutParams#minHeight},
-                // {@link LayoutParams#maxWidth} and {@link LayoutParams#maxHeight} attributes.
-                // E.g. When the child's layout_width is wrap_content the measured width may be
-                // less than the min width after the first measurement.
-                checkSizeConstraints(child);
-
-                childState = ViewCompat
-                        .combineMeasuredStates(childState, ViewCompat.getMeasuredState(child));
-                largestHeightInRow = Math.max(largestHeightInRow,
-                        child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin);
-
-                if (isWrapRequired(widthMode, widthSize, flexLine.mMainSize,
-                        child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin, lp,
-                        i, indexInFlexLine)) {
-                    if (flexLine.getItemCountNotGone() > 0) {
-                        addFlexLine(flexLine);
-                    }
-
-                    flexLine = new FlexLine();
-                    flexLine.mItemCount = 1;
-                    flexLine.mMainSize = paddingStart + paddingEnd;
-                    largestHeightInRow = child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
-                    indexInFlexLine = 0;
-                } else {
-                    flexLine.mItemCount++;
-                    indexInFlexLine++;
-                }
-                flexLine.mMainSize += child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
-                flexLine.mTotalFlexGrow += lp.flexGrow;
-                flexLine.mTotalFlexShrink += lp.flexShrink;
-                // Temporarily set the cross axis length as the largest child in the row
-                // Expand along the cross axis depending on the mAlignContent property if needed
-                // later
-                flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestHeightInRow);
-
-                // Check if the beginning or middle divider is required for the flex item
-                if (hasDividerBeforeChildAtAlongMainAxis(i, indexInFlexLine)) {
-                    flexLine.mMainSize += mDividerVerticalWidth;
-                    flexLine.mDividerLengthInMainSize += mDividerVerticalWidth;
-                }
-
-                if (mFlexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                    flexLine.mMaxBaseline = Math
-                            .max(flexLine.mMaxBaseline, child.getBaseline() + lp.topMargin);
-                } else {
-                    // if the flex wrap property is FLEX_WRAP_WRAP_REVERSE, calculate the
-                    // baseline as the distance from the cross end and the baseline
-                    // since the cross size calculation is based on the distance from the cross end
-                    flexLine.mMaxBaseline = Math
-                            .max(flexLine.mMaxBaseline,
-                                    child.getMeasuredHeight() - child.getBaseline()
-                                            + lp.bottomMargin);
-                }
-                addFlexLineIfLastFlexItem(i, childCount, flexLine);
-            }
-        }
-
-        determineMainSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec);
-
-        // TODO: Consider the case any individual child's alignSelf is set to ALIGN_SELF_BASELINE
-        if (mAlignItems == ALIGN_ITEMS_BASELINE) {
-            int viewIndex = 0;
-            for (FlexLine flexLine : mFlexLines) {
-                // The largest height value that also take the baseline shift into account
-                int largestHeightInLine = Integer.MIN_VALUE;
-                for (int i = viewIndex; i < viewIndex + flexLine.mItemCount; i++) {
-                    View child = getReorderedChildAt(i);
-                    LayoutParams lp = (LayoutParams) child.getLayoutParams();
-                    if (mFlexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                        int marginTop = flexLine.mMaxBaseline - child.getBaseline();
-                        marginTop = Math.max(marginTop, lp.topMargin);
-                        largestHeightInLine = Math.max(largestHeightInLine,
-                                child.getHeight() + marginTop + lp.bottomMargin);
-                    } else {
-                        int marginBottom = flexLine.mMaxBaseline - child.getMeasuredHeight() +
-                                child.getBaseline();
-                        marginBottom = Math.max(marginBottom, lp.bottomMargin);
-                        largestHeightInLine = Math.max(largestHeightInLine,
-                                child.getHeight() + lp.topMargin + marginBottom);
-                    }
-                }
-                flexLine.mCrossSize = largestHeightInLine;
-                viewIndex += flexLine.mItemCount;
-            }
+            int offset = i * 4;
+            child.layout(frames[offset], frames[offset + 1], frames[offset + 2],
+                    frames[offset + 3]);
         }
-
-        determineCrossSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
-                getPaddingTop() + getPaddingBottom());
-        // Now cross size for each flex line is determined.
-        // Expand the views if alignItems (or alignSelf in each child view) is set to stretch
-        stretchViews(mFlexDirection, mAlignItems);
-        setMeasuredDimensionForFlex(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
-                childState);
     }
 
     /**
-     * Sub method for {@link #onMeasure(int, int)} when the main axis direction is vertical
-     * (either from top to bottom or bottom to top).
+     * Measure the children views to the sizes of the frames restored from the layout cache,
+     * which is the only measurement of each child in the restored measure.
      *
-     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec vertical space requirements as imposed by the parent
-     * @see #onMeasure(int, int)
-     * @see #setFlexDirection(int)
-     * @see #setFlexWrap(int)
-     * @see #setAlignItems(int)
-     * @see #setAlignContent(int)
-     */
-    private void measureVertical(int widthMeasureSpec, int heightMeasureSpec) {
-        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
-        int childState = 0;
-
-        mFlexLines.clear();
-
-        // Determine how many flex lines are needed in this layout by measuring each child.
-        // (Expand or shrink the view depending on the flexGrow and flexShrink attributes in a later
-        // loop)
-        int childCount = getChildCount();
-        int paddingTop = getPaddingTop();
-        int paddingBottom = getPaddingBottom();
-        int largestWidthInColumn = Integer.MIN_VALUE;
-        FlexLine flexLine = new FlexLine();
-        flexLine.mMainSize = paddingTop + paddingBottom;
-        // The index of the view in a same flex line.
-        int indexInFlexLine = 0;
+     * @param childCount the number of the children views
+     */
+    private void measureChildrenToRestoredFrames(int childCount) {
         for (int i = 0; i < childCount; i++) {
             View child = getReorderedChildAt(i);
-            if (child == null) {
-                addFlexLineIfLastFlexItem(i, childCount, flexLine);
+            if (child == null || child.getVisibility() == View.GONE) {
                 continue;
-            } else if (child.getVisibility() == View.GONE) {
-                flexLine.mItemCount++;
-                flexLine.mGoneItemCount++;
-                addFlexLineIfLastFlexItem(i, childCount, flexLine);
-                continue;
-            }
-
-            FlexboxLayout.LayoutParams lp = (LayoutParams) child.getLayoutParams();
-            if (lp.alignSelf == LayoutParams.ALIGN_SELF_STRETCH) {
-                flexLine.mIndicesAlignSelfStretch.add(i);
-            }
-
-            int childHeight = lp.height;
-            if (lp.flexBasisPercent != LayoutParams.FLEX_BASIS_PERCENT_DEFAULT
-                    && heightMode == MeasureSpec.EXACTLY) {
-                childHeight = Math.round(heightSize * lp.flexBasisPercent);
-                // Use the dimension from the layout_height attribute if the heightMode is not
-                // MeasureSpec.EXACTLY even if any fraction value is set to layout_flexBasisPercent.
-                // There are likely quite few use cases where assigning any fraction values
-                // with heightMode is not MeasureSpec.EXACTLY (e.g. FlexboxLayout's layout_height
-                // is set to wrap_content)
-            }
-
-            int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
-                    getPaddingLeft() + getPaddingRight() + lp.leftMargin
-                            + lp.rightMargin, lp.width);
-            int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
-                    getPaddingTop() + getPaddingBottom() + lp.topMargin
-                            + lp.bottomMargin, childHeight);
-            child.measure(childWidthMeasureSpec, childHeightMeasureSpec);
-
-            // Check the size constraint after the first measurement for the child
-            // To prevent the child's width/height violate the size constraints imposed by the
-            // {@link LayoutParams#minWidth}, {@link LayoutParams#minHeight},
-            // {@link LayoutParams#maxWidth} and {@link LayoutParams#maxHeight} attributes.
-            // E.g. When the child's layout_height is wrap_content the measured height may be
-            // less than the min height after the first measurement.
-            checkSizeConstraints(child);
-
-            childState = ViewCompat
-                    .combineMeasuredStates(childState, ViewCompat.getMeasuredState(child));
-            largestWidthInColumn = Math.max(largestWidthInColumn,
-                    child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin);
-
-            if (isWrapRequired(heightMode, heightSize, flexLine.mMainSize,
-                    child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin, lp,
-                    i, indexInFlexLine)) {
-                if (flexLine.getItemCountNotGone() > 0) {
-                    addFlexLine(flexLine);
-                }
-
-                flexLine = new FlexLine();
-                flexLine.mItemCount = 1;
-                flexLine.mMainSize = paddingTop + paddingBottom;
-                largestWidthInColumn = child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
-                indexInFlexLine = 0;
-            } else {
-                flexLine.mItemCount++;
-                indexInFlexLine++;
-            }
-            flexLine.mMainSize += child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
-            flexLine.mTotalFlexGrow += lp.flexGrow;
-            flexLine.mTotalFlexShrink += lp.flexShrink;
-            // Temporarily set the cross axis length as the largest child width in the column
-            // Expand along the cross axis depending on the mAlignContent property if needed
-            // later
-            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestWidthInColumn);
-
-            if (hasDividerBeforeChildAtAlongMainAxis(i, indexInFlexLine)) {
-                flexLine.mMainSize += mDividerHorizontalHeight;
             }
-            addFlexLineIfLastFlexItem(i, childCount, flexLine);
+            child.measure(
+                    MeasureSpec.makeMeasureSpec(mEngine.getFrameRight(i) - mEngine.getFrameLeft(i),
+                            MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mEngine.getFrameBottom(i) - mEngine.getFrameTop(i),
+                            MeasureSpec.EXACTLY));
         }
-
-        determineMainSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec);
-        determineCrossSize(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
-                getPaddingLeft() + getPaddingRight());
-        // Now cross size for each flex line is determined.
-        // Expand the views if alignItems (or alignSelf in each child view) is set to stretch
-        stretchViews(mFlexDirection, mAlignItems);
-        setMeasuredDimensionForFlex(mFlexDirection, widthMeasureSpec, heightMeasureSpec,
-                childState);
     }
 
     /**
-     * Checks if the view's width/height don't violate the minimum/maximum size constraints imposed
-     * by the {@link LayoutParams#minWidth}, {@link LayoutParams#minHeight},
-     * {@link LayoutParams#maxWidth} and {@link LayoutParams#maxHeight} attributes.
-     *
-     * @param view the view to be checked
+     * Run the flex algorithm with the MeasureSpecs of the measure restored from the layout cache
+     * and lay out again if the results differ from the restored ones, e.g. because the content
+     * of the children changed without the content version being changed.
      */
-    private void checkSizeConstraints(View view) {
-        boolean needsMeasure = false;
-        LayoutParams lp = (LayoutParams) view.getLayoutParams();
-        int childWidth = view.getMeasuredWidth();
-        int childHeight = view.getMeasuredHeight();
-
-        if (view.getMeasuredWidth() < lp.minWidth) {
-            needsMeasure = true;
-            childWidth = lp.minWidth;
-        } else if (view.getMeasuredWidth() > lp.maxWidth) {
-            needsMeasure = true;
-            childWidth = lp.maxWidth;
-        }
-
-        if (childHeight < lp.minHeight) {
-            needsMeasure = true;
-            childHeight = lp.minHeight;
-        } else if (childHeight > lp.maxHeight) {
-            needsMeasure = true;
-            childHeight = lp.maxHeight;
-        }
-        if (needsMeasure) {
-            view.measure(MeasureSpec.makeMeasureSpec(childWidth, MeasureSpec.EXACTLY),
-                    MeasureSpec.makeMeasureSpec(childHeight, MeasureSpec.EXACTLY));
-        }
-    }
-
-    private void addFlexLineIfLastFlexItem(int childIndex, int childCount, FlexLine flexLine) {
-        if (childIndex == childCount - 1 && flexLine.getItemCountNotGone() != 0) {
-            // Add the flex line if this item is the last item
-            addFlexLine(flexLine);
+    private void validateLayoutCache() {
+        mLayoutCacheValidated = true;
+        if (!mRestoredFromLayoutCache || mLayoutCache == null) {
+            return;
         }
-    }
-
-    private void addFlexLine(FlexLine flexLine) {
-        // The size of the end divider isn't added until the flexLine is added to the flex container
-        // take the divider width (or height) into account when adding the flex line.
-        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-            if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
-                flexLine.mMainSize += mDividerVerticalWidth;
-                flexLine.mDividerLengthInMainSize += mDividerVerticalWidth;
+        mRestoredFromLayoutCache = false;
+        int measuredWidthAndState = getMeasuredWidthAndState();
+        int measuredHeightAndState = getMeasuredHeightAndState();
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        measureOutsideMeasurePass(mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+        boolean matches = mEngine.getMeasuredWidthAndState() == measuredWidthAndState
+                && mEngine.getMeasuredHeightAndState() == measuredHeightAndState;
+        if (matches) {
+            mEngine.layout(getLeft(), getTop(), getRight(), getBottom(), isLayoutRtl());
+            int childCount = getChildCount();
+            for (int i = 0; i < childCount && matches; i++) {
+                View child = getReorderedChildAt(i);
+                if (child == null || child.getVisibility() == View.GONE) {
+                    continue;
+                }
+                matches = child.getLeft() == mEngine.getFrameLeft(i)
+                        && child.getTop() == mEngine.getFrameTop(i)
+                        && child.getRight() == mEngine.getFrameRight(i)
+                        && child.getBottom() == mEngine.getFrameBottom(i);
             }
-        } else {
-            if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
-                flexLine.mMainSize += mDividerHorizontalHeight;
-                flexLine.mDividerLengthInMainSize += mDividerHorizontalHeight;
+            if (matches) {
+                // Lay out the children measured again by the flex algorithm at the same frames
+                applyChildFrames(childCount);
+                return;
             }
         }
-        mFlexLines.add(flexLine);
+        // Discard the stale results so that the next measure runs the flex algorithm, whose
+        // results are added to the cache in place of them
+        mLayoutCache.remove(mLayoutCacheKey);
+        mLayoutCacheValidated = false;
+        requestLayout();
     }
 
     /**
-     * Determine the main size by expanding (shrinking if negative remaining free space is given)
-     * an individual child in each flex line if any children's flexGrow (or flexShrink if remaining
-     * space is negative) properties are set to non-zero.
-     *
-     * @param flexDirection     the value of the flex direction
-     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec vertical space requirements as imposed by the parent
-     * @see #setFlexDirection(int)
-     * @see #getFlexDirection()
-     */
-    private void determineMainSize(@FlexDirection int flexDirection, int widthMeasureSpec,
-            int heightMeasureSpec) {
-        int mainSize;
-        int paddingAlongMainAxis;
-        switch (flexDirection) {
-            case FLEX_DIRECTION_ROW: // Intentional fall through
-            case FLEX_DIRECTION_ROW_REVERSE:
-                int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-                int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-                if (widthMode == MeasureSpec.EXACTLY) {
-                    mainSize = widthSize;
-                } else {
-                    mainSize = getLargestMainSize();
-                }
-                paddingAlongMainAxis = getPaddingLeft() + getPaddingRight();
-                break;
-            case FLEX_DIRECTION_COLUMN: // Intentional fall through
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-                int heightSize = MeasureSpec.getSize(heightMeasureSpec);
-                if (heightMode == MeasureSpec.EXACTLY) {
-                    mainSize = heightSize;
-                } else {
-                    mainSize = getLargestMainSize();
-                }
-                paddingAlongMainAxis = getPaddingTop() + getPaddingBottom();
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
-        }
-
-        int childIndex = 0;
-        for (FlexLine flexLine : mFlexLines) {
-            if (flexLine.mMainSize < mainSize) {
-                childIndex = expandFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
-                        flexDirection, mainSize, paddingAlongMainAxis, childIndex, false);
-            } else {
-                childIndex = shrinkFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine,
-                        flexDirection, mainSize, paddingAlongMainAxis, childIndex, false);
-            }
+     * Run the flex algorithm outside of a measure pass of this layout, e.g. to validate a layout
+     * restored from the layout cache. The {@link MeasureCounter}, the {@link LayoutRecorder} and
+     * the debug overlay are detached meanwhile, since they observe the measure passes of this
+     * layout only, e.g. a replay of the recorded passes shouldn't contain a pass which never
+     * happened in {@link #onMeasure(int, int)}.
+     */
+    private void measureOutsideMeasurePass(int widthMeasureSpec, int heightMeasureSpec) {
+        MeasureCounter measureCounter = mEngine.getMeasureCounter();
+        LayoutRecorder layoutRecorder = mEngine.getLayoutRecorder();
+        FlexboxDebugOverlay debugOverlay = mDebugOverlay;
+        mEngine.setMeasureCounter(null);
+        mEngine.setLayoutRecorder(null);
+        mDebugOverlay = null;
+        try {
+            mEngine.measure(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            mEngine.setMeasureCounter(measureCounter);
+            mEngine.setLayoutRecorder(layoutRecorder);
+            mDebugOverlay = debugOverlay;
         }
     }
 
-    /**
-     * Expand the flex items along the main axis based on the individual flexGrow attribute.
-     *
-     * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
-     * @param flexLine             the flex line to which flex items belong
-     * @param flexDirection        the flexDirection value for this FlexboxLayout
-     * @param maxMainSize          the maximum main size. Expanded main size will be this size
-     * @param paddingAlongMainAxis the padding value along the main axis
-     * @param startIndex           the start index of the children views to be expanded. This index
-     *                             needs to
-     *                             be an absolute index in the flex container (FlexboxLayout),
-     *                             not the relative index in the flex line.
-     * @param calledRecursively    true if this method is called recursively, false otherwise
-     * @return the next index, the next flex line's first flex item starts from the returned index
-     * @see #getFlexDirection()
-     * @see #setFlexDirection(int)
-     * @see LayoutParams#flexGrow
-     */
-    private int expandFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
-            @FlexDirection int flexDirection, int maxMainSize, int paddingAlongMainAxis,
-            int startIndex, boolean calledRecursively) {
-        int childIndex = startIndex;
-        if (flexLine.mTotalFlexGrow <= 0 || maxMainSize < flexLine.mMainSize) {
-            childIndex += flexLine.mItemCount;
-            return childIndex;
-        }
-        int sizeBeforeExpand = flexLine.mMainSize;
-        boolean needsReexpand = false;
-        float unitSpace = (maxMainSize - flexLine.mMainSize) / flexLine.mTotalFlexGrow;
-        flexLine.mMainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
-
-        // Setting the cross size of the flex line as the temporal value since the cross size of
-        // each flex item may be changed from the initial calculation
-        // (in the measureHorizontal/measureVertical method) even this method is part of the main
-        // size determination.
-        // E.g. If a TextView's layout_width is set to 0dp, layout_height is set to wrap_content,
-        // and layout_flexGrow is set to 1, the TextView is trying to expand to the vertical
-        // direction to enclose its content (in the measureHorizontal method), but
-        // the width will be expanded in this method. In that case, the height needs to be measured
-        // again with the expanded width.
-        if (!calledRecursively) {
-            flexLine.mCrossSize = Integer.MIN_VALUE;
-        }
-        int largestCrossSize = 0;
-        float accumulatedRoundError = 0;
-        for (int i = 0; i < flexLine.mItemCount; i++) {
-            View child = getReorderedChildAt(childIndex);
-            if (child == null) {
-                continue;
-            } else if (child.getVisibility() == View.GONE) {
-                childIndex++;
-                continue;
-            }
-            LayoutParams lp = (LayoutParams) child.getLayoutParams();
-            if (isMainAxisDirectionHorizontal(flexDirection)) {
-                // The direction of the main axis is horizontal
-                if (!mChildrenFrozen[childIndex]) {
-                    float rawCalculatedWidth = child.getMeasuredWidth() + unitSpace * lp.flexGrow;
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedWidth += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newWidth = Math.round(rawCalculatedWidth);
-                    if (newWidth > lp.maxWidth) {
-                        // This means the child can't expand beyond the value of the maxWidth attribute.
-                        // To adjust the flex line length to the size of maxMainSize, remaining
-                        // positive free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // startIndex.
-                        needsReexpand = true;
-                        newWidth = lp.maxWidth;
-                        mChildrenFrozen[childIndex] = true;
-                        flexLine.mTotalFlexGrow -= lp.flexGrow;
-                    } else {
-                        accumulatedRoundError += (rawCalculatedWidth - newWidth);
-                        if (accumulatedRoundError > 1.0) {
-                            newWidth += 1;
-                            accumulatedRoundError -= 1.0;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newWidth -= 1;
-                            accumulatedRoundError += 1.0;
-                        }
-                    }
-                    int childHeightMeasureSpec = getChildHeightMeasureSpec(heightMeasureSpec, lp);
-                    child.measure(MeasureSpec.makeMeasureSpec(newWidth, MeasureSpec.EXACTLY),
-                            childHeightMeasureSpec);
-                    largestCrossSize = Math.max(largestCrossSize, child.getMeasuredHeight()
-                            + lp.topMargin + lp.bottomMargin);
-                }
-                flexLine.mMainSize += child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
-            } else {
-                // The direction of the main axis is vertical
-                if (!mChildrenFrozen[childIndex]) {
-                    float rawCalculatedHeight = child.getMeasuredHeight() + unitSpace * lp.flexGrow;
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedHeight += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newHeight = Math.round(rawCalculatedHeight);
-                    if (newHeight > lp.maxHeight) {
-                        // This means the child can't expand beyond the value of the maxHeight
-                        // attribute.
-                        // To adjust the flex line length to the size of maxMainSize, remaining
-                        // positive free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // startIndex.
-                        needsReexpand = true;
-                        newHeight = lp.maxHeight;
-                        mChildrenFrozen[childIndex] = true;
-                        flexLine.mTotalFlexGrow -= lp.flexGrow;
-                    } else {
-                        accumulatedRoundError += (rawCalculatedHeight - newHeight);
-                        if (accumulatedRoundError > 1.0) {
-                            newHeight += 1;
-                            accumulatedRoundError -= 1.0;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newHeight -= 1;
-                            accumulatedRoundError += 1.0;
-                        }
-                    }
-                    int childWidthMeasureSpec = getChildWidthMeasureSpec(widthMeasureSpec, lp);
-                    child.measure(childWidthMeasureSpec,
-                            MeasureSpec.makeMeasureSpec(newHeight, MeasureSpec.EXACTLY));
-                    largestCrossSize = Math.max(largestCrossSize, child.getMeasuredWidth()
-                            + lp.leftMargin + lp.rightMargin);
-                }
-                flexLine.mMainSize += child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
-            }
-            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestCrossSize);
-            childIndex++;
-        }
-
-        if (needsReexpand && sizeBeforeExpand != flexLine.mMainSize) {
-            // Re-invoke the method with the same startIndex to distribute the positive free space
-            // that wasn't fully distributed (because of maximum length constraint)
-            expandFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine, flexDirection,
-                    maxMainSize, paddingAlongMainAxis, startIndex, true);
-        }
-        return childIndex;
+    private boolean isLayoutRtl() {
+        return ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL;
     }
 
-    /**
-     * Shrink the flex items along the main axis based on the individual flexShrink attribute.
-     *
-     * @param widthMeasureSpec     the horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec    the vertical space requirements as imposed by the parent
-     * @param flexLine             the flex line to which flex items belong
-     * @param flexDirection        the flexDirection value for this FlexboxLayout
-     * @param maxMainSize          the maximum main size. Shrank main size will be this size
-     * @param paddingAlongMainAxis the padding value along the main axis
-     * @param startIndex           the start index of the children views to be shrank. This index
-     *                             needs to
-     *                             be an absolute index in the flex container (FlexboxLayout),
-     *                             not the relative index in the flex line.
-     * @param calledRecursively    true if this method is called recursively, false otherwise
-     * @return the next index, the next flex line's first flex item starts from the returned index
-     * @see #getFlexDirection()
-     * @see #setFlexDirection(int)
-     * @see LayoutParams#flexShrink
-     */
-    private int shrinkFlexItems(int widthMeasureSpec, int heightMeasureSpec, FlexLine flexLine,
-            @FlexDirection int flexDirection, int maxMainSize, int paddingAlongMainAxis,
-            int startIndex, boolean calledRecursively) {
-        int childIndex = startIndex;
-        int sizeBeforeShrink = flexLine.mMainSize;
-        if (flexLine.mTotalFlexShrink <= 0 || maxMainSize > flexLine.mMainSize) {
-            childIndex += flexLine.mItemCount;
-            return childIndex;
-        }
-        boolean needsReshrink = false;
-        float unitShrink = (flexLine.mMainSize - maxMainSize) / flexLine.mTotalFlexShrink;
-        float accumulatedRoundError = 0;
-        flexLine.mMainSize = paddingAlongMainAxis + flexLine.mDividerLengthInMainSize;
-
-        // Setting the cross size of the flex line as the temporal value since the cross size of
-        // each flex item may be changed from the initial calculation
-        // (in the measureHorizontal/measureVertical method) even this method is part of the main
-        // size determination.
-        // E.g. If a TextView's layout_width is set to 0dp, layout_height is set to wrap_content,
-        // and layout_flexGrow is set to 1, the TextView is trying to expand to the vertical
-        // direction to enclose its content (in the measureHorizontal method), but
-        // the width will be expanded in this method. In that case, the height needs to be measured
-        // again with the expanded width.
-        int largestCrossSize = 0;
-        if (!calledRecursively) {
-            flexLine.mCrossSize = Integer.MIN_VALUE;
-        }
-        for (int i = 0; i < flexLine.mItemCount; i++) {
-            View child = getReorderedChildAt(childIndex);
-            if (child == null) {
-                continue;
-            } else if (child.getVisibility() == View.GONE) {
-                childIndex++;
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mOnLayoutStatsListener != null) {
+            mDrawStartNanos = System.nanoTime();
+            mDrawStarted = true;
+        }
+        mEngine.beginTraceSection(FlexboxEngine.TRACE_SECTION_DRAW_DIVIDERS);
+        int[] frames = mEngine.mDividerFrames;
+        int end = mEngine.mDividerCount * FlexboxEngine.DIVIDER_FRAME_SIZE;
+        for (int i = 0; i < end; i += FlexboxEngine.DIVIDER_FRAME_SIZE) {
+            Drawable divider = frames[i] == FlexboxEngine.DIVIDER_VERTICAL
+                    ? mDividerDrawableVertical : mDividerDrawableHorizontal;
+            if (divider == null) {
                 continue;
             }
-            LayoutParams lp = (LayoutParams) child.getLayoutParams();
-            if (isMainAxisDirectionHorizontal(flexDirection)) {
-                // The direction of main axis is horizontal
-                if (!mChildrenFrozen[childIndex]) {
-                    float rawCalculatedWidth = child.getMeasuredWidth()
-                            - unitShrink * lp.flexShrink;
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedWidth += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newWidth = Math.round(rawCalculatedWidth);
-                    if (newWidth < lp.minWidth) {
-                        // This means the child doesn't have enough space to distribute the negative
-                        // free space. To adjust the flex line length down to the maxMainSize, remaining
-                        // negative free space needs to be re-distributed to other flex items
-                        // (children views). In that case, invoke this method again with the same
-                        // startIndex.
-                        needsReshrink = true;
-                        newWidth = lp.minWidth;
-                        mChildrenFrozen[childIndex] = true;
-                        flexLine.mTotalFlexShrink -= lp.flexShrink;
-                    } else {
-                        accumulatedRoundError += (rawCalculatedWidth - newWidth);
-                        if (accumulatedRoundError > 1.0) {
-                            newWidth += 1;
-                            accumulatedRoundError -= 1;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newWidth -= 1;
-                            accumulatedRoundError += 1;
-                        }
-                    }
-                    int childHeightMeasureSpec = getChildHeightMeasureSpec(heightMeasureSpec, lp);
-                    child.measure(MeasureSpec.makeMeasureSpec(newWidth, MeasureSpec.EXACTLY),
-                            childHeightMeasureSpec);
-                    largestCrossSize = Math.max(largestCrossSize, child.getMeasuredHeight()
-                            + lp.topMargin + lp.bottomMargin);
-                }
-                flexLine.mMainSize += child.getMeasuredWidth() + lp.leftMargin + lp.rightMargin;
-            } else {
-                // The direction of main axis is vertical
-                if (!mChildrenFrozen[childIndex]) {
-                    float rawCalculatedHeight = child.getMeasuredHeight()
-                            - unitShrink * lp.flexShrink;
-                    if (i == flexLine.mItemCount - 1) {
-                        rawCalculatedHeight += accumulatedRoundError;
-                        accumulatedRoundError = 0;
-                    }
-                    int newHeight = Math.round(rawCalculatedHeight);
-                    if (newHeight < lp.minHeight) {
-                        // Need to invoke this method again like the case flex direction is vertical
-                        needsReshrink = true;
-                        newHeight = lp.minHeight;
-                        mChildrenFrozen[childIndex] = true;
-                        flexLine.mTotalFlexShrink -= lp.flexShrink;
-                    } else {
-                        accumulatedRoundError += (rawCalculatedHeight - newHeight);
-                        if (accumulatedRoundError > 1.0) {
-                            newHeight += 1;
-                            accumulatedRoundError -= 1;
-                        } else if (accumulatedRoundError < -1.0) {
-                            newHeight -= 1;
-                            accumulatedRoundError += 1;
-                        }
-                    }
-                    int childWidthMeasureSpec = getChildWidthMeasureSpec(widthMeasureSpec, lp);
-                    child.measure(childWidthMeasureSpec,
-                            MeasureSpec.makeMeasureSpec(newHeight, MeasureSpec.EXACTLY));
-                    largestCrossSize = Math.max(largestCrossSize, child.getMeasuredWidth()
-                            + lp.leftMargin + lp.rightMargin);
-                }
-                flexLine.mMainSize += child.getMeasuredHeight() + lp.topMargin + lp.bottomMargin;
-            }
-            flexLine.mCrossSize = Math.max(flexLine.mCrossSize, largestCrossSize);
-            childIndex++;
-        }
-
-        if (needsReshrink && sizeBeforeShrink != flexLine.mMainSize) {
-            // Re-invoke the method with the same startIndex to distribute the negative free space
-            // that wasn't fully distributed (because some views length were not enough)
-            shrinkFlexItems(widthMeasureSpec, heightMeasureSpec, flexLine, flexDirection,
-                    maxMainSize, paddingAlongMainAxis, startIndex, true);
+            divider.setBounds(frames[i + 1], frames[i + 2], frames[i + 3], frames[i + 4]);
+            divider.draw(canvas);
         }
-        return childIndex;
+        mEngine.endTraceSection();
     }
 
-    private int getChildWidthMeasureSpec(int widthMeasureSpec, LayoutParams lp) {
-        int childWidthMeasureSpec = getChildMeasureSpec(widthMeasureSpec,
-                getPaddingLeft() + getPaddingRight() + lp.leftMargin
-                        + lp.rightMargin, lp.width);
-        int childWidth = MeasureSpec.getSize(childWidthMeasureSpec);
-        if (childWidth > lp.maxWidth) {
-            childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(lp.maxWidth,
-                    MeasureSpec.getMode(childWidthMeasureSpec));
-        } else if (childWidth < lp.minWidth) {
-            childWidthMeasureSpec = MeasureSpec.makeMeasureSpec(lp.minWidth,
-                    MeasureSpec.getMode(childWidthMeasureSpec));
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mOnLayoutStatsListener == null) {
+            super.dispatchDraw(canvas);
+            drawDebugOverlay(canvas);
+            return;
         }
-        return childWidthMeasureSpec;
+        // onDraw isn't called if there are no dividers to be drawn
+        long start = mDrawStarted ? mDrawStartNanos : System.nanoTime();
+        mDrawStarted = false;
+        super.dispatchDraw(canvas);
+        drawDebugOverlay(canvas);
+        dispatchLayoutStats(LayoutStats.PASS_DRAW, System.nanoTime() - start);
     }
 
-    private int getChildHeightMeasureSpec(int heightMeasureSpec, LayoutParams lp) {
-        int childHeightMeasureSpec = getChildMeasureSpec(heightMeasureSpec,
-                getPaddingTop() + getPaddingBottom() + lp.topMargin
-                        + lp.bottomMargin, lp.height);
-        int childHeight = MeasureSpec.getSize(childHeightMeasureSpec);
-        if (childHeight > lp.maxHeight) {
-            childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(lp.maxHeight,
-                    MeasureSpec.getMode(childHeightMeasureSpec));
-        } else if (childHeight < lp.minHeight) {
-            childHeightMeasureSpec = MeasureSpec.makeMeasureSpec(lp.minHeight,
-                    MeasureSpec.getMode(childHeightMeasureSpec));
+    private void drawDebugOverlay(Canvas canvas) {
+        if (mDebugOverlay != null) {
+            mDebugOverlay.draw(canvas, this, mEngine.getFlexLinesInternal());
         }
-        return childHeightMeasureSpec;
     }
 
-    /**
-     * Determines the cross size (Calculate the length along the cross axis).
-     * Expand the cross size only if the height mode is MeasureSpec.EXACTLY, otherwise
-     * use the sum of cross sizes of all flex lines.
-     *
-     * @param flexDirection         the flex direction attribute
-     * @param widthMeasureSpec      horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec     vertical space requirements as imposed by the parent
-     * @param paddingAlongCrossAxis the padding value for the FlexboxLayout along the cross axis
-     * @see #getFlexDirection()
-     * @see #setFlexDirection(int)
-     * @see #getAlignContent()
-     * @see #setAlignContent(int)
-     */
-    private void determineCrossSize(int flexDirection, int widthMeasureSpec,
-            int heightMeasureSpec, int paddingAlongCrossAxis) {
-        // The MeasureSpec mode along the cross axis
-        int mode;
-        // The MeasureSpec size along the cross axis
-        int size;
-        switch (flexDirection) {
-            case FLEX_DIRECTION_ROW: // Intentional fall through
-            case FLEX_DIRECTION_ROW_REVERSE:
-                mode = MeasureSpec.getMode(heightMeasureSpec);
-                size = MeasureSpec.getSize(heightMeasureSpec);
-                break;
-            case FLEX_DIRECTION_COLUMN: // Intentional fall through
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                mode = MeasureSpec.getMode(widthMeasureSpec);
-                size = MeasureSpec.getSize(widthMeasureSpec);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
-        }
-        if (mode == MeasureSpec.EXACTLY) {
-            int totalCrossSize = getSumOfCrossSize() + paddingAlongCrossAxis;
-            if (mFlexLines.size() == 1) {
-                mFlexLines.get(0).mCrossSize = size - paddingAlongCrossAxis;
-                // alignContent property is valid only if the Flexbox has at least two lines
-            } else if (mFlexLines.size() >= 2 && totalCrossSize < size) {
-                switch (mAlignContent) {
-                    case ALIGN_CONTENT_STRETCH: {
-                        float freeSpaceUnit = (size - totalCrossSize) / (float) mFlexLines.size();
-                        float accumulatedError = 0;
-                        for (int i = 0, flexLinesSize = mFlexLines.size(); i < flexLinesSize; i++) {
-                            FlexLine flexLine = mFlexLines.get(i);
-                            float newCrossSizeAsFloat = flexLine.mCrossSize + freeSpaceUnit;
-                            if (i == mFlexLines.size() - 1) {
-                                newCrossSizeAsFloat += accumulatedError;
-                                accumulatedError = 0;
-                            }
-                            int newCrossSize = Math.round(newCrossSizeAsFloat);
-                            accumulatedError += (newCrossSizeAsFloat - newCrossSize);
-                            if (accumulatedError > 1) {
-                                newCrossSize += 1;
-                                accumulatedError -= 1;
-                            } else if (accumulatedError < -1) {
-                                newCrossSize -= 1;
-                                accumulatedError += 1;
-                            }
-                            flexLine.mCrossSize = newCrossSize;
-                        }
-                        break;
-                    }
-                    case ALIGN_CONTENT_SPACE_AROUND: {
-                        // The value of free space along the cross axis which needs to be put on top
-                        // and below the bottom of each flex line.
-                        int spaceTopAndBottom = size - totalCrossSize;
-                        // The number of spaces along the cross axis
-                        int numberOfSpaces = mFlexLines.size() * 2;
-                        spaceTopAndBottom = spaceTopAndBottom / numberOfSpaces;
-                        List<FlexLine> newFlexLines = new ArrayList<>();
-                        FlexLine dummySpaceFlexLine = new FlexLine();
-                        dummySpaceFlexLine.mCrossSize = spaceTopAndBottom;
-                        for (FlexLine flexLine : mFlexLines) {
-                            newFlexLines.add(dummySpaceFlexLine);
-                            newFlexLines.add(flexLine);
-                            newFlexLines.add(dummySpaceFlexLine);
-                        }
-                        mFlexLines = newFlexLines;
-                        break;
-                    }
-                    case ALIGN_CONTENT_SPACE_BETWEEN: {
-                        // The value of free space along the cross axis between each flex line.
-                        float spaceBetweenFlexLine = size - totalCrossSize;
-                        int numberOfSpaces = mFlexLines.size() - 1;
-                        spaceBetweenFlexLine = spaceBetweenFlexLine / (float) numberOfSpaces;
-                        float accumulatedError = 0;
-                        List<FlexLine> newFlexLines = new ArrayList<>();
-                        for (int i = 0, flexLineSize = mFlexLines.size(); i < flexLineSize; i++) {
-                            FlexLine flexLine = mFlexLines.get(i);
-                            newFlexLines.add(flexLine);
-
-                            if (i != mFlexLines.size() - 1) {
-                                FlexLine dummySpaceFlexLine = new FlexLine();
-                                if (i == mFlexLines.size() - 2) {
-                                    // The last dummy space block in the flex container.
-                                    // Adjust the cross size by the accumulated error.
-                                    dummySpaceFlexLine.mCrossSize = Math
-                                            .round(spaceBetweenFlexLine + accumulatedError);
-                                    accumulatedError = 0;
-                                } else {
-                                    dummySpaceFlexLine.mCrossSize = Math
-                                            .round(spaceBetweenFlexLine);
-                                }
-                                accumulatedError += (spaceBetweenFlexLine
-                                        - dummySpaceFlexLine.mCrossSize);
-                                if (accumulatedError > 1) {
-                                    dummySpaceFlexLine.mCrossSize += 1;
-                                    accumulatedError -= 1;
-                                } else if (accumulatedError < -1) {
-                                    dummySpaceFlexLine.mCrossSize -= 1;
-                                    accumulatedError += 1;
-                                }
-                                newFlexLines.add(dummySpaceFlexLine);
-                            }
-                        }
-                        mFlexLines = newFlexLines;
-                        break;
-                    }
-                    case ALIGN_CONTENT_CENTER: {
-                        int spaceAboveAndBottom = size - totalCrossSize;
-                        spaceAboveAndBottom = spaceAboveAndBottom / 2;
-                        List<FlexLine> newFlexLines = new ArrayList<>();
-                        FlexLine dummySpaceFlexLine = new FlexLine();
-                        dummySpaceFlexLine.mCrossSize = spaceAboveAndBottom;
-                        for (int i = 0, flexLineSize = mFlexLines.size(); i < flexLineSize; i++) {
-                            if (i == 0) {
-                                newFlexLines.add(dummySpaceFlexLine);
-                            }
-                            FlexLine flexLine = mFlexLines.get(i);
-                            newFlexLines.add(flexLine);
-                            if (i == mFlexLines.size() - 1) {
-                                newFlexLines.add(dummySpaceFlexLine);
-                            }
-                        }
-                        mFlexLines = newFlexLines;
-                        break;
-                    }
-                    case ALIGN_CONTENT_FLEX_END: {
-                        int spaceTop = size - totalCrossSize;
-                        FlexLine dummySpaceFlexLine = new FlexLine();
-                        dummySpaceFlexLine.mCrossSize = spaceTop;
-                        mFlexLines.add(0, dummySpaceFlexLine);
-                        break;
-                    }
-                }
-            }
-        }
+    private void dispatchLayoutStats(@LayoutStats.LayoutPass int pass, long durationNanos) {
+        LayoutStats stats = mLayoutStats;
+        stats.mPass = pass;
+        stats.mDurationNanos = durationNanos;
+        stats.mChildCount = getChildCount();
+        stats.mFlexLineCount = mEngine.getFlexLineCount();
+        stats.mRemeasureCount = mEngine.getRemeasureCount();
+        stats.mReexpanded = mEngine.hasReexpanded();
+        stats.mReshrunk = mEngine.hasReshrunk();
+        mOnLayoutStatsListener.onLayoutStats(this, stats);
     }
 
-    /**
-     * Expand the view if the {@link #mAlignItems} attribute is set to {@link #ALIGN_ITEMS_STRETCH}
-     * or {@link LayoutParams#ALIGN_SELF_STRETCH} is set to an individual child view.
-     *
-     * @param flexDirection the flex direction attribute
-     * @param alignItems    the align items attribute
-     * @see #getFlexDirection()
-     * @see #setFlexDirection(int)
-     * @see #getAlignItems()
-     * @see #setAlignItems(int)
-     * @see LayoutParams#alignSelf
-     */
-    private void stretchViews(int flexDirection, int alignItems) {
-        if (alignItems == ALIGN_ITEMS_STRETCH) {
-            int viewIndex = 0;
-            for (FlexLine flexLine : mFlexLines) {
-                for (int i = 0; i < flexLine.mItemCount; i++, viewIndex++) {
-                    View view = getReorderedChildAt(viewIndex);
-                    LayoutParams lp = (LayoutParams) view.getLayoutParams();
-                    if (lp.alignSelf != LayoutParams.ALIGN_SELF_AUTO &&
-                            lp.alignSelf != LayoutParams.ALIGN_SELF_STRETCH) {
-                        continue;
-                    }
-                    switch (flexDirection) {
-                        case FLEX_DIRECTION_ROW: // Intentional fall through
-                        case FLEX_DIRECTION_ROW_REVERSE:
-                            stretchViewVertically(view, flexLine.mCrossSize);
-                            break;
-                        case FLEX_DIRECTION_COLUMN:
-                        case FLEX_DIRECTION_COLUMN_REVERSE:
-                            stretchViewHorizontally(view, flexLine.mCrossSize);
-                            break;
-                        default:
-                            throw new IllegalArgumentException(
-                                    "Invalid flex direction: " + flexDirection);
-                    }
-                }
-            }
-        } else {
-            for (FlexLine flexLine : mFlexLines) {
-                for (Integer index : flexLine.mIndicesAlignSelfStretch) {
-                    View view = getReorderedChildAt(index);
-                    switch (flexDirection) {
-                        case FLEX_DIRECTION_ROW: // Intentional fall through
-                        case FLEX_DIRECTION_ROW_REVERSE:
-                            stretchViewVertically(view, flexLine.mCrossSize);
-                            break;
-                        case FLEX_DIRECTION_COLUMN:
-                        case FLEX_DIRECTION_COLUMN_REVERSE:
-                            stretchViewHorizontally(view, flexLine.mCrossSize);
-                            break;
-                        default:
-                            throw new IllegalArgumentException(
-                                    "Invalid flex direction: " + flexDirection);
-                    }
-                }
-            }
-        }
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof FlexboxLayout.LayoutParams;
     }
 
-    /**
-     * Expand the view vertically to the size of the crossSize (considering the view margins)
-     *
-     * @param view      the View to be stretched
-     * @param crossSize the cross size
-     */
-    private void stretchViewVertically(View view, int crossSize) {
-        LayoutParams lp = (LayoutParams) view.getLayoutParams();
-        int newHeight = crossSize - lp.topMargin - lp.bottomMargin;
-        newHeight = Math.max(newHeight, 0);
-        view.measure(MeasureSpec
-                        .makeMeasureSpec(view.getMeasuredWidth(), MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(newHeight, MeasureSpec.EXACTLY));
+    @Override
+    public LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new FlexboxLayout.LayoutParams(getContext(), attrs);
     }
 
-    /**
-     * Expand the view horizontally to the size of the crossSize (considering the view margins)
-     *
-     * @param view      the View to be stretched
-     * @param crossSize the cross size
-     */
-    private void stretchViewHorizontally(View view, int crossSize) {
-        LayoutParams lp = (LayoutParams) view.getLayoutParams();
-        int newWidth = crossSize - lp.leftMargin - lp.rightMargin;
-        newWidth = Math.max(newWidth, 0);
-        view.measure(MeasureSpec
-                        .makeMeasureSpec(newWidth, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(view.getMeasuredHeight(), MeasureSpec.EXACTLY));
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new LayoutParams(p);
     }
 
     /**
-     * Set this FlexboxLayouts' width and height depending on the calculated size of main axis and
-     * cross axis.
-     *
-     * @param flexDirection     the value of the flex direction
-     * @param widthMeasureSpec  horizontal space requirements as imposed by the parent
-     * @param heightMeasureSpec vertical space requirements as imposed by the parent
-     * @param childState        the child state of the View
-     * @see #getFlexDirection()
-     * @see #setFlexDirection(int)
-     */
-    private void setMeasuredDimensionForFlex(@FlexDirection int flexDirection, int widthMeasureSpec,
-            int heightMeasureSpec, int childState) {
-        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-        int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
-        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
-        int calculatedMaxHeight;
-        int calculatedMaxWidth;
-        switch (flexDirection) {
-            case FLEX_DIRECTION_ROW: // Intentional fall through
-            case FLEX_DIRECTION_ROW_REVERSE:
-                calculatedMaxHeight = getSumOfCrossSize() + getPaddingTop()
-                        + getPaddingBottom();
-                calculatedMaxWidth = getLargestMainSize();
-                break;
-            case FLEX_DIRECTION_COLUMN: // Intentional fall through
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                calculatedMaxHeight = getLargestMainSize();
-                calculatedMaxWidth = getSumOfCrossSize() + getPaddingLeft() + getPaddingRight();
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid flex direction: " + flexDirection);
-        }
-
-        int widthSizeAndState;
-        switch (widthMode) {
-            case MeasureSpec.EXACTLY:
-                if (widthSize < calculatedMaxWidth) {
-                    childState = ViewCompat
-                            .combineMeasuredStates(childState, ViewCompat.MEASURED_STATE_TOO_SMALL);
-                }
-                widthSizeAndState = ViewCompat.resolveSizeAndState(widthSize, widthMeasureSpec,
-                        childState);
-                break;
-            case MeasureSpec.AT_MOST: {
-                if (widthSize < calculatedMaxWidth) {
-                    childState = ViewCompat
-                            .combineMeasuredStates(childState, ViewCompat.MEASURED_STATE_TOO_SMALL);
-                } else {
-                    widthSize = calculatedMaxWidth;
-                }
-                widthSizeAndState = ViewCompat.resolveSizeAndState(widthSize, widthMeasureSpec,
-                        childState);
-                break;
-            }
-            case MeasureSpec.UNSPECIFIED: {
-                widthSizeAndState = ViewCompat
-                        .resolveSizeAndState(calculatedMaxWidth, widthMeasureSpec, childState);
-                break;
-            }
-            default:
-                throw new IllegalStateException("Unknown width mode is set: " + widthMode);
-        }
-        int heightSizeAndState;
-        switch (heightMode) {
-            case MeasureSpec.EXACTLY:
-                if (heightSize < calculatedMaxHeight) {
-                    childState = ViewCompat.combineMeasuredStates(childState,
-                            ViewCompat.MEASURED_STATE_TOO_SMALL
-                                    >> ViewCompat.MEASURED_HEIGHT_STATE_SHIFT);
-                }
-                heightSizeAndState = ViewCompat.resolveSizeAndState(heightSize, heightMeasureSpec,
-                        childState);
-                break;
-            case MeasureSpec.AT_MOST: {
-                if (heightSize < calculatedMaxHeight) {
-                    childState = ViewCompat.combineMeasuredStates(childState,
-                            ViewCompat.MEASURED_STATE_TOO_SMALL
-                                    >> ViewCompat.MEASURED_HEIGHT_STATE_SHIFT);
-                } else {
-                    heightSize = calculatedMaxHeight;
-                }
-                heightSizeAndState = ViewCompat.resolveSizeAndState(heightSize, heightMeasureSpec,
-                        childState);
-                break;
-            }
-            case MeasureSpec.UNSPECIFIED: {
-                heightSizeAndState = ViewCompat.resolveSizeAndState(calculatedMaxHeight,
-                        heightMeasureSpec, childState);
-                break;
-            }
-            default:
-                throw new IllegalStateException("Unknown height mode is set: " + heightMode);
-        }
-        setMeasuredDimension(widthSizeAndState, heightSizeAndState);
+     * The direction children items are placed inside the Flexbox layout, it determines the
+     * direction of the main axis (and the cross axis, perpendicular to the main axis).
+     * <ul>
+     * <li>
+     * {@link #FLEX_DIRECTION_ROW}: Main axis direction -> horizontal. Main start to
+     * main end -> Left to right (in LTR languages).
+     * Cross start to cross end -> Top to bottom
+     * </li>
+     * <li>
+     * {@link #FLEX_DIRECTION_ROW_REVERSE}: Main axis direction -> horizontal. Main start
+     * to main end -> Right to left (in LTR languages). Cross start to cross end ->
+     * Top to bottom.
+     * </li>
+     * <li>
+     * {@link #FLEX_DIRECTION_COLUMN}: Main axis direction -> vertical. Main start
+     * to main end -> Top to bottom. Cross start to cross end ->
+     * Left to right (In LTR languages).
+     * </li>
+     * <li>
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}: Main axis direction -> vertical. Main start
+     * to main end -> Bottom to top. Cross start to cross end -> Left to right
+     * (In LTR languages)
+     * </li>
+     * </ul>
+     * The default value is {@link #FLEX_DIRECTION_ROW}.
+     */
+    @FlexDirection
+    public int getFlexDirection() {
+        return mEngine.getFlexDirection();
     }
 
-    /**
-     * Determine if a wrap is required (add a new flex line).
-     *
-     * @param mode          the width or height mode along the main axis direction
-     * @param maxSize       the max size along the main axis direction
-     * @param currentLength the accumulated current length
-     * @param childLength   the length of a child view which is to be collected to the flex line
-     * @param lp            the LayoutParams for the view being determined whether a new flex line
-     *                      is needed
-     * @return {@code true} if a wrap is required, {@code false} otherwise
-     * @see #getFlexWrap()
-     * @see #setFlexWrap(int)
-     */
-    private boolean isWrapRequired(int mode, int maxSize, int currentLength, int childLength,
-            LayoutParams lp, int childAbsoluteIndex, int childRelativeIndexInFlexLine) {
-        if (mFlexWrap == FLEX_WRAP_NOWRAP) {
-            return false;
-        }
-        if (lp.wrapBefore) {
-            return true;
-        }
-        if (mode == MeasureSpec.UNSPECIFIED) {
-            return false;
-        }
-        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-            if (hasDividerBeforeChildAtAlongMainAxis(childAbsoluteIndex,
-                    childRelativeIndexInFlexLine)) {
-                childLength += mDividerVerticalWidth;
-            }
-            if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
-                childLength += mDividerVerticalWidth;
-            }
-        } else {
-            if (hasDividerBeforeChildAtAlongMainAxis(childAbsoluteIndex,
-                    childRelativeIndexInFlexLine)) {
-                childLength += mDividerHorizontalHeight;
-            }
-            if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
-                childLength += mDividerHorizontalHeight;
-            }
+    public void setFlexDirection(@FlexDirection int flexDirection) {
+        if (mEngine.getFlexDirection() != flexDirection) {
+            mEngine.setFlexDirection(flexDirection);
+            requestLayout();
         }
-        return maxSize < currentLength + childLength;
     }
 
     /**
-     * Retrieve the largest main size of all flex lines.
-     *
-     * @return the largest main size
+     * This attribute controls whether the flex container is single-line or multi-line, and the
+     * direction of the cross axis.
+     * <ul>
+     * <li>{@link #FLEX_WRAP_NOWRAP}: The flex container is single-line.</li>
+     * <li>{@link #FLEX_WRAP_WRAP}: The flex container is multi-line.</li>
+     * <li>{@link #FLEX_WRAP_WRAP_REVERSE}: The flex container is multi-line. The direction of the
+     * cross axis is opposed to the direction as the {@link #FLEX_WRAP_WRAP}</li>
+     * </ul>
+     * The default value is {@link #FLEX_WRAP_NOWRAP}.
      */
-    private int getLargestMainSize() {
-        int largestSize = Integer.MIN_VALUE;
-        for (FlexLine flexLine : mFlexLines) {
-            largestSize = Math.max(largestSize, flexLine.mMainSize);
+    @FlexWrap
+    public int getFlexWrap() {
+        return mEngine.getFlexWrap();
+    }
+
+    public void setFlexWrap(@FlexWrap int flexWrap) {
+        if (mEngine.getFlexWrap() != flexWrap) {
+            mEngine.setFlexWrap(flexWrap);
+            requestLayout();
         }
-        return largestSize;
     }
 
     /**
-     * Retrieve the sum of the cross sizes of all flex lines including divider lengths.
-     *
-     * @return the sum of the cross sizes
-     */
-    private int getSumOfCrossSize() {
-        int sum = 0;
-        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
-            FlexLine flexLine = mFlexLines.get(i);
-
-            // Judge if the beginning or middle dividers are required
-            if (hasDividerBeforeFlexLine(i)) {
-                if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                    sum += mDividerHorizontalHeight;
-                } else {
-                    sum += mDividerVerticalWidth;
-                }
-            }
+     * This attribute controls the alignment along the main axis.
+     * The default value is {@link #JUSTIFY_CONTENT_FLEX_START}.
+     */
+    @JustifyContent
+    public int getJustifyContent() {
+        return mEngine.getJustifyContent();
+    }
 
-            // Judge if the end divider is required
-            if (hasEndDividerAfterFlexLine(i)) {
-                if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                    sum += mDividerHorizontalHeight;
-                } else {
-                    sum += mDividerVerticalWidth;
-                }
-            }
-            sum += flexLine.mCrossSize;
+    public void setJustifyContent(@JustifyContent int justifyContent) {
+        if (mEngine.getJustifyContent() != justifyContent) {
+            mEngine.setJustifyContent(justifyContent);
+            requestLayout();
         }
-        return sum;
     }
 
-    private boolean isMainAxisDirectionHorizontal(@FlexDirection int flexDirection) {
-        return flexDirection == FLEX_DIRECTION_ROW
-                || flexDirection == FLEX_DIRECTION_ROW_REVERSE;
+    /**
+     * This attribute controls the alignment along the cross axis.
+     * The default value is {@link #ALIGN_ITEMS_STRETCH}.
+     */
+    @AlignItems
+    public int getAlignItems() {
+        return mEngine.getAlignItems();
     }
 
-    @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        int layoutDirection = ViewCompat.getLayoutDirection(this);
-        boolean isRtl;
-        switch (mFlexDirection) {
-            case FLEX_DIRECTION_ROW:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                layoutHorizontal(isRtl, left, top, right, bottom);
-                break;
-            case FLEX_DIRECTION_ROW_REVERSE:
-                isRtl = layoutDirection != ViewCompat.LAYOUT_DIRECTION_RTL;
-                layoutHorizontal(isRtl, left, top, right, bottom);
-                break;
-            case FLEX_DIRECTION_COLUMN:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    isRtl = !isRtl;
-                }
-                layoutVertical(isRtl, false, left, top, right, bottom);
-                break;
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    isRtl = !isRtl;
-                }
-                layoutVertical(isRtl, true, left, top, right, bottom);
-                break;
-            default:
-                throw new IllegalStateException("Invalid flex direction is set: " + mFlexDirection);
+    public void setAlignItems(@AlignItems int alignItems) {
+        if (mEngine.getAlignItems() != alignItems) {
+            mEngine.setAlignItems(alignItems);
+            requestLayout();
         }
     }
 
     /**
-     * Sub method for {@link #onLayout(boolean, int, int, int, int)} when the
-     * {@link #mFlexDirection} is either {@link #FLEX_DIRECTION_ROW} or
-     * {@link #FLEX_DIRECTION_ROW_REVERSE}.
-     *
-     * @param isRtl  {@code true} if the horizontal layout direction is right to left, {@code
-     *               false} otherwise.
-     * @param left   the left position of this View
-     * @param top    the top position of this View
-     * @param right  the right position of this View
-     * @param bottom the bottom position of this View
-     * @see #getFlexWrap()
-     * @see #setFlexWrap(int)
-     * @see #getJustifyContent()
-     * @see #setJustifyContent(int)
-     * @see #getAlignItems()
-     * @see #setAlignItems(int)
-     * @see LayoutParams#alignSelf
-     */
-    private void layoutHorizontal(boolean isRtl, int left, int top, int right, int bottom) {
-        int paddingLeft = getPaddingLeft();
-        int paddingRight = getPaddingRight();
-        // Use float to reduce the round error that may happen in when justifyContent ==
-        // SPACE_BETWEEN or SPACE_AROUND
-        float childLeft;
-        int currentViewIndex = 0;
-
-        int height = bottom - top;
-        int width = right - left;
-        // childBottom is used if the mFlexWrap is FLEX_WRAP_WRAP_REVERSE otherwise
-        // childTop is used to align the vertical position of the children views.
-        int childBottom = height - getPaddingBottom();
-        int childTop = getPaddingTop();
-
-        // Used only for RTL layout
-        // Use float to reduce the round error that may happen in when justifyContent ==
-        // SPACE_BETWEEN or SPACE_AROUND
-        float childRight;
-        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
-            FlexLine flexLine = mFlexLines.get(i);
-            if (hasDividerBeforeFlexLine(i)) {
-                childBottom -= mDividerHorizontalHeight;
-                childTop += mDividerHorizontalHeight;
-            }
-            float spaceBetweenItem = 0f;
-            switch (mJustifyContent) {
-                case JUSTIFY_CONTENT_FLEX_START:
-                    childLeft = paddingLeft;
-                    childRight = width - paddingRight;
-                    break;
-                case JUSTIFY_CONTENT_FLEX_END:
-                    childLeft = width - flexLine.mMainSize + paddingRight;
-                    childRight = flexLine.mMainSize - paddingLeft;
-                    break;
-                case JUSTIFY_CONTENT_CENTER:
-                    childLeft = paddingLeft + (width - flexLine.mMainSize) / 2f;
-                    childRight = width - paddingRight - (width - flexLine.mMainSize) / 2f;
-                    break;
-                case JUSTIFY_CONTENT_SPACE_AROUND:
-                    int visibleCount = flexLine.getItemCountNotGone();
-                    if (visibleCount != 0) {
-                        spaceBetweenItem = (width - flexLine.mMainSize)
-                                / (float) visibleCount;
-                    }
-                    childLeft = paddingLeft + spaceBetweenItem / 2f;
-                    childRight = width - paddingRight - spaceBetweenItem / 2f;
-                    break;
-                case JUSTIFY_CONTENT_SPACE_BETWEEN:
-                    childLeft = paddingLeft;
-                    int visibleItem = flexLine.getItemCountNotGone();
-                    float denominator = visibleItem != 1 ? visibleItem - 1 : 1f;
-                    spaceBetweenItem = (width - flexLine.mMainSize) / denominator;
-                    childRight = width - paddingRight;
-                    break;
-                default:
-                    throw new IllegalStateException(
-                            "Invalid justifyContent is set: " + mJustifyContent);
-            }
-            spaceBetweenItem = Math.max(spaceBetweenItem, 0);
-
-            for (int j = 0; j < flexLine.mItemCount; j++) {
-                View child = getReorderedChildAt(currentViewIndex);
-                if (child == null) {
-                    continue;
-                } else if (child.getVisibility() == View.GONE) {
-                    currentViewIndex++;
-                    continue;
-                }
-                LayoutParams lp = ((LayoutParams) child.getLayoutParams());
-                childLeft += lp.leftMargin;
-                childRight -= lp.rightMargin;
-                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
-                    childLeft += mDividerVerticalWidth;
-                    childRight -= mDividerVerticalWidth;
-                }
+     * This attribute controls the alignment of the flex lines in the flex container.
+     * The default value is {@link #ALIGN_CONTENT_STRETCH}.
+     */
+    @AlignContent
+    public int getAlignContent() {
+        return mEngine.getAlignContent();
+    }
 
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    if (isRtl) {
-                        layoutSingleChildHorizontal(child, flexLine, mFlexWrap, mAlignItems,
-                                Math.round(childRight) - child.getMeasuredWidth(),
-                                childBottom - child.getMeasuredHeight(), Math.round(childRight),
-                                childBottom);
-                    } else {
-                        layoutSingleChildHorizontal(child, flexLine, mFlexWrap, mAlignItems,
-                                Math.round(childLeft), childBottom - child.getMeasuredHeight(),
-                                Math.round(childLeft) + child.getMeasuredWidth(),
-                                childBottom);
-                    }
-                } else {
-                    if (isRtl) {
-                        layoutSingleChildHorizontal(child, flexLine, mFlexWrap, mAlignItems,
-                                Math.round(childRight) - child.getMeasuredWidth(), childTop,
-                                Math.round(childRight), childTop + child.getMeasuredHeight());
-                    } else {
-                        layoutSingleChildHorizontal(child, flexLine, mFlexWrap, mAlignItems,
-                                Math.round(childLeft), childTop,
-                                Math.round(childLeft) + child.getMeasuredWidth(),
-                                childTop + child.getMeasuredHeight());
-                    }
-                }
-                childLeft += child.getMeasuredWidth() + spaceBetweenItem + lp.rightMargin;
-                childRight -= child.getMeasuredWidth() + spaceBetweenItem + lp.leftMargin;
-                currentViewIndex++;
-
-                flexLine.mLeft = Math.min(flexLine.mLeft, child.getLeft() - lp.leftMargin);
-                flexLine.mTop = Math.min(flexLine.mTop, child.getTop() - lp.topMargin);
-                flexLine.mRight = Math.max(flexLine.mRight, child.getRight() + lp.rightMargin);
-                flexLine.mBottom = Math.max(flexLine.mBottom, child.getBottom() + lp.bottomMargin);
-            }
-            childTop += flexLine.mCrossSize;
-            childBottom -= flexLine.mCrossSize;
+    public void setAlignContent(@AlignContent int alignContent) {
+        if (mEngine.getAlignContent() != alignContent) {
+            mEngine.setAlignContent(alignContent);
+            requestLayout();
         }
     }
 
     /**
-     * Place a single View when the layout direction is horizontal ({@link #mFlexDirection} is
-     * either {@link #FLEX_DIRECTION_ROW} or {@link #FLEX_DIRECTION_ROW_REVERSE}).
+     * @return the flex lines composing this flex container. This method returns copies of the
+     * original flex lines excluding a dummy flex line (flex line that doesn't have any flex items
+     * in it but used for the alignment along the cross axis).
+     * Thus any changes of the returned list are not reflected to the original list, and the
+     * returned flex lines aren't changed by the following measure passes.
+     */
+    public List<FlexLine> getFlexLines() {
+        return mEngine.getFlexLines();
+    }
+
+    /**
+     * Returns the number of flex lines composing this flex container. Dummy flex lines (flex
+     * lines that don't have any flex items in it but used for the alignment along the cross axis)
+     * are not counted. Unlike {@link #getFlexLines()}, this method doesn't allocate any objects.
      *
-     * @param view       the View to be placed
-     * @param flexLine   the {@link FlexLine} where the View belongs to
-     * @param flexWrap   the flex wrap attribute of this FlexboxLayout
-     * @param alignItems the align items attribute of this FlexboxLayout
-     * @param left       the left position of the View, which the View's margin is already taken
-     *                   into account
-     * @param top        the top position of the flex line where the View belongs to. The actual
-     *                   View's top position is shifted depending on the flexWrap and alignItems
-     *                   attributes
-     * @param right      the right position of the View, which the View's margin is already taken
-     *                   into account
-     * @param bottom     the bottom position of the flex line where the View belongs to. The actual
-     *                   View's bottom position is shifted depending on the flexWrap and alignItems
-     *                   attributes
-     * @see #getAlignItems()
-     * @see #setAlignItems(int)
-     * @see LayoutParams#alignSelf
-     */
-    private void layoutSingleChildHorizontal(View view, FlexLine flexLine, @FlexWrap int flexWrap,
-            int alignItems, int left, int top, int right, int bottom) {
-        LayoutParams lp = (LayoutParams) view.getLayoutParams();
-        if (lp.alignSelf != LayoutParams.ALIGN_SELF_AUTO) {
-            // Expecting the values for alignItems and alignSelf match except for ALIGN_SELF_AUTO.
-            // Assigning the alignSelf value as alignItems should work.
-            alignItems = lp.alignSelf;
-        }
-        int crossSize = flexLine.mCrossSize;
-        switch (alignItems) {
-            case ALIGN_ITEMS_FLEX_START: // Intentional fall through
-            case ALIGN_ITEMS_STRETCH:
-                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                    view.layout(left, top + lp.topMargin, right, bottom + lp.topMargin);
-                } else {
-                    view.layout(left, top - lp.bottomMargin, right, bottom - lp.bottomMargin);
-                }
-                break;
-            case ALIGN_ITEMS_BASELINE:
-                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                    int marginTop = flexLine.mMaxBaseline - view.getBaseline();
-                    marginTop = Math.max(marginTop, lp.topMargin);
-                    view.layout(left, top + marginTop, right, bottom + marginTop);
-                } else {
-                    int marginBottom = flexLine.mMaxBaseline - view.getMeasuredHeight() + view
-                            .getBaseline();
-                    marginBottom = Math.max(marginBottom, lp.bottomMargin);
-                    view.layout(left, top - marginBottom, right, bottom - marginBottom);
-                }
-                break;
-            case ALIGN_ITEMS_FLEX_END:
-                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                    view.layout(left,
-                            top + crossSize - view.getMeasuredHeight() - lp.bottomMargin,
-                            right, top + crossSize - lp.bottomMargin);
-                } else {
-                    // If the flexWrap == FLEX_WRAP_WRAP_REVERSE, the direction of the
-                    // flexEnd is flipped (from top to bottom).
-                    view.layout(left, top - crossSize + view.getMeasuredHeight() + lp.topMargin,
-                            right, bottom - crossSize + view.getMeasuredHeight() + lp.topMargin);
-                }
-                break;
-            case ALIGN_ITEMS_CENTER:
-                int topFromCrossAxis = (crossSize - view.getMeasuredHeight()
-                        + lp.topMargin - lp.bottomMargin) / 2;
-                if (flexWrap != FLEX_WRAP_WRAP_REVERSE) {
-                    view.layout(left, top + topFromCrossAxis,
-                            right, top + topFromCrossAxis + view.getMeasuredHeight());
-                } else {
-                    view.layout(left, top - topFromCrossAxis,
-                            right, top - topFromCrossAxis + view.getMeasuredHeight());
-                }
-                break;
-        }
+     * @return the number of flex lines excluding dummy flex lines
+     * @see #getFlexLineAt(int)
+     */
+    public int getFlexLineCount() {
+        return mEngine.getFlexLineCount();
     }
 
     /**
-     * Sub method for {@link #onLayout(boolean, int, int, int, int)} when the
-     * {@link #mFlexDirection} is either {@link #FLEX_DIRECTION_COLUMN} or
-     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}.
+     * Returns the flex line at the specified position without copying the internal list of
+     * flex lines. The index is the same as the index of the list returned by
+     * {@link #getFlexLines()}.
+     * Note that the returned flex line is the one used by this flex container, thus its values are
+     * updated in the next measurement and layout.
      *
-     * @param isRtl           {@code true} if the horizontal layout direction is right to left,
-     *                        {@code false}
-     *                        otherwise
-     * @param fromBottomToTop {@code true} if the layout direction is bottom to top, {@code false}
-     *                        otherwise
-     * @param left            the left position of this View
-     * @param top             the top position of this View
-     * @param right           the right position of this View
-     * @param bottom          the bottom position of this View
-     * @see #getFlexWrap()
-     * @see #setFlexWrap(int)
-     * @see #getJustifyContent()
-     * @see #setJustifyContent(int)
-     * @see #getAlignItems()
-     * @see #setAlignItems(int)
-     * @see LayoutParams#alignSelf
-     */
-    private void layoutVertical(boolean isRtl, boolean fromBottomToTop, int left, int top,
-            int right, int bottom) {
-        int paddingTop = getPaddingTop();
-        int paddingBottom = getPaddingBottom();
-
-        int paddingRight = getPaddingRight();
-        int childLeft = getPaddingLeft();
-        int currentViewIndex = 0;
-
-        int width = right - left;
-        int height = bottom - top;
-        // childRight is used if the mFlexWrap is FLEX_WRAP_WRAP_REVERSE otherwise
-        // childLeft is used to align the horizontal position of the children views.
-        int childRight = width - paddingRight;
-
-        // Use float to reduce the round error that may happen in when justifyContent ==
-        // SPACE_BETWEEN or SPACE_AROUND
-        float childTop;
-
-        // Used only for if the direction is from bottom to top
-        float childBottom;
-
-        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
-            FlexLine flexLine = mFlexLines.get(i);
-            if (hasDividerBeforeFlexLine(i)) {
-                childLeft += mDividerVerticalWidth;
-                childRight -= mDividerVerticalWidth;
-            }
-            float spaceBetweenItem = 0f;
-            switch (mJustifyContent) {
-                case JUSTIFY_CONTENT_FLEX_START:
-                    childTop = paddingTop;
-                    childBottom = height - paddingBottom;
-                    break;
-                case JUSTIFY_CONTENT_FLEX_END:
-                    childTop = height - flexLine.mMainSize + paddingBottom;
-                    childBottom = flexLine.mMainSize - paddingTop;
-                    break;
-                case JUSTIFY_CONTENT_CENTER:
-                    childTop = paddingTop + (height - flexLine.mMainSize) / 2f;
-                    childBottom = height - paddingBottom - (height - flexLine.mMainSize) / 2f;
-                    break;
-                case JUSTIFY_CONTENT_SPACE_AROUND:
-                    int visibleCount = flexLine.getItemCountNotGone();
-                    if (visibleCount != 0) {
-                        spaceBetweenItem = (height - flexLine.mMainSize)
-                                / (float) visibleCount;
-                    }
-                    childTop = paddingTop + spaceBetweenItem / 2f;
-                    childBottom = height - paddingBottom - spaceBetweenItem / 2f;
-                    break;
-                case JUSTIFY_CONTENT_SPACE_BETWEEN:
-                    childTop = paddingTop;
-                    int visibleItem = flexLine.getItemCountNotGone();
-                    float denominator = visibleItem != 1 ? visibleItem - 1 : 1f;
-                    spaceBetweenItem = (height - flexLine.mMainSize) / denominator;
-                    childBottom = height - paddingBottom;
-                    break;
-                default:
-                    throw new IllegalStateException(
-                            "Invalid justifyContent is set: " + mJustifyContent);
-            }
-            spaceBetweenItem = Math.max(spaceBetweenItem, 0);
+     * @param index the index of the flex line, dummy flex lines are not taken into account
+     * @return the flex line at the specified position, or {@code null} if the index is negative
+     * or out of bounds of the number of flex lines
+     * @see #getFlexLineCount()
+     */
+    public FlexLine getFlexLineAt(int index) {
+        return mEngine.getFlexLineAt(index);
+    }
 
-            for (int j = 0; j < flexLine.mItemCount; j++) {
-                View child = getReorderedChildAt(currentViewIndex);
-                if (child == null) {
-                    continue;
-                } else if (child.getVisibility() == View.GONE) {
-                    currentViewIndex++;
-                    continue;
-                }
-                LayoutParams lp = ((LayoutParams) child.getLayoutParams());
-                childTop += lp.topMargin;
-                childBottom -= lp.bottomMargin;
-                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
-                    childTop += mDividerHorizontalHeight;
-                    childBottom -= mDividerHorizontalHeight;
-                }
-                if (isRtl) {
-                    if (fromBottomToTop) {
-                        layoutSingleChildVertical(child, flexLine, true, mAlignItems,
-                                childRight - child.getMeasuredWidth(),
-                                Math.round(childBottom) - child.getMeasuredHeight(), childRight,
-                                Math.round(childBottom));
-                    } else {
-                        layoutSingleChildVertical(child, flexLine, true, mAlignItems,
-                                childRight - child.getMeasuredWidth(), Math.round(childTop),
-                                childRight, Math.round(childTop) + child.getMeasuredHeight());
-                    }
-                } else {
-                    if (fromBottomToTop) {
-                        layoutSingleChildVertical(child, flexLine, false, mAlignItems,
-                                childLeft, Math.round(childBottom) - child.getMeasuredHeight(),
-                                childLeft + child.getMeasuredWidth(), Math.round(childBottom));
-                    } else {
-                        layoutSingleChildVertical(child, flexLine, false, mAlignItems,
-                                childLeft, Math.round(childTop),
-                                childLeft + child.getMeasuredWidth(),
-                                Math.round(childTop) + child.getMeasuredHeight());
-                    }
-                }
-                childTop += child.getMeasuredHeight() + spaceBetweenItem + lp.bottomMargin;
-                childBottom -= child.getMeasuredHeight() + spaceBetweenItem + lp.topMargin;
-                currentViewIndex++;
-
-                flexLine.mLeft = Math.min(flexLine.mLeft, child.getLeft() - lp.leftMargin);
-                flexLine.mTop = Math.min(flexLine.mTop, child.getTop() - lp.topMargin);
-                flexLine.mRight = Math.max(flexLine.mRight, child.getRight() + lp.rightMargin);
-                flexLine.mBottom = Math.max(flexLine.mBottom, child.getBottom() + lp.bottomMargin);
+    /**
+     * Calls the {@link FlexLineVisitor#visitFlexLine(FlexLine, int)} method for each flex line
+     * composing this flex container in order, excluding dummy flex lines. Unlike iterating over
+     * the list returned by {@link #getFlexLines()}, this method doesn't allocate any objects, which
+     * is useful when the flex lines are accessed in every frame (e.g. from an
+     * item decoration or during an animation).
+     *
+     * @param visitor the visitor to be called for each flex line
+     */
+    public void forEachFlexLine(@NonNull FlexLineVisitor visitor) {
+        List<FlexLine> flexLines = mEngine.getFlexLinesInternal();
+        int index = 0;
+        for (int i = 0, size = flexLines.size(); i < size; i++) {
+            FlexLine flexLine = flexLines.get(i);
+            if (flexLine.getItemCountNotGone() == 0) {
+                continue;
             }
-            childLeft += flexLine.mCrossSize;
-            childRight -= flexLine.mCrossSize;
+            visitor.visitFlexLine(flexLine, index++);
         }
     }
 
     /**
-     * Place a single View when the layout direction is vertical ({@link #mFlexDirection} is
-     * either {@link #FLEX_DIRECTION_COLUMN} or {@link #FLEX_DIRECTION_COLUMN_REVERSE}).
+     * Retrieves the frame of the child computed in the last layout pass. The frame is relative to
+     * this flex container in the same manner as {@link View#getLeft()}, {@link View#getTop()},
+     * {@link View#getRight()} and {@link View#getBottom()} of the child.
+     * The frame of a child whose visibility is gone is empty.
      *
-     * @param view       the View to be placed
-     * @param flexLine   the {@link FlexLine} where the View belongs to
-     * @param isRtl      {@code true} if the layout direction is right to left, {@code false}
-     *                   otherwise
-     * @param alignItems the align items attribute of this FlexboxLayout
-     * @param left       the left position of the flex line where the View belongs to. The actual
-     *                   View's left position is shifted depending on the isRtl and alignItems
-     *                   attributes
-     * @param top        the top position of the View, which the View's margin is already taken
-     *                   into account
-     * @param right      the right position of the flex line where the View belongs to. The actual
-     *                   View's right position is shifted depending on the isRtl and alignItems
-     *                   attributes
-     * @param bottom     the bottom position of the View, which the View's margin is already taken
-     *                   into account
-     * @see #getAlignItems()
-     * @see #setAlignItems(int)
-     * @see LayoutParams#alignSelf
-     */
-    private void layoutSingleChildVertical(View view, FlexLine flexLine, boolean isRtl,
-            int alignItems, int left, int top, int right, int bottom) {
-        LayoutParams lp = (LayoutParams) view.getLayoutParams();
-        if (lp.alignSelf != LayoutParams.ALIGN_SELF_AUTO) {
-            // Expecting the values for alignItems and alignSelf match except for ALIGN_SELF_AUTO.
-            // Assigning the alignSelf value as alignItems should work.
-            alignItems = lp.alignSelf;
-        }
-        int crossSize = flexLine.mCrossSize;
-        switch (alignItems) {
-            case ALIGN_ITEMS_FLEX_START: // Intentional fall through
-            case ALIGN_ITEMS_STRETCH: // Intentional fall through
-            case ALIGN_ITEMS_BASELINE:
-                if (!isRtl) {
-                    view.layout(left + lp.leftMargin, top, right + lp.leftMargin, bottom);
-                } else {
-                    view.layout(left - lp.rightMargin, top, right - lp.rightMargin, bottom);
-                }
-                break;
-            case ALIGN_ITEMS_FLEX_END:
-                if (!isRtl) {
-                    view.layout(left + crossSize - view.getMeasuredWidth() - lp.rightMargin,
-                            top, right + crossSize - view.getMeasuredWidth() - lp.rightMargin,
-                            bottom);
-                } else {
-                    // If the flexWrap == FLEX_WRAP_WRAP_REVERSE, the direction of the
-                    // flexEnd is flipped (from left to right).
-                    view.layout(left - crossSize + view.getMeasuredWidth() + lp.leftMargin, top,
-                            right - crossSize + view.getMeasuredWidth() + lp.leftMargin,
-                            bottom);
-                }
-                break;
-            case ALIGN_ITEMS_CENTER:
-                int leftFromCrossAxis = (crossSize - view.getMeasuredWidth()
-                        + MarginLayoutParamsCompat.getMarginStart(lp)
-                        - MarginLayoutParamsCompat.getMarginEnd(lp)) / 2;
-                if (!isRtl) {
-                    view.layout(left + leftFromCrossAxis, top, right + leftFromCrossAxis, bottom);
-                } else {
-                    view.layout(left - leftFromCrossAxis, top, right - leftFromCrossAxis, bottom);
-                }
-                break;
+     * @param index    the reordered index of the child, which is the same index as passed to
+     *                 {@link #getReorderedChildAt(int)}
+     * @param outFrame the rect to which the frame of the child is set
+     * @return {@code true} if the frame is set to the {@code outFrame}, {@code false} if the
+     * index is out of bounds of the number of the children laid out in the last layout pass
+     */
+    public boolean getReorderedChildFrame(int index, @NonNull Rect outFrame) {
+        if (!mEngine.hasFrame(index)) {
+            return false;
         }
+        outFrame.set(mEngine.getFrameLeft(index), mEngine.getFrameTop(index),
+                mEngine.getFrameRight(index), mEngine.getFrameBottom(index));
+        return true;
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        if (mDividerDrawableVertical == null && mDividerDrawableHorizontal == null) {
-            return;
-        }
-        if (mShowDividerHorizontal == SHOW_DIVIDER_NONE
-                && mShowDividerVertical == SHOW_DIVIDER_NONE) {
-            return;
-        }
-
-        int layoutDirection = ViewCompat.getLayoutDirection(this);
-        boolean isRtl;
-        boolean fromBottomToTop = false;
-        switch (mFlexDirection) {
-            case FLEX_DIRECTION_ROW:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    fromBottomToTop = true;
-                }
-                drawDividersHorizontal(canvas, isRtl, fromBottomToTop);
-                break;
-            case FLEX_DIRECTION_ROW_REVERSE:
-                isRtl = layoutDirection != ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    fromBottomToTop = true;
-                }
-                drawDividersHorizontal(canvas, isRtl, fromBottomToTop);
-                break;
-            case FLEX_DIRECTION_COLUMN:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    isRtl = !isRtl;
-                }
-                fromBottomToTop = false;
-                drawDividersVertical(canvas, isRtl, fromBottomToTop);
-                break;
-            case FLEX_DIRECTION_COLUMN_REVERSE:
-                isRtl = layoutDirection == ViewCompat.LAYOUT_DIRECTION_RTL;
-                if (mFlexWrap == FLEX_WRAP_WRAP_REVERSE) {
-                    isRtl = !isRtl;
-                }
-                fromBottomToTop = true;
-                drawDividersVertical(canvas, isRtl, fromBottomToTop);
-                break;
-        }
+    /**
+     * @return the horizontal divider drawable that will divide each item.
+     * @see #setDividerDrawable(Drawable)
+     * @see #setDividerDrawableHorizontal(Drawable)
+     */
+    public Drawable getDividerDrawableHorizontal() {
+        return mDividerDrawableHorizontal;
     }
 
     /**
-     * Sub method for {@link #onDraw(Canvas)} when the main axis direction is horizontal
-     * ({@link #mFlexDirection} is either of {@link #FLEX_DIRECTION_ROW} or
-     * {@link #FLEX_DIRECTION_ROW_REVERSE}.
-     *
-     * @param canvas          the canvas on which the background will be drawn
-     * @param isRtl           {@code true} when the horizontal layout direction is right to left,
-     *                        {@code false} otherwise
-     * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
-     *                        {@code false} otherwise
-     */
-    private void drawDividersHorizontal(Canvas canvas, boolean isRtl, boolean fromBottomToTop) {
-        int currentViewIndex = 0;
-        int paddingLeft = getPaddingLeft();
-        int paddingRight = getPaddingRight();
-        int horizontalDividerLength = Math.max(0, getWidth() - paddingRight - paddingLeft);
-        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
-            FlexLine flexLine = mFlexLines.get(i);
-            for (int j = 0; j < flexLine.mItemCount; j++) {
-                View view = getReorderedChildAt(currentViewIndex);
-                if (view == null || view.getVisibility() == View.GONE) {
-                    continue;
-                }
-                LayoutParams lp = (LayoutParams) view.getLayoutParams();
-
-                // Judge if the beginning or middle divider is needed
-                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
-                    int dividerLeft;
-                    if (isRtl) {
-                        dividerLeft = view.getRight() + lp.rightMargin;
-                    } else {
-                        dividerLeft = view.getLeft() - lp.leftMargin - mDividerVerticalWidth;
-                    }
-
-                    drawVerticalDivider(canvas, dividerLeft, flexLine.mTop, flexLine.mCrossSize);
-                }
-
-                // Judge if the end divider is needed
-                if (j == flexLine.mItemCount - 1) {
-                    if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
-                        int dividerLeft;
-                        if (isRtl) {
-                            dividerLeft = view.getLeft() - lp.leftMargin - mDividerVerticalWidth;
-                        } else {
-                            dividerLeft = view.getRight() + lp.rightMargin;
-                        }
-
-                        drawVerticalDivider(canvas, dividerLeft, flexLine.mTop,
-                                flexLine.mCrossSize);
-                    }
-                }
-                currentViewIndex++;
-            }
-
-            // Judge if the beginning or middle dividers are needed before the flex line
-            if (hasDividerBeforeFlexLine(i)) {
-                int horizontalDividerTop;
-                if (fromBottomToTop) {
-                    horizontalDividerTop = flexLine.mBottom;
-                } else {
-                    horizontalDividerTop = flexLine.mTop - mDividerHorizontalHeight;
-                }
-                drawHorizontalDivider(canvas, paddingLeft, horizontalDividerTop,
-                        horizontalDividerLength);
-            }
-            // Judge if the end divider is needed before the flex line
-            if (hasEndDividerAfterFlexLine(i)) {
-                if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
-                    int horizontalDividerTop;
-                    if (fromBottomToTop) {
-                        horizontalDividerTop = flexLine.mTop - mDividerHorizontalHeight;
-                    } else {
-                        horizontalDividerTop = flexLine.mBottom;
-                    }
-                    drawHorizontalDivider(canvas, paddingLeft, horizontalDividerTop,
-                            horizontalDividerLength);
-                }
-            }
-        }
+     * @return the vertical divider drawable that will divide each item.
+     * @see #setDividerDrawable(Drawable)
+     * @see #setDividerDrawableVertical(Drawable)
+     */
+    public Drawable getDividerDrawableVertical() {
+        return mDividerDrawableVertical;
     }
 
     /**
-     * Sub method for {@link #onDraw(Canvas)} when the main axis direction is vertical
-     * ({@link #mFlexDirection} is either of {@link #FLEX_DIRECTION_COLUMN} or
-     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}.
+     * Set a drawable to be used as a divider between items. The drawable is used for both
+     * horizontal and vertical dividers.
      *
-     * @param canvas          the canvas on which the background will be drawn
-     * @param isRtl           {@code true} when the horizontal layout direction is right to left,
-     *                        {@code false} otherwise
-     * @param fromBottomToTop {@code true} when the vertical layout direction is bottom to top,
-     *                        {@code false} otherwise
-     */
-    private void drawDividersVertical(Canvas canvas, boolean isRtl, boolean fromBottomToTop) {
-        int currentViewIndex = 0;
-        int paddingTop = getPaddingTop();
-        int paddingBottom = getPaddingBottom();
-        int verticalDividerLength = Math.max(0, getHeight() - paddingBottom - paddingTop);
-        for (int i = 0, size = mFlexLines.size(); i < size; i++) {
-            FlexLine flexLine = mFlexLines.get(i);
-
-            // Draw horizontal dividers if needed
-            for (int j = 0; j < flexLine.mItemCount; j++) {
-                View view = getReorderedChildAt(currentViewIndex);
-                if (view == null || view.getVisibility() == View.GONE) {
-                    continue;
-                }
-                LayoutParams lp = (LayoutParams) view.getLayoutParams();
-
-                // Judge if the beginning or middle divider is needed
-                if (hasDividerBeforeChildAtAlongMainAxis(currentViewIndex, j)) {
-                    int dividerTop;
-                    if (fromBottomToTop) {
-                        dividerTop = view.getBottom() + lp.bottomMargin;
-                    } else {
-                        dividerTop = view.getTop() - lp.topMargin - mDividerHorizontalHeight;
-                    }
-
-                    drawHorizontalDivider(canvas, flexLine.mLeft, dividerTop, flexLine.mCrossSize);
-                }
-
-                // Judge if the end divider is needed
-                if (j == flexLine.mItemCount - 1) {
-                    if ((mShowDividerHorizontal & SHOW_DIVIDER_END) > 0) {
-                        int dividerTop;
-                        if (fromBottomToTop) {
-                            dividerTop = view.getTop() - lp.topMargin - mDividerHorizontalHeight;
-                        } else {
-                            dividerTop = view.getBottom() + lp.bottomMargin;
-                        }
-
-                        drawHorizontalDivider(canvas, flexLine.mLeft, dividerTop,
-                                flexLine.mCrossSize);
-                    }
-                }
-                currentViewIndex++;
-            }
-
-            // Judge if the beginning or middle dividers are needed before the flex line
-            if (hasDividerBeforeFlexLine(i)) {
-                int verticalDividerLeft;
-                if (isRtl) {
-                    verticalDividerLeft = flexLine.mRight;
-                } else {
-                    verticalDividerLeft = flexLine.mLeft - mDividerVerticalWidth;
-                }
-                drawVerticalDivider(canvas, verticalDividerLeft, paddingTop,
-                        verticalDividerLength);
-            }
-            if (hasEndDividerAfterFlexLine(i)) {
-                if ((mShowDividerVertical & SHOW_DIVIDER_END) > 0) {
-                    int verticalDividerLeft;
-                    if (isRtl) {
-                        verticalDividerLeft = flexLine.mLeft - mDividerVerticalWidth;
-                    } else {
-                        verticalDividerLeft = flexLine.mRight;
-                    }
-                    drawVerticalDivider(canvas, verticalDividerLeft, paddingTop,
-                            verticalDividerLength);
-                }
-            }
-        }
+     * @param divider Drawable that will divide each item for both horizontally and vertically.
+     * @see #setShowDivider(int)
+     */
+    public void setDividerDrawable(Drawable divider) {
+        setDividerDrawableHorizontal(divider);
+        setDividerDrawableVertical(divider);
     }
 
-    private void drawVerticalDivider(Canvas canvas, int left, int top, int length) {
-        if (mDividerDrawableVertical == null) {
+    /**
+     * Set a drawable to be used as a horizontal divider between items.
+     *
+     * @param divider Drawable that will divide each item.
+     * @see #setDividerDrawable(Drawable)
+     * @see #setShowDivider(int)
+     * @see #setShowDividerHorizontal(int)
+     */
+    public void setDividerDrawableHorizontal(Drawable divider) {
+        if (divider == mDividerDrawableHorizontal) {
             return;
         }
-        mDividerDrawableVertical.setBounds(left, top, left + mDividerVerticalWidth, top + length);
-        mDividerDrawableVertical.draw(canvas);
+        mDividerDrawableHorizontal = divider;
+        if (divider != null) {
+            mEngine.setDividerHorizontalHeight(divider.getIntrinsicHeight());
+        } else {
+            mEngine.setDividerHorizontalHeight(0);
+        }
+        setWillNotDrawFlag();
+        requestLayout();
     }
 
-    private void drawHorizontalDivider(Canvas canvas, int left, int top, int length) {
-        if (mDividerDrawableHorizontal == null) {
+    /**
+     * Set a drawable to be used as a vertical divider between items.
+     *
+     * @param divider Drawable that will divide each item.
+     * @see #setDividerDrawable(Drawable)
+     * @see #setShowDivider(int)
+     * @see #setShowDividerVertical(int)
+     */
+    public void setDividerDrawableVertical(Drawable divider) {
+        if (divider == mDividerDrawableVertical) {
             return;
         }
-        mDividerDrawableHorizontal
-                .setBounds(left, top, left + length, top + mDividerHorizontalHeight);
-        mDividerDrawableHorizontal.draw(canvas);
+        mDividerDrawableVertical = divider;
+        if (divider != null) {
+            mEngine.setDividerVerticalWidth(divider.getIntrinsicWidth());
+        } else {
+            mEngine.setDividerVerticalWidth(0);
+        }
+        setWillNotDrawFlag();
+        requestLayout();
     }
 
-    @Override
-    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
-        return p instanceof FlexboxLayout.LayoutParams;
+    /**
+     * Indicates the divider mode for the {@link #getDividerDrawableVertical()}. The value is
+     * the combination of the value of {@link #SHOW_DIVIDER_NONE},
+     * {@link #SHOW_DIVIDER_BEGINNING}, {@link #SHOW_DIVIDER_MIDDLE} and {@link #SHOW_DIVIDER_END}
+     */
+    @FlexboxLayout.DividerMode
+    public int getShowDividerVertical() {
+        return mEngine.getShowDividerVertical();
     }
 
-    @Override
-    public LayoutParams generateLayoutParams(AttributeSet attrs) {
-        return new FlexboxLayout.LayoutParams(getContext(), attrs);
+    /**
+     * Indicates the divider mode for the {@link #getDividerDrawableHorizontal()}. The value is
+     * the combination of the value of {@link #SHOW_DIVIDER_NONE},
+     * {@link #SHOW_DIVIDER_BEGINNING}, {@link #SHOW_DIVIDER_MIDDLE} and {@link #SHOW_DIVIDER_END}
+     */
+    @FlexboxLayout.DividerMode
+    public int getShowDividerHorizontal() {
+        return mEngine.getShowDividerHorizontal();
     }
 
-    @Override
-    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
-        return new LayoutParams(p);
+    /**
+     * Set how dividers should be shown between items in this layout. This method sets the
+     * divider mode for both horizontally and vertically.
+     *
+     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
+     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
+     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
+     * @see #setShowDividerVertical(int)
+     * @see #setShowDividerHorizontal(int)
+     */
+    public void setShowDivider(@DividerMode int dividerMode) {
+        setShowDividerVertical(dividerMode);
+        setShowDividerHorizontal(dividerMode);
     }
 
-    @FlexDirection
-    public int getFlexDirection() {
-        return mFlexDirection;
+    /**
+     * Set how vertical dividers should be shown between items in this layout
+     *
+     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
+     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
+     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
+     * @see #setShowDivider(int)
+     */
+    public void setShowDividerVertical(@DividerMode int dividerMode) {
+        if (dividerMode != mEngine.getShowDividerVertical()) {
+            mEngine.setShowDividerVertical(dividerMode);
+            requestLayout();
+        }
     }
 
-    public void setFlexDirection(@FlexDirection int flexDirection) {
-        if (mFlexDirection != flexDirection) {
-            mFlexDirection = flexDirection;
+    /**
+     * Set how horizontal dividers should be shown between items in this layout.
+     *
+     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
+     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
+     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
+     * @see #setShowDivider(int)
+     */
+    public void setShowDividerHorizontal(@DividerMode int dividerMode) {
+        if (dividerMode != mEngine.getShowDividerHorizontal()) {
+            mEngine.setShowDividerHorizontal(dividerMode);
             requestLayout();
         }
     }
 
-    @FlexWrap
-    public int getFlexWrap() {
-        return mFlexWrap;
+    /**
+     * @return the length of the gap in pixels between horizontally adjacent flex items (or flex
+     * lines when the flex direction is vertical)
+     * @see #setColumnGap(int)
+     */
+    public int getColumnGap() {
+        return mEngine.getColumnGap();
     }
 
-    public void setFlexWrap(@FlexWrap int flexWrap) {
-        if (mFlexWrap != flexWrap) {
-            mFlexWrap = flexWrap;
+    /**
+     * Set the length of the gap between horizontally adjacent flex items, or flex lines when
+     * the flex direction is either {@link #FLEX_DIRECTION_COLUMN} or
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}. Gaps are taken into account only in the measurement
+     * and layout, thus unlike dividers nothing needs to be drawn for them.
+     *
+     * @param columnGap the length of the gap in pixels
+     * @see #setRowGap(int)
+     */
+    public void setColumnGap(int columnGap) {
+        if (columnGap != mEngine.getColumnGap()) {
+            mEngine.setColumnGap(columnGap);
             requestLayout();
         }
     }
 
-    @JustifyContent
-    public int getJustifyContent() {
-        return mJustifyContent;
+    /**
+     * @return the length of the gap in pixels between vertically adjacent flex lines (or flex
+     * items when the flex direction is vertical)
+     * @see #setRowGap(int)
+     */
+    public int getRowGap() {
+        return mEngine.getRowGap();
     }
 
-    public void setJustifyContent(@JustifyContent int justifyContent) {
-        if (mJustifyContent != justifyContent) {
-            mJustifyContent = justifyContent;
+    /**
+     * Set the length of the gap between vertically adjacent flex lines, or flex items when
+     * the flex direction is either {@link #FLEX_DIRECTION_COLUMN} or
+     * {@link #FLEX_DIRECTION_COLUMN_REVERSE}. Gaps are taken into account only in the measurement
+     * and layout, thus unlike dividers nothing needs to be drawn for them.
+     *
+     * @param rowGap the length of the gap in pixels
+     * @see #setColumnGap(int)
+     */
+    public void setRowGap(int rowGap) {
+        if (rowGap != mEngine.getRowGap()) {
+            mEngine.setRowGap(rowGap);
             requestLayout();
         }
     }
 
-    @AlignItems
-    public int getAlignItems() {
-        return mAlignItems;
+    /**
+     * @return {@code true} if the free space is distributed with integer arithmetic
+     * @see #setFixedPointDistribution(boolean)
+     */
+    public boolean isFixedPointDistribution() {
+        return mEngine.isFixedPointDistribution();
     }
 
-    public void setAlignItems(@AlignItems int alignItems) {
-        if (mAlignItems != alignItems) {
-            mAlignItems = alignItems;
+    /**
+     * Set whether the free space is distributed among the flex items and the flex lines with
+     * integer arithmetic instead of float arithmetic. The frames are then the same for the same
+     * inputs on any device, and the same as the ones computed by the {@link FlexboxEngine} with
+     * the fixed-point distribution elsewhere, e.g. on a server. The frames can differ from the
+     * ones of the default float distribution by a pixel.
+     *
+     * @param fixedPointDistribution {@code true} to use integer arithmetic
+     * @see FlexboxEngine#setFixedPointDistribution(boolean)
+     */
+    public void setFixedPointDistribution(boolean fixedPointDistribution) {
+        if (fixedPointDistribution != mEngine.isFixedPointDistribution()) {
+            mEngine.setFixedPointDistribution(fixedPointDistribution);
             requestLayout();
         }
     }
 
-    @AlignContent
-    public int getAlignContent() {
-        return mAlignContent;
+    /**
+     * @return the height in pixels the rows are aimed at in the justified rows mode, or 0 if the
+     * mode is off
+     * @see #setJustifiedRowHeight(int)
+     */
+    public int getJustifiedRowHeight() {
+        return mEngine.getJustifiedRowHeight();
     }
 
-    public void setAlignContent(@AlignContent int alignContent) {
-        if (mAlignContent != alignContent) {
-            mAlignContent = alignContent;
+    /**
+     * Set the justified rows mode, in which every row fills the width of this FlexboxLayout and
+     * its height is the one which makes the {@link LayoutParams#aspectRatio} of its children fit,
+     * like a photo gallery. The row breaks and the row heights are computed with arithmetic only
+     * and each child is measured once with its final size. The mode is effective only when the
+     * flex direction is row or row_reverse.
+     *
+     * @param justifiedRowHeight the height in pixels the rows are aimed at, or 0 to turn the mode
+     *                           off
+     * @see FlexboxEngine#setJustifiedRowHeight(int)
+     */
+    public void setJustifiedRowHeight(int justifiedRowHeight) {
+        if (justifiedRowHeight != mEngine.getJustifiedRowHeight()) {
+            mEngine.setJustifiedRowHeight(justifiedRowHeight);
             requestLayout();
         }
     }
 
     /**
-     * @return the flex lines composing this flex container. This method returns a copy of the
-     * original list excluding a dummy flex line (flex line that doesn't have any flex items in it
-     * but used for the alignment along the cross axis).
-     * Thus any changes of the returned list are not reflected to the original list.
+     * Set a listener to be notified each time a measure, layout or draw pass of this
+     * FlexboxLayout finishes, with the time spent on the pass and the statistics of the last
+     * measure. Nothing is timed unless a listener is set, which is the default.
+     *
+     * @param listener the listener, or {@code null} to stop the notifications
      */
-    public List<FlexLine> getFlexLines() {
-        List<FlexLine> result = new ArrayList<>(mFlexLines.size());
-        for (FlexLine flexLine : mFlexLines) {
-            if (flexLine.getItemCountNotGone() == 0) {
-                continue;
-            }
-            result.add(flexLine);
+    public void setOnLayoutStatsListener(@Nullable OnLayoutStatsListener listener) {
+        mOnLayoutStatsListener = listener;
+        mDrawStarted = false;
+        if (listener != null && mLayoutStats == null) {
+            mLayoutStats = new LayoutStats();
         }
-        return result;
     }
 
     /**
-     * @return the horizontal divider drawable that will divide each item.
-     * @see #setDividerDrawable(Drawable)
-     * @see #setDividerDrawableHorizontal(Drawable)
+     * Set whether to draw a debug overlay over the children, meant to be enabled only in debug
+     * builds. The overlay draws the bounds of each flex line annotated with its main size and
+     * cross size, and tints each child from green to red depending on how many times it was
+     * measured in the last measure pass and how long the measurements took, which reveals the
+     * children measured again to satisfy the min/max size attributes or to be expanded, shrunk
+     * or stretched. The measurements are timed only while the overlay is enabled.
+     *
+     * @param debugOverlayEnabled {@code true} to draw the debug overlay
      */
-    public Drawable getDividerDrawableHorizontal() {
-        return mDividerDrawableHorizontal;
+    public void setDebugOverlayEnabled(boolean debugOverlayEnabled) {
+        if (debugOverlayEnabled == (mDebugOverlay != null)) {
+            return;
+        }
+        mDebugOverlay = debugOverlayEnabled
+                ? new FlexboxDebugOverlay(getResources().getDisplayMetrics().density) : null;
+        requestLayout();
+        invalidate();
     }
 
     /**
-     * @return the vertical divider drawable that will divide each item.
-     * @see #setDividerDrawable(Drawable)
-     * @see #setDividerDrawableVertical(Drawable)
+     * @return {@code true} if the debug overlay is drawn
+     * @see #setDebugOverlayEnabled(boolean)
      */
-    public Drawable getDividerDrawableVertical() {
-        return mDividerDrawableVertical;
+    public boolean isDebugOverlayEnabled() {
+        return mDebugOverlay != null;
     }
 
     /**
-     * Set a drawable to be used as a divider between items. The drawable is used for both
-     * horizontal and vertical dividers.
+     * Set the {@link LayoutThrashDetector} watching all the FlexboxLayouts for the excessive
+     * measure and layout passes in a frame and for the deep nesting of the FlexboxLayouts. No
+     * detection takes place unless a detector is set, which is the default. Only the passes on the
+     * main thread are watched.
      *
-     * @param divider Drawable that will divide each item for both horizontally and vertically.
-     * @see #setShowDivider(int)
+     * @param detector the detector, or {@code null} to stop the detection
      */
-    public void setDividerDrawable(Drawable divider) {
-        setDividerDrawableHorizontal(divider);
-        setDividerDrawableVertical(divider);
+    public static void setLayoutThrashDetector(@Nullable LayoutThrashDetector detector) {
+        sLayoutThrashDetector = detector;
     }
 
     /**
-     * Set a drawable to be used as a horizontal divider between items.
-     *
-     * @param divider Drawable that will divide each item.
-     * @see #setDividerDrawable(Drawable)
-     * @see #setShowDivider(int)
-     * @see #setShowDividerHorizontal(int)
+     * @return the detector set by {@link #setLayoutThrashDetector(LayoutThrashDetector)}, or
+     * {@code null} if not set
      */
-    public void setDividerDrawableHorizontal(Drawable divider) {
-        if (divider == mDividerDrawableHorizontal) {
-            return;
-        }
-        mDividerDrawableHorizontal = divider;
-        if (divider != null) {
-            mDividerHorizontalHeight = divider.getIntrinsicHeight();
-        } else {
-            mDividerHorizontalHeight = 0;
+    @Nullable
+    public static LayoutThrashDetector getLayoutThrashDetector() {
+        return sLayoutThrashDetector;
+    }
+
+    /**
+     * @return the detector set by {@link #setLayoutThrashDetector(LayoutThrashDetector)} if this
+     * is called on the main thread, {@code null} otherwise. The frames and the nesting depth are
+     * tracked in static fields for the main thread, and a FlexboxLayout measured on another
+     * thread (e.g. for a precomputed layout) doesn't belong to any frame.
+     */
+    @Nullable
+    private static LayoutThrashDetector getActiveLayoutThrashDetector() {
+        LayoutThrashDetector detector = sLayoutThrashDetector;
+        if (detector == null || Looper.myLooper() != Looper.getMainLooper()) {
+            return null;
         }
-        setWillNotDrawFlag();
-        requestLayout();
+        return detector;
     }
 
     /**
-     * Set a drawable to be used as a vertical divider between items.
-     *
-     * @param divider Drawable that will divide each item.
-     * @see #setDividerDrawable(Drawable)
-     * @see #setShowDivider(int)
-     * @see #setShowDividerVertical(int)
+     * Reset the counts of the passes of the layout thrash detector if this is the first pass of
+     * this FlexboxLayout in the current frame, and make sure the frame is advanced by the next
+     * one. The frames are taken from the Choreographer rather than from the draws, since an
+     * invisible FlexboxLayout or the one whose display list is reused isn't drawn in each frame.
      */
-    public void setDividerDrawableVertical(Drawable divider) {
-        if (divider == mDividerDrawableVertical) {
+    private void beginDetectorFrame() {
+        if (mDetectorFrame != sDetectorFrame) {
+            mDetectorFrame = sDetectorFrame;
+            mMeasureCountInFrame = 0;
+            mLayoutCountInFrame = 0;
+        }
+        if (sDetectorFrameScheduled) {
             return;
         }
-        mDividerDrawableVertical = divider;
-        if (divider != null) {
-            mDividerVerticalWidth = divider.getIntrinsicWidth();
+        sDetectorFrameScheduled = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            DetectorFrameCallback.post();
         } else {
-            mDividerVerticalWidth = 0;
+            DetectorFrameMessage.post();
         }
-        setWillNotDrawFlag();
-        requestLayout();
     }
 
-    @FlexboxLayout.DividerMode
-    public int getShowDividerVertical() {
-        return mShowDividerVertical;
+    private static void advanceDetectorFrame() {
+        sDetectorFrame++;
+        sDetectorFrameScheduled = false;
     }
 
-    @FlexboxLayout.DividerMode
-    public int getShowDividerHorizontal() {
-        return mShowDividerHorizontal;
+    /**
+     * Set whether all the FlexboxLayouts emit system trace sections (visible in systrace and
+     * Perfetto) for the phases of the flex algorithm, such as collecting the flex lines,
+     * determining the main and cross sizes, stretching the children and drawing the dividers.
+     * The name of each section contains the number of the children so that the container
+     * dominating a frame can be told apart. Disabled by default.
+     *
+     * @param traceEnabled {@code true} to emit the trace sections from the next measure pass
+     */
+    public static void setTraceEnabled(boolean traceEnabled) {
+        sTraceEnabled = traceEnabled;
     }
 
     /**
-     * Set how dividers should be shown between items in this layout. This method sets the
-     * divider mode for both horizontally and vertically.
-     *
-     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
-     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
-     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
-     * @see #setShowDividerVertical(int)
-     * @see #setShowDividerHorizontal(int)
+     * @return {@code true} if the FlexboxLayouts emit system trace sections
+     * @see #setTraceEnabled(boolean)
      */
-    public void setShowDivider(@DividerMode int dividerMode) {
-        setShowDividerVertical(dividerMode);
-        setShowDividerHorizontal(dividerMode);
+    public static boolean isTraceEnabled() {
+        return sTraceEnabled;
     }
 
     /**
-     * Set how vertical dividers should be shown between items in this layout
-     *
-     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
-     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
-     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
-     * @see #setShowDivider(int)
+     * @return the {@link MeasureCounter} set by {@link #setMeasureCounter(MeasureCounter)}, or
+     * {@code null} if not set
      */
-    public void setShowDividerVertical(@DividerMode int dividerMode) {
-        if (dividerMode != mShowDividerVertical) {
-            mShowDividerVertical = dividerMode;
-            requestLayout();
-        }
+    @Nullable
+    public MeasureCounter getMeasureCounter() {
+        return mEngine.getMeasureCounter();
     }
 
     /**
-     * Set how horizontal dividers should be shown between items in this layout.
+     * Set the {@link MeasureCounter} which tallies how many times each child is measured in the
+     * following measure passes, and in which phase of the flexbox algorithm. Nothing is counted
+     * unless a counter is set, which is the default.
      *
-     * @param dividerMode One or more of {@link #SHOW_DIVIDER_BEGINNING},
-     *                    {@link #SHOW_DIVIDER_MIDDLE}, or {@link #SHOW_DIVIDER_END},
-     *                    or {@link #SHOW_DIVIDER_NONE} to show no dividers.
-     * @see #setShowDivider(int)
+     * @param measureCounter the counter, or {@code null} to stop counting
      */
-    public void setShowDividerHorizontal(@DividerMode int dividerMode) {
-        if (dividerMode != mShowDividerHorizontal) {
-            mShowDividerHorizontal = dividerMode;
-            requestLayout();
-        }
+    public void setMeasureCounter(@Nullable MeasureCounter measureCounter) {
+        mEngine.setMeasureCounter(measureCounter);
     }
 
-    private void setWillNotDrawFlag() {
-        if (mDividerDrawableHorizontal == null && mDividerDrawableVertical == null) {
-            setWillNotDraw(true);
-        } else {
-            setWillNotDraw(false);
-        }
+    /**
+     * @return the {@link LayoutRecorder} set by {@link #setLayoutRecorder(LayoutRecorder)}, or
+     * {@code null} if not set
+     */
+    @Nullable
+    public LayoutRecorder getLayoutRecorder() {
+        return mEngine.getLayoutRecorder();
     }
 
     /**
-     * Check if a divider is needed before the view whose indices are passed as arguments.
+     * Set the {@link LayoutRecorder} which records the inputs of the following measure passes,
+     * including the size each child returned for each MeasureSpecs it was measured with, so
+     * that the passes can be replayed on a JVM through {@link LayoutTrace}. Nothing is recorded
+     * unless a recorder is set, which is the default.
      *
-     * @param childAbsoluteIndex           the absolute index of the view to be judged
-     * @param childRelativeIndexInFlexLine the relative index in the flex line where the view
-     *                                     belongs
-     * @return {@code true} if a divider is needed, {@code false} otherwise
-     */
-    private boolean hasDividerBeforeChildAtAlongMainAxis(int childAbsoluteIndex,
-            int childRelativeIndexInFlexLine) {
-        if (allViewsAreGoneBefore(childAbsoluteIndex, childRelativeIndexInFlexLine)) {
-            if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                return (mShowDividerVertical & SHOW_DIVIDER_BEGINNING) != 0;
-            } else {
-                return (mShowDividerHorizontal & SHOW_DIVIDER_BEGINNING) != 0;
-            }
-        } else {
-            if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                return (mShowDividerVertical & SHOW_DIVIDER_MIDDLE) != 0;
-            } else {
-                return (mShowDividerHorizontal & SHOW_DIVIDER_MIDDLE) != 0;
-            }
-        }
+     * @param layoutRecorder the recorder, or {@code null} to stop recording
+     */
+    public void setLayoutRecorder(@Nullable LayoutRecorder layoutRecorder) {
+        mEngine.setLayoutRecorder(layoutRecorder);
     }
 
-    private boolean allViewsAreGoneBefore(int childAbsoluteIndex,
-            int childRelativeIndexInFlexLine) {
-        for (int i = 1; i <= childRelativeIndexInFlexLine; i++) {
-            View view = getReorderedChildAt(childAbsoluteIndex - i);
-            if (view != null && view.getVisibility() != View.GONE) {
-                return false;
-            }
-        }
-        return true;
+    /**
+     * @return the {@link LayoutCache} set by {@link #setLayoutCache(LayoutCache, int)}, or
+     * {@code null} if not set
+     */
+    @Nullable
+    public LayoutCache getLayoutCache() {
+        return mLayoutCache;
     }
 
     /**
-     * Check if a divider is needed before the flex line whose index is passed as an argument.
+     * Set the {@link LayoutCache} from which the layout passes until the first frame are
+     * restored instead of running the flex algorithm, and to which their results are added.
+     * Later passes are restored from the cache when the MeasureSpecs change, e.g. to a layout
+     * added by {@link #precomputeLayout(int, int)}. A restored layout is validated after its
+     * frame is drawn and laid out again if it turns out to be stale. Typically the cache is read
+     * from a file before the layout is inflated and written back once the app goes to the
+     * background. Nothing is cached unless a cache is set, which is the default.
      *
-     * @param flexLineIndex the index of the flex line to be checked
-     * @return {@code true} if a divider is needed, {@code false} otherwise
+     * @param layoutCache    the cache, or {@code null} to stop caching
+     * @param contentVersion the version of the content of the children, which needs to be
+     *                       changed whenever the content changes the sizes of the children
+     *                       (e.g. a different text) so that the stale results aren't restored
      */
-    private boolean hasDividerBeforeFlexLine(int flexLineIndex) {
-        if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
-            return false;
-        }
-        if (allFlexLinesAreDummyBefore(flexLineIndex)) {
-            if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                return (mShowDividerHorizontal & SHOW_DIVIDER_BEGINNING) != 0;
-            } else {
-                return (mShowDividerVertical & SHOW_DIVIDER_BEGINNING) != 0;
-            }
-        } else {
-            if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-                return (mShowDividerHorizontal & SHOW_DIVIDER_MIDDLE) != 0;
-            } else {
-                return (mShowDividerVertical & SHOW_DIVIDER_MIDDLE) != 0;
-            }
-        }
-    }
-
-    private boolean allFlexLinesAreDummyBefore(int flexLineIndex) {
-        for (int i = 0; i < flexLineIndex; i++) {
-            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
-                return false;
-            }
-        }
-        return true;
+    public void setLayoutCache(@Nullable LayoutCache layoutCache, int contentVersion) {
+        mLayoutCache = layoutCache;
+        mLayoutCacheContentVersion = contentVersion;
+        mLayoutCacheValidated = false;
     }
 
     /**
-     * Check if a end divider is needed after the flex line whose index is passed as an argument.
+     * Compute the layout for the MeasureSpecs ahead of time and add it to the layout cache, so
+     * that a following measure with the same MeasureSpecs, e.g. after a rotation, a fold or a
+     * resize of the window, restores it instead of running the flex algorithm. The children are
+     * measured with the MeasureSpecs and then measured once more to their current frames, thus
+     * call this method when the main thread is idle, e.g. from a
+     * {@code MessageQueue.IdleHandler}. The measurements aren't counted by the
+     * {@link MeasureCounter} nor recorded by the {@link LayoutRecorder}, since they aren't part
+     * of a measure pass. Nothing is computed until this layout is measured.
      *
-     * @param flexLineIndex the index of the flex line to be checked
-     * @return {@code true} if a divider is needed, {@code false} otherwise
+     * @param widthMeasureSpec  the horizontal MeasureSpec expected from the parent
+     * @param heightMeasureSpec the vertical MeasureSpec expected from the parent
+     * @throws IllegalStateException if no layout cache is set
+     * @see #setLayoutCache(LayoutCache, int)
      */
-    private boolean hasEndDividerAfterFlexLine(int flexLineIndex) {
-        if (flexLineIndex < 0 || flexLineIndex >= mFlexLines.size()) {
-            return false;
+    public void precomputeLayout(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mLayoutCache == null) {
+            throw new IllegalStateException("No layout cache is set");
         }
-
-        for (int i = flexLineIndex + 1; i < mFlexLines.size(); i++) {
-            if (mFlexLines.get(i).getItemCountNotGone() > 0) {
-                return false;
-            }
+        if (!mMeasured) {
+            return;
         }
-        if (isMainAxisDirectionHorizontal(mFlexDirection)) {
-            return (mShowDividerHorizontal & SHOW_DIVIDER_END) != 0;
+        if (mRestoredFromLayoutCache) {
+            // The current layout is kept below, thus validate it first
+            removeCallbacks(mValidateLayoutCache);
+            validateLayoutCache();
+        }
+        // Keep the current layout to restore it afterwards rather than running the flex
+        // algorithm for it again
+        LayoutCache currentLayout = new LayoutCache(1);
+        currentLayout.put(0, mEngine);
+
+        boolean layoutRtl = isLayoutRtl();
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        measureOutsideMeasurePass(widthMeasureSpec, heightMeasureSpec);
+        mEngine.layout(0, 0, mEngine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                mEngine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK, layoutRtl);
+        mLayoutCache.put(LayoutCache.computeKey(mEngine, mLayoutCacheContentVersion, layoutRtl,
+                widthMeasureSpec, heightMeasureSpec), mEngine);
+
+        // Bring the engine and the children back to the current layout, with one exact
+        // measurement per child as in a layout restored from the layout cache
+        int childCount = getChildCount();
+        if (currentLayout.restore(0, mEngine)) {
+            measureChildrenToRestoredFrames(childCount);
         } else {
-            return (mShowDividerVertical & SHOW_DIVIDER_END) != 0;
+            measureOutsideMeasurePass(mLastWidthMeasureSpec, mLastHeightMeasureSpec);
         }
+        mEngine.layout(getLeft(), getTop(), getRight(), getBottom(), layoutRtl);
+        applyChildFrames(childCount);
+    }
 
+    private void setWillNotDrawFlag() {
+        if (mDividerDrawableHorizontal == null && mDividerDrawableVertical == null) {
+            setWillNotDraw(true);
+        } else {
+            setWillNotDraw(false);
+        }
     }
 
     /**
      * Per child parameters for children views of the {@link FlexboxLayout}.
      */
-    public static class LayoutParams extends ViewGroup.MarginLayoutParams {
-
-        private static final int ORDER_DEFAULT = 1;
-
-        private static final float FLEX_GROW_DEFAULT = 0f;
-
-        private static final float FLEX_SHRINK_DEFAULT = 1f;
+    public static class LayoutParams extends ViewGroup.MarginLayoutParams implements FlexItem {
 
-        public static final float FLEX_BASIS_PERCENT_DEFAULT = -1f;
+        public static final float FLEX_BASIS_PERCENT_DEFAULT = FlexItem.FLEX_BASIS_PERCENT_DEFAULT;
 
-        public static final int ALIGN_SELF_AUTO = -1;
+        public static final float ASPECT_RATIO_DEFAULT = FlexItem.ASPECT_RATIO_DEFAULT;
 
-        public static final int ALIGN_SELF_FLEX_START = ALIGN_ITEMS_FLEX_START;
+        public static final int ALIGN_SELF_AUTO = FlexItem.ALIGN_SELF_AUTO;
 
-        public static final int ALIGN_SELF_FLEX_END = ALIGN_ITEMS_FLEX_END;
+        public static final int ALIGN_SELF_FLEX_START = FlexItem.ALIGN_SELF_FLEX_START;
 
-        public static final int ALIGN_SELF_CENTER = ALIGN_ITEMS_CENTER;
+        public static final int ALIGN_SELF_FLEX_END = FlexItem.ALIGN_SELF_FLEX_END;
 
-        public static final int ALIGN_SELF_BASELINE = ALIGN_ITEMS_BASELINE;
+        public static final int ALIGN_SELF_CENTER = FlexItem.ALIGN_SELF_CENTER;
 
-        public static final int ALIGN_SELF_STRETCH = ALIGN_ITEMS_STRETCH;
+        public static final int ALIGN_SELF_BASELINE = FlexItem.ALIGN_SELF_BASELINE;
 
-        private static final int MAX_SIZE = Integer.MAX_VALUE & ViewCompat.MEASURED_SIZE_MASK;
+        public static final int ALIGN_SELF_STRETCH = FlexItem.ALIGN_SELF_STRETCH;
 
         /**
          * This attribute can change the ordering of the children views are laid out.
@@ -2728,6 +1472,16 @@ public class FlexboxLayout extends ViewGroup {
          */
         public float flexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
 
+        /**
+         * The ratio of the width to the height of this child. If this value is set, the cross
+         * size of this child is computed from its main size once the main size is determined,
+         * e.g. the height is the width divided by this value when the flex direction is row,
+         * instead of being measured from its content. The cross size computed from this value
+         * takes precedence over the stretch alignment, and is clamped by the minimum and maximum
+         * cross sizes. The default value is {@link #ASPECT_RATIO_DEFAULT}, which means not set.
+         */
+        public float aspectRatio = ASPECT_RATIO_DEFAULT;
+
         /**
          * This attribute determines the minimum width the child can shrink to.
          */
@@ -2775,6 +1529,8 @@ public class FlexboxLayout extends ViewGroup {
             flexBasisPercent = a
                     .getFraction(R.styleable.FlexboxLayout_Layout_layout_flexBasisPercent, 1, 1,
                             FLEX_BASIS_PERCENT_DEFAULT);
+            aspectRatio = a.getFloat(R.styleable.FlexboxLayout_Layout_layout_aspectRatio,
+                    ASPECT_RATIO_DEFAULT);
             minWidth = a.getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_minWidth, 0);
             minHeight = a
                     .getDimensionPixelSize(R.styleable.FlexboxLayout_Layout_layout_minHeight, 0);
@@ -2794,6 +1550,7 @@ public class FlexboxLayout extends ViewGroup {
             flexShrink = source.flexShrink;
             alignSelf = source.alignSelf;
             flexBasisPercent = source.flexBasisPercent;
+            aspectRatio = source.aspectRatio;
             minWidth = source.minWidth;
             minHeight = source.minHeight;
             maxWidth = source.maxWidth;
@@ -2808,34 +1565,327 @@ public class FlexboxLayout extends ViewGroup {
         public LayoutParams(int width, int height) {
             super(new ViewGroup.LayoutParams(width, height));
         }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            return flexGrow;
+        }
+
+        @Override
+        public float getFlexShrink() {
+            return flexShrink;
+        }
+
+        @Override
+        public int getAlignSelf() {
+            return alignSelf;
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            return flexBasisPercent;
+        }
+
+        @Override
+        public float getAspectRatio() {
+            return aspectRatio;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return minWidth;
+        }
+
+        @Override
+        public int getMinHeight() {
+            return minHeight;
+        }
+
+        @Override
+        public int getMaxWidth() {
+            return maxWidth;
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return maxHeight;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            return wrapBefore;
+        }
+
+        @Override
+        public int getMarginLeft() {
+            return leftMargin;
+        }
+
+        @Override
+        public int getMarginTop() {
+            return topMargin;
+        }
+
+        @Override
+        public int getMarginRight() {
+            return rightMargin;
+        }
+
+        @Override
+        public int getMarginBottom() {
+            return bottomMargin;
+        }
     }
 
     /**
-     * A class that is used for calculating the view order which view's indices and order
-     * properties from Flexbox are taken into account.
+     * Interface definition for a callback to be invoked for each flex line in the
+     * {@link #forEachFlexLine(FlexLineVisitor)} method.
      */
-    private static class Order implements Comparable<Order> {
+    public interface FlexLineVisitor {
 
-        /** {@link View}'s index */
-        int index;
+        /**
+         * Called for each flex line composing the flex container.
+         *
+         * @param flexLine the flex line being visited. The instance is owned by the flex
+         *                 container, thus it shouldn't be retained after this method returns.
+         * @param index    the index of the flex line, dummy flex lines are not taken into account
+         */
+        void visitFlexLine(FlexLine flexLine, int index);
+    }
 
-        /** order property in the Flexbox */
-        int order;
+    /**
+     * Interface definition for a callback to be invoked when a measure, layout or draw pass of
+     * the {@link FlexboxLayout} finishes.
+     *
+     * @see #setOnLayoutStatsListener(OnLayoutStatsListener)
+     */
+    public interface OnLayoutStatsListener {
 
-        @Override
-        public int compareTo(@NonNull Order another) {
-            if (order != another.order) {
-                return order - another.order;
-            }
-            return index - another.index;
+        /**
+         * Called when a measure, layout or draw pass finishes.
+         *
+         * @param flexboxLayout the FlexboxLayout whose pass finished
+         * @param stats         the statistics of the pass. The instance is owned by the
+         *                      FlexboxLayout and reused for the following passes, thus it
+         *                      shouldn't be retained after this method returns.
+         */
+        void onLayoutStats(FlexboxLayout flexboxLayout, LayoutStats stats);
+    }
+
+    /**
+     * Statistics of a measure, layout or draw pass of the {@link FlexboxLayout} reported to the
+     * {@link OnLayoutStatsListener}.
+     */
+    public static class LayoutStats {
+
+        @IntDef({PASS_MEASURE, PASS_LAYOUT, PASS_DRAW})
+        @Retention(RetentionPolicy.SOURCE)
+        public @interface LayoutPass {
+
+        }
+
+        /** The pass measuring the FlexboxLayout and its children. */
+        public static final int PASS_MEASURE = 0;
+
+        /** The pass placing the children of the FlexboxLayout. */
+        public static final int PASS_LAYOUT = 1;
+
+        /** The pass drawing the dividers and the children of the FlexboxLayout. */
+        public static final int PASS_DRAW = 2;
+
+        int mPass;
+
+        long mDurationNanos;
+
+        int mChildCount;
+
+        int mFlexLineCount;
+
+        int mRemeasureCount;
+
+        boolean mReexpanded;
+
+        boolean mReshrunk;
+
+        LayoutStats() {
+        }
+
+        /**
+         * @return the pass which finished, one of {@link #PASS_MEASURE}, {@link #PASS_LAYOUT}
+         * and {@link #PASS_DRAW}
+         */
+        @LayoutPass
+        public int getPass() {
+            return mPass;
+        }
+
+        /**
+         * @return the wall time spent on the pass in nanoseconds, including the time spent by
+         * the children
+         */
+        public long getDurationNanos() {
+            return mDurationNanos;
+        }
+
+        /**
+         * @return the number of the children including the ones whose visibilities are gone
+         */
+        public int getChildCount() {
+            return mChildCount;
+        }
+
+        /**
+         * @return the number of the flex lines computed in the last measure
+         */
+        public int getFlexLineCount() {
+            return mFlexLineCount;
+        }
+
+        /**
+         * @return the number of the measurements of the children in the last measure other than
+         * the first measurement of each child, e.g. the measurements to expand, shrink or
+         * stretch the children
+         */
+        public int getRemeasureCount() {
+            return mRemeasureCount;
+        }
+
+        /**
+         * @return {@code true} if the children in any flex line were expanded again in the last
+         * measure because some of them reached their maximum sizes
+         */
+        public boolean hasReexpanded() {
+            return mReexpanded;
+        }
+
+        /**
+         * @return {@code true} if the children in any flex line were shrunk again in the last
+         * measure because some of them reached their minimum sizes
+         */
+        public boolean hasReshrunk() {
+            return mReshrunk;
         }
 
         @Override
         public String toString() {
-            return "Order{" +
-                    "order=" + order +
-                    ", index=" + index +
+            return "LayoutStats{" +
+                    "pass=" + mPass +
+                    ", durationNanos=" + mDurationNanos +
+                    ", childCount=" + mChildCount +
+                    ", flexLineCount=" + mFlexLineCount +
+                    ", remeasureCount=" + mRemeasureCount +
+                    ", reexpanded=" + mReexpanded +
+                    ", reshrunk=" + mReshrunk +
                     '}';
         }
     }
+
+    /**
+     * The {@link FlexContainer} through which the {@link FlexboxEngine} accesses and measures the
+     * children views of this layout.
+     */
+    private class ChildrenFlexContainer implements FlexContainer {
+
+        @Override
+        public int getFlexItemCount() {
+            return getChildCount();
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            return (LayoutParams) getChildAt(index).getLayoutParams();
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            View child = getChildAt(index);
+            return child == null || child.getVisibility() == View.GONE;
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            if (mDebugOverlay == null) {
+                getChildAt(index).measure(widthMeasureSpec, heightMeasureSpec);
+                return;
+            }
+            long start = System.nanoTime();
+            getChildAt(index).measure(widthMeasureSpec, heightMeasureSpec);
+            mDebugOverlay.onChildMeasured(index, System.nanoTime() - start);
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return getChildAt(index).getMeasuredWidth();
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return getChildAt(index).getMeasuredHeight();
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            return ViewCompat.getMeasuredState(getChildAt(index));
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            return getChildAt(index).getBaseline();
+        }
+    }
+
+    /**
+     * Advances the frame of the layout thrash detector at the beginning of the next frame of the
+     * Choreographer, before its traversal. Only loaded on API level 16 or higher.
+     */
+    private static class DetectorFrameCallback implements Choreographer.FrameCallback {
+
+        private static final DetectorFrameCallback INSTANCE = new DetectorFrameCallback();
+
+        static void post() {
+            Choreographer.getInstance().postFrameCallback(INSTANCE);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            advanceDetectorFrame();
+        }
+    }
+
+    /**
+     * Advances the frame of the layout thrash detector without the Choreographer, below API level
+     * 16. All the passes of a traversal run in a single message of the main thread, after which
+     * the posted message runs. The Handler and the message are shared so that posting them
+     * doesn't allocate.
+     */
+    private static class DetectorFrameMessage implements Runnable {
+
+        private static final DetectorFrameMessage INSTANCE = new DetectorFrameMessage();
+
+        private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+
+        static void post() {
+            HANDLER.post(INSTANCE);
+        }
+
+        @Override
+        public void run() {
+            advanceDetectorFrame();
+        }
+    }
 }
@@ -0,0 +1,997 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A View that lays out lightweight tags (text or a {@link Drawable} with a background) with the
+ * same flex algorithm as the {@link FlexboxLayout}. Unlike the {@link FlexboxLayout}, the tags
+ * aren't Views, they are drawn directly on the Canvas of this View, thus even thousands of tags
+ * can be displayed without creating the same number of Views. This is suitable for read-mostly
+ * displays like tag clouds, where each item only needs to show its content and be clicked.
+ *
+ * The attributes for the flex container that you can use are:
+ * <ul>
+ * <li>{@code flexDirection}</li>
+ * <li>{@code flexWrap}</li>
+ * <li>{@code justifyContent}</li>
+ * <li>{@code alignItems}</li>
+ * <li>{@code alignContent}</li>
+ * <li>{@code columnGap}</li>
+ * <li>{@code rowGap}</li>
+ * </ul>
+ * And for the appearance of the tags:
+ * <ul>
+ * <li>{@code tagTextSize}</li>
+ * <li>{@code tagTextColor}</li>
+ * <li>{@code tagBackground}</li>
+ * <li>{@code tagPaddingHorizontal}</li>
+ * <li>{@code tagPaddingVertical}</li>
+ * </ul>
+ * The flex item attributes for each tag are specified through the fields of the {@link Tag}.
+ *
+ * The tags are exposed to the accessibility services as virtual views, and clicks on them are
+ * notified through the {@link OnTagClickListener}.
+ */
+public class FlexboxTagLayout extends View {
+
+    /** The default text size of the tags in scaled pixels. */
+    private static final float DEFAULT_TEXT_SIZE_SP = 14f;
+
+    private final FlexboxEngine mEngine;
+
+    private final List<Tag> mTags = new ArrayList<>();
+
+    /** The paint used for measuring and drawing the text of all tags. */
+    private final TextPaint mTextPaint;
+
+    /** The font metrics of the {@link #mTextPaint}, updated when the text size is changed. */
+    private final Paint.FontMetricsInt mFontMetrics = new Paint.FontMetricsInt();
+
+    /** The drawable drawn behind the tags which don't have their own backgrounds. */
+    private Drawable mTagBackground;
+
+    private int mTagPaddingHorizontal;
+
+    private int mTagPaddingVertical;
+
+    /**
+     * The measured widths of the tags. Each element holds the width of the tag at the same index
+     * (the order attribute isn't taken into account).
+     */
+    private int[] mMeasuredWidths = new int[0];
+
+    /**
+     * The measured heights of the tags. Each element holds the height of the tag at the same
+     * index (the order attribute isn't taken into account).
+     */
+    private int[] mMeasuredHeights = new int[0];
+
+    /**
+     * The reordered indices of the tags computed in the last layout pass. Each element holds the
+     * index of the frame in the {@link FlexboxEngine} of the tag at the same index, which is the
+     * inverse of the {@link FlexboxEngine#getReorderedItemIndex(int)}.
+     */
+    private int[] mFrameIndices = new int[0];
+
+    /** The number of the tags whose frame indices are valid, 0 if the tags changed since. */
+    private int mLaidOutTagCount;
+
+    private OnTagClickListener mOnTagClickListener;
+
+    /** The index of the tag on which the current touch gesture started, -1 if none. */
+    private int mTouchedTagIndex = -1;
+
+    private final TagAccessibilityHelper mAccessibilityHelper;
+
+    /** Reused for setting the bounds of the virtual views. */
+    private final Rect mTempRect = new Rect();
+
+    public FlexboxTagLayout(Context context) {
+        this(context, null);
+    }
+
+    public FlexboxTagLayout(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FlexboxTagLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mEngine = new FlexboxEngine(new TagFlexContainer());
+        mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+        TypedArray a = context.obtainStyledAttributes(
+                attrs, R.styleable.FlexboxTagLayout, defStyleAttr, 0);
+        mEngine.setFlexDirection(a.getInt(R.styleable.FlexboxTagLayout_flexDirection,
+                FlexboxEngine.FLEX_DIRECTION_ROW));
+        mEngine.setFlexWrap(a.getInt(R.styleable.FlexboxTagLayout_flexWrap,
+                FlexboxEngine.FLEX_WRAP_WRAP));
+        mEngine.setJustifyContent(a.getInt(R.styleable.FlexboxTagLayout_justifyContent,
+                FlexboxEngine.JUSTIFY_CONTENT_FLEX_START));
+        mEngine.setAlignItems(a.getInt(R.styleable.FlexboxTagLayout_alignItems,
+                FlexboxEngine.ALIGN_ITEMS_FLEX_START));
+        mEngine.setAlignContent(a.getInt(R.styleable.FlexboxTagLayout_alignContent,
+                FlexboxEngine.ALIGN_CONTENT_FLEX_START));
+        mEngine.setColumnGap(a.getDimensionPixelSize(R.styleable.FlexboxTagLayout_columnGap, 0));
+        mEngine.setRowGap(a.getDimensionPixelSize(R.styleable.FlexboxTagLayout_rowGap, 0));
+        float defaultTextSize = DEFAULT_TEXT_SIZE_SP
+                * context.getResources().getDisplayMetrics().scaledDensity;
+        mTextPaint.setTextSize(
+                a.getDimension(R.styleable.FlexboxTagLayout_tagTextSize, defaultTextSize));
+        mTextPaint.setColor(a.getColor(R.styleable.FlexboxTagLayout_tagTextColor, Color.BLACK));
+        mTagBackground = a.getDrawable(R.styleable.FlexboxTagLayout_tagBackground);
+        mTagPaddingHorizontal = a
+                .getDimensionPixelSize(R.styleable.FlexboxTagLayout_tagPaddingHorizontal, 0);
+        mTagPaddingVertical = a
+                .getDimensionPixelSize(R.styleable.FlexboxTagLayout_tagPaddingVertical, 0);
+        a.recycle();
+        mTextPaint.getFontMetricsInt(mFontMetrics);
+
+        mAccessibilityHelper = new TagAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int tagCount = mTags.size();
+        if (mMeasuredWidths.length < tagCount) {
+            mMeasuredWidths = new int[tagCount];
+            mMeasuredHeights = new int[tagCount];
+        }
+        mEngine.setTracer(FlexboxLayout.isTraceEnabled() ? FlexboxLayout.TRACER : null,
+                "FlexboxTagLayout");
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        mEngine.measure(widthMeasureSpec, heightMeasureSpec);
+        setMeasuredDimension(mEngine.getMeasuredWidthAndState(),
+                mEngine.getMeasuredHeightAndState());
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        mEngine.setTracer(FlexboxLayout.isTraceEnabled() ? FlexboxLayout.TRACER : null,
+                "FlexboxTagLayout");
+        mEngine.setPadding(getPaddingLeft(), getPaddingTop(), getPaddingRight(),
+                getPaddingBottom());
+        mEngine.layout(left, top, right, bottom,
+                ViewCompat.getLayoutDirection(this) == ViewCompat.LAYOUT_DIRECTION_RTL);
+        updateFrameIndices();
+    }
+
+    private void updateFrameIndices() {
+        int tagCount = mTags.size();
+        if (mFrameIndices.length < tagCount) {
+            mFrameIndices = new int[tagCount];
+        }
+        Arrays.fill(mFrameIndices, 0, tagCount, -1);
+        for (int i = 0; i < tagCount; i++) {
+            if (!mEngine.hasFrame(i)) {
+                break;
+            }
+            int tagIndex = mEngine.getReorderedItemIndex(i);
+            if (tagIndex >= 0) {
+                mFrameIndices[tagIndex] = i;
+            }
+        }
+        mLaidOutTagCount = tagCount;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        for (int i = 0, tagCount = mTags.size(); i < tagCount; i++) {
+            if (!mEngine.hasFrame(i)) {
+                // Not laid out yet
+                break;
+            }
+            int tagIndex = mEngine.getReorderedItemIndex(i);
+            if (tagIndex < 0) {
+                continue;
+            }
+            drawTag(canvas, mTags.get(tagIndex), mEngine.getFrameLeft(i), mEngine.getFrameTop(i),
+                    mEngine.getFrameRight(i), mEngine.getFrameBottom(i));
+        }
+    }
+
+    private void drawTag(Canvas canvas, Tag tag, int left, int top, int right, int bottom) {
+        Drawable background = tag.background != null ? tag.background : mTagBackground;
+        if (background != null) {
+            background.setBounds(left, top, right, bottom);
+            background.draw(canvas);
+        }
+        int contentLeft = left + mTagPaddingHorizontal;
+        int contentTop = top + mTagPaddingVertical;
+        int contentRight = right - mTagPaddingHorizontal;
+        int contentBottom = bottom - mTagPaddingVertical;
+        int contentWidth = contentRight - contentLeft;
+        int contentHeight = contentBottom - contentTop;
+        if (contentWidth <= 0 || contentHeight <= 0) {
+            return;
+        }
+
+        Drawable drawable = tag.getDrawable();
+        if (drawable != null) {
+            int drawableWidth = Math.min(Math.max(drawable.getIntrinsicWidth(), 0), contentWidth);
+            int drawableHeight = Math
+                    .min(Math.max(drawable.getIntrinsicHeight(), 0), contentHeight);
+            int drawableLeft = contentLeft + (contentWidth - drawableWidth) / 2;
+            int drawableTop = contentTop + (contentHeight - drawableHeight) / 2;
+            drawable.setBounds(drawableLeft, drawableTop, drawableLeft + drawableWidth,
+                    drawableTop + drawableHeight);
+            drawable.draw(canvas);
+            return;
+        }
+
+        CharSequence text = tag.getText();
+        if (text == null || text.length() == 0) {
+            return;
+        }
+        float textWidth = getTextWidth(tag);
+        int baseline = top + getTextBaseline(bottom - top);
+        if (textWidth <= contentWidth) {
+            canvas.drawText(text, 0, text.length(),
+                    contentLeft + (contentWidth - textWidth) / 2f, baseline, mTextPaint);
+        } else {
+            // Clip the text which doesn't fit in the tag (e.g. shrunk or limited by the maxWidth)
+            int saveCount = canvas.save();
+            canvas.clipRect(contentLeft, top, contentRight, bottom);
+            canvas.drawText(text, 0, text.length(), contentLeft, baseline, mTextPaint);
+            canvas.restoreToCount(saveCount);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (mOnTagClickListener == null) {
+            return super.onTouchEvent(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                mTouchedTagIndex = getTagIndexAt(event.getX(), event.getY());
+                return mTouchedTagIndex >= 0 || super.onTouchEvent(event);
+            case MotionEvent.ACTION_UP:
+                if (mTouchedTagIndex < 0) {
+                    break;
+                }
+                int tagIndex = getTagIndexAt(event.getX(), event.getY());
+                if (tagIndex == mTouchedTagIndex) {
+                    performTagClick(tagIndex);
+                }
+                mTouchedTagIndex = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                if (mTouchedTagIndex < 0) {
+                    break;
+                }
+                mTouchedTagIndex = -1;
+                return true;
+            default:
+                if (mTouchedTagIndex >= 0) {
+                    return true;
+                }
+        }
+        return super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * Notify the {@link OnTagClickListener} that the tag at the index is clicked.
+     *
+     * @param index the index of the tag
+     * @return {@code true} if the listener is set, {@code false} otherwise
+     */
+    public boolean performTagClick(int index) {
+        if (mOnTagClickListener == null || index < 0 || index >= mTags.size()) {
+            return false;
+        }
+        playSoundEffect(SoundEffectConstants.CLICK);
+        mOnTagClickListener.onTagClick(this, index);
+        mAccessibilityHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        return true;
+    }
+
+    /**
+     * Returns the index of the tag at the specified position.
+     *
+     * @param x the horizontal position relative to this View
+     * @param y the vertical position relative to this View
+     * @return the index of the tag (the index passed to the {@link #getTagAt(int)}), or -1 if no
+     * tags are at the position
+     */
+    public int getTagIndexAt(float x, float y) {
+        if (mLaidOutTagCount == 0) {
+            return -1;
+        }
+        // The flex lines enclose the frames of their flex items, only the items in the lines
+        // containing the position need to be checked
+        List<FlexLine> flexLines = mEngine.getFlexLinesInternal();
+        int firstIndex = 0;
+        for (int i = 0, lineCount = flexLines.size(); i < lineCount; i++) {
+            FlexLine flexLine = flexLines.get(i);
+            int lastIndex = firstIndex + flexLine.mItemCount;
+            if (x >= flexLine.mLeft && x < flexLine.mRight
+                    && y >= flexLine.mTop && y < flexLine.mBottom) {
+                for (int j = firstIndex; j < lastIndex; j++) {
+                    if (!mEngine.hasFrame(j)) {
+                        return -1;
+                    }
+                    if (x >= mEngine.getFrameLeft(j) && x < mEngine.getFrameRight(j)
+                            && y >= mEngine.getFrameTop(j) && y < mEngine.getFrameBottom(j)) {
+                        return mEngine.getReorderedItemIndex(j);
+                    }
+                }
+            }
+            firstIndex = lastIndex;
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the frame of the tag computed in the last layout pass relative to this View.
+     *
+     * @param index    the index of the tag
+     * @param outFrame the rect to which the frame of the tag is set
+     * @return {@code true} if the frame is set to the {@code outFrame}, {@code false} if the tag
+     * isn't laid out yet
+     */
+    public boolean getTagFrame(int index, @NonNull Rect outFrame) {
+        if (index < 0 || index >= mLaidOutTagCount) {
+            return false;
+        }
+        int frameIndex = mFrameIndices[index];
+        if (frameIndex < 0 || !mEngine.hasFrame(frameIndex)) {
+            return false;
+        }
+        outFrame.set(mEngine.getFrameLeft(frameIndex), mEngine.getFrameTop(frameIndex),
+                mEngine.getFrameRight(frameIndex), mEngine.getFrameBottom(frameIndex));
+        return true;
+    }
+
+    public void addTag(@NonNull Tag tag) {
+        addTag(mTags.size(), tag);
+    }
+
+    public void addTag(int index, @NonNull Tag tag) {
+        mTags.add(index, tag);
+        onTagsChanged();
+    }
+
+    /**
+     * Replace all tags with the tags in the list.
+     *
+     * @param tags the tags to be displayed
+     */
+    public void setTags(@NonNull List<Tag> tags) {
+        mTags.clear();
+        mTags.addAll(tags);
+        onTagsChanged();
+    }
+
+    public void removeTagAt(int index) {
+        mTags.remove(index);
+        onTagsChanged();
+    }
+
+    public void removeAllTags() {
+        mTags.clear();
+        onTagsChanged();
+    }
+
+    public int getTagCount() {
+        return mTags.size();
+    }
+
+    public Tag getTagAt(int index) {
+        return mTags.get(index);
+    }
+
+    /**
+     * Needs to be called if any attributes of the tags already added are changed so that the
+     * changes are reflected.
+     */
+    public void notifyTagsChanged() {
+        onTagsChanged();
+    }
+
+    private void onTagsChanged() {
+        mEngine.invalidateOrder();
+        mLaidOutTagCount = 0;
+        mTouchedTagIndex = -1;
+        mAccessibilityHelper.invalidateRoot();
+        requestLayout();
+        invalidate();
+    }
+
+    public void setOnTagClickListener(@Nullable OnTagClickListener listener) {
+        mOnTagClickListener = listener;
+        mAccessibilityHelper.invalidateRoot();
+    }
+
+    public float getTagTextSize() {
+        return mTextPaint.getTextSize();
+    }
+
+    /**
+     * @param textSize the text size of the tags in pixels
+     */
+    public void setTagTextSize(float textSize) {
+        if (textSize != mTextPaint.getTextSize()) {
+            mTextPaint.setTextSize(textSize);
+            mTextPaint.getFontMetricsInt(mFontMetrics);
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    public int getTagTextColor() {
+        return mTextPaint.getColor();
+    }
+
+    public void setTagTextColor(int color) {
+        if (color != mTextPaint.getColor()) {
+            mTextPaint.setColor(color);
+            invalidate();
+        }
+    }
+
+    public Drawable getTagBackground() {
+        return mTagBackground;
+    }
+
+    /**
+     * Set a drawable drawn behind each tag which doesn't have its own {@link Tag#background}.
+     *
+     * @param background the drawable shared by the tags
+     */
+    public void setTagBackground(@Nullable Drawable background) {
+        if (background != mTagBackground) {
+            mTagBackground = background;
+            invalidate();
+        }
+    }
+
+    public int getTagPaddingHorizontal() {
+        return mTagPaddingHorizontal;
+    }
+
+    public int getTagPaddingVertical() {
+        return mTagPaddingVertical;
+    }
+
+    /**
+     * Set the padding put around the content of each tag.
+     *
+     * @param horizontal the padding on the left and right sides in pixels
+     * @param vertical   the padding on the top and bottom sides in pixels
+     */
+    public void setTagPadding(int horizontal, int vertical) {
+        if (horizontal != mTagPaddingHorizontal || vertical != mTagPaddingVertical) {
+            mTagPaddingHorizontal = horizontal;
+            mTagPaddingVertical = vertical;
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    @FlexboxLayout.FlexDirection
+    public int getFlexDirection() {
+        return mEngine.getFlexDirection();
+    }
+
+    public void setFlexDirection(@FlexboxLayout.FlexDirection int flexDirection) {
+        if (mEngine.getFlexDirection() != flexDirection) {
+            mEngine.setFlexDirection(flexDirection);
+            requestLayout();
+        }
+    }
+
+    @FlexboxLayout.FlexWrap
+    public int getFlexWrap() {
+        return mEngine.getFlexWrap();
+    }
+
+    public void setFlexWrap(@FlexboxLayout.FlexWrap int flexWrap) {
+        if (mEngine.getFlexWrap() != flexWrap) {
+            mEngine.setFlexWrap(flexWrap);
+            requestLayout();
+        }
+    }
+
+    @FlexboxLayout.JustifyContent
+    public int getJustifyContent() {
+        return mEngine.getJustifyContent();
+    }
+
+    public void setJustifyContent(@FlexboxLayout.JustifyContent int justifyContent) {
+        if (mEngine.getJustifyContent() != justifyContent) {
+            mEngine.setJustifyContent(justifyContent);
+            requestLayout();
+        }
+    }
+
+    @FlexboxLayout.AlignItems
+    public int getAlignItems() {
+        return mEngine.getAlignItems();
+    }
+
+    public void setAlignItems(@FlexboxLayout.AlignItems int alignItems) {
+        if (mEngine.getAlignItems() != alignItems) {
+            mEngine.setAlignItems(alignItems);
+            requestLayout();
+        }
+    }
+
+    @FlexboxLayout.AlignContent
+    public int getAlignContent() {
+        return mEngine.getAlignContent();
+    }
+
+    public void setAlignContent(@FlexboxLayout.AlignContent int alignContent) {
+        if (mEngine.getAlignContent() != alignContent) {
+            mEngine.setAlignContent(alignContent);
+            requestLayout();
+        }
+    }
+
+    public int getColumnGap() {
+        return mEngine.getColumnGap();
+    }
+
+    /**
+     * @param columnGap the length of the gap in pixels between horizontally adjacent tags (or
+     *                  flex lines when the flex direction is vertical)
+     */
+    public void setColumnGap(int columnGap) {
+        if (columnGap != mEngine.getColumnGap()) {
+            mEngine.setColumnGap(columnGap);
+            requestLayout();
+        }
+    }
+
+    public int getRowGap() {
+        return mEngine.getRowGap();
+    }
+
+    /**
+     * @param rowGap the length of the gap in pixels between vertically adjacent flex lines (or
+     *               tags when the flex direction is vertical)
+     */
+    public void setRowGap(int rowGap) {
+        if (rowGap != mEngine.getRowGap()) {
+            mEngine.setRowGap(rowGap);
+            requestLayout();
+        }
+    }
+
+    /**
+     * @return the flex lines composing this flex container. This method returns copies of the
+     * original flex lines excluding a dummy flex line (flex line that doesn't have any flex items
+     * in it but used for the alignment along the cross axis).
+     * Thus any changes of the returned list are not reflected to the original list, and the
+     * returned flex lines aren't changed by the following measure passes.
+     */
+    public List<FlexLine> getFlexLines() {
+        return mEngine.getFlexLines();
+    }
+
+    /**
+     * @return the width of the text of the tag with the current text size. The width is cached in
+     * the tag until the text size is changed.
+     */
+    private float getTextWidth(Tag tag) {
+        float textSize = mTextPaint.getTextSize();
+        if (tag.mTextWidthTextSize != textSize) {
+            CharSequence text = tag.getText();
+            tag.mTextWidth = text == null ? 0 : mTextPaint.measureText(text, 0, text.length());
+            tag.mTextWidthTextSize = textSize;
+        }
+        return tag.mTextWidth;
+    }
+
+    /**
+     * @return the offset of the text baseline from the top of a tag, which centers the text
+     * vertically in the tag
+     */
+    private int getTextBaseline(int tagHeight) {
+        int textHeight = mFontMetrics.descent - mFontMetrics.ascent;
+        return (tagHeight - textHeight) / 2 - mFontMetrics.ascent;
+    }
+
+    private int getContentWidth(Tag tag) {
+        Drawable drawable = tag.getDrawable();
+        if (drawable != null) {
+            return Math.max(drawable.getIntrinsicWidth(), 0);
+        }
+        return (int) Math.ceil(getTextWidth(tag));
+    }
+
+    private int getContentHeight(Tag tag) {
+        Drawable drawable = tag.getDrawable();
+        if (drawable != null) {
+            return Math.max(drawable.getIntrinsicHeight(), 0);
+        }
+        return mFontMetrics.descent - mFontMetrics.ascent;
+    }
+
+    /**
+     * Resolve the size of a tag in the same manner as {@link View#getDefaultSize(int, int)}
+     * except that the desired size is respected for the {@link MeasureSpec#AT_MOST} mode.
+     */
+    private static int resolveTagSize(int desiredSize, int measureSpec) {
+        int mode = FlexboxEngine.MeasureSpec.getMode(measureSpec);
+        int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+        switch (mode) {
+            case FlexboxEngine.MeasureSpec.EXACTLY:
+                return size;
+            case FlexboxEngine.MeasureSpec.AT_MOST:
+                return Math.min(desiredSize, size);
+            default:
+                return desiredSize;
+        }
+    }
+
+    /**
+     * A lightweight flex item displayed in the {@link FlexboxTagLayout}, which shows either text
+     * or a {@link Drawable}. The flex item attributes have the same meanings as the ones in the
+     * {@link FlexboxLayout.LayoutParams}. Call {@link FlexboxTagLayout#notifyTagsChanged()} after
+     * changing the attributes of the tags already added.
+     */
+    public static class Tag implements FlexItem {
+
+        private final CharSequence mText;
+
+        private final Drawable mDrawable;
+
+        /** The width of the {@link #mText} measured with the {@link #mTextWidthTextSize}. */
+        float mTextWidth;
+
+        /** The text size with which the {@link #mTextWidth} is measured, -1 if not measured. */
+        float mTextWidthTextSize = -1f;
+
+        /**
+         * The drawable drawn behind this tag. If {@code null}, the drawable set by the
+         * {@link FlexboxTagLayout#setTagBackground(Drawable)} is drawn.
+         */
+        public Drawable background;
+
+        /**
+         * The description of this tag for the accessibility services. If {@code null}, the text
+         * of this tag is used.
+         */
+        public CharSequence contentDescription;
+
+        /** The width in pixels, or either of {@link #MATCH_PARENT} or {@link #WRAP_CONTENT}. */
+        public int width = WRAP_CONTENT;
+
+        /** The height in pixels, or either of {@link #MATCH_PARENT} or {@link #WRAP_CONTENT}. */
+        public int height = WRAP_CONTENT;
+
+        public int order = ORDER_DEFAULT;
+
+        public float flexGrow = FLEX_GROW_DEFAULT;
+
+        public float flexShrink = FLEX_SHRINK_DEFAULT;
+
+        public int alignSelf = ALIGN_SELF_AUTO;
+
+        public float flexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
+
+        public float aspectRatio = ASPECT_RATIO_DEFAULT;
+
+        public int minWidth;
+
+        public int minHeight;
+
+        public int maxWidth = MAX_SIZE;
+
+        public int maxHeight = MAX_SIZE;
+
+        public boolean wrapBefore;
+
+        public int leftMargin;
+
+        public int topMargin;
+
+        public int rightMargin;
+
+        public int bottomMargin;
+
+        /**
+         * Creates a tag showing text.
+         *
+         * @param text the text to be displayed
+         */
+        public Tag(@NonNull CharSequence text) {
+            mText = text;
+            mDrawable = null;
+        }
+
+        /**
+         * Creates a tag showing a drawable at its intrinsic size.
+         *
+         * @param drawable the drawable to be displayed
+         */
+        public Tag(@NonNull Drawable drawable) {
+            mText = null;
+            mDrawable = drawable;
+        }
+
+        /**
+         * @return the text displayed in this tag, or {@code null} if this tag displays a drawable
+         */
+        @Nullable
+        public CharSequence getText() {
+            return mText;
+        }
+
+        /**
+         * @return the drawable displayed in this tag, or {@code null} if this tag displays text
+         */
+        @Nullable
+        public Drawable getDrawable() {
+            return mDrawable;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            return flexGrow;
+        }
+
+        @Override
+        public float getFlexShrink() {
+            return flexShrink;
+        }
+
+        @Override
+        public int getAlignSelf() {
+            return alignSelf;
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            return flexBasisPercent;
+        }
+
+        @Override
+        public float getAspectRatio() {
+            return aspectRatio;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return minWidth;
+        }
+
+        @Override
+        public int getMinHeight() {
+            return minHeight;
+        }
+
+        @Override
+        public int getMaxWidth() {
+            return maxWidth;
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return maxHeight;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            return wrapBefore;
+        }
+
+        @Override
+        public int getMarginLeft() {
+            return leftMargin;
+        }
+
+        @Override
+        public int getMarginTop() {
+            return topMargin;
+        }
+
+        @Override
+        public int getMarginRight() {
+            return rightMargin;
+        }
+
+        @Override
+        public int getMarginBottom() {
+            return bottomMargin;
+        }
+    }
+
+    /**
+     * Interface definition for a callback to be invoked when a tag is clicked.
+     */
+    public interface OnTagClickListener {
+
+        /**
+         * Called when a tag is clicked.
+         *
+         * @param layout the layout containing the tag
+         * @param index  the index of the clicked tag
+         */
+        void onTagClick(FlexboxTagLayout layout, int index);
+    }
+
+    /**
+     * The {@link FlexContainer} through which the {@link FlexboxEngine} measures the tags. The
+     * measured sizes are kept in the arrays instead of the tags themselves.
+     */
+    private class TagFlexContainer implements FlexContainer {
+
+        @Override
+        public int getFlexItemCount() {
+            return mTags.size();
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            return mTags.get(index);
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            return false;
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            Tag tag = mTags.get(index);
+            mMeasuredWidths[index] = resolveTagSize(
+                    getContentWidth(tag) + mTagPaddingHorizontal * 2, widthMeasureSpec);
+            mMeasuredHeights[index] = resolveTagSize(
+                    getContentHeight(tag) + mTagPaddingVertical * 2, heightMeasureSpec);
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return mMeasuredWidths[index];
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mMeasuredHeights[index];
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            return 0;
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            if (mTags.get(index).getDrawable() != null) {
+                return -1;
+            }
+            return getTextBaseline(mMeasuredHeights[index]);
+        }
+    }
+
+    /**
+     * Exposes the tags to the accessibility services as virtual views. The virtual view ids are
+     * the indices of the tags.
+     */
+    private class TagAccessibilityHelper extends ExploreByTouchHelper {
+
+        TagAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int index = getTagIndexAt(x, y);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            // Add the tags in the order they are laid out
+            for (int i = 0, tagCount = mTags.size(); i < tagCount; i++) {
+                int tagIndex = mEngine.getReorderedItemIndex(i);
+                if (tagIndex >= 0) {
+                    virtualViewIds.add(tagIndex);
+                }
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId,
+                AccessibilityEvent event) {
+            event.setContentDescription(getDescription(virtualViewId));
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId,
+                AccessibilityNodeInfoCompat node) {
+            node.setContentDescription(getDescription(virtualViewId));
+            if (virtualViewId >= mTags.size() || !getTagFrame(virtualViewId, mTempRect)) {
+                // The bounds need to be set even if the tag is removed or not laid out yet
+                mTempRect.setEmpty();
+            }
+            node.setBoundsInParent(mTempRect);
+            if (mOnTagClickListener != null) {
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+                node.setClickable(true);
+            }
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action,
+                Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                return performTagClick(virtualViewId);
+            }
+            return false;
+        }
+
+        private CharSequence getDescription(int virtualViewId) {
+            if (virtualViewId < 0 || virtualViewId >= mTags.size()) {
+                return "";
+            }
+            Tag tag = mTags.get(virtualViewId);
+            if (tag.contentDescription != null) {
+                return tag.contentDescription;
+            }
+            return tag.getText() != null ? tag.getText() : "";
+        }
+    }
+}
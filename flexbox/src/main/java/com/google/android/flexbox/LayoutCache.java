@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the results of the first layout passes of flex containers, i.e. the measured size of
+ * the flex container, the flex lines and the frames of the flex items, in a compact binary form
+ * which can be saved to a file and read on the next launch of the app. A flex container which
+ * finds its results in the cache applies them right away, measuring each child only once to its
+ * cached size instead of running the flex algorithm, and validates them after the first frame.
+ * The results for other MeasureSpecs, e.g. the ones after a rotation, can be computed ahead of
+ * time by {@link FlexboxLayout#precomputeLayout(int, int)}.
+ *
+ * Each result is keyed by a hash of the attributes of the flex container, the attributes of each
+ * flex item, the MeasureSpecs passed to the flex container, the layout direction and a content
+ * version supplied by the app, which needs to be changed whenever the content of the children
+ * changes their sizes (e.g. a different text).
+ *
+ * Set an instance through {@link FlexboxLayout#setLayoutCache(LayoutCache, int)}. The cache
+ * holds up to a fixed number of results, discarding the least recently used one. The methods
+ * are thread safe so that the cache can be written to a file on a background thread.
+ */
+public class LayoutCache {
+
+    static final int MAGIC = 0x464c5843; // "FLXC"
+
+    static final int VERSION = 1;
+
+    private static final int DEFAULT_MAX_ENTRY_COUNT = 32;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int mMaxEntryCount;
+
+    /** The serialized results keyed by their hashes, in the order of the access. */
+    private final LinkedHashMap<Long, byte[]> mEntries;
+
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+    /** {@code true} if any result has been added since this cache was created or written. */
+    private boolean mModified;
+
+    public LayoutCache() {
+        this(DEFAULT_MAX_ENTRY_COUNT);
+    }
+
+    /**
+     * @param maxEntryCount the maximum number of the results held by this cache
+     */
+    public LayoutCache(int maxEntryCount) {
+        if (maxEntryCount <= 0) {
+            throw new IllegalArgumentException("maxEntryCount must be positive: " + maxEntryCount);
+        }
+        mMaxEntryCount = maxEntryCount;
+        mEntries = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > mMaxEntryCount;
+            }
+        };
+    }
+
+    /**
+     * Reads a cache written by {@link #writeTo(OutputStream)}.
+     *
+     * @param in the stream from which the cache is read
+     * @return the cache
+     * @throws IOException if an I/O error occurs or the stream doesn't contain a valid cache,
+     *                     e.g. one written by a different version of this library
+     */
+    public static LayoutCache read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a flexbox layout cache");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported layout cache version: " + version);
+        }
+        int maxEntryCount = data.readInt();
+        int entryCount = data.readInt();
+        if (maxEntryCount <= 0 || entryCount < 0 || entryCount > maxEntryCount) {
+            throw new IOException("Invalid number of the entries: " + entryCount);
+        }
+        LayoutCache cache = new LayoutCache(maxEntryCount);
+        for (int i = 0; i < entryCount; i++) {
+            long key = data.readLong();
+            int length = data.readInt();
+            if (length < 0) {
+                throw new IOException("Invalid length of an entry: " + length);
+            }
+            byte[] entry = new byte[length];
+            data.readFully(entry);
+            cache.mEntries.put(key, entry);
+        }
+        return cache;
+    }
+
+    /**
+     * Writes the results held by this cache to the specified stream, e.g. a file to be read by
+     * {@link #read(InputStream)} on the next launch.
+     *
+     * @param out the stream to which the cache is written
+     * @throws IOException if an I/O error occurs
+     */
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(mMaxEntryCount);
+        data.writeInt(mEntries.size());
+        for (Map.Entry<Long, byte[]> entry : mEntries.entrySet()) {
+            data.writeLong(entry.getKey());
+            data.writeInt(entry.getValue().length);
+            data.write(entry.getValue());
+        }
+        data.flush();
+        mModified = false;
+    }
+
+    /**
+     * @return {@code true} if any result has been added since this cache was created, read or
+     * last written, i.e. the cache needs to be written again to keep the added results
+     */
+    public synchronized boolean isModified() {
+        return mModified;
+    }
+
+    /**
+     * @return the number of the results held by this cache
+     */
+    public synchronized int size() {
+        return mEntries.size();
+    }
+
+    /**
+     * Discards all the results.
+     */
+    public synchronized void clear() {
+        mModified |= !mEntries.isEmpty();
+        mEntries.clear();
+    }
+
+    /**
+     * Stores the results of the last measure and layout of the engine under the key.
+     */
+    synchronized void put(long key, FlexboxEngine engine) {
+        mBytes.reset();
+        try {
+            engine.writeLayout(mOut);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        byte[] entry = mBytes.toByteArray();
+        byte[] previous = mEntries.put(key, entry);
+        mModified |= previous == null || !Arrays.equals(previous, entry);
+    }
+
+    /**
+     * Discards the results stored under the key, e.g. the ones which turned out to be stale.
+     */
+    synchronized void remove(long key) {
+        mModified |= mEntries.remove(key) != null;
+    }
+
+    /**
+     * Restores the results stored under the key into the engine in place of its measure.
+     *
+     * @return {@code true} if the results are restored, {@code false} if the key isn't found
+     */
+    synchronized boolean restore(long key, FlexboxEngine engine) {
+        byte[] entry = mEntries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        try {
+            return engine.readLayout(new DataInputStream(new ByteArrayInputStream(entry)));
+        } catch (IOException e) {
+            // Only a corrupted entry gets here, which is treated as missing
+            mEntries.remove(key);
+            return false;
+        }
+    }
+
+    /**
+     * Computes the key of the results of the measure pass of the engine with the specified
+     * inputs, which the engine and its flex items are expected to hold already.
+     */
+    static long computeKey(FlexboxEngine engine, int contentVersion, boolean layoutRtl,
+            int widthMeasureSpec, int heightMeasureSpec) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hash(hash, contentVersion);
+        hash = hash(hash, layoutRtl ? 1 : 0);
+        hash = hash(hash, widthMeasureSpec);
+        hash = hash(hash, heightMeasureSpec);
+        hash = hash(hash, engine.getFlexDirection());
+        hash = hash(hash, engine.getFlexWrap());
+        hash = hash(hash, engine.getJustifyContent());
+        hash = hash(hash, engine.getAlignItems());
+        hash = hash(hash, engine.getAlignContent());
+        hash = hash(hash, engine.getShowDividerHorizontal());
+        hash = hash(hash, engine.getShowDividerVertical());
+        hash = hash(hash, engine.getDividerHorizontalHeight());
+        hash = hash(hash, engine.getDividerVerticalWidth());
+        hash = hash(hash, engine.getColumnGap());
+        hash = hash(hash, engine.getRowGap());
+        hash = hash(hash, engine.isFixedPointDistribution() ? 1 : 0);
+        hash = hash(hash, engine.getJustifiedRowHeight());
+        hash = hash(hash, engine.getPaddingLeft());
+        hash = hash(hash, engine.getPaddingTop());
+        hash = hash(hash, engine.getPaddingRight());
+        hash = hash(hash, engine.getPaddingBottom());
+
+        FlexContainer container = engine.getContainer();
+        int itemCount = container.getFlexItemCount();
+        hash = hash(hash, itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            FlexItem flexItem = container.getFlexItemAt(i);
+            hash = hash(hash, container.isFlexItemGone(i) ? 1 : 0);
+            hash = hash(hash, flexItem.getWidth());
+            hash = hash(hash, flexItem.getHeight());
+            hash = hash(hash, flexItem.getOrder());
+            hash = hash(hash, Float.floatToIntBits(flexItem.getFlexGrow()));
+            hash = hash(hash, Float.floatToIntBits(flexItem.getFlexShrink()));
+            hash = hash(hash, flexItem.getAlignSelf());
+            hash = hash(hash, Float.floatToIntBits(flexItem.getFlexBasisPercent()));
+            hash = hash(hash, Float.floatToIntBits(flexItem.getAspectRatio()));
+            hash = hash(hash, flexItem.getMinWidth());
+            hash = hash(hash, flexItem.getMinHeight());
+            hash = hash(hash, flexItem.getMaxWidth());
+            hash = hash(hash, flexItem.getMaxHeight());
+            hash = hash(hash, flexItem.isWrapBefore() ? 1 : 0);
+            hash = hash(hash, flexItem.getMarginLeft());
+            hash = hash(hash, flexItem.getMarginTop());
+            hash = hash(hash, flexItem.getMarginRight());
+            hash = hash(hash, flexItem.getMarginBottom());
+        }
+        return hash;
+    }
+
+    /**
+     * Mixes the value into the hash in the same way as FNV-1a does for each of its four bytes.
+     */
+    private static long hash(long hash, int value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records the inputs of each measure pass of a flex container into a compact binary trace: the
+ * MeasureSpecs passed to the flex container, the attributes of the flex container and of each
+ * flex item, and the size each flex item returned for each MeasureSpecs it was measured with.
+ * The trace is read by {@link LayoutTrace}, which re-runs the flexbox algorithm from it without
+ * any Views involved, e.g. to benchmark or to bisect changes of the algorithm against layouts
+ * captured from real devices.
+ *
+ * Set an instance through {@link FlexboxLayout#setLayoutRecorder(LayoutRecorder)}. The trace is
+ * accumulated in memory until {@link #reset()} is called. Nothing is recorded unless an instance
+ * is set, which is the default.
+ */
+public class LayoutRecorder {
+
+    static final int MAGIC = 0x464c5854; // "FLXT"
+
+    static final int VERSION = 2;
+
+    static final int TAG_PASS = 1;
+
+    static final int TAG_MEASURE = 2;
+
+    static final int TAG_END_OF_PASS = 3;
+
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+    private int mPassCount;
+
+    public LayoutRecorder() {
+        writeHeader();
+    }
+
+    /**
+     * Called by the flexbox algorithm at the beginning of each measure pass.
+     */
+    void onMeasurePass(FlexboxEngine engine, FlexContainer container, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        try {
+            mOut.writeByte(TAG_PASS);
+            mOut.writeInt(widthMeasureSpec);
+            mOut.writeInt(heightMeasureSpec);
+            mOut.writeInt(engine.getFlexDirection());
+            mOut.writeInt(engine.getFlexWrap());
+            mOut.writeInt(engine.getJustifyContent());
+            mOut.writeInt(engine.getAlignItems());
+            mOut.writeInt(engine.getAlignContent());
+            mOut.writeInt(engine.getShowDividerHorizontal());
+            mOut.writeInt(engine.getShowDividerVertical());
+            mOut.writeInt(engine.getDividerHorizontalHeight());
+            mOut.writeInt(engine.getDividerVerticalWidth());
+            mOut.writeInt(engine.getColumnGap());
+            mOut.writeInt(engine.getRowGap());
+            mOut.writeInt(engine.getPaddingLeft());
+            mOut.writeInt(engine.getPaddingTop());
+            mOut.writeInt(engine.getPaddingRight());
+            mOut.writeInt(engine.getPaddingBottom());
+
+            int itemCount = container.getFlexItemCount();
+            mOut.writeInt(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                FlexItem flexItem = container.getFlexItemAt(i);
+                mOut.writeBoolean(container.isFlexItemGone(i));
+                mOut.writeInt(flexItem.getWidth());
+                mOut.writeInt(flexItem.getHeight());
+                mOut.writeInt(flexItem.getOrder());
+                mOut.writeFloat(flexItem.getFlexGrow());
+                mOut.writeFloat(flexItem.getFlexShrink());
+                mOut.writeInt(flexItem.getAlignSelf());
+                mOut.writeFloat(flexItem.getFlexBasisPercent());
+                mOut.writeFloat(flexItem.getAspectRatio());
+                mOut.writeInt(flexItem.getMinWidth());
+                mOut.writeInt(flexItem.getMinHeight());
+                mOut.writeInt(flexItem.getMaxWidth());
+                mOut.writeInt(flexItem.getMaxHeight());
+                mOut.writeBoolean(flexItem.isWrapBefore());
+                mOut.writeInt(flexItem.getMarginLeft());
+                mOut.writeInt(flexItem.getMarginTop());
+                mOut.writeInt(flexItem.getMarginRight());
+                mOut.writeInt(flexItem.getMarginBottom());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Called by the flexbox algorithm each time a flex item is measured, after the measurement.
+     */
+    void onMeasureFlexItem(FlexContainer container, int index, int widthMeasureSpec,
+            int heightMeasureSpec) {
+        try {
+            mOut.writeByte(TAG_MEASURE);
+            mOut.writeInt(index);
+            mOut.writeInt(widthMeasureSpec);
+            mOut.writeInt(heightMeasureSpec);
+            mOut.writeInt(container.getMeasuredWidthOfFlexItem(index));
+            mOut.writeInt(container.getMeasuredHeightOfFlexItem(index));
+            mOut.writeInt(container.getMeasuredStateOfFlexItem(index));
+            mOut.writeInt(container.getBaselineOfFlexItem(index));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Called by the flexbox algorithm at the end of each measure pass with its results, which
+     * let the replay tell whether the algorithm still produces the same results.
+     */
+    void onMeasurePassEnd(int measuredWidthAndState, int measuredHeightAndState,
+            int flexLineCount) {
+        try {
+            mOut.writeByte(TAG_END_OF_PASS);
+            mOut.writeInt(measuredWidthAndState);
+            mOut.writeInt(measuredHeightAndState);
+            mOut.writeInt(flexLineCount);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        mPassCount++;
+    }
+
+    /**
+     * @return the number of the measure passes recorded
+     */
+    public int getPassCount() {
+        return mPassCount;
+    }
+
+    /**
+     * @return the size of the trace in bytes
+     */
+    public int size() {
+        return mBytes.size();
+    }
+
+    /**
+     * @return the trace recorded so far
+     */
+    public byte[] toByteArray() {
+        return mBytes.toByteArray();
+    }
+
+    /**
+     * Writes the trace recorded so far to the specified stream, e.g. a file to be pulled from
+     * the device and to be read by {@link LayoutTrace#read(java.io.InputStream)}.
+     *
+     * @param out the stream to which the trace is written
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        mBytes.writeTo(out);
+    }
+
+    /**
+     * Discards the recorded passes.
+     */
+    public void reset() {
+        mBytes.reset();
+        mPassCount = 0;
+        writeHeader();
+    }
+
+    private void writeHeader() {
+        try {
+            mOut.writeInt(MAGIC);
+            mOut.writeInt(VERSION);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
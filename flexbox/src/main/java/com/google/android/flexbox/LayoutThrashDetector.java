@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * Detects the FlexboxLayouts that are measured or laid out too many times in a frame, like the
+ * ones whose children call {@code requestLayout()} while being laid out, and the FlexboxLayouts
+ * nested too deeply in other FlexboxLayouts, whose measurements multiply with each level of
+ * nesting. Install an instance through
+ * {@link FlexboxLayout#setLayoutThrashDetector(LayoutThrashDetector)}.
+ *
+ * The frames are those of the Choreographer, thus the passes of an invisible FlexboxLayout or of
+ * the one whose display list is reused are counted as well.
+ * Each threshold is reported at most once per frame of each FlexboxLayout, when it is first
+ * exceeded. The detection only updates a few counters on each measure and layout pass, thus it
+ * is cheap enough to be kept enabled in internal builds.
+ */
+public class LayoutThrashDetector {
+
+    @IntDef({REASON_MEASURE_COUNT, REASON_LAYOUT_COUNT, REASON_NESTING_DEPTH})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Reason {
+
+    }
+
+    /** The FlexboxLayout is measured more times in a frame than the threshold. */
+    public static final int REASON_MEASURE_COUNT = 0;
+
+    /**
+     * The FlexboxLayout is laid out more times in a frame than the threshold, which is typically
+     * caused by a child calling {@code requestLayout()} during the layout pass.
+     */
+    public static final int REASON_LAYOUT_COUNT = 1;
+
+    /** The FlexboxLayout is measured inside more nested FlexboxLayouts than the threshold. */
+    public static final int REASON_NESTING_DEPTH = 2;
+
+    /**
+     * Interface definition for a callback to be invoked when a FlexboxLayout exceeds one of the
+     * thresholds of the {@link LayoutThrashDetector}.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the UI thread in the middle of the measure or layout pass exceeding the
+         * threshold, thus the implementation shouldn't change the view hierarchy.
+         *
+         * @param flexboxLayout the FlexboxLayout exceeding the threshold, which is the root of
+         *                      the offending subtree
+         * @param reason        the threshold exceeded
+         * @param count         the number of the measure passes or the layout passes in the
+         *                      current frame, or the nesting depth of the FlexboxLayout where
+         *                      the outermost FlexboxLayout has the depth of 1
+         */
+        void onLayoutThrash(@NonNull FlexboxLayout flexboxLayout, @Reason int reason, int count);
+    }
+
+    private final int mMaxMeasuresPerFrame;
+
+    private final int mMaxLayoutsPerFrame;
+
+    private final int mMaxNestingDepth;
+
+    private final Listener mListener;
+
+    /**
+     * @param maxMeasuresPerFrame the maximum number of the measure passes of a FlexboxLayout in
+     *                            a frame which isn't reported
+     * @param maxLayoutsPerFrame  the maximum number of the layout passes of a FlexboxLayout in a
+     *                            frame which isn't reported
+     * @param maxNestingDepth     the maximum nesting depth of a FlexboxLayout which isn't
+     *                            reported, the outermost FlexboxLayout has the depth of 1
+     * @param listener            the listener to which the FlexboxLayouts exceeding the
+     *                            thresholds are reported
+     */
+    public LayoutThrashDetector(int maxMeasuresPerFrame, int maxLayoutsPerFrame,
+            int maxNestingDepth, @NonNull Listener listener) {
+        if (maxMeasuresPerFrame < 1 || maxLayoutsPerFrame < 1 || maxNestingDepth < 1) {
+            throw new IllegalArgumentException("The thresholds must be positive");
+        }
+        mMaxMeasuresPerFrame = maxMeasuresPerFrame;
+        mMaxLayoutsPerFrame = maxLayoutsPerFrame;
+        mMaxNestingDepth = maxNestingDepth;
+        mListener = listener;
+    }
+
+    public int getMaxMeasuresPerFrame() {
+        return mMaxMeasuresPerFrame;
+    }
+
+    public int getMaxLayoutsPerFrame() {
+        return mMaxLayoutsPerFrame;
+    }
+
+    public int getMaxNestingDepth() {
+        return mMaxNestingDepth;
+    }
+
+    /**
+     * Called at the beginning of each measure pass of a FlexboxLayout.
+     *
+     * @param flexboxLayout the FlexboxLayout being measured
+     * @param measureCount  the number of the measure passes of the FlexboxLayout in the current
+     *                      frame including this one
+     * @param nestingDepth  the number of the FlexboxLayouts being measured including this one
+     */
+    void onMeasure(FlexboxLayout flexboxLayout, int measureCount, int nestingDepth) {
+        if (measureCount == mMaxMeasuresPerFrame + 1) {
+            mListener.onLayoutThrash(flexboxLayout, REASON_MEASURE_COUNT, measureCount);
+        }
+        if (measureCount == 1 && nestingDepth > mMaxNestingDepth) {
+            mListener.onLayoutThrash(flexboxLayout, REASON_NESTING_DEPTH, nestingDepth);
+        }
+    }
+
+    /**
+     * Called at the beginning of each layout pass of a FlexboxLayout.
+     *
+     * @param flexboxLayout the FlexboxLayout being laid out
+     * @param layoutCount   the number of the layout passes of the FlexboxLayout in the current
+     *                      frame including this one
+     */
+    void onLayout(FlexboxLayout flexboxLayout, int layoutCount) {
+        if (layoutCount == mMaxLayoutsPerFrame + 1) {
+            mListener.onLayoutThrash(flexboxLayout, REASON_LAYOUT_COUNT, layoutCount);
+        }
+    }
+}
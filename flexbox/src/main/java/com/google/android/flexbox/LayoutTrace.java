@@ -0,0 +1,565 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A trace recorded by {@link LayoutRecorder}, from which the flexbox algorithm is re-run on a
+ * plain JVM without any Views involved. Each recorded measure pass is replayed by a
+ * {@link FlexboxEngine} over a {@link ReplayFlexContainer}, whose flex items return the sizes
+ * recorded for the MeasureSpecs they are measured with.
+ */
+public class LayoutTrace {
+
+    private final List<Pass> mPasses;
+
+    private LayoutTrace(List<Pass> passes) {
+        mPasses = Collections.unmodifiableList(passes);
+    }
+
+    /**
+     * Reads a trace written by {@link LayoutRecorder#writeTo(java.io.OutputStream)}.
+     *
+     * @param in the stream from which the trace is read
+     * @return the trace
+     * @throws IOException if an I/O error occurs or the stream doesn't contain a valid trace
+     */
+    public static LayoutTrace read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != LayoutRecorder.MAGIC) {
+            throw new IOException("Not a flexbox layout trace");
+        }
+        int version = data.readInt();
+        if (version != LayoutRecorder.VERSION) {
+            throw new IOException("Unsupported layout trace version: " + version);
+        }
+        List<Pass> passes = new ArrayList<>();
+        Pass pass = null;
+        int tag;
+        while ((tag = data.read()) != -1) {
+            switch (tag) {
+                case LayoutRecorder.TAG_PASS:
+                    pass = new Pass(data);
+                    break;
+                case LayoutRecorder.TAG_MEASURE:
+                    if (pass == null) {
+                        throw new IOException("Measurement outside of a measure pass");
+                    }
+                    pass.readMeasurement(data);
+                    break;
+                case LayoutRecorder.TAG_END_OF_PASS:
+                    if (pass == null) {
+                        throw new IOException("End of a measure pass without its beginning");
+                    }
+                    pass.readEnd(data);
+                    passes.add(pass);
+                    pass = null;
+                    break;
+                default:
+                    throw new IOException("Invalid tag in the layout trace: " + tag);
+            }
+        }
+        return new LayoutTrace(passes);
+    }
+
+    /**
+     * @return the measure passes completely recorded in the trace
+     */
+    public List<Pass> getPasses() {
+        return mPasses;
+    }
+
+    /**
+     * A recorded measure pass of a flex container.
+     */
+    public static class Pass {
+
+        private final int mWidthMeasureSpec;
+
+        private final int mHeightMeasureSpec;
+
+        private final int mFlexDirection;
+
+        private final int mFlexWrap;
+
+        private final int mJustifyContent;
+
+        private final int mAlignItems;
+
+        private final int mAlignContent;
+
+        private final int mShowDividerHorizontal;
+
+        private final int mShowDividerVertical;
+
+        private final int mDividerHorizontalHeight;
+
+        private final int mDividerVerticalWidth;
+
+        private final int mColumnGap;
+
+        private final int mRowGap;
+
+        private final int mPaddingLeft;
+
+        private final int mPaddingTop;
+
+        private final int mPaddingRight;
+
+        private final int mPaddingBottom;
+
+        private final RecordedFlexItem[] mFlexItems;
+
+        private final boolean[] mGone;
+
+        /**
+         * The measurements of each flex item in the recorded order, each of which consists of
+         * the {@link ReplayFlexContainer#MEASUREMENT_SIZE} values starting with the MeasureSpecs.
+         */
+        private final List<List<int[]>> mMeasurements;
+
+        private int mMeasuredWidthAndState;
+
+        private int mMeasuredHeightAndState;
+
+        private int mFlexLineCount;
+
+        private Pass(DataInputStream in) throws IOException {
+            mWidthMeasureSpec = in.readInt();
+            mHeightMeasureSpec = in.readInt();
+            mFlexDirection = in.readInt();
+            mFlexWrap = in.readInt();
+            mJustifyContent = in.readInt();
+            mAlignItems = in.readInt();
+            mAlignContent = in.readInt();
+            mShowDividerHorizontal = in.readInt();
+            mShowDividerVertical = in.readInt();
+            mDividerHorizontalHeight = in.readInt();
+            mDividerVerticalWidth = in.readInt();
+            mColumnGap = in.readInt();
+            mRowGap = in.readInt();
+            mPaddingLeft = in.readInt();
+            mPaddingTop = in.readInt();
+            mPaddingRight = in.readInt();
+            mPaddingBottom = in.readInt();
+            int itemCount = in.readInt();
+            if (itemCount < 0) {
+                throw new IOException("Invalid number of the flex items: " + itemCount);
+            }
+            mFlexItems = new RecordedFlexItem[itemCount];
+            mGone = new boolean[itemCount];
+            mMeasurements = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                mGone[i] = in.readBoolean();
+                mFlexItems[i] = new RecordedFlexItem(in);
+                mMeasurements.add(new ArrayList<int[]>(2));
+            }
+        }
+
+        private void readMeasurement(DataInputStream in) throws IOException {
+            int index = in.readInt();
+            if (index < 0 || index >= mFlexItems.length) {
+                throw new IOException("Invalid index of the flex item: " + index);
+            }
+            int[] measurement = new int[ReplayFlexContainer.MEASUREMENT_SIZE];
+            for (int i = 0; i < measurement.length; i++) {
+                measurement[i] = in.readInt();
+            }
+            mMeasurements.get(index).add(measurement);
+        }
+
+        private void readEnd(DataInputStream in) throws IOException {
+            mMeasuredWidthAndState = in.readInt();
+            mMeasuredHeightAndState = in.readInt();
+            mFlexLineCount = in.readInt();
+        }
+
+        public int getWidthMeasureSpec() {
+            return mWidthMeasureSpec;
+        }
+
+        public int getHeightMeasureSpec() {
+            return mHeightMeasureSpec;
+        }
+
+        public int getFlexItemCount() {
+            return mFlexItems.length;
+        }
+
+        /**
+         * @return the measured width and state of the flex container in the recorded pass
+         */
+        public int getMeasuredWidthAndState() {
+            return mMeasuredWidthAndState;
+        }
+
+        /**
+         * @return the measured height and state of the flex container in the recorded pass
+         */
+        public int getMeasuredHeightAndState() {
+            return mMeasuredHeightAndState;
+        }
+
+        /**
+         * @return the number of the flex lines in the recorded pass
+         */
+        public int getFlexLineCount() {
+            return mFlexLineCount;
+        }
+
+        /**
+         * @return the number of the measurements of the flex items in the recorded pass
+         */
+        public int getMeasureCount() {
+            int count = 0;
+            for (int i = 0, size = mMeasurements.size(); i < size; i++) {
+                count += mMeasurements.get(i).size();
+            }
+            return count;
+        }
+
+        /**
+         * @return a new container whose flex items return the recorded sizes
+         */
+        public ReplayFlexContainer newFlexContainer() {
+            int[][][] measurements = new int[mFlexItems.length][][];
+            for (int i = 0; i < measurements.length; i++) {
+                List<int[]> itemMeasurements = mMeasurements.get(i);
+                measurements[i] = itemMeasurements.toArray(new int[itemMeasurements.size()][]);
+            }
+            return new ReplayFlexContainer(mFlexItems, mGone, measurements);
+        }
+
+        /**
+         * Creates a {@link FlexboxEngine} having the recorded attributes of the flex container.
+         * Call {@link FlexboxEngine#measure(int, int)} with {@link #getWidthMeasureSpec()} and
+         * {@link #getHeightMeasureSpec()} to replay the pass.
+         *
+         * @param container the container created by {@link #newFlexContainer()}
+         * @return the engine
+         */
+        public FlexboxEngine newEngine(FlexContainer container) {
+            FlexboxEngine engine = new FlexboxEngine(container);
+            engine.setFlexDirection(mFlexDirection);
+            engine.setFlexWrap(mFlexWrap);
+            engine.setJustifyContent(mJustifyContent);
+            engine.setAlignItems(mAlignItems);
+            engine.setAlignContent(mAlignContent);
+            engine.setShowDividerHorizontal(mShowDividerHorizontal);
+            engine.setShowDividerVertical(mShowDividerVertical);
+            engine.setDividerHorizontalHeight(mDividerHorizontalHeight);
+            engine.setDividerVerticalWidth(mDividerVerticalWidth);
+            engine.setColumnGap(mColumnGap);
+            engine.setRowGap(mRowGap);
+            engine.setPadding(mPaddingLeft, mPaddingTop, mPaddingRight, mPaddingBottom);
+            return engine;
+        }
+
+        /**
+         * Replays the pass on a new engine.
+         *
+         * @return the engine which has measured the replayed pass
+         */
+        public FlexboxEngine replay() {
+            FlexboxEngine engine = newEngine(newFlexContainer());
+            engine.measure(mWidthMeasureSpec, mHeightMeasureSpec);
+            return engine;
+        }
+
+        /**
+         * @param engine the engine which has replayed this pass
+         * @return {@code true} if the engine produced the same size of the flex container and
+         * the same number of the flex lines as the recorded pass
+         */
+        public boolean matchesRecording(FlexboxEngine engine) {
+            return engine.getMeasuredWidthAndState() == mMeasuredWidthAndState
+                    && engine.getMeasuredHeightAndState() == mMeasuredHeightAndState
+                    && engine.getFlexLineCount() == mFlexLineCount;
+        }
+    }
+
+    /**
+     * A {@link FlexContainer} whose flex items return the sizes recorded for the MeasureSpecs
+     * they are measured with. If a flex item is measured with MeasureSpecs not in the trace,
+     * e.g. because the algorithm has been changed since the recording, the size of its first
+     * recorded measurement is taken as its intrinsic size and is resolved against the
+     * MeasureSpecs.
+     */
+    public static class ReplayFlexContainer implements FlexContainer {
+
+        private static final int MEASUREMENT_SIZE = 6;
+
+        private final FlexItem[] mFlexItems;
+
+        private final boolean[] mGone;
+
+        private final int[][][] mMeasurements;
+
+        private final int[] mMeasuredWidths;
+
+        private final int[] mMeasuredHeights;
+
+        private final int[] mMeasuredStates;
+
+        private final int[] mBaselines;
+
+        private int mUnrecordedMeasureCount;
+
+        private ReplayFlexContainer(FlexItem[] flexItems, boolean[] gone,
+                int[][][] measurements) {
+            mFlexItems = flexItems;
+            mGone = gone;
+            mMeasurements = measurements;
+            mMeasuredWidths = new int[flexItems.length];
+            mMeasuredHeights = new int[flexItems.length];
+            mMeasuredStates = new int[flexItems.length];
+            mBaselines = new int[flexItems.length];
+        }
+
+        /**
+         * @return the number of the measurements made with the MeasureSpecs not in the trace
+         */
+        public int getUnrecordedMeasureCount() {
+            return mUnrecordedMeasureCount;
+        }
+
+        @Override
+        public int getFlexItemCount() {
+            return mFlexItems.length;
+        }
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            return mFlexItems[index];
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            return mGone[index];
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            int[][] measurements = mMeasurements[index];
+            for (int[] measurement : measurements) {
+                if (measurement[0] == widthMeasureSpec && measurement[1] == heightMeasureSpec) {
+                    setMeasurement(index, measurement[2], measurement[3], measurement[4],
+                            measurement[5]);
+                    return;
+                }
+            }
+            mUnrecordedMeasureCount++;
+            if (measurements.length == 0) {
+                setMeasurement(index, 0, 0, 0, -1);
+                return;
+            }
+            int[] intrinsic = measurements[0];
+            setMeasurement(index, resolveSize(intrinsic[2], widthMeasureSpec),
+                    resolveSize(intrinsic[3], heightMeasureSpec), 0, intrinsic[5]);
+        }
+
+        private void setMeasurement(int index, int width, int height, int state, int baseline) {
+            mMeasuredWidths[index] = width;
+            mMeasuredHeights[index] = height;
+            mMeasuredStates[index] = state;
+            mBaselines[index] = baseline;
+        }
+
+        @Override
+        public int getMeasuredWidthOfFlexItem(int index) {
+            return mMeasuredWidths[index];
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mMeasuredHeights[index];
+        }
+
+        @Override
+        public int getMeasuredStateOfFlexItem(int index) {
+            return mMeasuredStates[index];
+        }
+
+        @Override
+        public int getBaselineOfFlexItem(int index) {
+            return mBaselines[index];
+        }
+
+        private static int resolveSize(int intrinsicSize, int measureSpec) {
+            int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+            switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+                case FlexboxEngine.MeasureSpec.EXACTLY:
+                    return size;
+                case FlexboxEngine.MeasureSpec.AT_MOST:
+                    return Math.min(intrinsicSize, size);
+                default:
+                    return intrinsicSize;
+            }
+        }
+    }
+
+    /**
+     * The attributes of a flex item as recorded in the trace.
+     */
+    private static class RecordedFlexItem implements FlexItem {
+
+        private final int mWidth;
+
+        private final int mHeight;
+
+        private final int mOrder;
+
+        private final float mFlexGrow;
+
+        private final float mFlexShrink;
+
+        private final int mAlignSelf;
+
+        private final float mFlexBasisPercent;
+
+        private final float mAspectRatio;
+
+        private final int mMinWidth;
+
+        private final int mMinHeight;
+
+        private final int mMaxWidth;
+
+        private final int mMaxHeight;
+
+        private final boolean mWrapBefore;
+
+        private final int mMarginLeft;
+
+        private final int mMarginTop;
+
+        private final int mMarginRight;
+
+        private final int mMarginBottom;
+
+        private RecordedFlexItem(DataInputStream in) throws IOException {
+            mWidth = in.readInt();
+            mHeight = in.readInt();
+            mOrder = in.readInt();
+            mFlexGrow = in.readFloat();
+            mFlexShrink = in.readFloat();
+            mAlignSelf = in.readInt();
+            mFlexBasisPercent = in.readFloat();
+            mAspectRatio = in.readFloat();
+            mMinWidth = in.readInt();
+            mMinHeight = in.readInt();
+            mMaxWidth = in.readInt();
+            mMaxHeight = in.readInt();
+            mWrapBefore = in.readBoolean();
+            mMarginLeft = in.readInt();
+            mMarginTop = in.readInt();
+            mMarginRight = in.readInt();
+            mMarginBottom = in.readInt();
+        }
+
+        @Override
+        public int getWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            return mHeight;
+        }
+
+        @Override
+        public int getOrder() {
+            return mOrder;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            return mFlexGrow;
+        }
+
+        @Override
+        public float getFlexShrink() {
+            return mFlexShrink;
+        }
+
+        @Override
+        public int getAlignSelf() {
+            return mAlignSelf;
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            return mFlexBasisPercent;
+        }
+
+        @Override
+        public float getAspectRatio() {
+            return mAspectRatio;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return mMinWidth;
+        }
+
+        @Override
+        public int getMinHeight() {
+            return mMinHeight;
+        }
+
+        @Override
+        public int getMaxWidth() {
+            return mMaxWidth;
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return mMaxHeight;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            return mWrapBefore;
+        }
+
+        @Override
+        public int getMarginLeft() {
+            return mMarginLeft;
+        }
+
+        @Override
+        public int getMarginTop() {
+            return mMarginTop;
+        }
+
+        @Override
+        public int getMarginRight() {
+            return mMarginRight;
+        }
+
+        @Override
+        public int getMarginBottom() {
+            return mMarginBottom;
+        }
+    }
+}
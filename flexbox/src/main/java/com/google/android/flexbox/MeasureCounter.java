@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.util.Arrays;
+
+/**
+ * Tallies the measurements of the flex items made by the flexbox algorithm, by the phase of the
+ * algorithm in which each measurement is made and by the flex item. Set an instance through
+ * {@link FlexboxLayout#setMeasureCounter(MeasureCounter)} to find out how many times each child
+ * is measured. The counts accumulate until {@link #reset()} is called.
+ *
+ * No counting takes place unless an instance is set, which is the default.
+ */
+public class MeasureCounter {
+
+    /** The first measurement of each flex item used to determine the flex lines. */
+    public static final int PHASE_INITIAL = 0;
+
+    /**
+     * The measurement made when the initially measured size of a flex item violates its
+     * minWidth, minHeight, maxWidth or maxHeight attributes.
+     */
+    public static final int PHASE_SIZE_CONSTRAINT = 1;
+
+    /** The measurement made when expanding a flex item having the flexGrow attribute. */
+    public static final int PHASE_EXPAND = 2;
+
+    /** The measurement made when shrinking a flex item having the flexShrink attribute. */
+    public static final int PHASE_SHRINK = 3;
+
+    /** The measurement made when stretching a flex item to the cross size of its flex line. */
+    public static final int PHASE_STRETCH = 4;
+
+    /**
+     * The measurement made outside of the measure passes to compute the intrinsic main size of
+     * the flex container.
+     *
+     * @see FlexboxLayout#getMaxIntrinsicMainSize(int)
+     */
+    public static final int PHASE_INTRINSIC = 5;
+
+    private static final int PHASE_COUNT = 6;
+
+    private final int[] mPhaseCounts = new int[PHASE_COUNT];
+
+    /** The measure counts of the flex items indexed by the index of the flex item */
+    private int[] mFlexItemCounts = new int[0];
+
+    private int mPassCount;
+
+    /**
+     * Called by the flexbox algorithm at the beginning of each measure pass of the flex container.
+     *
+     * @param flexItemCount the number of the flex items in the flex container
+     */
+    void onMeasurePass(int flexItemCount) {
+        mPassCount++;
+        if (mFlexItemCounts.length < flexItemCount) {
+            mFlexItemCounts = Arrays.copyOf(mFlexItemCounts, flexItemCount);
+        }
+    }
+
+    /**
+     * Called by the flexbox algorithm each time a flex item is measured.
+     *
+     * @param phase         the phase in which the flex item is measured
+     * @param flexItemIndex the index of the flex item
+     */
+    void onMeasureFlexItem(int phase, int flexItemIndex) {
+        if (mFlexItemCounts.length <= flexItemIndex) {
+            // An intrinsic size may be queried before the first measure pass
+            mFlexItemCounts = Arrays.copyOf(mFlexItemCounts, flexItemIndex + 1);
+        }
+        mPhaseCounts[phase]++;
+        mFlexItemCounts[flexItemIndex]++;
+    }
+
+    /**
+     * @return the number of the measure passes of the flex container
+     */
+    public int getPassCount() {
+        return mPassCount;
+    }
+
+    /**
+     * @return the number of the measurements of all the flex items in all the phases
+     */
+    public int getMeasureCount() {
+        int count = 0;
+        for (int phaseCount : mPhaseCounts) {
+            count += phaseCount;
+        }
+        return count;
+    }
+
+    /**
+     * @param phase one of the PHASE_ constants, such as {@link #PHASE_EXPAND}
+     * @return the number of the measurements of all the flex items in the specified phase
+     */
+    public int getMeasureCount(int phase) {
+        return mPhaseCounts[phase];
+    }
+
+    /**
+     * @param index the index of the flex item, the order attribute is not taken into account
+     * @return the number of the measurements of the flex item in all the phases
+     */
+    public int getMeasureCountOfFlexItem(int index) {
+        return index < mFlexItemCounts.length ? mFlexItemCounts[index] : 0;
+    }
+
+    /**
+     * @return the largest number of the measurements of a single flex item
+     */
+    public int getMaxMeasureCountOfFlexItem() {
+        int max = 0;
+        for (int count : mFlexItemCounts) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    /**
+     * Clears all the counts.
+     */
+    public void reset() {
+        Arrays.fill(mPhaseCounts, 0);
+        Arrays.fill(mFlexItemCounts, 0);
+        mPassCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MeasureCounter{" +
+                "passCount=" + mPassCount +
+                ", initial=" + mPhaseCounts[PHASE_INITIAL] +
+                ", sizeConstraint=" + mPhaseCounts[PHASE_SIZE_CONSTRAINT] +
+                ", expand=" + mPhaseCounts[PHASE_EXPAND] +
+                ", shrink=" + mPhaseCounts[PHASE_SHRINK] +
+                ", stretch=" + mPhaseCounts[PHASE_STRETCH] +
+                ", intrinsic=" + mPhaseCounts[PHASE_INTRINSIC] +
+                '}';
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * The results of the flex algorithm computed ahead of time, e.g. for a catalog of millions of
+ * items whose sizes are known from their metadata. {@link #write(FlexboxEngine, OutputStream)}
+ * runs offline on a JVM after the engine lays out the items, writing the bounds of the flex lines
+ * and the frames of the flex items into a flat binary file. The app maps the file with
+ * {@link #map(File)} and positions the items in a scroll range without running the flex
+ * algorithm, e.g.
+ * <pre>
+ * PrecomputedLayout layout = PrecomputedLayout.map(file);
+ * int first = layout.findFirstFlexLine(scrollY, scrollY + viewportHeight);
+ * int last = layout.findLastFlexLine(scrollY, scrollY + viewportHeight);
+ * for (int line = first; first != -1 &amp;&amp; line &lt;= last; line++) {
+ *     int start = layout.getFlexLineFirstPosition(line);
+ *     for (int p = start; p &lt; start + layout.getFlexLineItemCount(line); p++) {
+ *         bind(layout.getItemIndex(p), layout.getItemLeft(p), layout.getItemTop(p), ...);
+ *     }
+ * }
+ * </pre>
+ *
+ * The values are read from the mapped file on each call without being copied into the heap,
+ * thus mapping a file is constant time regardless of the number of the items. Only the visible
+ * flex items are written. They are numbered by their positions, which follow the order of the
+ * flex lines, and each position holds the index of the flex item in the flex container.
+ */
+public final class PrecomputedLayout {
+
+    static final int MAGIC = 0x464c5850; // "FLXP"
+
+    static final int VERSION = 1;
+
+    /** The number of the ints in the header, starting with the magic and the version. */
+    private static final int HEADER_SIZE = 7;
+
+    /** The number of the ints for each flex line: left, top, right, bottom, position, count. */
+    private static final int FLEX_LINE_SIZE = 6;
+
+    /** The number of the ints for each flex item: index, left, top, right and bottom. */
+    private static final int ITEM_SIZE = 5;
+
+    private final IntBuffer mInts;
+
+    private final int mFlexDirection;
+
+    private final int mWidth;
+
+    private final int mHeight;
+
+    private final int mFlexLineCount;
+
+    private final int mItemCount;
+
+    /** The offset of the first flex item in {@link #mInts}. */
+    private final int mItemsOffset;
+
+    /**
+     * {@code true} if the flex lines are placed from the end of the cross axis to its start,
+     * i.e. the flexWrap attribute was wrap_reverse.
+     */
+    private final boolean mReversed;
+
+    private PrecomputedLayout(IntBuffer ints) throws IOException {
+        mInts = ints;
+        if (ints.capacity() < HEADER_SIZE || ints.get(0) != MAGIC) {
+            throw new IOException("Not a flexbox precomputed layout");
+        }
+        int version = ints.get(1);
+        if (version != VERSION) {
+            throw new IOException("Unsupported precomputed layout version: " + version);
+        }
+        mFlexDirection = ints.get(2);
+        mWidth = ints.get(3);
+        mHeight = ints.get(4);
+        mFlexLineCount = ints.get(5);
+        mItemCount = ints.get(6);
+        long itemsOffset = HEADER_SIZE + (long) mFlexLineCount * FLEX_LINE_SIZE;
+        if (mFlexLineCount < 0 || mItemCount < 0
+                || itemsOffset + (long) mItemCount * ITEM_SIZE > ints.capacity()) {
+            throw new IOException("Truncated precomputed layout");
+        }
+        mItemsOffset = (int) itemsOffset;
+        mReversed = mFlexLineCount > 1
+                && getFlexLineCrossStart(mFlexLineCount - 1) < getFlexLineCrossStart(0);
+    }
+
+    /**
+     * Maps the file written by {@link #write(FlexboxEngine, OutputStream)} into memory.
+     *
+     * @param file the file to be mapped
+     * @return the precomputed layout backed by the mapped file
+     * @throws IOException if an I/O error occurs or the file isn't a valid precomputed layout
+     */
+    public static PrecomputedLayout map(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // The mapping stays valid after the channel is closed
+            return wrap(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Reads the precomputed layout from the buffer holding the contents of a file written by
+     * {@link #write(FlexboxEngine, OutputStream)}, without copying them.
+     *
+     * @param buffer the buffer starting at its position
+     * @return the precomputed layout backed by the buffer
+     * @throws IOException if the buffer doesn't hold a valid precomputed layout
+     */
+    public static PrecomputedLayout wrap(ByteBuffer buffer) throws IOException {
+        // The file is written in big endian, which is the default order of the ByteBuffer
+        return new PrecomputedLayout(buffer.duplicate().asIntBuffer());
+    }
+
+    /**
+     * Writes the results of the last {@link FlexboxEngine#measure(int, int)} and
+     * {@link FlexboxEngine#layout(int, int, int, int, boolean)} of the engine.
+     *
+     * @param engine the engine which has laid out the flex items
+     * @param out    the stream to which the precomputed layout is written, typically a file
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(FlexboxEngine engine, OutputStream out) throws IOException {
+        FlexContainer container = engine.getContainer();
+        int childCount = container.getFlexItemCount();
+        List<FlexLine> flexLines = engine.getFlexLines();
+        int flexLineCount = flexLines.size();
+        int itemCount = 0;
+        for (int i = 0; i < childCount; i++) {
+            if (!container.isFlexItemGone(i)) {
+                itemCount++;
+            }
+        }
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(engine.getFlexDirection());
+        data.writeInt(engine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK);
+        data.writeInt(engine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK);
+        data.writeInt(flexLineCount);
+        data.writeInt(itemCount);
+        // The visible flex items fill the flex lines in their reordered order, thus the positions
+        // of the items in each flex line are consecutive
+        int position = 0;
+        for (int i = 0; i < flexLineCount; i++) {
+            FlexLine flexLine = flexLines.get(i);
+            data.writeInt(flexLine.getLeft());
+            data.writeInt(flexLine.getTop());
+            data.writeInt(flexLine.getRight());
+            data.writeInt(flexLine.getBottom());
+            data.writeInt(position);
+            data.writeInt(flexLine.getItemCountNotGone());
+            position += flexLine.getItemCountNotGone();
+        }
+        for (int i = 0; i < childCount; i++) {
+            int index = engine.getReorderedItemIndex(i);
+            if (index < 0 || container.isFlexItemGone(index)) {
+                continue;
+            }
+            data.writeInt(index);
+            data.writeInt(engine.getFrameLeft(i));
+            data.writeInt(engine.getFrameTop(i));
+            data.writeInt(engine.getFrameRight(i));
+            data.writeInt(engine.getFrameBottom(i));
+        }
+        data.flush();
+    }
+
+    /**
+     * @return the flex direction the layout was computed with, which determines the cross axis
+     * along which the flex lines are searched
+     */
+    public int getFlexDirection() {
+        return mFlexDirection;
+    }
+
+    /**
+     * @return the measured width of the flex container
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * @return the measured height of the flex container
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+
+    /**
+     * @return the number of the flex lines, dummy flex lines are not taken into account
+     */
+    public int getFlexLineCount() {
+        return mFlexLineCount;
+    }
+
+    /**
+     * @return the number of the visible flex items
+     */
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * Returns the first flex line which intersects the range along the cross axis, e.g. the
+     * vertical range of the viewport when the flex direction is row.
+     *
+     * @param start the start of the range along the cross axis, inclusive
+     * @param end   the end of the range along the cross axis, exclusive
+     * @return the index of the first flex line in the range, or -1 if no flex line is in the range
+     */
+    public int findFirstFlexLine(int start, int end) {
+        int first = mReversed ? findFirstStartBefore(end) : findFirstEndAfter(start);
+        return first < mFlexLineCount && intersects(first, start, end) ? first : -1;
+    }
+
+    /**
+     * Returns the last flex line which intersects the range along the cross axis.
+     *
+     * @param start the start of the range along the cross axis, inclusive
+     * @param end   the end of the range along the cross axis, exclusive
+     * @return the index of the last flex line in the range, or -1 if no flex line is in the range
+     * @see #findFirstFlexLine(int, int)
+     */
+    public int findLastFlexLine(int start, int end) {
+        int last = (mReversed ? findFirstEndAfter(start) : findFirstStartBefore(end)) - 1;
+        return last >= 0 && intersects(last, start, end) ? last : -1;
+    }
+
+    /**
+     * Binary searches the first flex line whose end along the cross axis is after the position
+     * if the flex lines are in the ascending order, or the first flex line which isn't so if
+     * they are in the descending order.
+     */
+    private int findFirstEndAfter(int position) {
+        int low = 0;
+        int high = mFlexLineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((getFlexLineCrossEnd(mid) > position) != mReversed) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary searches the first flex line whose start along the cross axis isn't before the
+     * position if the flex lines are in the ascending order, or the first flex line whose start
+     * is before it if they are in the descending order.
+     */
+    private int findFirstStartBefore(int position) {
+        int low = 0;
+        int high = mFlexLineCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if ((getFlexLineCrossStart(mid) < position) == mReversed) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean intersects(int flexLine, int start, int end) {
+        return getFlexLineCrossStart(flexLine) < end && getFlexLineCrossEnd(flexLine) > start;
+    }
+
+    private int getFlexLineCrossStart(int flexLine) {
+        return isMainAxisHorizontal() ? getFlexLineTop(flexLine) : getFlexLineLeft(flexLine);
+    }
+
+    private int getFlexLineCrossEnd(int flexLine) {
+        return isMainAxisHorizontal() ? getFlexLineBottom(flexLine) : getFlexLineRight(flexLine);
+    }
+
+    private boolean isMainAxisHorizontal() {
+        return mFlexDirection == FlexboxEngine.FLEX_DIRECTION_ROW
+                || mFlexDirection == FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+    }
+
+    /**
+     * @return the left position of the flex line including the margins of the flex items
+     */
+    public int getFlexLineLeft(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine));
+    }
+
+    /**
+     * @return the top position of the flex line including the margins of the flex items
+     */
+    public int getFlexLineTop(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine) + 1);
+    }
+
+    /**
+     * @return the right position of the flex line including the margins of the flex items
+     */
+    public int getFlexLineRight(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine) + 2);
+    }
+
+    /**
+     * @return the bottom position of the flex line including the margins of the flex items
+     */
+    public int getFlexLineBottom(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine) + 3);
+    }
+
+    /**
+     * @return the position of the first flex item in the flex line
+     */
+    public int getFlexLineFirstPosition(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine) + 4);
+    }
+
+    /**
+     * @return the number of the visible flex items in the flex line
+     */
+    public int getFlexLineItemCount(int flexLine) {
+        return mInts.get(getFlexLineOffset(flexLine) + 5);
+    }
+
+    /**
+     * @return the index of the flex item at the position in the flex container
+     */
+    public int getItemIndex(int position) {
+        return mInts.get(getItemOffset(position));
+    }
+
+    /**
+     * @return the left position of the flex item at the position relative to the flex container
+     */
+    public int getItemLeft(int position) {
+        return mInts.get(getItemOffset(position) + 1);
+    }
+
+    /**
+     * @return the top position of the flex item at the position relative to the flex container
+     */
+    public int getItemTop(int position) {
+        return mInts.get(getItemOffset(position) + 2);
+    }
+
+    /**
+     * @return the right position of the flex item at the position relative to the flex container
+     */
+    public int getItemRight(int position) {
+        return mInts.get(getItemOffset(position) + 3);
+    }
+
+    /**
+     * @return the bottom position of the flex item at the position relative to the flex
+     * container
+     */
+    public int getItemBottom(int position) {
+        return mInts.get(getItemOffset(position) + 4);
+    }
+
+    private int getFlexLineOffset(int flexLine) {
+        if (flexLine < 0 || flexLine >= mFlexLineCount) {
+            throw new IndexOutOfBoundsException(
+                    "flexLine: " + flexLine + ", flexLineCount: " + mFlexLineCount);
+        }
+        return HEADER_SIZE + flexLine * FLEX_LINE_SIZE;
+    }
+
+    private int getItemOffset(int position) {
+        if (position < 0 || position >= mItemCount) {
+            throw new IndexOutOfBoundsException(
+                    "position: " + position + ", itemCount: " + mItemCount);
+        }
+        return mItemsOffset + position * ITEM_SIZE;
+    }
+}
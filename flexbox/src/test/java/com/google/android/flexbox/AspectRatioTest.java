@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link FlexItem#getAspectRatio()}, with which the cross size of a flex item is
+ * computed from its main size instead of being measured again.
+ */
+public class AspectRatioTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private MeasureCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mContainer = new TestFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mCounter = new MeasureCounter();
+        mEngine.setMeasureCounter(mCounter);
+    }
+
+    @Test
+    public void testFixedWidth_measuredOnce() {
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+        item.width = 160;
+        item.aspectRatio = 16f / 9f;
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(160));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(90));
+        assertThat(mCounter.getMeasureCount(), is(1));
+    }
+
+    @Test
+    public void testWrapContent_crossSizeFixedTogetherWithSizeConstraints() {
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(90, 10);
+        item.minWidth = 120;
+        item.aspectRatio = 2f;
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(120));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(60));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_SIZE_CONSTRAINT), is(1));
+        assertThat(mCounter.getMeasureCount(), is(2));
+    }
+
+    @Test
+    public void testStretch_notMeasuredAgain() {
+        for (int i = 0; i < 4; i++) {
+            TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(50, 50);
+            item.width = 100;
+            item.aspectRatio = i % 2 == 0 ? 1f : 0.5f;
+        }
+        // Makes the flex line taller than any of the flex items
+        mContainer.addFlexItem(50, 400).alignSelf = FlexItem.ALIGN_SELF_FLEX_START;
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(mContainer.getMeasuredWidthOfFlexItem(i), is(100));
+            assertThat(mContainer.getMeasuredHeightOfFlexItem(i), is(i % 2 == 0 ? 100 : 200));
+        }
+        assertThat(mEngine.getFlexLineAt(0).getCrossSize(), is(400));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_STRETCH), is(0));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(1));
+    }
+
+    @Test
+    public void testExpand_crossSizeFromFlexedMainSize() {
+        for (int i = 0; i < 2; i++) {
+            TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(50, 50);
+            item.width = 100;
+            item.flexGrow = 1f;
+            item.aspectRatio = 2.5f;
+        }
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(250));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(100));
+        assertThat(mEngine.getMeasuredHeightAndState(), is(100));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_EXPAND), is(2));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_STRETCH), is(0));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testColumn_widthFromHeight() {
+        mEngine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+        item.height = 100;
+        item.flexGrow = 1f;
+        item.aspectRatio = 1.5f;
+
+        mEngine.measure(unspecified(), exactly(CONTAINER_SIZE));
+
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(CONTAINER_SIZE));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(750));
+        assertThat(mCounter.getMeasureCount(), is(2));
+    }
+
+    @Test
+    public void testCrossSize_clampedByMaxSize() {
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+        item.width = 200;
+        item.maxHeight = 80;
+        item.aspectRatio = 1f;
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(200));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(80));
+        assertThat(mCounter.getMeasureCount(), is(1));
+    }
+
+    @Test
+    public void testIntrinsicMainSize_fromFixedCrossSize() {
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+        item.height = 90;
+        item.aspectRatio = 16f / 9f;
+
+        assertThat(mEngine.getMaxIntrinsicMainSize(unspecified()), is(160));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_INTRINSIC), is(0));
+    }
+}
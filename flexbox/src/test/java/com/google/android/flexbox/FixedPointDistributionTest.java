@@ -0,0 +1,179 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.flexbox;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the fixed-point distribution of {@link FlexboxEngine}.
+ */
+public class FixedPointDistributionTest {
+
+    @Test
+    public void testExpand_splitsFreeSpaceExactly() {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 3; i++) {
+            container.addFlexItem(0, 10).flexGrow = 1;
+        }
+
+        FlexboxEngine engine = layout(container, 100, 10, false);
+
+        assertThat(engine.getFrameLeft(0), is(0));
+        assertThat(engine.getFrameRight(0), is(33));
+        assertThat(engine.getFrameRight(1), is(67));
+        assertThat(engine.getFrameRight(2), is(100));
+    }
+
+    @Test
+    public void testExpand_maxWidth() {
+        TestFlexContainer container = new TestFlexContainer();
+        container.addFlexItem(0, 10).flexGrow = 1;
+        TestFlexContainer.TestFlexItem limited = container.addFlexItem(0, 10);
+        limited.flexGrow = 2;
+        limited.maxWidth = 20;
+        container.addFlexItem(0, 10).flexGrow = 1.5f;
+
+        FlexboxEngine engine = layout(container, 101, 10, false);
+
+        // The space the second flex item can't take is split between the others by 1 : 1.5
+        assertThat(engine.getFrameRight(0) - engine.getFrameLeft(0), is(32));
+        assertThat(engine.getFrameRight(1) - engine.getFrameLeft(1), is(20));
+        assertThat(engine.getFrameRight(2) - engine.getFrameLeft(2), is(49));
+    }
+
+    @Test
+    public void testShrink_splitsNegativeFreeSpaceExactly() {
+        TestFlexContainer container = new TestFlexContainer();
+        container.addFlexItem(50, 10);
+        container.addFlexItem(50, 10).flexShrink = 2;
+        container.addFlexItem(50, 10);
+
+        FlexboxEngine engine = layout(container, 99, 10, false);
+
+        // 51 pixels are taken by 1 : 2 : 1
+        assertThat(engine.getFrameRight(0), is(37));
+        assertThat(engine.getFrameRight(1), is(62));
+        assertThat(engine.getFrameRight(2), is(99));
+    }
+
+    @Test
+    public void testJustifyContent_spaceBetween_mirroredInRtl() {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 4; i++) {
+            container.addFlexItem(10, 10);
+        }
+        FlexboxEngine engine = layout(container, 101, 10, false);
+        engine.setJustifyContent(FlexboxEngine.JUSTIFY_CONTENT_SPACE_BETWEEN);
+        engine.layout(0, 0, 101, 10, false);
+
+        assertThat(engine.getFrameLeft(0), is(0));
+        assertThat(engine.getFrameLeft(1), is(30));
+        assertThat(engine.getFrameLeft(2), is(61));
+        assertThat(engine.getFrameLeft(3), is(91));
+
+        engine.layout(0, 0, 101, 10, true);
+
+        assertThat(engine.getFrameRight(0), is(101));
+        assertThat(engine.getFrameRight(1), is(71));
+        assertThat(engine.getFrameRight(2), is(40));
+        assertThat(engine.getFrameRight(3), is(10));
+    }
+
+    @Test
+    public void testAlignContent_stretch_splitsFreeSpaceExactly() {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 3; i++) {
+            container.addFlexItem(100, 10);
+        }
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        engine.setFixedPointDistribution(true);
+
+        engine.measure(exactly(100), exactly(100));
+        engine.layout(0, 0, 100, 100, false);
+
+        assertThat(engine.getFlexLineAt(0).getCrossSize(), is(33));
+        assertThat(engine.getFlexLineAt(1).getCrossSize(), is(34));
+        assertThat(engine.getFlexLineAt(2).getCrossSize(), is(33));
+        assertThat(engine.getFrameTop(2), is(67));
+    }
+
+    @Test
+    public void testRandom_flexLinesFilledAndMirroredInRtl() {
+        Random random = new Random(0);
+        for (int n = 0; n < 200; n++) {
+            TestFlexContainer container = new TestFlexContainer();
+            int count = 1 + random.nextInt(20);
+            int width = 50 + random.nextInt(1000);
+            int intrinsicMainSize = 0;
+            float totalFlexGrow = 0;
+            for (int i = 0; i < count; i++) {
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(
+                        random.nextInt(100), 10);
+                item.flexGrow = random.nextInt(4) * 0.75f;
+                item.flexShrink = random.nextInt(4) * 0.75f;
+                item.marginLeft = random.nextInt(3);
+                item.marginRight = item.marginLeft;
+                intrinsicMainSize += item.intrinsicWidth + item.marginLeft + item.marginRight;
+                totalFlexGrow += item.flexGrow;
+            }
+            FlexboxEngine engine = layout(container, width, 10, false);
+            engine.setJustifyContent(random.nextBoolean()
+                    ? FlexboxEngine.JUSTIFY_CONTENT_SPACE_AROUND
+                    : FlexboxEngine.JUSTIFY_CONTENT_SPACE_BETWEEN);
+            engine.layout(0, 0, width, 10, false);
+            int[] lefts = new int[count];
+            int[] rights = new int[count];
+            int mainSize = 0;
+            for (int i = 0; i < count; i++) {
+                FlexItem flexItem = container.getFlexItemAt(i);
+                lefts[i] = engine.getFrameLeft(i);
+                rights[i] = engine.getFrameRight(i);
+                mainSize += rights[i] - lefts[i] + flexItem.getMarginLeft()
+                        + flexItem.getMarginRight();
+            }
+            // Unless the flex items hit their minimum sizes, the free space is taken exactly
+            if (intrinsicMainSize <= width ? totalFlexGrow > 0
+                    : engine.getFlexLineAt(0).getTotalFlexShrink() > 0) {
+                assertThat(mainSize, is(width));
+            }
+
+            engine.layout(0, 0, width, 10, true);
+
+            for (int i = 0; i < count; i++) {
+                assertThat(engine.getFrameLeft(i), is(width - rights[i]));
+                assertThat(engine.getFrameRight(i), is(width - lefts[i]));
+            }
+        }
+    }
+
+    private static FlexboxEngine layout(TestFlexContainer container, int width, int height,
+            boolean layoutRtl) {
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFixedPointDistribution(true);
+        engine.measure(exactly(width), exactly(height));
+        engine.layout(0, 0, width, height, layoutRtl);
+        return engine;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the cross size of the flex lines whose flex items are expanded or shrunk in
+ * more than one round. The flex items of these tests wrap their content like a TextView, so the
+ * height depends on the width the flex item is measured with.
+ */
+public class FlexLineCrossSizeTest {
+
+    private static final int CONTAINER_WIDTH = 300;
+
+    private WrappingFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mContainer = new WrappingFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+    }
+
+    @Test
+    public void testExpand_crossSizeFromFinalWidths() {
+        TestFlexContainer.TestFlexItem fixed = mContainer.addFlexItem(50, 10);
+        fixed.flexGrow = 1;
+        fixed.maxWidth = 60;
+        mContainer.addWrappingFlexItem(50, 6000).flexGrow = 1;
+
+        mEngine.measure(exactly(CONTAINER_WIDTH), unspecified());
+
+        // The first round gives 150 to each flex item, the fixed one is frozen at 60 and the
+        // wrapping one takes the rest. The line encloses the wrapping flex item measured with
+        // its final width 240, not with the intermediate width 150 (where its height is 40).
+        assertThat(mEngine.hasReexpanded(), is(true));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(60));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(1), is(240));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(1), is(25));
+        assertThat(mEngine.getFlexLineCount(), is(1));
+        assertThat(mEngine.getFlexLineAt(0).getMainSize(), is(CONTAINER_WIDTH));
+        assertThat(mEngine.getFlexLineAt(0).getCrossSize(), is(25));
+        assertThat(mEngine.getMeasuredHeightAndState(), is(25));
+    }
+
+    @Test
+    public void testShrink_crossSizeFromFinalWidths() {
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+        TestFlexContainer.TestFlexItem fixed = mContainer.addFlexItem(200, 10);
+        fixed.minWidth = 190;
+        mContainer.addWrappingFlexItem(200, 6000);
+
+        mEngine.measure(exactly(CONTAINER_WIDTH), unspecified());
+
+        // The first round shrinks each flex item to 150, the fixed one is frozen at 190 and the
+        // wrapping one is shrunk to 110 where its height is 55
+        assertThat(mEngine.hasReshrunk(), is(true));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(190));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(1), is(110));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(1), is(55));
+        assertThat(mEngine.getFlexLineCount(), is(1));
+        assertThat(mEngine.getFlexLineAt(0).getMainSize(), is(CONTAINER_WIDTH));
+        assertThat(mEngine.getFlexLineAt(0).getCrossSize(), is(55));
+        assertThat(mEngine.getMeasuredHeightAndState(), is(55));
+    }
+
+    @Test
+    public void testExpand_column_crossSizeOfWidestItem() {
+        mEngine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+        TestFlexContainer.TestFlexItem fixed = mContainer.addFlexItem(10, 50);
+        fixed.flexGrow = 1;
+        fixed.maxHeight = 60;
+        mContainer.addFlexItem(40, 50).flexGrow = 1;
+
+        mEngine.measure(unspecified(), exactly(CONTAINER_WIDTH));
+
+        // Neither flex item depends on its height, the line is as wide as the widest one
+        assertThat(mEngine.hasReexpanded(), is(true));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(60));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(1), is(240));
+        assertThat(mEngine.getFlexLineAt(0).getCrossSize(), is(40));
+        assertThat(mEngine.getMeasuredWidthAndState(), is(40));
+    }
+
+    /**
+     * A {@link TestFlexContainer} which can hold flex items wrapping their content like a
+     * TextView: the height of such a flex item is its area divided by the measured width.
+     */
+    private static class WrappingFlexContainer extends TestFlexContainer {
+
+        private int[] mAreas = new int[0];
+
+        private int[] mWrappedHeights = new int[0];
+
+        TestFlexItem addWrappingFlexItem(int intrinsicWidth, int area) {
+            TestFlexItem item = addFlexItem(intrinsicWidth, 0);
+            mAreas[getFlexItemCount() - 1] = area;
+            return item;
+        }
+
+        @Override
+        TestFlexItem addFlexItem(int intrinsicWidth, int intrinsicHeight) {
+            TestFlexItem item = super.addFlexItem(intrinsicWidth, intrinsicHeight);
+            int count = getFlexItemCount();
+            int[] areas = new int[count];
+            System.arraycopy(mAreas, 0, areas, 0, mAreas.length);
+            mAreas = areas;
+            mWrappedHeights = new int[count];
+            return item;
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            super.measureFlexItem(index, widthMeasureSpec, heightMeasureSpec);
+            int width = super.getMeasuredWidthOfFlexItem(index);
+            mWrappedHeights[index] = mAreas[index] > 0 && width > 0
+                    ? (mAreas[index] + width - 1) / width : 0;
+        }
+
+        @Override
+        public int getMeasuredHeightOfFlexItem(int index) {
+            return mAreas[index] > 0 ? mWrappedHeights[index]
+                    : super.getMeasuredHeightOfFlexItem(index);
+        }
+    }
+}
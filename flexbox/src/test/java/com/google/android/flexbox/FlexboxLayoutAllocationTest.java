@@ -0,0 +1,271 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Verifies that the onMeasure, onLayout and onDraw of the {@link FlexboxLayout} don't allocate
+ * any objects once warmed up, as long as the children are unchanged. Unlike
+ * {@link SteadyStateAllocationTest}, the passes are driven through the real View code paths, so
+ * that the View side of the FlexboxLayout is covered as well. Only the allocation inside the
+ * three methods is counted, since the framework code around them runs on Robolectric here.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FlexboxLayoutAllocationTest {
+
+    private static final int WIDTH = 500;
+
+    private static final int HEIGHT = 400;
+
+    private static final int WARM_UP_PASSES = 500;
+
+    private static final int MEASURED_PASSES = 100;
+
+    /** Attempts to observe no allocation, to tolerate the JVM allocating on its own behalf */
+    private static final int ATTEMPTS = 3;
+
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+
+    private long mThreadId;
+
+    /** The bytes allocated by reading the allocated bytes itself */
+    private long mOverhead;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+        mOverhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            long after = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            mOverhead = Math.min(mOverhead, after - before);
+        }
+        mContext = RuntimeEnvironment.application;
+        // Keeps the frame of the layout thrash detector, otherwise the frame callbacks posted
+        // for each new frame are run by Robolectric in the middle of the passes
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        FlexboxLayout.setLayoutThrashDetector(null);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void testNoAllocationInSteadyState_wrapWithDividers() {
+        AllocationCountingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+        flexboxLayout.setDividerDrawable(new EmptyDrawable());
+        flexboxLayout.setShowDivider(FlexboxLayout.SHOW_DIVIDER_BEGINNING
+                | FlexboxLayout.SHOW_DIVIDER_MIDDLE | FlexboxLayout.SHOW_DIVIDER_END);
+
+        assertThat(measureSteadyStateAllocation(flexboxLayout), is(0L));
+    }
+
+    @Test
+    public void testNoAllocationInSteadyState_stretch() {
+        AllocationCountingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_STRETCH);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_STRETCH);
+
+        assertThat(measureSteadyStateAllocation(flexboxLayout), is(0L));
+    }
+
+    @Test
+    public void testNoAllocationInSteadyState_baseline() {
+        AllocationCountingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP_REVERSE);
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_BASELINE);
+
+        assertThat(measureSteadyStateAllocation(flexboxLayout), is(0L));
+    }
+
+    @Test
+    public void testNoAllocationInSteadyState_detectorAndStatsListener() {
+        AllocationCountingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+        flexboxLayout.setOnLayoutStatsListener(new FlexboxLayout.OnLayoutStatsListener() {
+            @Override
+            public void onLayoutStats(FlexboxLayout flexboxLayout,
+                    FlexboxLayout.LayoutStats stats) {
+            }
+        });
+        FlexboxLayout.setLayoutThrashDetector(new LayoutThrashDetector(Integer.MAX_VALUE,
+                Integer.MAX_VALUE, Integer.MAX_VALUE, new LayoutThrashDetector.Listener() {
+                    @Override
+                    public void onLayoutThrash(FlexboxLayout flexboxLayout, int reason,
+                            int count) {
+                    }
+                }));
+
+        assertThat(measureSteadyStateAllocation(flexboxLayout), is(0L));
+    }
+
+    private long measureSteadyStateAllocation(AllocationCountingFlexboxLayout flexboxLayout) {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        for (int i = 0; i < WARM_UP_PASSES; i++) {
+            performPass(flexboxLayout, canvas);
+        }
+        long allocated = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && allocated != 0; attempt++) {
+            flexboxLayout.mAllocatedBytes = 0;
+            for (int i = 0; i < MEASURED_PASSES; i++) {
+                performPass(flexboxLayout, canvas);
+            }
+            allocated = Math.min(allocated, flexboxLayout.mAllocatedBytes);
+        }
+        return allocated;
+    }
+
+    private static void performPass(FlexboxLayout flexboxLayout, Canvas canvas) {
+        // Otherwise the measure pass is skipped with the same measure specs
+        flexboxLayout.forceLayout();
+        flexboxLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        flexboxLayout.layout(0, 0, WIDTH, HEIGHT);
+        flexboxLayout.draw(canvas);
+    }
+
+    private AllocationCountingFlexboxLayout createFlexboxLayout() {
+        AllocationCountingFlexboxLayout flexboxLayout = new AllocationCountingFlexboxLayout(
+                mContext);
+        for (int i = 0; i < 24; i++) {
+            FlexboxLayout.LayoutParams lp = new FlexboxLayout.LayoutParams(
+                    40 + (i * 37) % 90, 20 + (i * 13) % 50);
+            lp.flexGrow = i % 3 == 0 ? 1f : 0f;
+            lp.flexShrink = i % 4 == 0 ? 0f : 1f;
+            lp.leftMargin = i % 5;
+            lp.topMargin = i % 3;
+            if (i % 7 == 0) {
+                lp.alignSelf = FlexItem.ALIGN_SELF_STRETCH;
+            }
+            if (i == 5) {
+                lp.order = -1;
+            }
+            View child = new View(mContext);
+            if (i == 11) {
+                child.setVisibility(View.GONE);
+            }
+            flexboxLayout.addView(child, lp);
+        }
+        return flexboxLayout;
+    }
+
+    /**
+     * A {@link FlexboxLayout} which counts the bytes allocated in its onMeasure, onLayout and
+     * onDraw.
+     */
+    private class AllocationCountingFlexboxLayout extends FlexboxLayout {
+
+        long mAllocatedBytes;
+
+        AllocationCountingFlexboxLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            mAllocatedBytes += mThreadMXBean.getThreadAllocatedBytes(mThreadId) - before
+                    - mOverhead;
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            super.onLayout(changed, left, top, right, bottom);
+            mAllocatedBytes += mThreadMXBean.getThreadAllocatedBytes(mThreadId) - before
+                    - mOverhead;
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            super.onDraw(canvas);
+            mAllocatedBytes += mThreadMXBean.getThreadAllocatedBytes(mThreadId) - before
+                    - mOverhead;
+        }
+    }
+
+    /**
+     * A divider which doesn't draw anything, so that the drawing recorded by the Robolectric
+     * Canvas isn't counted.
+     */
+    private static class EmptyDrawable extends Drawable {
+
+        @Override
+        public int getIntrinsicWidth() {
+            return 2;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return 2;
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.GradientDrawable;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * End-to-end benchmarks of the {@link FlexboxLayout} with real TextView and ImageView children.
+ * They run on a JVM through Robolectric so that no device or emulator is needed, and drive the
+ * measure, layout and draw passes through the real View code paths.
+ *
+ * For each scenario, the time per pass, the number of the onMeasure calls of the children per
+ * pass and the bytes allocated per pass are printed. Each pass forces the whole tree to be
+ * measured again as happens on a configuration change.
+ *
+ * The benchmarks are excluded from the regular unit tests, run them by
+ * ./gradlew :flexbox:testDebugUnitTest -PrunBenchmarks
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FlexboxLayoutBenchmark {
+
+    private static final int WARMUP_PASSES = 50;
+
+    private static final int MEASURED_PASSES = 200;
+
+    private static final int WIDTH = 1080;
+
+    private static final int HEIGHT = 1920;
+
+    private Context mContext;
+
+    /** The number of the onMeasure calls of the children created by this benchmark */
+    private int mMeasureCount;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void wrapTextViews() {
+        FlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_FLEX_START);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_FLEX_START);
+        addTextViews(flexboxLayout, 100);
+
+        run("wrapTextViews", flexboxLayout, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    @Test
+    public void dividersMixedChildren() {
+        FlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_FLEX_START);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_FLEX_START);
+        GradientDrawable divider = new GradientDrawable();
+        divider.setSize(2, 2);
+        flexboxLayout.setDividerDrawable(divider);
+        flexboxLayout.setShowDivider(FlexboxLayout.SHOW_DIVIDER_BEGINNING
+                | FlexboxLayout.SHOW_DIVIDER_MIDDLE | FlexboxLayout.SHOW_DIVIDER_END);
+        for (int i = 0; i < 50; i++) {
+            flexboxLayout.addView(createTextView(i, 14));
+            flexboxLayout.addView(createImageView(48 + i % 3 * 16));
+        }
+
+        run("dividersMixedChildren", flexboxLayout, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    @Test
+    public void stretch() {
+        FlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_STRETCH);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_STRETCH);
+        addTextViews(flexboxLayout, 100);
+
+        run("stretch", flexboxLayout, View.MeasureSpec.EXACTLY);
+    }
+
+    @Test
+    public void baseline() {
+        FlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_BASELINE);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_FLEX_START);
+        for (int i = 0; i < 100; i++) {
+            flexboxLayout.addView(createTextView(i, 12 + i % 4 * 4));
+        }
+
+        run("baseline", flexboxLayout, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    @Test
+    public void nested() {
+        FlexboxLayout flexboxLayout = createFlexboxLayout();
+        flexboxLayout.setAlignItems(FlexboxLayout.ALIGN_ITEMS_STRETCH);
+        flexboxLayout.setAlignContent(FlexboxLayout.ALIGN_CONTENT_FLEX_START);
+        for (int i = 0; i < 10; i++) {
+            FlexboxLayout child = createFlexboxLayout();
+            child.setAlignItems(FlexboxLayout.ALIGN_ITEMS_CENTER);
+            addTextViews(child, 10);
+            FlexboxLayout.LayoutParams lp = new FlexboxLayout.LayoutParams(
+                    ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            lp.flexGrow = 1f;
+            lp.flexBasisPercent = 0.4f;
+            child.setLayoutParams(lp);
+            flexboxLayout.addView(child);
+        }
+
+        run("nested", flexboxLayout, View.MeasureSpec.UNSPECIFIED);
+    }
+
+    private void run(String name, FlexboxLayout flexboxLayout, int heightMode) {
+        int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY);
+        int heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(
+                heightMode == View.MeasureSpec.UNSPECIFIED ? 0 : HEIGHT, heightMode);
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        for (int i = 0; i < WARMUP_PASSES; i++) {
+            performPass(flexboxLayout, widthMeasureSpec, heightMeasureSpec, canvas);
+        }
+
+        mMeasureCount = 0;
+        long allocatedBytes = getAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_PASSES; i++) {
+            performPass(flexboxLayout, widthMeasureSpec, heightMeasureSpec, canvas);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocatedBytes = getAllocatedBytes() - allocatedBytes;
+
+        System.out.println(String.format(Locale.US,
+                "%-24s %10.3f ms/pass %10.1f onMeasure/pass %12s bytes/pass", name,
+                elapsed / 1e6 / MEASURED_PASSES, (double) mMeasureCount / MEASURED_PASSES,
+                allocatedBytes < 0 ? "n/a" : String.valueOf(allocatedBytes / MEASURED_PASSES)));
+    }
+
+    private static void performPass(FlexboxLayout flexboxLayout, int widthMeasureSpec,
+            int heightMeasureSpec, Canvas canvas) {
+        forceLayoutRecursively(flexboxLayout);
+        flexboxLayout.measure(widthMeasureSpec, heightMeasureSpec);
+        flexboxLayout.layout(0, 0, flexboxLayout.getMeasuredWidth(),
+                flexboxLayout.getMeasuredHeight());
+        flexboxLayout.draw(canvas);
+    }
+
+    private static void forceLayoutRecursively(View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0, count = viewGroup.getChildCount(); i < count; i++) {
+                forceLayoutRecursively(viewGroup.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * @return the bytes allocated by the current thread so far, or -1 if the JVM doesn't support
+     * measuring them
+     */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private FlexboxLayout createFlexboxLayout() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout(mContext);
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+        return flexboxLayout;
+    }
+
+    private void addTextViews(FlexboxLayout flexboxLayout, int count) {
+        for (int i = 0; i < count; i++) {
+            flexboxLayout.addView(createTextView(i, 14));
+        }
+    }
+
+    private TextView createTextView(int index, int textSizeSp) {
+        TextView textView = new CountingTextView(mContext);
+        StringBuilder text = new StringBuilder("Item ").append(index);
+        for (int i = 0; i < index % 5; i++) {
+            text.append(" text");
+        }
+        textView.setText(text);
+        textView.setTextSize(TypedValue.COMPLEX_UNIT_SP, textSizeSp);
+        textView.setLayoutParams(new FlexboxLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return textView;
+    }
+
+    private ImageView createImageView(int size) {
+        ImageView imageView = new CountingImageView(mContext);
+        GradientDrawable drawable = new GradientDrawable();
+        drawable.setColor(Color.GRAY);
+        drawable.setSize(size, size);
+        imageView.setImageDrawable(drawable);
+        imageView.setLayoutParams(new FlexboxLayout.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        return imageView;
+    }
+
+    private class CountingTextView extends TextView {
+
+        CountingTextView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+
+    private class CountingImageView extends ImageView {
+
+        CountingImageView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+}
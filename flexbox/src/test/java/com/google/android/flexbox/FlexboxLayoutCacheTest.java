@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests of the {@link FlexboxLayout} measuring its children outside of its measure passes
+ * for the {@link LayoutCache}, which go through the real View code paths.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FlexboxLayoutCacheTest {
+
+    private static final int SIZE = 500;
+
+    private Context mContext;
+
+    private LayoutCache mLayoutCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mLayoutCache = new LayoutCache();
+    }
+
+    @Test
+    public void testValidateLayoutCache_notObserved() {
+        measureAndLayout(createFlexboxLayout());
+        PostCapturingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        MeasureCounter measureCounter = new MeasureCounter();
+        LayoutRecorder layoutRecorder = new LayoutRecorder();
+        flexboxLayout.setMeasureCounter(measureCounter);
+        flexboxLayout.setLayoutRecorder(layoutRecorder);
+        flexboxLayout.setDebugOverlayEnabled(true);
+        measureAndLayout(flexboxLayout);
+        assertThat(flexboxLayout.mPosted.size(), is(1));
+        int measureCount = getChildMeasureCount(flexboxLayout);
+
+        // Validates the restored layout by running the flex algorithm
+        flexboxLayout.mPosted.get(0).run();
+
+        assertThat(getChildMeasureCount(flexboxLayout) > measureCount, is(true));
+        assertThat(measureCounter.getPassCount(), is(0));
+        assertThat(measureCounter.getMeasureCount(), is(0));
+        assertThat(layoutRecorder.getPassCount(), is(0));
+        assertThat(flexboxLayout.getMeasureCounter(), is(measureCounter));
+        assertThat(flexboxLayout.getLayoutRecorder(), is(layoutRecorder));
+        assertThat(flexboxLayout.isDebugOverlayEnabled(), is(true));
+    }
+
+    @Test
+    public void testPrecomputeLayout_currentLayoutUnchanged() {
+        PostCapturingFlexboxLayout flexboxLayout = createFlexboxLayout();
+        MeasureCounter measureCounter = new MeasureCounter();
+        LayoutRecorder layoutRecorder = new LayoutRecorder();
+        flexboxLayout.setMeasureCounter(measureCounter);
+        flexboxLayout.setLayoutRecorder(layoutRecorder);
+        measureAndLayout(flexboxLayout);
+        int childCount = flexboxLayout.getChildCount();
+        int[] framesAndSizes = getChildFramesAndSizes(flexboxLayout);
+        measureCounter.reset();
+        layoutRecorder.reset();
+        int measureCount = getChildMeasureCount(flexboxLayout);
+
+        flexboxLayout.precomputeLayout(
+                View.MeasureSpec.makeMeasureSpec(SIZE / 2, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+
+        assertThat(mLayoutCache.size(), is(2));
+        assertThat(measureCounter.getPassCount(), is(0));
+        assertThat(layoutRecorder.getPassCount(), is(0));
+        assertThat(getChildFramesAndSizes(flexboxLayout), is(framesAndSizes));
+        // The children are brought back to the current layout with one measurement each instead
+        // of running the flex algorithm, which measures the expanded children twice
+        assertThat(getChildMeasureCount(flexboxLayout) - measureCount,
+                is(getChildMeasureCountOfPass(flexboxLayout, SIZE / 2) + childCount));
+    }
+
+    private int getChildMeasureCountOfPass(FlexboxLayout flexboxLayout, int width) {
+        PostCapturingFlexboxLayout other = createFlexboxLayout();
+        other.setLayoutCache(null, 0);
+        other.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        assertThat(other.getChildCount(), is(flexboxLayout.getChildCount()));
+        return getChildMeasureCount(other);
+    }
+
+    private static int[] getChildFramesAndSizes(FlexboxLayout flexboxLayout) {
+        int childCount = flexboxLayout.getChildCount();
+        int[] framesAndSizes = new int[childCount * 6];
+        for (int i = 0; i < childCount; i++) {
+            View child = flexboxLayout.getChildAt(i);
+            framesAndSizes[i * 6] = child.getLeft();
+            framesAndSizes[i * 6 + 1] = child.getTop();
+            framesAndSizes[i * 6 + 2] = child.getRight();
+            framesAndSizes[i * 6 + 3] = child.getBottom();
+            framesAndSizes[i * 6 + 4] = child.getMeasuredWidth();
+            framesAndSizes[i * 6 + 5] = child.getMeasuredHeight();
+        }
+        return framesAndSizes;
+    }
+
+    private void measureAndLayout(FlexboxLayout flexboxLayout) {
+        flexboxLayout.forceLayout();
+        flexboxLayout.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        flexboxLayout.layout(0, 0, SIZE, SIZE);
+    }
+
+    private static int getChildMeasureCount(FlexboxLayout flexboxLayout) {
+        int count = 0;
+        for (int i = 0; i < flexboxLayout.getChildCount(); i++) {
+            count += ((CountingView) flexboxLayout.getChildAt(i)).mMeasureCount;
+        }
+        return count;
+    }
+
+    private PostCapturingFlexboxLayout createFlexboxLayout() {
+        PostCapturingFlexboxLayout flexboxLayout = new PostCapturingFlexboxLayout(mContext);
+        flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+        flexboxLayout.setLayoutCache(mLayoutCache, 1);
+        for (int i = 0; i < 8; i++) {
+            FlexboxLayout.LayoutParams lp = new FlexboxLayout.LayoutParams(120, 40 + i * 5);
+            lp.flexGrow = i % 2 == 0 ? 1f : 0f;
+            flexboxLayout.addView(new CountingView(mContext), lp);
+        }
+        return flexboxLayout;
+    }
+
+    /**
+     * A {@link FlexboxLayout} which keeps the runnables posted to it instead of running them, so
+     * that a test can run them when it needs to.
+     */
+    private static class PostCapturingFlexboxLayout extends FlexboxLayout {
+
+        final List<Runnable> mPosted = new ArrayList<>();
+
+        PostCapturingFlexboxLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean post(Runnable action) {
+            mPosted.add(action);
+            return true;
+        }
+
+        @Override
+        public boolean removeCallbacks(Runnable action) {
+            mPosted.remove(action);
+            return true;
+        }
+    }
+
+    /**
+     * A View which counts its measurements.
+     */
+    private static class CountingView extends View {
+
+        int mMeasureCount;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+}
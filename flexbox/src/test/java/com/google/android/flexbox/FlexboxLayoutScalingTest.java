@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.content.Context;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests of the {@link FlexboxLayout} which go through the real View code paths, such as
+ * {@link FlexboxLayout#addView}, with 100, 1,000 and 10,000 children, and check that the number of
+ * the accesses to the attributes of the children grows no faster than O(n log n).
+ *
+ * @see ScalingTest for the same checks on the {@link FlexboxEngine} alone
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class FlexboxLayoutScalingTest {
+
+    private static final int[] ITEM_COUNTS = {100, 1000, 10000};
+
+    /** See ScalingTest#SLACK */
+    private static final double SLACK = 1.5;
+
+    private Context mContext;
+
+    /** The number of the {@link FlexItem#getOrder()} calls of the children since reset */
+    private long mOrderCount;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @Test
+    public void testAddViewsOneByOne() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            FlexboxLayout flexboxLayout = new FlexboxLayout(mContext);
+            flexboxLayout.setFlexWrap(FlexboxLayout.FLEX_WRAP_WRAP);
+            mOrderCount = 0;
+            for (int j = 0; j < n; j++) {
+                CountingLayoutParams lp = new CountingLayoutParams(50, 50);
+                lp.order = (j * 7) % 5;
+                flexboxLayout.addView(new View(mContext), lp);
+            }
+            measureAndLayout(flexboxLayout);
+            assertThat(getOrderAt(flexboxLayout, 0), is(0));
+            assertThat(getOrderAt(flexboxLayout, n - 1), is(4));
+            counts[i] = mOrderCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    private static int getOrderAt(FlexboxLayout flexboxLayout, int index) {
+        View child = flexboxLayout.getReorderedChildAt(index);
+        return ((FlexboxLayout.LayoutParams) child.getLayoutParams()).order;
+    }
+
+    private static void measureAndLayout(FlexboxLayout flexboxLayout) {
+        flexboxLayout.measure(
+                View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY));
+        flexboxLayout.layout(0, 0, 500, 500);
+    }
+
+    private static void assertNotWorseThanNLogN(long[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            double n = ITEM_COUNTS[i - 1];
+            double m = ITEM_COUNTS[i];
+            double allowed = (m * Math.log(m)) / (n * Math.log(n)) * SLACK;
+            double growth = (double) counts[i] / counts[i - 1];
+            assertTrue("getOrder calls grew " + growth + " times from " + ITEM_COUNTS[i - 1]
+                            + " to " + ITEM_COUNTS[i] + " children (allowed: " + allowed + ")",
+                    growth <= allowed);
+        }
+    }
+
+    /**
+     * A {@link FlexboxLayout.LayoutParams} which counts the {@link #getOrder()} calls, which the
+     * reordering of the children makes for every comparison.
+     */
+    private class CountingLayoutParams extends FlexboxLayout.LayoutParams {
+
+        CountingLayoutParams(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        public int getOrder() {
+            mOrderCount++;
+            return super.getOrder();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.flexbox;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link FlexboxEngine#getMinIntrinsicMainSize(int)} and
+ * {@link FlexboxEngine#getMaxIntrinsicMainSize(int)}.
+ */
+public class IntrinsicSizeTest {
+
+    private static final int UNSPECIFIED = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+            FlexboxEngine.MeasureSpec.UNSPECIFIED);
+
+    @Test
+    public void testMaxIntrinsicMainSize_sameAsUnspecifiedMeasure() {
+        Random random = new Random(0);
+        for (int n = 0; n < 500; n++) {
+            TestFlexContainer container = createFlexContainer(random);
+            FlexboxEngine engine = createEngine(container, random);
+            boolean horizontal = engine.getFlexDirection()
+                    <= FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+
+            int maxIntrinsicMainSize = engine.getMaxIntrinsicMainSize(UNSPECIFIED);
+
+            engine.measure(UNSPECIFIED, UNSPECIFIED);
+            int measuredMainSize = horizontal ? engine.getMeasuredWidthAndState()
+                    : engine.getMeasuredHeightAndState();
+            assertThat(maxIntrinsicMainSize, is(measuredMainSize));
+        }
+    }
+
+    @Test
+    public void testMinIntrinsicMainSize_nothingShrunk() {
+        Random random = new Random(1);
+        for (int n = 0; n < 500; n++) {
+            TestFlexContainer container = createFlexContainer(random);
+            FlexboxEngine engine = createEngine(container, random);
+            engine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_ROW);
+            engine.measure(UNSPECIFIED, UNSPECIFIED);
+            int count = container.getFlexItemCount();
+            int[] widths = new int[count];
+            for (int i = 0; i < count; i++) {
+                widths[i] = container.getMeasuredWidthOfFlexItem(i);
+            }
+
+            int minIntrinsicMainSize = engine.getMinIntrinsicMainSize(UNSPECIFIED);
+
+            engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(minIntrinsicMainSize,
+                    FlexboxEngine.MeasureSpec.AT_MOST), UNSPECIFIED);
+            for (int i = 0; i < count; i++) {
+                if (!container.isFlexItemGone(i) && container.getFlexItemAt(i).getFlexGrow() == 0) {
+                    assertThat(container.getMeasuredWidthOfFlexItem(i), is(widths[i]));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMinIntrinsicMainSize_largestItem() {
+        TestFlexContainer container = new TestFlexContainer();
+        container.addFlexItem(30, 10);
+        container.addFlexItem(50, 10).marginLeft = 5;
+        container.addFlexItem(40, 10);
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        engine.setPadding(2, 0, 3, 0);
+        engine.setColumnGap(7);
+
+        assertThat(engine.getMinIntrinsicMainSize(UNSPECIFIED), is(60));
+        assertThat(engine.getMaxIntrinsicMainSize(UNSPECIFIED), is(144));
+
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+
+        assertThat(engine.getMinIntrinsicMainSize(UNSPECIFIED), is(144));
+    }
+
+    @Test
+    public void testFixedSizeItems_notMeasured() {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 5; i++) {
+            container.addFlexItem(0, 10).width = 20;
+        }
+        container.addFlexItem(30, 10);
+        FlexboxEngine engine = new FlexboxEngine(container);
+        MeasureCounter counter = new MeasureCounter();
+        engine.setMeasureCounter(counter);
+
+        assertThat(engine.getMaxIntrinsicMainSize(UNSPECIFIED), is(130));
+        assertThat(counter.getMeasureCount(), is(1));
+        assertThat(counter.getMeasureCount(MeasureCounter.PHASE_INTRINSIC), is(1));
+        assertThat(counter.getMeasureCountOfFlexItem(5), is(1));
+        assertThat(counter.getPassCount(), is(0));
+    }
+
+    @Test
+    public void testLastMeasureKept() {
+        TestFlexContainer container = createFlexContainer(new Random(2));
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(300,
+                FlexboxEngine.MeasureSpec.EXACTLY), UNSPECIFIED);
+        int flexLineCount = engine.getFlexLineCount();
+        int measuredHeight = engine.getMeasuredHeightAndState();
+
+        engine.getMaxIntrinsicMainSize(UNSPECIFIED);
+
+        assertThat(engine.getFlexLineCount(), is(flexLineCount));
+        assertThat(engine.getMeasuredHeightAndState(), is(measuredHeight));
+    }
+
+    private static FlexboxEngine createEngine(TestFlexContainer container, Random random) {
+        FlexboxEngine engine = new FlexboxEngine(container);
+        // The float distribution may expand a flex line beyond the largest one by a pixel
+        engine.setFixedPointDistribution(true);
+        engine.setFlexDirection(random.nextInt(4));
+        engine.setFlexWrap(random.nextInt(3));
+        engine.setPadding(random.nextInt(5), random.nextInt(5), random.nextInt(5),
+                random.nextInt(5));
+        engine.setColumnGap(random.nextInt(3) * 4);
+        engine.setRowGap(random.nextInt(3) * 4);
+        engine.setShowDividerVertical(random.nextInt(8));
+        engine.setShowDividerHorizontal(random.nextInt(8));
+        engine.setDividerVerticalWidth(3);
+        engine.setDividerHorizontalHeight(2);
+        return engine;
+    }
+
+    private static TestFlexContainer createFlexContainer(Random random) {
+        TestFlexContainer container = new TestFlexContainer();
+        int count = random.nextInt(20);
+        for (int i = 0; i < count; i++) {
+            TestFlexContainer.TestFlexItem item = container.addFlexItem(
+                    random.nextInt(100), random.nextInt(100));
+            if (random.nextInt(4) == 0) {
+                item.width = random.nextInt(80);
+                item.height = random.nextInt(80);
+            }
+            item.flexGrow = random.nextInt(3) == 0 ? 1 : 0;
+            item.minWidth = random.nextInt(4) == 0 ? random.nextInt(60) : 0;
+            item.maxHeight = random.nextInt(4) == 0 ? random.nextInt(60) : FlexItem.MAX_SIZE;
+            item.marginLeft = random.nextInt(4);
+            item.marginTop = random.nextInt(4);
+            item.marginRight = random.nextInt(4);
+            item.marginBottom = random.nextInt(4);
+            item.gone = random.nextInt(8) == 0;
+            item.wrapBefore = random.nextInt(8) == 0;
+            item.order = random.nextInt(6) == 0 ? random.nextInt(3) : FlexItem.ORDER_DEFAULT;
+        }
+        return container;
+    }
+}
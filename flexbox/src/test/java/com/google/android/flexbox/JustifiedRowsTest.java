@@ -0,0 +1,240 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the justified rows mode of the {@link FlexboxEngine}.
+ */
+public class JustifiedRowsTest {
+
+    private static final int CONTAINER_WIDTH = 1000;
+
+    private static final int ROW_HEIGHT = 200;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private MeasureCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mContainer = new TestFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setJustifiedRowHeight(ROW_HEIGHT);
+        mCounter = new MeasureCounter();
+        mEngine.setMeasureCounter(mCounter);
+    }
+
+    @Test
+    public void testRowsFillWidth_measuredOnce() {
+        addFlexItems(1.5f, 1f, 0.75f, 2f, 1.5f, 1f, 0.75f);
+
+        measureAndLayout();
+
+        // 1.5 + 1 + 0.75 + 2 = 5.25, the row is 1050px wide at 200px, scaled down to 190px high
+        assertThat(mEngine.getFlexLineCount(), is(2));
+        assertRow(0, 0, 4);
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(190));
+        // The last row keeps the target height
+        for (int i = 4; i < 7; i++) {
+            assertThat(mContainer.getMeasuredHeightOfFlexItem(i), is(ROW_HEIGHT));
+        }
+        assertThat(mCounter.getMeasureCount(), is(7));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(1));
+        assertThat(mEngine.getMeasuredHeightAndState(), is(190 + ROW_HEIGHT));
+    }
+
+    @Test
+    public void testRowScaledUp_whenCloserToTargetHeight() {
+        // 4.5 at 200px is 900px, 4.5 + 1.5 at 200px is 1200px. 1000 / 4.5 = 222px is closer to
+        // 200px than 1000 / 6 = 167px, thus the last flex item starts the next row
+        addFlexItems(1.5f, 1.5f, 1.5f, 1.5f);
+
+        measureAndLayout();
+
+        assertThat(mEngine.getFlexLineCount(), is(2));
+        assertRow(0, 0, 3);
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(222));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(333));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(1), is(334));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(2), is(333));
+    }
+
+    @Test
+    public void testGapsMarginsPadding() {
+        mEngine.setColumnGap(10);
+        mEngine.setRowGap(20);
+        mEngine.setPadding(15, 5, 25, 5);
+        for (int i = 0; i < 8; i++) {
+            TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+            item.aspectRatio = 1f + (i % 3) * 0.5f;
+            item.marginLeft = 3;
+            item.marginRight = 4;
+        }
+
+        measureAndLayout();
+
+        assertThat(mEngine.getFlexLineCount() > 1, is(true));
+        int viewIndex = 0;
+        for (int l = 0; l < mEngine.getFlexLineCount() - 1; l++) {
+            FlexLine flexLine = mEngine.getFlexLineAt(l);
+            assertRow(l, viewIndex, flexLine.getItemCount());
+            viewIndex += flexLine.getItemCount();
+        }
+        int secondRowStart = mEngine.getFlexLineAt(0).getItemCount();
+        assertThat(mEngine.getFrameLeft(0), is(15 + 3));
+        assertThat(mEngine.getFrameTop(0), is(5));
+        assertThat(mEngine.getFrameTop(secondRowStart),
+                is(5 + mEngine.getFlexLineAt(0).getCrossSize() + 20));
+    }
+
+    @Test
+    public void testWrapBefore_keepsTargetHeight() {
+        addFlexItems(1f, 1f, 1f, 1f);
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(2)).wrapBefore = true;
+
+        measureAndLayout();
+
+        assertThat(mEngine.getFlexLineCount(), is(2));
+        assertThat(mEngine.getFlexLineAt(0).getItemCount(), is(2));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(ROW_HEIGHT));
+        assertThat(mContainer.getMeasuredHeightOfFlexItem(0), is(ROW_HEIGHT));
+    }
+
+    @Test
+    public void testGoneItems_skipped() {
+        addFlexItems(2f, 2f, 2f, 2f);
+        mContainer.addFlexItem(10, 10).gone = true;
+        addFlexItems(1f);
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(1)).gone = true;
+
+        measureAndLayout();
+
+        int itemCount = 0;
+        for (FlexLine flexLine : mEngine.getFlexLines()) {
+            itemCount += flexLine.getItemCount();
+        }
+        assertThat(itemCount, is(mContainer.getFlexItemCount()));
+        assertThat(mCounter.getMeasureCountOfFlexItem(1), is(0));
+        assertThat(mCounter.getMeasureCountOfFlexItem(4), is(0));
+        assertRow(0, 0, 4);
+    }
+
+    @Test
+    public void testFixedSizeWithoutAspectRatio() {
+        TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(10, 10);
+        item.width = 400;
+        item.height = 100;
+        addFlexItems(1f);
+
+        measureAndLayout();
+
+        // 4 + 1 at 200px is 1000px, which fills the row exactly
+        assertThat(mEngine.getFlexLineCount(), is(1));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(800));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(1), is(200));
+    }
+
+    @Test
+    public void testRandom_rowsFillWidth() {
+        Random random = new Random(0);
+        for (int n = 0; n < 200; n++) {
+            mContainer = new TestFlexContainer();
+            mEngine = new FlexboxEngine(mContainer);
+            mEngine.setJustifiedRowHeight(50 + random.nextInt(300));
+            mEngine.setColumnGap(random.nextInt(3) * 4);
+            int count = 1 + random.nextInt(40);
+            for (int i = 0; i < count; i++) {
+                mContainer.addFlexItem(10, 10).aspectRatio = 0.3f + random.nextFloat() * 3;
+            }
+
+            measureAndLayout();
+
+            int viewIndex = 0;
+            for (int l = 0; l < mEngine.getFlexLineCount(); l++) {
+                FlexLine flexLine = mEngine.getFlexLineAt(l);
+                if (l < mEngine.getFlexLineCount() - 1) {
+                    assertRow(l, viewIndex, flexLine.getItemCount());
+                } else {
+                    assertTrue(flexLine.getMainSize() <= CONTAINER_WIDTH);
+                }
+                viewIndex += flexLine.getItemCount();
+            }
+            assertThat(viewIndex, is(count));
+        }
+    }
+
+    @Test
+    public void testColumn_notJustified() {
+        mEngine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+        addFlexItems(2f);
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).height = 300;
+
+        mEngine.measure(exactly(CONTAINER_WIDTH), exactly(CONTAINER_WIDTH));
+
+        // Laid out as usual, with the width computed from the height
+        assertThat(mEngine.getFlexLineAt(0).getMainSize(), is(300));
+        assertThat(mContainer.getMeasuredWidthOfFlexItem(0), is(600));
+    }
+
+    private void addFlexItems(float... aspectRatios) {
+        for (float aspectRatio : aspectRatios) {
+            mContainer.addFlexItem(10, 10).aspectRatio = aspectRatio;
+        }
+    }
+
+    private void measureAndLayout() {
+        mEngine.measure(exactly(CONTAINER_WIDTH), FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                FlexboxEngine.MeasureSpec.UNSPECIFIED));
+        mEngine.layout(0, 0, CONTAINER_WIDTH, mEngine.getMeasuredHeightAndState(), false);
+    }
+
+    /**
+     * Asserts that the visible flex items of the flex line fill the width of the flex container
+     * and have the same height.
+     */
+    private void assertRow(int lineIndex, int startIndex, int itemCount) {
+        FlexLine flexLine = mEngine.getFlexLineAt(lineIndex);
+        assertThat(flexLine.getItemCount(), is(itemCount));
+        assertThat(flexLine.getMainSize(), is(CONTAINER_WIDTH));
+        int height = -1;
+        int right = -1;
+        for (int i = startIndex; i < startIndex + itemCount; i++) {
+            if (mContainer.isFlexItemGone(i)) {
+                continue;
+            }
+            if (height < 0) {
+                height = mContainer.getMeasuredHeightOfFlexItem(i);
+            }
+            assertThat(mContainer.getMeasuredHeightOfFlexItem(i), is(height));
+            right = mEngine.getFrameRight(i) + mContainer.getFlexItemAt(i).getMarginRight();
+        }
+        assertThat(right, is(CONTAINER_WIDTH - mEngine.getPaddingRight()));
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link LayoutCache}.
+ */
+public class LayoutCacheTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private LayoutCache mCache;
+
+    @Before
+    public void setUp() {
+        mContainer = createFlexContainer();
+        mEngine = createEngine(mContainer);
+        mCache = new LayoutCache();
+    }
+
+    @Test
+    public void testRestore_sameResults() throws IOException {
+        long key = measureAndPut(mEngine);
+
+        LayoutCache cache = writeAndRead(mCache);
+        TestFlexContainer container = createFlexContainer();
+        FlexboxEngine restored = createEngine(container);
+
+        assertThat(cache.size(), is(1));
+        assertThat(LayoutCache.computeKey(restored, 1, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(key));
+        assertThat(cache.restore(key, restored), is(true));
+        assertThat(restored.getMeasuredWidthAndState(), is(mEngine.getMeasuredWidthAndState()));
+        assertThat(restored.getMeasuredHeightAndState(), is(mEngine.getMeasuredHeightAndState()));
+        assertThat(restored.getFlexLineCount(), is(mEngine.getFlexLineCount()));
+        for (int i = 0; i < mEngine.getFlexLineCount(); i++) {
+            FlexLine expected = mEngine.getFlexLineAt(i);
+            FlexLine actual = restored.getFlexLineAt(i);
+            assertThat(actual.getMainSize(), is(expected.getMainSize()));
+            assertThat(actual.getCrossSize(), is(expected.getCrossSize()));
+            assertThat(actual.getItemCount(), is(expected.getItemCount()));
+            assertThat(actual.getItemCountNotGone(), is(expected.getItemCountNotGone()));
+        }
+
+        // Measure each flex item to its restored frame as FlexboxLayout does, then lay out
+        for (int i = 0; i < container.getFlexItemCount(); i++) {
+            container.measureFlexItem(restored.getReorderedItemIndex(i),
+                    exactly(restored.getFrameRight(i) - restored.getFrameLeft(i)),
+                    exactly(restored.getFrameBottom(i) - restored.getFrameTop(i)));
+        }
+        restored.layout(0, 0, CONTAINER_SIZE, restored.getMeasuredHeightAndState(), false);
+        for (int i = 0; i < container.getFlexItemCount(); i++) {
+            if (container.isFlexItemGone(mEngine.getReorderedItemIndex(i))) {
+                continue;
+            }
+            assertThat(restored.getFrameLeft(i), is(mEngine.getFrameLeft(i)));
+            assertThat(restored.getFrameTop(i), is(mEngine.getFrameTop(i)));
+            assertThat(restored.getFrameRight(i), is(mEngine.getFrameRight(i)));
+            assertThat(restored.getFrameBottom(i), is(mEngine.getFrameBottom(i)));
+        }
+    }
+
+    @Test
+    public void testComputeKey_changedInputs() {
+        long key = LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified());
+
+        assertThat(LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(key));
+        assertThat(LayoutCache.computeKey(mEngine, 2, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(not(key)));
+        assertThat(LayoutCache.computeKey(mEngine, 1, true, exactly(CONTAINER_SIZE),
+                unspecified()), is(not(key)));
+        assertThat(LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE - 1),
+                unspecified()), is(not(key)));
+
+        TestFlexContainer.TestFlexItem item =
+                (TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(3);
+        item.flexGrow = 2f;
+        assertThat(LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(not(key)));
+        item.flexGrow = FlexItem.FLEX_GROW_DEFAULT;
+        item.gone = true;
+        assertThat(LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(not(key)));
+        item.gone = false;
+        mEngine.setPadding(0, 0, 0, 0);
+        assertThat(LayoutCache.computeKey(mEngine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified()), is(not(key)));
+    }
+
+    @Test
+    public void testRestore_missingKey() {
+        long key = measureAndPut(mEngine);
+
+        assertThat(mCache.restore(key + 1, createEngine(createFlexContainer())), is(false));
+    }
+
+    @Test
+    public void testRestore_differentItemCount() {
+        long key = measureAndPut(mEngine);
+        TestFlexContainer container = createFlexContainer();
+        container.addFlexItem(10, 10);
+
+        assertThat(mCache.restore(key, createEngine(container)), is(false));
+    }
+
+    @Test
+    public void testRemove() throws IOException {
+        long key = measureAndPut(mEngine);
+        mCache.writeTo(new ByteArrayOutputStream());
+
+        mCache.remove(key);
+
+        assertThat(mCache.size(), is(0));
+        assertThat(mCache.isModified(), is(true));
+        assertThat(mCache.restore(key, mEngine), is(false));
+    }
+
+    @Test
+    public void testMaxEntryCount() {
+        LayoutCache cache = new LayoutCache(2);
+        cache.put(1, measure(mEngine));
+        cache.put(2, mEngine);
+        // Accessing the first one makes the second one the least recently used
+        cache.restore(1, mEngine);
+        cache.put(3, mEngine);
+
+        assertThat(cache.size(), is(2));
+        assertThat(cache.restore(1, mEngine), is(true));
+        assertThat(cache.restore(2, mEngine), is(false));
+        assertThat(cache.restore(3, mEngine), is(true));
+    }
+
+    @Test
+    public void testIsModified() throws IOException {
+        assertThat(mCache.isModified(), is(false));
+        long key = measureAndPut(mEngine);
+        assertThat(mCache.isModified(), is(true));
+
+        mCache.writeTo(new ByteArrayOutputStream());
+        assertThat(mCache.isModified(), is(false));
+        // The same results for the same key don't need to be written again
+        mCache.put(key, mEngine);
+        assertThat(mCache.isModified(), is(false));
+        assertThat(writeAndRead(mCache).isModified(), is(false));
+    }
+
+    @Test
+    public void testRestore_corruptedFlexLineCount() throws IOException {
+        long key = measureAndPut(mEngine);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mCache.writeTo(out);
+        byte[] bytes = out.toByteArray();
+        // The header, the key and the length of the entry, followed by the measured sizes
+        int offset = 4 * 4 + 8 + 4 + 2 * 4;
+
+        for (int flexLineCount : new int[] {-1, Integer.MAX_VALUE / 12}) {
+            bytes[offset] = (byte) (flexLineCount >>> 24);
+            bytes[offset + 1] = (byte) (flexLineCount >>> 16);
+            bytes[offset + 2] = (byte) (flexLineCount >>> 8);
+            bytes[offset + 3] = (byte) flexLineCount;
+            LayoutCache cache = LayoutCache.read(new ByteArrayInputStream(bytes));
+
+            // The corrupted entry is dropped instead of being allocated
+            assertThat(cache.restore(key, createEngine(createFlexContainer())), is(false));
+            assertThat(cache.size(), is(0));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_invalidCache() throws IOException {
+        LayoutCache.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+
+    private long measureAndPut(FlexboxEngine engine) {
+        long key = LayoutCache.computeKey(engine, 1, false, exactly(CONTAINER_SIZE),
+                unspecified());
+        mCache.put(key, measure(engine));
+        return key;
+    }
+
+    private static FlexboxEngine measure(FlexboxEngine engine) {
+        engine.measure(exactly(CONTAINER_SIZE), unspecified());
+        engine.layout(0, 0, CONTAINER_SIZE, engine.getMeasuredHeightAndState(), false);
+        return engine;
+    }
+
+    private static LayoutCache writeAndRead(LayoutCache cache) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cache.writeTo(out);
+        return LayoutCache.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static TestFlexContainer createFlexContainer() {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 7; i++) {
+            container.addFlexItem(60 + i * 10, 40 + i * 5);
+        }
+        container.addFlexItem(80, 30).flexGrow = 1f;
+        container.addFlexItem(200, 30).minWidth = 240;
+        container.addFlexItem(50, 50).gone = true;
+        container.addFlexItem(70, 20).order = -1;
+        container.addFlexItem(90, 25).alignSelf = FlexItem.ALIGN_SELF_STRETCH;
+        return container;
+    }
+
+    private static FlexboxEngine createEngine(TestFlexContainer container) {
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        engine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_BASELINE);
+        engine.setJustifyContent(FlexboxEngine.JUSTIFY_CONTENT_SPACE_AROUND);
+        engine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_SPACE_BETWEEN);
+        engine.setColumnGap(4);
+        engine.setPadding(3, 5, 7, 11);
+        return engine;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests of the {@link FlexboxLayout} reporting its passes to the
+ * {@link LayoutThrashDetector}. The main looper is paused so that the frame of the detector isn't
+ * advanced in the middle of a test.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class LayoutThrashDetectionTest {
+
+    private final List<String> mReports = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        FlexboxLayout.setLayoutThrashDetector(new LayoutThrashDetector(1, 1, 10,
+                new LayoutThrashDetector.Listener() {
+                    @Override
+                    public void onLayoutThrash(FlexboxLayout flexboxLayout, int reason,
+                            int count) {
+                        synchronized (mReports) {
+                            mReports.add(reason + ":" + count);
+                        }
+                    }
+                }));
+    }
+
+    @After
+    public void tearDown() {
+        FlexboxLayout.setLayoutThrashDetector(null);
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void testPassesOnMainThread_reported() {
+        FlexboxLayout flexboxLayout = new FlexboxLayout(RuntimeEnvironment.application);
+        measureAndLayoutTwice(flexboxLayout);
+
+        assertThat(mReports.toString(), is("[" + LayoutThrashDetector.REASON_MEASURE_COUNT
+                + ":2, " + LayoutThrashDetector.REASON_LAYOUT_COUNT + ":2]"));
+    }
+
+    @Test
+    public void testPassesOnOtherThread_notReported() throws InterruptedException {
+        final FlexboxLayout flexboxLayout = new FlexboxLayout(RuntimeEnvironment.application);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                measureAndLayoutTwice(flexboxLayout);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertThat(flexboxLayout.getMeasuredWidth(), is(500));
+        assertThat(mReports.isEmpty(), is(true));
+    }
+
+    private static void measureAndLayoutTwice(FlexboxLayout flexboxLayout) {
+        for (int i = 0; i < 2; i++) {
+            // Otherwise the second measure pass is skipped with the same measure specs
+            flexboxLayout.forceLayout();
+            flexboxLayout.measure(
+                    View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(500, View.MeasureSpec.EXACTLY));
+            flexboxLayout.layout(0, 0, 500, 500);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the thresholds of {@link LayoutThrashDetector}.
+ */
+public class LayoutThrashDetectorTest {
+
+    private List<String> mReports;
+
+    private LayoutThrashDetector mDetector;
+
+    @Before
+    public void setUp() {
+        mReports = new ArrayList<>();
+        mDetector = new LayoutThrashDetector(2, 1, 3, new LayoutThrashDetector.Listener() {
+            @Override
+            public void onLayoutThrash(FlexboxLayout flexboxLayout, int reason, int count) {
+                mReports.add(reason + ":" + count);
+            }
+        });
+    }
+
+    @Test
+    public void testMeasureCount_reportedOnceWhenExceeded() {
+        for (int i = 1; i <= 5; i++) {
+            mDetector.onMeasure(null, i, 1);
+        }
+
+        assertThat(mReports.toString(), is("[" + LayoutThrashDetector.REASON_MEASURE_COUNT
+                + ":3]"));
+    }
+
+    @Test
+    public void testLayoutCount_reportedOnceWhenExceeded() {
+        mDetector.onLayout(null, 1);
+        assertThat(mReports.isEmpty(), is(true));
+
+        mDetector.onLayout(null, 2);
+        mDetector.onLayout(null, 3);
+
+        assertThat(mReports.toString(), is("[" + LayoutThrashDetector.REASON_LAYOUT_COUNT
+                + ":2]"));
+    }
+
+    @Test
+    public void testNestingDepth_reportedOnFirstMeasureInFrame() {
+        mDetector.onMeasure(null, 1, 3);
+        assertThat(mReports.isEmpty(), is(true));
+
+        mDetector.onMeasure(null, 1, 4);
+        mDetector.onMeasure(null, 2, 4);
+
+        assertThat(mReports.toString(), is("[" + LayoutThrashDetector.REASON_NESTING_DEPTH
+                + ":4]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidThreshold() {
+        new LayoutThrashDetector(0, 1, 1, new LayoutThrashDetector.Listener() {
+            @Override
+            public void onLayoutThrash(FlexboxLayout flexboxLayout, int reason, int count) {
+            }
+        });
+    }
+}
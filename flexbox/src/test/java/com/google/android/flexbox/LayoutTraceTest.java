@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for recording the measure passes by {@link LayoutRecorder} and replaying them
+ * through {@link LayoutTrace}.
+ */
+public class LayoutTraceTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private LayoutRecorder mRecorder;
+
+    @Before
+    public void setUp() {
+        mContainer = new TestFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_BASELINE);
+        mEngine.setJustifyContent(FlexboxEngine.JUSTIFY_CONTENT_SPACE_AROUND);
+        mEngine.setColumnGap(4);
+        mEngine.setPadding(3, 5, 7, 11);
+        mRecorder = new LayoutRecorder();
+        mEngine.setLayoutRecorder(mRecorder);
+        for (int i = 0; i < 7; i++) {
+            mContainer.addFlexItem(60 + i * 10, 40 + i * 5);
+        }
+        mContainer.addFlexItem(80, 30).flexGrow = 1f;
+        mContainer.addFlexItem(200, 30).minWidth = 240;
+        mContainer.addFlexItem(50, 50).gone = true;
+        mContainer.addFlexItem(70, 20).order = -1;
+    }
+
+    @Test
+    public void testReplay_sameResults() throws IOException {
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        mEngine.measure(exactly(CONTAINER_SIZE / 2), unspecified());
+
+        LayoutTrace trace = read(mRecorder.toByteArray());
+
+        assertThat(mRecorder.getPassCount(), is(2));
+        assertThat(trace.getPasses().size(), is(2));
+        LayoutTrace.Pass pass = trace.getPasses().get(1);
+        assertThat(pass.getFlexItemCount(), is(11));
+        LayoutTrace.ReplayFlexContainer container = pass.newFlexContainer();
+        FlexboxEngine replayed = pass.newEngine(container);
+        replayed.measure(pass.getWidthMeasureSpec(), pass.getHeightMeasureSpec());
+        assertThat(pass.matchesRecording(replayed), is(true));
+        assertThat(container.getUnrecordedMeasureCount(), is(0));
+
+        mEngine.layout(0, 0, CONTAINER_SIZE / 2, mEngine.getMeasuredHeightAndState(), false);
+        replayed.layout(0, 0, CONTAINER_SIZE / 2, replayed.getMeasuredHeightAndState(), false);
+        for (int i = 0; i < pass.getFlexItemCount(); i++) {
+            assertThat(replayed.getFrameLeft(i), is(mEngine.getFrameLeft(i)));
+            assertThat(replayed.getFrameTop(i), is(mEngine.getFrameTop(i)));
+            assertThat(replayed.getFrameRight(i), is(mEngine.getFrameRight(i)));
+            assertThat(replayed.getFrameBottom(i), is(mEngine.getFrameBottom(i)));
+        }
+    }
+
+    @Test
+    public void testReplay_changedAttributeDetected() throws IOException {
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        LayoutTrace.Pass pass = read(mRecorder.toByteArray()).getPasses().get(0);
+
+        LayoutTrace.ReplayFlexContainer container = pass.newFlexContainer();
+        FlexboxEngine replayed = pass.newEngine(container);
+        replayed.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+        replayed.measure(pass.getWidthMeasureSpec(), pass.getHeightMeasureSpec());
+
+        assertThat(pass.matchesRecording(replayed), is(false));
+        assertThat(container.getUnrecordedMeasureCount() > 0, is(true));
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        mRecorder.reset();
+
+        assertThat(mRecorder.getPassCount(), is(0));
+        assertThat(read(mRecorder.toByteArray()).getPasses().size(), is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRead_invalidTrace() throws IOException {
+        read(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    }
+
+    private static LayoutTrace read(byte[] bytes) throws IOException {
+        return LayoutTrace.read(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link MeasureCounter}, which pin how many times the flex items are measured
+ * in each phase of the flexbox algorithm for representative layouts. A change which adds a
+ * measure pass of the flex items makes these tests fail.
+ */
+public class MeasureCounterTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private MeasureCounter mCounter;
+
+    @Before
+    public void setUp() {
+        mContainer = new TestFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_FLEX_START);
+        mCounter = new MeasureCounter();
+        mEngine.setMeasureCounter(mCounter);
+    }
+
+    @Test
+    public void testNotCountingByDefault() {
+        FlexboxEngine engine = new FlexboxEngine(mContainer);
+
+        assertThat(engine.getMeasureCounter(), is(nullValue()));
+    }
+
+    @Test
+    public void testWrap_measuredOnce() {
+        addFlexItems(10, 90, 50);
+
+        measureRow();
+
+        assertThat(mEngine.getFlexLineCount(), is(2));
+        assertThat(mCounter.getPassCount(), is(1));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_INITIAL), is(10));
+        assertThat(mCounter.getMeasureCount(), is(10));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(1));
+    }
+
+    @Test
+    public void testGoneItems_notMeasured() {
+        addFlexItems(4, 90, 50);
+        mContainer.addFlexItem(90, 50).gone = true;
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(), is(4));
+        assertThat(mCounter.getMeasureCountOfFlexItem(4), is(0));
+    }
+
+    @Test
+    public void testSizeConstraint_onlyViolatingItemsMeasuredAgain() {
+        for (int i = 0; i < 10; i++) {
+            TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(90, 50);
+            if (i % 2 == 0) {
+                item.minWidth = 120;
+            }
+        }
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_INITIAL), is(10));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_SIZE_CONSTRAINT), is(5));
+        assertThat(mCounter.getMeasureCount(), is(15));
+        assertThat(mCounter.getMeasureCountOfFlexItem(0), is(2));
+        assertThat(mCounter.getMeasureCountOfFlexItem(1), is(1));
+    }
+
+    @Test
+    public void testExpand_measuredOncePerLine() {
+        for (int i = 0; i < 8; i++) {
+            mContainer.addFlexItem(90, 50).flexGrow = 1f;
+        }
+
+        measureRow();
+
+        assertThat(mEngine.getFlexLineCount(), is(2));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_EXPAND), is(8));
+        assertThat(mCounter.getMeasureCount(), is(16));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testExpand_maxWidth_reexpandedOnce() {
+        for (int i = 0; i < 4; i++) {
+            mContainer.addFlexItem(100, 50).flexGrow = 1f;
+        }
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).maxWidth = 110;
+
+        measureRow();
+
+        // The frozen flex item's space is re-distributed without measuring the flex items, each of
+        // them is measured once with its final size
+        assertThat(mEngine.hasReexpanded(), is(true));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_EXPAND), is(4));
+        assertThat(mCounter.getMeasureCountOfFlexItem(0), is(2));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testExpand_columnDirection() {
+        mEngine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+        for (int i = 0; i < 4; i++) {
+            mContainer.addFlexItem(50, 100).flexGrow = 1f;
+        }
+
+        mEngine.measure(unspecified(), exactly(CONTAINER_SIZE));
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_EXPAND), is(4));
+        assertThat(mCounter.getMeasureCount(), is(8));
+    }
+
+    @Test
+    public void testShrink_measuredOnce() {
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+        addFlexItems(6, 100, 50);
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_SHRINK), is(6));
+        assertThat(mCounter.getMeasureCount(), is(12));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testShrink_minWidth_reshrunkOnce() {
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+        addFlexItems(6, 100, 50);
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).minWidth = 100;
+
+        measureRow();
+
+        assertThat(mEngine.hasReshrunk(), is(true));
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_SHRINK), is(6));
+        assertThat(mCounter.getMeasureCountOfFlexItem(0), is(2));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testShrink_exactFit() {
+        addFlexItems(10, 100, 50);
+
+        measureRow();
+
+        // The flex items in a flex line which exactly fits the flex container are measured
+        // again in the shrink phase, which may change their cross sizes
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_SHRINK), is(10));
+        assertThat(mCounter.getMeasureCount(), is(20));
+    }
+
+    @Test
+    public void testStretch_alignItems() {
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_STRETCH);
+        for (int i = 0; i < 10; i++) {
+            mContainer.addFlexItem(90, 30 + i * 5);
+        }
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_STRETCH), is(10));
+        assertThat(mCounter.getMeasureCount(), is(20));
+        assertThat(mCounter.getMaxMeasureCountOfFlexItem(), is(2));
+    }
+
+    @Test
+    public void testStretch_alignSelf() {
+        for (int i = 0; i < 10; i++) {
+            TestFlexContainer.TestFlexItem item = mContainer.addFlexItem(90, 30 + i * 5);
+            if (i % 5 == 0) {
+                item.alignSelf = FlexItem.ALIGN_SELF_STRETCH;
+            }
+        }
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_STRETCH), is(2));
+        assertThat(mCounter.getMeasureCount(), is(12));
+    }
+
+    @Test
+    public void testBaseline_noAdditionalMeasure() {
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_BASELINE);
+        for (int i = 0; i < 10; i++) {
+            mContainer.addFlexItem(90, 30 + i * 5);
+        }
+
+        measureRow();
+
+        assertThat(mCounter.getMeasureCount(MeasureCounter.PHASE_INITIAL), is(10));
+        assertThat(mCounter.getMeasureCount(), is(10));
+    }
+
+    @Test
+    public void testRemeasureCount_withoutCounter() {
+        mEngine.setMeasureCounter(null);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+        addFlexItems(6, 100, 50);
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).minWidth = 100;
+
+        measureRow();
+
+        assertThat(mEngine.getRemeasureCount(), is(6));
+        assertThat(mEngine.hasReshrunk(), is(true));
+        assertThat(mEngine.hasReexpanded(), is(false));
+    }
+
+    @Test
+    public void testRemeasureCount_resetOnMeasure() {
+        for (int i = 0; i < 4; i++) {
+            mContainer.addFlexItem(100, 50).flexGrow = 1f;
+        }
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).maxWidth = 110;
+        measureRow();
+        assertThat(mEngine.getRemeasureCount(), is(4));
+        assertThat(mEngine.hasReexpanded(), is(true));
+
+        ((TestFlexContainer.TestFlexItem) mContainer.getFlexItemAt(0)).maxWidth = FlexItem.MAX_SIZE;
+        measureRow();
+
+        assertThat(mEngine.getRemeasureCount(), is(4));
+        assertThat(mEngine.hasReexpanded(), is(false));
+    }
+
+    @Test
+    public void testCountsAccumulateUntilReset() {
+        addFlexItems(10, 90, 50);
+
+        measureRow();
+        measureRow();
+
+        assertThat(mCounter.getPassCount(), is(2));
+        assertThat(mCounter.getMeasureCount(), is(20));
+        assertThat(mCounter.getMeasureCountOfFlexItem(3), is(2));
+
+        mCounter.reset();
+
+        assertThat(mCounter.getPassCount(), is(0));
+        assertThat(mCounter.getMeasureCount(), is(0));
+        assertThat(mCounter.getMeasureCountOfFlexItem(3), is(0));
+    }
+
+    @Test
+    public void testStopCounting() {
+        addFlexItems(10, 90, 50);
+        measureRow();
+
+        mEngine.setMeasureCounter(null);
+        measureRow();
+
+        assertThat(mCounter.getPassCount(), is(1));
+        assertThat(mCounter.getMeasureCount(), is(10));
+    }
+
+    private void addFlexItems(int count, int width, int height) {
+        for (int i = 0; i < count; i++) {
+            mContainer.addFlexItem(width, height);
+        }
+    }
+
+    private void measureRow() {
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+    }
+}
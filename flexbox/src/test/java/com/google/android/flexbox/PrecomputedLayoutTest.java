@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link PrecomputedLayout}.
+ */
+public class PrecomputedLayoutTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testMap_sameResults() throws IOException {
+        TestFlexContainer container = createFlexContainer(new Random(0), 1000);
+        FlexboxEngine engine = layout(container, FlexboxEngine.FLEX_DIRECTION_ROW,
+                FlexboxEngine.FLEX_WRAP_WRAP);
+        File file = mTemporaryFolder.newFile();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            PrecomputedLayout.write(engine, out);
+        } finally {
+            out.close();
+        }
+
+        PrecomputedLayout layout = PrecomputedLayout.map(file);
+
+        assertThat(layout.getFlexDirection(), is(FlexboxEngine.FLEX_DIRECTION_ROW));
+        assertThat(layout.getWidth(), is(CONTAINER_SIZE));
+        assertThat(layout.getHeight(),
+                is(engine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK));
+        assertThat(layout.getFlexLineCount(), is(engine.getFlexLineCount()));
+        int position = 0;
+        for (int i = 0; i < layout.getFlexLineCount(); i++) {
+            FlexLine flexLine = engine.getFlexLineAt(i);
+            assertThat(layout.getFlexLineTop(i), is(flexLine.getTop()));
+            assertThat(layout.getFlexLineBottom(i), is(flexLine.getBottom()));
+            assertThat(layout.getFlexLineFirstPosition(i), is(position));
+            assertThat(layout.getFlexLineItemCount(i), is(flexLine.getItemCountNotGone()));
+            position += flexLine.getItemCountNotGone();
+        }
+        assertThat(layout.getItemCount(), is(position));
+        position = 0;
+        for (int i = 0; i < container.getFlexItemCount(); i++) {
+            int index = engine.getReorderedItemIndex(i);
+            if (container.isFlexItemGone(index)) {
+                continue;
+            }
+            assertThat(layout.getItemIndex(position), is(index));
+            assertThat(layout.getItemLeft(position), is(engine.getFrameLeft(i)));
+            assertThat(layout.getItemTop(position), is(engine.getFrameTop(i)));
+            assertThat(layout.getItemRight(position), is(engine.getFrameRight(i)));
+            assertThat(layout.getItemBottom(position), is(engine.getFrameBottom(i)));
+            position++;
+        }
+    }
+
+    @Test
+    public void testFindFlexLines_row() throws IOException {
+        assertFindFlexLines(FlexboxEngine.FLEX_DIRECTION_ROW, FlexboxEngine.FLEX_WRAP_WRAP);
+    }
+
+    @Test
+    public void testFindFlexLines_row_wrapReverse() throws IOException {
+        assertFindFlexLines(FlexboxEngine.FLEX_DIRECTION_ROW,
+                FlexboxEngine.FLEX_WRAP_WRAP_REVERSE);
+    }
+
+    @Test
+    public void testFindFlexLines_column() throws IOException {
+        assertFindFlexLines(FlexboxEngine.FLEX_DIRECTION_COLUMN, FlexboxEngine.FLEX_WRAP_WRAP);
+    }
+
+    @Test
+    public void testFindFlexLines_columnReverse_wrapReverse() throws IOException {
+        assertFindFlexLines(FlexboxEngine.FLEX_DIRECTION_COLUMN_REVERSE,
+                FlexboxEngine.FLEX_WRAP_WRAP_REVERSE);
+    }
+
+    @Test
+    public void testFindFlexLines_empty() throws IOException {
+        PrecomputedLayout layout = write(layout(new TestFlexContainer(),
+                FlexboxEngine.FLEX_DIRECTION_ROW, FlexboxEngine.FLEX_WRAP_WRAP));
+
+        assertThat(layout.getFlexLineCount(), is(0));
+        assertThat(layout.findFirstFlexLine(0, 100), is(-1));
+        assertThat(layout.findLastFlexLine(0, 100), is(-1));
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrap_truncated() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrecomputedLayout.write(layout(createFlexContainer(new Random(0), 10),
+                FlexboxEngine.FLEX_DIRECTION_ROW, FlexboxEngine.FLEX_WRAP_WRAP), out);
+        byte[] bytes = out.toByteArray();
+
+        PrecomputedLayout.wrap(ByteBuffer.wrap(bytes, 0, bytes.length - 4).slice());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetItemLeft_outOfBounds() throws IOException {
+        PrecomputedLayout layout = write(layout(createFlexContainer(new Random(0), 10),
+                FlexboxEngine.FLEX_DIRECTION_ROW, FlexboxEngine.FLEX_WRAP_WRAP));
+
+        layout.getItemLeft(layout.getItemCount());
+    }
+
+    private static void assertFindFlexLines(int flexDirection, int flexWrap) throws IOException {
+        Random random = new Random(flexDirection * 3 + flexWrap);
+        PrecomputedLayout layout = write(layout(createFlexContainer(random, 500), flexDirection,
+                flexWrap));
+        boolean horizontal = flexDirection <= FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+        int crossSize = horizontal ? layout.getHeight() : layout.getWidth();
+
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(crossSize + 100) - 50;
+            int end = start + random.nextInt(300);
+            int first = -1;
+            int last = -1;
+            for (int line = 0; line < layout.getFlexLineCount(); line++) {
+                int lineStart = horizontal ? layout.getFlexLineTop(line)
+                        : layout.getFlexLineLeft(line);
+                int lineEnd = horizontal ? layout.getFlexLineBottom(line)
+                        : layout.getFlexLineRight(line);
+                if (lineStart < end && lineEnd > start) {
+                    first = first == -1 ? line : first;
+                    last = line;
+                }
+            }
+            assertThat(layout.findFirstFlexLine(start, end), is(first));
+            assertThat(layout.findLastFlexLine(start, end), is(last));
+        }
+    }
+
+    private static PrecomputedLayout write(FlexboxEngine engine) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrecomputedLayout.write(engine, out);
+        return PrecomputedLayout.wrap(ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    private static FlexboxEngine layout(TestFlexContainer container, int flexDirection,
+            int flexWrap) {
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexDirection(flexDirection);
+        engine.setFlexWrap(flexWrap);
+        engine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_CENTER);
+        engine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_FLEX_START);
+        engine.setJustifyContent(FlexboxEngine.JUSTIFY_CONTENT_SPACE_BETWEEN);
+        engine.setRowGap(3);
+        engine.setColumnGap(3);
+        int mainSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(CONTAINER_SIZE,
+                FlexboxEngine.MeasureSpec.EXACTLY);
+        int crossSpec = FlexboxEngine.MeasureSpec.makeMeasureSpec(0,
+                FlexboxEngine.MeasureSpec.UNSPECIFIED);
+        boolean horizontal = flexDirection <= FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE;
+        engine.measure(horizontal ? mainSpec : crossSpec, horizontal ? crossSpec : mainSpec);
+        engine.layout(0, 0, engine.getMeasuredWidthAndState() & FlexboxEngine.MEASURED_SIZE_MASK,
+                engine.getMeasuredHeightAndState() & FlexboxEngine.MEASURED_SIZE_MASK, false);
+        return engine;
+    }
+
+    private static TestFlexContainer createFlexContainer(Random random, int count) {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < count; i++) {
+            TestFlexContainer.TestFlexItem item = container.addFlexItem(
+                    20 + random.nextInt(150), 20 + random.nextInt(100));
+            item.flexGrow = random.nextInt(2);
+            item.gone = random.nextInt(10) == 0;
+            item.wrapBefore = random.nextInt(20) == 0;
+            item.order = random.nextInt(10) == 0 ? random.nextInt(3) : FlexItem.ORDER_DEFAULT;
+        }
+        return container;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests which run the features whose cost depends on the number of the flex items with
+ * 100, 1,000 and 10,000 flex items, and check that the number of the operations on the
+ * {@link FlexContainer} grows no faster than O(n log n). The operations are counted instead of
+ * measuring the elapsed time so that the results are stable on any machine.
+ */
+public class ScalingTest {
+
+    private static final int[] ITEM_COUNTS = {100, 1000, 10000};
+
+    /**
+     * The allowed slack on top of the n log n growth between two consecutive item counts. An
+     * O(n^2) path grows by 100 times while the item count grows by 10 times, which is far beyond
+     * this.
+     */
+    private static final double SLACK = 1.5;
+
+    @Test
+    public void testGoneFlexItemsWithDividers() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = newEngineWithDividers(container);
+            for (int j = 0; j < n; j++) {
+                // Long runs of gone flex items between the visible ones
+                container.addFlexItem(50, 50).gone = j % 50 != 0;
+            }
+            measureAndLayout(engine);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    @Test
+    public void testFlexLinesWithEndDividers() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = newEngineWithDividers(container);
+            // The flex lines overflow the container, dummy flex lines are inserted between them
+            engine.setAlignContent(FlexboxEngine.ALIGN_CONTENT_SPACE_AROUND);
+            for (int j = 0; j < n; j++) {
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(50, 50);
+                item.wrapBefore = true;
+                item.gone = j >= n / 2;
+            }
+            measureAndLayout(engine);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    @Test
+    public void testExpandWithMaxWidth() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = new FlexboxEngine(container);
+            engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+            for (int j = 0; j < n; j++) {
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(10, 50);
+                item.flexGrow = 1 + j % 3;
+                item.maxWidth = 12 + j % 7;
+            }
+            engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(16 * n,
+                    FlexboxEngine.MeasureSpec.EXACTLY), FlexboxEngine.MeasureSpec.makeMeasureSpec(
+                    500, FlexboxEngine.MeasureSpec.EXACTLY));
+
+            assertThat(engine.hasReexpanded(), is(true));
+            assertTrue(engine.getRemeasureCount() <= 2 * n);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    @Test
+    public void testShrinkWithMinWidth() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = new FlexboxEngine(container);
+            engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+            for (int j = 0; j < n; j++) {
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(20, 50);
+                item.flexShrink = 1 + j % 3;
+                item.minWidth = 8 + j % 7;
+            }
+            engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(12 * n,
+                    FlexboxEngine.MeasureSpec.EXACTLY), FlexboxEngine.MeasureSpec.makeMeasureSpec(
+                    500, FlexboxEngine.MeasureSpec.EXACTLY));
+
+            assertThat(engine.hasReshrunk(), is(true));
+            assertTrue(engine.getRemeasureCount() <= 2 * n);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    @Test
+    public void testExpandWithDistinctMaxWidths() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = new FlexboxEngine(container);
+            engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+            for (int j = 0; j < n; j++) {
+                // Each flex item hits its maximum width at a different share of the free space
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(10, 50);
+                item.flexGrow = 1 + j % 3;
+                item.maxWidth = 11 + j;
+            }
+            engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(16 * n,
+                    FlexboxEngine.MeasureSpec.EXACTLY), FlexboxEngine.MeasureSpec.makeMeasureSpec(
+                    500, FlexboxEngine.MeasureSpec.EXACTLY));
+
+            assertThat(engine.hasReexpanded(), is(true));
+            assertTrue(engine.getRemeasureCount() <= 2 * n);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    @Test
+    public void testShrinkWithDistinctThresholds() {
+        long[] counts = new long[ITEM_COUNTS.length];
+        for (int i = 0; i < ITEM_COUNTS.length; i++) {
+            int n = ITEM_COUNTS[i];
+            CountingFlexContainer container = new CountingFlexContainer();
+            FlexboxEngine engine = new FlexboxEngine(container);
+            engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_NOWRAP);
+            for (int j = 0; j < n; j++) {
+                // Each flex item hits its minimum width at a different share of the negative free
+                // space
+                TestFlexContainer.TestFlexItem item = container.addFlexItem(20, 50);
+                item.flexShrink = 1 + (float) j / n;
+                item.minWidth = 8 + j % 7;
+            }
+            engine.measure(FlexboxEngine.MeasureSpec.makeMeasureSpec(12 * n,
+                    FlexboxEngine.MeasureSpec.EXACTLY), FlexboxEngine.MeasureSpec.makeMeasureSpec(
+                    500, FlexboxEngine.MeasureSpec.EXACTLY));
+
+            assertThat(engine.hasReshrunk(), is(true));
+            assertTrue(engine.getRemeasureCount() <= 2 * n);
+            counts[i] = container.mOperationCount;
+        }
+        assertNotWorseThanNLogN(counts);
+    }
+
+    private static FlexboxEngine newEngineWithDividers(FlexContainer container) {
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        int showDivider = FlexboxEngine.SHOW_DIVIDER_BEGINNING | FlexboxEngine.SHOW_DIVIDER_MIDDLE
+                | FlexboxEngine.SHOW_DIVIDER_END;
+        engine.setShowDividerHorizontal(showDivider);
+        engine.setShowDividerVertical(showDivider);
+        engine.setDividerHorizontalHeight(2);
+        engine.setDividerVerticalWidth(2);
+        return engine;
+    }
+
+    private static void measureAndLayout(FlexboxEngine engine) {
+        engine.measure(
+                FlexboxEngine.MeasureSpec.makeMeasureSpec(500, FlexboxEngine.MeasureSpec.EXACTLY),
+                FlexboxEngine.MeasureSpec.makeMeasureSpec(500, FlexboxEngine.MeasureSpec.EXACTLY));
+        engine.layout(0, 0, 500, 500, false);
+        engine.computeDividerFrames();
+    }
+
+    private static void assertNotWorseThanNLogN(long[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            double n = ITEM_COUNTS[i - 1];
+            double m = ITEM_COUNTS[i];
+            double allowed = (m * Math.log(m)) / (n * Math.log(n)) * SLACK;
+            double growth = (double) counts[i] / counts[i - 1];
+            assertTrue("Operations grew " + growth + " times from " + ITEM_COUNTS[i - 1]
+                            + " to " + ITEM_COUNTS[i] + " flex items (allowed: " + allowed + ")",
+                    growth <= allowed);
+        }
+    }
+
+    /**
+     * A {@link TestFlexContainer} which counts the accesses to the flex items.
+     */
+    private static class CountingFlexContainer extends TestFlexContainer {
+
+        long mOperationCount;
+
+        @Override
+        public FlexItem getFlexItemAt(int index) {
+            mOperationCount++;
+            return super.getFlexItemAt(index);
+        }
+
+        @Override
+        public boolean isFlexItemGone(int index) {
+            mOperationCount++;
+            return super.isFlexItemGone(index);
+        }
+
+        @Override
+        public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+            mOperationCount++;
+            super.measureFlexItem(index, widthMeasureSpec, heightMeasureSpec);
+        }
+    }
+}
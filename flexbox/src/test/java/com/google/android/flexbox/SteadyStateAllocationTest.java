@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Verifies that the measure pass, the layout pass and the computation of the divider frames
+ * (used by the draw pass) don't allocate any objects once warmed up, as long as the flex items
+ * are unchanged. The allocation is counted per thread by the JVM, so the test is skipped on the
+ * JVMs which don't support it. Also verifies that reusing the flex lines doesn't change the ones
+ * already returned to the callers.
+ */
+public class SteadyStateAllocationTest {
+
+    private static final int CONTAINER_WIDTH = 500;
+
+    private static final int CONTAINER_HEIGHT = 400;
+
+    private static final int WARM_UP_ITERATIONS = 2000;
+
+    private static final int MEASURED_ITERATIONS = 100;
+
+    /** Attempts to observe no allocation, to tolerate the JVM allocating on its own behalf */
+    private static final int ATTEMPTS = 3;
+
+    private static final int[] FLEX_DIRECTIONS = {
+            FlexboxEngine.FLEX_DIRECTION_ROW,
+            FlexboxEngine.FLEX_DIRECTION_ROW_REVERSE,
+            FlexboxEngine.FLEX_DIRECTION_COLUMN,
+            FlexboxEngine.FLEX_DIRECTION_COLUMN_REVERSE,
+    };
+
+    private static final int[] FLEX_WRAPS = {
+            FlexboxEngine.FLEX_WRAP_NOWRAP,
+            FlexboxEngine.FLEX_WRAP_WRAP,
+            FlexboxEngine.FLEX_WRAP_WRAP_REVERSE,
+    };
+
+    private static final int[] ALIGN_CONTENTS = {
+            FlexboxEngine.ALIGN_CONTENT_FLEX_START,
+            FlexboxEngine.ALIGN_CONTENT_FLEX_END,
+            FlexboxEngine.ALIGN_CONTENT_CENTER,
+            FlexboxEngine.ALIGN_CONTENT_SPACE_BETWEEN,
+            FlexboxEngine.ALIGN_CONTENT_SPACE_AROUND,
+            FlexboxEngine.ALIGN_CONTENT_STRETCH,
+    };
+
+    private static final int[] DIVIDER_MODES = {
+            FlexboxEngine.SHOW_DIVIDER_NONE,
+            FlexboxEngine.SHOW_DIVIDER_BEGINNING | FlexboxEngine.SHOW_DIVIDER_MIDDLE
+                    | FlexboxEngine.SHOW_DIVIDER_END,
+    };
+
+    private static final int[] ALIGN_ITEMS = {
+            FlexboxEngine.ALIGN_ITEMS_STRETCH,
+            FlexboxEngine.ALIGN_ITEMS_BASELINE,
+    };
+
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+
+    private long mThreadId;
+
+    /** The bytes allocated by reading the allocated bytes itself */
+    private long mOverhead;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        mThreadId = Thread.currentThread().getId();
+        mOverhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            long after = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            mOverhead = Math.min(mOverhead, after - before);
+        }
+    }
+
+    @Test
+    public void testNoAllocationInSteadyState() {
+        StringBuilder failures = new StringBuilder();
+        for (int flexDirection : FLEX_DIRECTIONS) {
+            for (int flexWrap : FLEX_WRAPS) {
+                for (int alignContent : ALIGN_CONTENTS) {
+                    for (int dividerMode : DIVIDER_MODES) {
+                        for (int alignItems : ALIGN_ITEMS) {
+                            FlexboxEngine engine = createEngine(flexDirection, flexWrap,
+                                    alignContent, dividerMode, alignItems);
+                            long allocated = measureSteadyStateAllocation(engine);
+                            if (allocated != 0) {
+                                failures.append(String.format(
+                                        "flexDirection=%d flexWrap=%d alignContent=%d "
+                                                + "showDivider=%d alignItems=%d: %d bytes%n",
+                                        flexDirection, flexWrap, alignContent, dividerMode,
+                                        alignItems, allocated));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (failures.length() > 0) {
+            fail("Allocated in " + MEASURED_ITERATIONS + " passes after warm-up:\n" + failures);
+        }
+    }
+
+    @Test
+    public void testFlexLinesAreNotChangedByNextMeasure() {
+        FlexboxEngine engine = createEngine(FlexboxEngine.FLEX_DIRECTION_ROW,
+                FlexboxEngine.FLEX_WRAP_WRAP, FlexboxEngine.ALIGN_CONTENT_STRETCH,
+                FlexboxEngine.SHOW_DIVIDER_NONE, FlexboxEngine.ALIGN_ITEMS_STRETCH);
+        runPasses(engine);
+        List<FlexLine> flexLines = engine.getFlexLines();
+        FlexLine firstLine = flexLines.get(0);
+        int lineCount = flexLines.size();
+        int itemCount = firstLine.getItemCount();
+        int mainSize = firstLine.getMainSize();
+        int crossSize = firstLine.getCrossSize();
+
+        // The pooled flex lines are filled with the other values
+        engine.measure(exactly(CONTAINER_WIDTH * 2), exactly(CONTAINER_HEIGHT));
+        engine.layout(0, 0, CONTAINER_WIDTH * 2, CONTAINER_HEIGHT, false);
+        if (engine.getFlexLineAt(0).getItemCount() == itemCount) {
+            fail("The second measure pass is expected to change the first flex line");
+        }
+        assertThat(flexLines.size(), is(lineCount));
+        assertThat(firstLine.getItemCount(), is(itemCount));
+        assertThat(firstLine.getMainSize(), is(mainSize));
+        assertThat(firstLine.getCrossSize(), is(crossSize));
+    }
+
+    private long measureSteadyStateAllocation(FlexboxEngine engine) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            runPasses(engine);
+        }
+        long allocated = Long.MAX_VALUE;
+        for (int attempt = 0; attempt < ATTEMPTS && allocated != 0; attempt++) {
+            long before = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+                runPasses(engine);
+            }
+            long after = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+            allocated = Math.min(allocated, after - before - mOverhead);
+        }
+        return allocated;
+    }
+
+    private static void runPasses(FlexboxEngine engine) {
+        engine.measure(exactly(CONTAINER_WIDTH), exactly(CONTAINER_HEIGHT));
+        engine.layout(0, 0, CONTAINER_WIDTH, CONTAINER_HEIGHT, false);
+        engine.computeDividerFrames();
+    }
+
+    private static FlexboxEngine createEngine(int flexDirection, int flexWrap, int alignContent,
+            int dividerMode, int alignItems) {
+        TestFlexContainer container = new TestFlexContainer();
+        for (int i = 0; i < 24; i++) {
+            TestFlexContainer.TestFlexItem item = container.addFlexItem(40 + (i * 37) % 90,
+                    20 + (i * 13) % 50);
+            item.flexGrow = i % 3 == 0 ? 1f : 0f;
+            item.flexShrink = i % 4 == 0 ? 0f : 1f;
+            item.marginLeft = i % 5;
+            item.marginTop = i % 3;
+            if (i % 7 == 0) {
+                item.alignSelf = FlexItem.ALIGN_SELF_STRETCH;
+            }
+            if (i % 8 == 0) {
+                item.minWidth = 60;
+                item.maxHeight = 40;
+            }
+            if (i == 5) {
+                item.order = -1;
+            }
+            if (i == 11) {
+                item.gone = true;
+            }
+        }
+        FlexboxEngine engine = new FlexboxEngine(container);
+        engine.setFlexDirection(flexDirection);
+        engine.setFlexWrap(flexWrap);
+        engine.setAlignContent(alignContent);
+        engine.setAlignItems(alignItems);
+        engine.setShowDividerHorizontal(dividerMode);
+        engine.setShowDividerVertical(dividerMode);
+        engine.setDividerHorizontalHeight(2);
+        engine.setDividerVerticalWidth(3);
+        engine.setColumnGap(4);
+        engine.setRowGap(5);
+        return engine;
+    }
+}
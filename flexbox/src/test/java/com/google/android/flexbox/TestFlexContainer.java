@@ -0,0 +1,255 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link FlexContainer} for the tests running on a JVM. Each flex item reports its intrinsic
+ * size unless the MeasureSpec passed by the {@link FlexboxEngine} constrains it.
+ */
+class TestFlexContainer implements FlexContainer {
+
+    private final List<TestFlexItem> mItems = new ArrayList<>();
+
+    private int[] mMeasuredWidths = new int[0];
+
+    private int[] mMeasuredHeights = new int[0];
+
+    /**
+     * Adds a flex item whose intrinsic size is the specified size.
+     *
+     * @return the added flex item whose attributes can be changed by the caller
+     */
+    TestFlexItem addFlexItem(int intrinsicWidth, int intrinsicHeight) {
+        TestFlexItem item = new TestFlexItem(intrinsicWidth, intrinsicHeight);
+        mItems.add(item);
+        if (mMeasuredWidths.length < mItems.size()) {
+            int capacity = Math.max(16, mItems.size() * 2);
+            mMeasuredWidths = Arrays.copyOf(mMeasuredWidths, capacity);
+            mMeasuredHeights = Arrays.copyOf(mMeasuredHeights, capacity);
+        }
+        return item;
+    }
+
+    @Override
+    public int getFlexItemCount() {
+        return mItems.size();
+    }
+
+    @Override
+    public FlexItem getFlexItemAt(int index) {
+        return mItems.get(index);
+    }
+
+    @Override
+    public boolean isFlexItemGone(int index) {
+        return mItems.get(index).gone;
+    }
+
+    @Override
+    public void measureFlexItem(int index, int widthMeasureSpec, int heightMeasureSpec) {
+        TestFlexItem item = mItems.get(index);
+        mMeasuredWidths[index] = resolveSize(item.intrinsicWidth, widthMeasureSpec);
+        mMeasuredHeights[index] = resolveSize(item.intrinsicHeight, heightMeasureSpec);
+    }
+
+    @Override
+    public int getMeasuredWidthOfFlexItem(int index) {
+        return mMeasuredWidths[index];
+    }
+
+    @Override
+    public int getMeasuredHeightOfFlexItem(int index) {
+        return mMeasuredHeights[index];
+    }
+
+    @Override
+    public int getMeasuredStateOfFlexItem(int index) {
+        return 0;
+    }
+
+    @Override
+    public int getBaselineOfFlexItem(int index) {
+        return mMeasuredHeights[index] * 3 / 4;
+    }
+
+    private static int resolveSize(int intrinsicSize, int measureSpec) {
+        int size = FlexboxEngine.MeasureSpec.getSize(measureSpec);
+        switch (FlexboxEngine.MeasureSpec.getMode(measureSpec)) {
+            case FlexboxEngine.MeasureSpec.EXACTLY:
+                return size;
+            case FlexboxEngine.MeasureSpec.AT_MOST:
+                return Math.min(intrinsicSize, size);
+            default:
+                return intrinsicSize;
+        }
+    }
+
+    /**
+     * @return the MeasureSpec of the mode of EXACTLY with the specified size
+     */
+    static int exactly(int size) {
+        return FlexboxEngine.MeasureSpec.makeMeasureSpec(size, FlexboxEngine.MeasureSpec.EXACTLY);
+    }
+
+    /**
+     * @return the MeasureSpec of the mode of UNSPECIFIED
+     */
+    static int unspecified() {
+        return FlexboxEngine.MeasureSpec.makeMeasureSpec(0, FlexboxEngine.MeasureSpec.UNSPECIFIED);
+    }
+
+    /**
+     * A mutable {@link FlexItem} with the default attributes of the
+     * {@link FlexboxLayout.LayoutParams} whose width and height are wrap_content.
+     */
+    static class TestFlexItem implements FlexItem {
+
+        int intrinsicWidth;
+
+        int intrinsicHeight;
+
+        boolean gone;
+
+        int width = WRAP_CONTENT;
+
+        int height = WRAP_CONTENT;
+
+        int order = ORDER_DEFAULT;
+
+        float flexGrow = FLEX_GROW_DEFAULT;
+
+        float flexShrink = FLEX_SHRINK_DEFAULT;
+
+        int alignSelf = ALIGN_SELF_AUTO;
+
+        float flexBasisPercent = FLEX_BASIS_PERCENT_DEFAULT;
+
+        float aspectRatio = ASPECT_RATIO_DEFAULT;
+
+        int minWidth;
+
+        int minHeight;
+
+        int maxWidth = MAX_SIZE;
+
+        int maxHeight = MAX_SIZE;
+
+        boolean wrapBefore;
+
+        int marginLeft;
+
+        int marginTop;
+
+        int marginRight;
+
+        int marginBottom;
+
+        TestFlexItem(int intrinsicWidth, int intrinsicHeight) {
+            this.intrinsicWidth = intrinsicWidth;
+            this.intrinsicHeight = intrinsicHeight;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public float getFlexGrow() {
+            return flexGrow;
+        }
+
+        @Override
+        public float getFlexShrink() {
+            return flexShrink;
+        }
+
+        @Override
+        public int getAlignSelf() {
+            return alignSelf;
+        }
+
+        @Override
+        public float getFlexBasisPercent() {
+            return flexBasisPercent;
+        }
+
+        @Override
+        public float getAspectRatio() {
+            return aspectRatio;
+        }
+
+        @Override
+        public int getMinWidth() {
+            return minWidth;
+        }
+
+        @Override
+        public int getMinHeight() {
+            return minHeight;
+        }
+
+        @Override
+        public int getMaxWidth() {
+            return maxWidth;
+        }
+
+        @Override
+        public int getMaxHeight() {
+            return maxHeight;
+        }
+
+        @Override
+        public boolean isWrapBefore() {
+            return wrapBefore;
+        }
+
+        @Override
+        public int getMarginLeft() {
+            return marginLeft;
+        }
+
+        @Override
+        public int getMarginTop() {
+            return marginTop;
+        }
+
+        @Override
+        public int getMarginRight() {
+            return marginRight;
+        }
+
+        @Override
+        public int getMarginBottom() {
+            return marginBottom;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2016 Google Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.android.flexbox;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.android.flexbox.TestFlexContainer.exactly;
+import static com.google.android.flexbox.TestFlexContainer.unspecified;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for the trace sections emitted by the {@link FlexboxEngine} through
+ * {@link FlexboxEngine.Tracer}.
+ */
+public class TraceSectionsTest {
+
+    private static final int CONTAINER_SIZE = 500;
+
+    private TestFlexContainer mContainer;
+
+    private FlexboxEngine mEngine;
+
+    private RecordingTracer mTracer;
+
+    @Before
+    public void setUp() {
+        mContainer = new TestFlexContainer();
+        mEngine = new FlexboxEngine(mContainer);
+        mEngine.setFlexWrap(FlexboxEngine.FLEX_WRAP_WRAP);
+        mTracer = new RecordingTracer();
+        mEngine.setTracer(mTracer, "Test");
+    }
+
+    @Test
+    public void testMeasure_sectionsOfEachPhase() {
+        addFlexItems(3);
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mTracer.mBegunSections.toString(), is("[Test collectFlexLines (3), "
+                + "Test determineMainSize (3), Test determineCrossSize (3), Test stretch (3)]"));
+        assertThat(mTracer.mDepth, is(0));
+    }
+
+    @Test
+    public void testMeasure_baselineSection() {
+        addFlexItems(2);
+        mEngine.setAlignItems(FlexboxEngine.ALIGN_ITEMS_BASELINE);
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mTracer.mBegunSections.get(2), is("Test baseline (2)"));
+        assertThat(mTracer.mDepth, is(0));
+    }
+
+    @Test
+    public void testMeasureVertical_sectionsOfEachPhase() {
+        addFlexItems(4);
+        mEngine.setFlexDirection(FlexboxEngine.FLEX_DIRECTION_COLUMN);
+
+        mEngine.measure(unspecified(), exactly(CONTAINER_SIZE));
+
+        assertThat(mTracer.mBegunSections.toString(), is("[Test collectFlexLines (4), "
+                + "Test determineMainSize (4), Test determineCrossSize (4), Test stretch (4)]"));
+        assertThat(mTracer.mDepth, is(0));
+    }
+
+    @Test
+    public void testLayout_sections() {
+        addFlexItems(3);
+        mEngine.setShowDividerVertical(FlexboxEngine.SHOW_DIVIDER_MIDDLE);
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        mTracer.mBegunSections.clear();
+
+        mEngine.layout(0, 0, CONTAINER_SIZE, mEngine.getMeasuredHeightAndState(), false);
+        mEngine.computeDividerFrames();
+
+        assertThat(mTracer.mBegunSections.toString(),
+                is("[Test layoutHorizontal (3), Test computeDividers (3)]"));
+        assertThat(mTracer.mDepth, is(0));
+    }
+
+    @Test
+    public void testSectionNames_reusedWhileItemCountUnchanged() {
+        addFlexItems(3);
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        String first = mTracer.mBegunSections.get(0);
+        mTracer.mBegunSections.clear();
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        assertThat(mTracer.mBegunSections.get(0), is(sameInstance(first)));
+
+        addFlexItems(1);
+        mTracer.mBegunSections.clear();
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+        assertThat(mTracer.mBegunSections.get(0), is("Test collectFlexLines (4)"));
+    }
+
+    @Test
+    public void testNoTracer_noSections() {
+        addFlexItems(3);
+        mEngine.setTracer(null, "Test");
+
+        mEngine.measure(exactly(CONTAINER_SIZE), unspecified());
+
+        assertThat(mTracer.mBegunSections.isEmpty(), is(true));
+    }
+
+    private void addFlexItems(int count) {
+        for (int i = 0; i < count; i++) {
+            mContainer.addFlexItem(90, 50);
+        }
+    }
+
+    private static class RecordingTracer implements FlexboxEngine.Tracer {
+
+        private final List<String> mBegunSections = new ArrayList<>();
+
+        private int mDepth;
+
+        @Override
+        public void beginSection(String sectionName) {
+            mBegunSections.add(sectionName);
+            mDepth++;
+        }
+
+        @Override
+        public void endSection() {
+            mDepth--;
+        }
+    }
+}